@@ -53,41 +53,36 @@ public class GenerateASTEROIDBELT extends GenerateSuperClass {
     }
 
     /**
-     * Generates array with bodies that form an asteroid belt.
+     * Generates bodies that form an asteroid belt and adds them to a body store.
      *
+     * @param store                   Body store the bodies are added to
      * @param cube                    Defines the location and size of the octree-node
      * @param offset                  Coordinates of bottom-left corner
      * @param numberOfCelestialBodies How many celestial bodies shall be created in this simulation
-     * @return Array with bodies that form an asteroid belt
      */
     @Override
-    protected CelestialBody[] generateAsArray(Cube cube, Vector3 offset, int numberOfCelestialBodies) {
-        CelestialBody sun = new CelestialBody("Sol", 1.989e30, 696340e3, cube.getCenter(), new Vector3(0, 0, 0), StdDraw.YELLOW);
-        CelestialBody[] bodies = new CelestialBody[numberOfCelestialBodies + 1];
-        bodies[0] = sun;
+    protected void generateIntoBodyStore(BodyStore store, Cube cube, Vector3 offset, int numberOfCelestialBodies) {
+        Vector3 center = cube.getCenter();
+        store.add("Sol", 1.989e30, 696340e3, center.getX(), center.getY(), center.getZ(), 0, 0, 0, StdDraw.YELLOW, 1);
 
         int n = numberOfCelestialBodies;
-        int index = 1;
         while (n > 0) {
-            CelestialBody body = createAsteroidBody(new Random(), cube.getEdgeLength(), cube.getCenter());
-            if (cube.isInsideCube(body.getPosition())) {
-                bodies[index] = body;
-                index++;
+            if (addAsteroidBody(store, new Random(), cube)) {
                 n--;
             }
         }
-        return bodies;
     }
 
     /**
-     * Creates a celestial body that has the features of an asteroid.
+     * Creates a body that has the features of an asteroid and adds it to a body store, if it is inside of the cube.
      *
-     * @param rand                      Used for random values
-     * @param edgeLengthOfSimulatedArea The length of a side in the octree
-     * @param offset                    Coordinates of bottom-left corner
-     * @return Celestial body that has the features of an asteroid
+     * @param store Body store the body is added to
+     * @param rand  Used for random values
+     * @param cube  Defines the location and size of the octree-node
+     * @return Whether the body was added
      */
-    private CelestialBody createAsteroidBody(Random rand, double edgeLengthOfSimulatedArea, Vector3 offset) {
+    private boolean addAsteroidBody(BodyStore store, Random rand, Cube cube) {
+        Vector3 offset = cube.getCenter();
         double mass, radius, posX, posY, posZ, velX, velY, velZ = 0;
 
         double minDistanceFromSun = 2.2 * Constants.AU;
@@ -125,14 +120,16 @@ public class GenerateASTEROIDBELT extends GenerateSuperClass {
         posX += offset.getX();
         posY += offset.getY();
 
-        String name = String.valueOf(rand.nextInt() * this.numberOfCelestialBodies * 100);
-
         int r = (int) (Math.random() * 256);
         int g = (int) (Math.random() * 256);
         int b = (int) (Math.random() * 256);
         Color randomColor = new Color(r, g, b);
 
-        return new CelestialBody(name, mass, radius, new Vector3(posX, posY, posZ), new Vector3(velX, velY, velZ), randomColor, this.simulationSpeedInSecondsCalculated);
+        if (!cube.isInsideCube(posX, posY, posZ)) {
+            return false;
+        }
+        store.add(null, mass, radius, posX, posY, posZ, velX, velY, velZ, randomColor, this.simulationSpeedInSecondsCalculated);
+        return true;
     }
 
 }
@@ -57,54 +57,43 @@ public class GenerateCLUSTER extends GenerateSuperClass {
     }
 
     /**
-     * Generates an array with bodies that represent a star cluster.
+     * Generates bodies that represent a star cluster and adds them to a body store.
      *
+     * @param store                   Body store the bodies are added to
      * @param cube                    Defines the location and size of the octree-node
      * @param offset                  Coordinates of bottom-left corner
      * @param numberOfCelestialBodies How many celestial bodies shall be created in this simulation
-     * @return Array with bodies that represent a star cluster
      */
     @Override
-    protected CelestialBody[] generateAsArray(Cube cube, Vector3 offset, int numberOfCelestialBodies) {
-        CelestialBody[] bodies = new CelestialBody[numberOfCelestialBodies + 1];
+    protected void generateIntoBodyStore(BodyStore store, Cube cube, Vector3 offset, int numberOfCelestialBodies) {
         Random rand = new Random();
         double massOfBlackHole = Constants.MASS_OF_SUN + Constants.MASS_OF_SUN * rand.nextInt(1000000) * rand.nextDouble();
 
-        CelestialBody blackHole = new CelestialBody(
-                "black_hole_" + numberOfCelestialBodies,
-                massOfBlackHole,
-                Constants.RADIUS_OF_SUN * 10,
-                cube.getCenter(),
-                new Vector3(0, 0, 0),
-                Color.YELLOW,
-                this.simulationSpeedInSecondsCalculated);
-
-        bodies[0] = blackHole;
+        Vector3 center = cube.getCenter();
+        store.add("black_hole_" + numberOfCelestialBodies, massOfBlackHole, Constants.RADIUS_OF_SUN * 10,
+                center.getX(), center.getY(), center.getZ(), 0, 0, 0, Color.YELLOW, this.simulationSpeedInSecondsCalculated);
 
         int n = numberOfCelestialBodies;
-        int index = 1;
-
         while (n > 0) {
-            CelestialBody body = createClusterBody(rand, cube.getEdgeLength(), cube.getCenter(), massOfBlackHole);
-            if (body.getMass() > 0.06 * Constants.MASS_OF_SUN && cube.isInsideCube(body.getPosition())) {
-                bodies[index] = body;
+            if (addClusterBody(store, rand, cube, massOfBlackHole)) {
                 n--;
-                index++;
             }
         }
-        return bodies;
     }
 
     /**
-     * Creates a celestial body that belongs to a star cluster.
+     * Creates a body that belongs to a star cluster and adds it to a body store,
+     * if it is heavy enough and inside of the cube.
      *
-     * @param rand                      Used for random values
-     * @param edgeLengthOfSimulatedArea The length of a side in the octree
-     * @param offset                    Coordinates of bottom-left corner
-     * @param massOfBlackHole           Mass of black hole
-     * @return Celestial body that belongs to a star cluster
+     * @param store           Body store the body is added to
+     * @param rand            Used for random values
+     * @param cube            Defines the location and size of the octree-node
+     * @param massOfBlackHole Mass of black hole
+     * @return Whether the body was added
      */
-    private CelestialBody createClusterBody(Random rand, double edgeLengthOfSimulatedArea, Vector3 offset, double massOfBlackHole) {
+    private boolean addClusterBody(BodyStore store, Random rand, Cube cube, double massOfBlackHole) {
+        double edgeLengthOfSimulatedArea = cube.getEdgeLength();
+        Vector3 offset = cube.getCenter();
         double mass, radius, posX, posY, posZ, velX = 0, velY = 0, velZ = 0;
         //Cubic root
 
@@ -155,13 +144,15 @@ public class GenerateCLUSTER extends GenerateSuperClass {
 
         velZ = rand.nextGaussian() * 10e4;
 
-        String name = String.valueOf(rand.nextInt() * this.numberOfCelestialBodies * 100);
-
         int r = (int) (Math.random() * 256);
         int g = (int) (Math.random() * 256);
         int b = (int) (Math.random() * 256);
         Color randomColor = new Color(r, g, b);
 
-        return new CelestialBody(name, mass, radius, new Vector3(posX, posY, posZ), new Vector3(velX, velY, velZ), randomColor, this.simulationSpeedInSecondsCalculated);
+        if (mass <= 0.06 * Constants.MASS_OF_SUN || !cube.isInsideCube(posX, posY, posZ)) {
+            return false;
+        }
+        store.add(null, mass, radius, posX, posY, posZ, velX, velY, velZ, randomColor, this.simulationSpeedInSecondsCalculated);
+        return true;
     }
 }
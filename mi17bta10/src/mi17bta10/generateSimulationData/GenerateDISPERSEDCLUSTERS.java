@@ -61,25 +61,22 @@ public class GenerateDISPERSEDCLUSTERS extends GenerateSuperClass {
     }
 
     /**
-     * Generates array with bodies that belong to dispersed clusters.
+     * Generates bodies that belong to dispersed clusters and adds them to a body store.
      *
+     * @param store                   Body store the bodies are added to
      * @param cube                    Defines the location and size of the octree-node
      * @param offset                  Coordinates of bottom-left corner
      * @param numberOfCelestialBodies How many celestial bodies shall be created in this simulation
-     * @return Array with bodies that belong to dispersed clusters
      */
     @Override
-    protected CelestialBody[] generateAsArray(Cube cube, Vector3 offset, int numberOfCelestialBodies) {
+    protected void generateIntoBodyStore(BodyStore store, Cube cube, Vector3 offset, int numberOfCelestialBodies) {
 
         Random rand = new Random();
         int starsNotInACluster = numberOfCelestialBodies;
-        CelestialBody[] bodies;
-        mi17bta10.simulation.List bodyList = new mi17bta10.simulation.List();
 
         int numberOfClusters = rand.nextInt(numberOfCelestialBodies / 2);
         GenerateCLUSTER generateCLUSTER = new GenerateCLUSTER(this.simulationSpeedInSecondsCalculated, this.numberOfCelestialBodies);
         if (numberOfClusters > 0) {
-            int bodyCount = 0;
             for (int i = 0; i < numberOfClusters; numberOfClusters++) {
                 int clusterCount = rand.nextInt(numberOfCelestialBodies / 10);
                 int starsInCluster = 0;
@@ -99,35 +96,15 @@ public class GenerateDISPERSEDCLUSTERS extends GenerateSuperClass {
                 int helperZ = rand.nextInt(10) < 5 ? 1 : -1;
                 double offsetZ = helperZ * rand.nextDouble() * edgeLengthOfSimulatedArea / 2;
 
-                CelestialBody[] bodiesOfCluster = generateCLUSTER.generateAsArray(
-                        new Cube(new Vector3(offsetX, offsetY, offsetZ), newEdgeLengthOfSimulatedArea),
-                        new Cube(new Vector3(offsetX, offsetY, offsetZ), newEdgeLengthOfSimulatedArea).getCenter(),
-                        starsInCluster);
-
-                for (CelestialBody body : bodiesOfCluster) {
-                    bodyList.addToList(body);
-                    bodyCount++;
-                }
+                Cube clusterCube = new Cube(new Vector3(offsetX, offsetY, offsetZ), newEdgeLengthOfSimulatedArea);
+                generateCLUSTER.generateIntoBodyStore(store, clusterCube, clusterCube.getCenter(), starsInCluster);
 
                 if (starsNotInACluster <= 0) {
                     break;
                 }
             }
-
-            bodies = new CelestialBody[bodyCount];
-            ListNode curNode = bodyList.getHead();
-            int index = 0;
-            while (curNode != null && index < bodyCount) {
-                bodies[index] = curNode.getBody();
-
-                curNode = curNode.getNext();
-                index++;
-            }
-
         } else {
-            bodies = generateCLUSTER.generateAsArray(cube, new Vector3(0, 0, 0), numberOfCelestialBodies);
+            generateCLUSTER.generateIntoBodyStore(store, cube, new Vector3(0, 0, 0), numberOfCelestialBodies);
         }
-
-        return bodies;
     }
 }
@@ -49,52 +49,32 @@ public class GenerateSOL extends GenerateSuperClass {
     }
 
     /**
-     * Generates array with all planets of our solar system and the sun.
+     * Adds all planets of our solar system and the sun to a body store.
      *
+     * @param store                   Body store the bodies are added to
      * @param cube                    Defines the location and size of the octree-node
      * @param offset                  Coordinates of bottom-left corner
      * @param numberOfCelestialBodies How many celestial bodies shall be created in this simulation
-     * @return Array with the planets of our solar system and the sun
      */
     @Override
-    protected CelestialBody[] generateAsArray(Cube cube, Vector3 offset, int numberOfCelestialBodies) {
-        Vector3 sunPosition = new Vector3(0, 0, 0);
-        Vector3 sunCurrentMovement = new Vector3(0, 0, 0); // sun is the reference point and assumed not to move.
-        CelestialBody sun = new CelestialBody("Sol", 1.989e30, 696340e3, sunPosition, sunCurrentMovement, StdDraw.YELLOW, this.simulationSpeedInSecondsCalculated);
-
-        Vector3 earthPosition = new Vector3(148e9, 0, 0); //x-coordinate is minimal distance to sun in meters.
-        Vector3 earthCurrentMovement = new Vector3(0, 29.29e3, 0); //y-orbital speed in meters per second (at minimal distance).
-        CelestialBody earth = new CelestialBody("Earth", 5.972e24, 6371e3, earthPosition, earthCurrentMovement, StdDraw.BLUE, this.simulationSpeedInSecondsCalculated);
-
-        Vector3 mercuryPosition = new Vector3(-46.0e9, 0, 0); // arbitrary initialisation: position opposite to the earth with maximal distance.
-        Vector3 mercuryCurrentMovement = new Vector3(0, -47.87e3, 0); // viewing from z direction movement is counter-clockwise
-        CelestialBody mercury = new CelestialBody("Mercury", 3.301e23, 2439.7e3, mercuryPosition, mercuryCurrentMovement, StdDraw.RED, this.simulationSpeedInSecondsCalculated);
-
-        Vector3 marsPosition = new Vector3(-205.0e9, 0, 0); // arbitrary initialisation: position opposite to the earth with maximal distance.
-        Vector3 marsCurrentMovement = new Vector3(0, -24.1e3, 0); // viewing from z direction movement is counter-clockwise
-        CelestialBody mars = new CelestialBody("Mars", 6.39e23, 3389.5e3, marsPosition, marsCurrentMovement, StdDraw.BOOK_RED, this.simulationSpeedInSecondsCalculated);
-
-        Vector3 venusPosition = new Vector3(-107.0e9, 0, 0); // arbitrary initialisation: position opposite to the earth with maximal distance.
-        Vector3 venusCurrentMovement = new Vector3(0, -35e3, 0); // viewing from z direction movement is counter-clockwise
-        CelestialBody venus = new CelestialBody("Venus", 4.876e24, 6051.8e3, venusPosition, venusCurrentMovement, StdDraw.PRINCETON_ORANGE, this.simulationSpeedInSecondsCalculated);
-
-        Vector3 jupiterPosition = new Vector3(-741.0e9, 0, 0); // arbitrary initialisation: position opposite to the earth with maximal distance.
-        Vector3 jupiterCurrentMovement = new Vector3(0, -13.1e3, 0); // viewing from z direction movement is counter-clockwise
-        CelestialBody jupiter = new CelestialBody("Jupiter", 1.898e27, 69911e3, jupiterPosition, jupiterCurrentMovement, StdDraw.LIGHT_GRAY, this.simulationSpeedInSecondsCalculated);
-
-        Vector3 saturnPosition = new Vector3(-135.0e10, 0, 0); // arbitrary initialisation: position opposite to the earth with maximal distance.
-        Vector3 saturnCurrentMovement = new Vector3(0, -9.6e3, 0); // viewing from z direction movement is counter-clockwise
-        CelestialBody saturn = new CelestialBody("Saturn", 5.683e26, 58232e3, saturnPosition, saturnCurrentMovement, StdDraw.DARK_GRAY, this.simulationSpeedInSecondsCalculated);
-
-        Vector3 uranusPosition = new Vector3(-275.0e10, 0, 0); // arbitrary initialisation: position opposite to the earth with maximal distance.
-        Vector3 uranusCurrentMovement = new Vector3(0, -6.8e3, 0); // viewing from z direction movement is counter-clockwise
-        CelestialBody uranus = new CelestialBody("Uranus", 8.681e25, 25362e3, uranusPosition, uranusCurrentMovement, StdDraw.BOOK_LIGHT_BLUE, this.simulationSpeedInSecondsCalculated);
-
-        Vector3 neptunePosition = new Vector3(-445.0e10, 0, 0); // arbitrary initialisation: position opposite to the earth with maximal distance.
-        Vector3 neptuneCurrentMovement = new Vector3(0, -5.4e3, 0); // viewing from z direction movement is counter-clockwise
-        CelestialBody neptune = new CelestialBody("Neptune", 1.024e26, 24622e3, neptunePosition, neptuneCurrentMovement, StdDraw.BOOK_BLUE, this.simulationSpeedInSecondsCalculated);
-
-        CelestialBody[] bodies = new CelestialBody[]{sun, mercury, venus, earth, mars, jupiter, saturn, uranus, neptune};
-        return bodies;
+    protected void generateIntoBodyStore(BodyStore store, Cube cube, Vector3 offset, int numberOfCelestialBodies) {
+        //the sun is the reference point and assumed not to move
+        store.add("Sol", 1.989e30, 696340e3, 0, 0, 0, 0, 0, 0, StdDraw.YELLOW, this.simulationSpeedInSecondsCalculated);
+
+        //arbitrary initialisation: position opposite to the earth with maximal distance,
+        //viewing from z direction movement is counter-clockwise
+        store.add("Mercury", 3.301e23, 2439.7e3, -46.0e9, 0, 0, 0, -47.87e3, 0, StdDraw.RED, this.simulationSpeedInSecondsCalculated);
+        store.add("Venus", 4.876e24, 6051.8e3, -107.0e9, 0, 0, 0, -35e3, 0, StdDraw.PRINCETON_ORANGE, this.simulationSpeedInSecondsCalculated);
+
+        //x-coordinate is minimal distance to sun in meters, y-orbital speed in meters per second (at minimal distance)
+        store.add("Earth", 5.972e24, 6371e3, 148e9, 0, 0, 0, 29.29e3, 0, StdDraw.BLUE, this.simulationSpeedInSecondsCalculated);
+
+        //arbitrary initialisation: position opposite to the earth with maximal distance,
+        //viewing from z direction movement is counter-clockwise
+        store.add("Mars", 6.39e23, 3389.5e3, -205.0e9, 0, 0, 0, -24.1e3, 0, StdDraw.BOOK_RED, this.simulationSpeedInSecondsCalculated);
+        store.add("Jupiter", 1.898e27, 69911e3, -741.0e9, 0, 0, 0, -13.1e3, 0, StdDraw.LIGHT_GRAY, this.simulationSpeedInSecondsCalculated);
+        store.add("Saturn", 5.683e26, 58232e3, -135.0e10, 0, 0, 0, -9.6e3, 0, StdDraw.DARK_GRAY, this.simulationSpeedInSecondsCalculated);
+        store.add("Uranus", 8.681e25, 25362e3, -275.0e10, 0, 0, 0, -6.8e3, 0, StdDraw.BOOK_LIGHT_BLUE, this.simulationSpeedInSecondsCalculated);
+        store.add("Neptune", 1.024e26, 24622e3, -445.0e10, 0, 0, 0, -5.4e3, 0, StdDraw.BOOK_BLUE, this.simulationSpeedInSecondsCalculated);
     }
 }
@@ -125,48 +125,86 @@ public class GenerateSimulationData {
         }
     }
 
+    /**
+     * Generates a tree of the specified tree type with bodies according to the specific type.
+     * The tree contains the whole simulated area, with the origin in the middle.
+     * A flat octree is built from a body store (see generateAsBodyStore), the other trees from celestial bodies.
+     *
+     * @param treeType The tree implementation that shall be used
+     * @return Tree with bodies according to the specific type.
+     */
+    public BarnesHutTree generateAsTree(TreeType treeType) {
+        BarnesHutTree tree = treeType.createTree(createSimulatedCube());
+        if (tree instanceof FlatOctree) {
+            ((FlatOctree) tree).build(generateAsBodyStore());
+            return tree;
+        }
+        for (CelestialBody body : generateAsArray()) {
+            tree.addToOctree(body);
+        }
+        return tree;
+    }
+
     /**
      * Generates array with bodies according to the specific type.
      *
      * @return Array with bodies according to the specific type.
      */
     public CelestialBody[] generateAsArray() {
+        GenerateSuperClass generator = createGenerator();
+        if (generator == null) {
+            return null;
+        }
+        return generator.generateAsArray(createSimulatedCube(), new Vector3(0, 0, 0), this.numberOfCelestialBodies);
+    }
+
+    /**
+     * Generates a body store with bodies according to the specific type,
+     * the generators write the bodies directly to the columns of the store.
+     *
+     * @return Body store with bodies according to the specific type.
+     */
+    public BodyStore generateAsBodyStore() {
+        GenerateSuperClass generator = createGenerator();
+        if (generator == null) {
+            return null;
+        }
+        BodyStore store = new BodyStore(this.numberOfCelestialBodies + 1);
+        generator.generateIntoBodyStore(store, createSimulatedCube(), new Vector3(0, 0, 0), this.numberOfCelestialBodies);
+        return store;
+    }
+
+    /**
+     * Creates the generator of the specific type.
+     *
+     * @return Generator of the specific type, null if there is none
+     */
+    private GenerateSuperClass createGenerator() {
         switch (this.simulationType) {
             case CLUSTER:
-                return new GenerateCLUSTER(this.simulationSpeedInSecondsCalculated, this.numberOfCelestialBodies)
-                        .generateAsArray(
-                                new Cube(new Vector3(-this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2), this.edgeLengthOfSimulatedArea),
-                                new Vector3(0, 0, 0),
-                                this.numberOfCelestialBodies);
+                return new GenerateCLUSTER(this.simulationSpeedInSecondsCalculated, this.numberOfCelestialBodies);
             case DISTRIBUTED_CLUSTERS:
-                return new GenerateDISPERSEDCLUSTERS(this.edgeLengthOfSimulatedArea, this.simulationSpeedInSecondsCalculated, this.numberOfCelestialBodies)
-                        .generateAsArray(
-                                new Cube(new Vector3(-this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2), this.edgeLengthOfSimulatedArea),
-                                new Vector3(0, 0, 0),
-                                this.numberOfCelestialBodies);
+                return new GenerateDISPERSEDCLUSTERS(this.edgeLengthOfSimulatedArea, this.simulationSpeedInSecondsCalculated, this.numberOfCelestialBodies);
             case SOL:
-                return new GenerateSOL(this.edgeLengthOfSimulatedArea, this.simulationSpeedInSecondsCalculated)
-                        .generateAsArray(
-                                new Cube(new Vector3(-this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2), this.edgeLengthOfSimulatedArea),
-                                new Vector3(0, 0, 0),
-                                this.numberOfCelestialBodies);
+                return new GenerateSOL(this.edgeLengthOfSimulatedArea, this.simulationSpeedInSecondsCalculated);
             case ASTEROID_BELT:
-                return new GenerateASTEROIDBELT(this.numberOfCelestialBodies, this.simulationSpeedInSecondsCalculated)
-                        .generateAsArray(
-                                new Cube(new Vector3(-this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2), this.edgeLengthOfSimulatedArea),
-                                new Vector3(0, 0, 0),
-                                this.numberOfCelestialBodies);
+                return new GenerateASTEROIDBELT(this.numberOfCelestialBodies, this.simulationSpeedInSecondsCalculated);
             case COOL_STUFF:
-                return new GenerateCOOLSTUFF(this.numberOfCelestialBodies, this.simulationSpeedInSecondsCalculated)
-                        .generateAsArray(
-                                new Cube(new Vector3(-this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2), this.edgeLengthOfSimulatedArea),
-                                new Vector3(0, 0, 0),
-                                this.numberOfCelestialBodies);
+                return new GenerateCOOLSTUFF(this.numberOfCelestialBodies, this.simulationSpeedInSecondsCalculated);
             default:
                 return null;
         }
     }
 
+    /**
+     * Creates the cube of the whole simulated area, with the origin in the middle.
+     *
+     * @return Cube of the simulated area
+     */
+    private Cube createSimulatedCube() {
+        return new Cube(new Vector3(-this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2, -this.edgeLengthOfSimulatedArea / 2), this.edgeLengthOfSimulatedArea);
+    }
+
     /**
      * Returns the length of a side in the octree (edgeLengthOfSimulatedArea).
      *
@@ -11,5 +11,31 @@ public abstract class GenerateSuperClass {
 
     protected abstract Octree generateAsTree(double edgeLengthOfSimulatedArea, Vector3 leftDownCornerOffset, int numberOfCelestialBodies);
 
-    protected abstract CelestialBody[] generateAsArray(Cube cube, Vector3 offset, int numberOfCelestialBodies);
+    /**
+     * Generates the bodies and adds them to a body store (the values are written to the columns of the store).
+     *
+     * @param store                   Body store the bodies are added to
+     * @param cube                    Defines the location and size of the octree-node
+     * @param offset                  Coordinates of bottom-left corner
+     * @param numberOfCelestialBodies How many celestial bodies shall be created in this simulation
+     */
+    protected abstract void generateIntoBodyStore(BodyStore store, Cube cube, Vector3 offset, int numberOfCelestialBodies);
+
+    /**
+     * Generates the bodies as celestial bodies (see generateIntoBodyStore), in the order they were added to the store.
+     *
+     * @param cube                    Defines the location and size of the octree-node
+     * @param offset                  Coordinates of bottom-left corner
+     * @param numberOfCelestialBodies How many celestial bodies shall be created in this simulation
+     * @return Array with the bodies
+     */
+    protected CelestialBody[] generateAsArray(Cube cube, Vector3 offset, int numberOfCelestialBodies) {
+        BodyStore store = new BodyStore(numberOfCelestialBodies + 1);
+        generateIntoBodyStore(store, cube, offset, numberOfCelestialBodies);
+        CelestialBody[] bodies = new CelestialBody[store.size()];
+        for (int id = 0; id < bodies.length; id++) {
+            bodies[id] = store.toCelestialBody(id);
+        }
+        return bodies;
+    }
 }
@@ -0,0 +1,55 @@
+package mi17bta10.simulation;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many bytes were allocated on the heap by all threads (only on JVMs that support it, e.g. HotSpot).
+ */
+public class AllocationCounter {
+
+    /**
+     * Thread bean of the JVM, null if the allocated bytes can not be measured
+     */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = createThreadBean();
+
+    private AllocationCounter() {
+    }
+
+    private static com.sun.management.ThreadMXBean createThreadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the allocated bytes can be measured on this JVM.
+     *
+     * @return True if the allocated bytes can be measured
+     */
+    public static boolean isSupported() {
+        return THREAD_BEAN != null;
+    }
+
+    /**
+     * Returns the number of bytes that all living threads allocated so far (-1 if not supported).
+     * Only the difference of two calls is meaningful, threads that ended in between are not counted.
+     *
+     * @return Allocated bytes of all living threads
+     */
+    public static long getAllocatedBytes() {
+        if (THREAD_BEAN == null) {
+            return -1;
+        }
+        long sum = 0;
+        for (long bytes : THREAD_BEAN.getThreadAllocatedBytes(THREAD_BEAN.getAllThreadIds())) {
+            if (bytes > 0) {
+                sum += bytes;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,148 @@
+package mi17bta10.simulation;
+
+/**
+ * Force engine that chooses between the direct summation and a tree walk in every calc-move cycle.
+ * Up to MIN_TREE_BODIES bodies the direct summation is always used (the tree is pure overhead), above MAX_DIRECT_BODIES always the tree.
+ * In between, both engines are timed on the same tree and the faster one is used until the number of bodies
+ * has changed by more than a quarter or MEASUREMENT_INTERVAL cycles have passed, then both are timed again
+ * (the timings change with the distribution of the bodies and the warm up of the JIT, so they are not kept longer).
+ */
+public class AutomaticForceEngine implements ForceEngine {
+
+    /**
+     * Number of bodies up to which the direct summation is always used
+     */
+    public static final int MIN_TREE_BODIES = 64;
+
+    /**
+     * Number of bodies from which on the tree is always used
+     */
+    public static final int MAX_DIRECT_BODIES = 5000;
+
+    /**
+     * Number of cycles after which both engines are timed again
+     */
+    public static final int MEASUREMENT_INTERVAL = 100;
+
+    private final ForceEngine directEngine, treeEngine;
+
+    /**
+     * Engine that was faster in the last timing
+     */
+    private ForceEngine chosenEngine;
+
+    /**
+     * Number of bodies of the last timing, -1 if nothing was timed
+     */
+    private int measuredNumberOfBodies;
+
+    /**
+     * Cycles since the last timing
+     */
+    private int cyclesSinceMeasurement;
+
+    /**
+     * Time of the last timing of both engines in ns
+     */
+    private long directTime, treeTime;
+
+    /**
+     * Constructor with the direct summation and the iterative walk
+     */
+    public AutomaticForceEngine() {
+        this(new DirectSummation(), new IterativeTreeWalk());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param directEngine Engine for a small number of bodies
+     * @param treeEngine   Engine for a large number of bodies
+     */
+    public AutomaticForceEngine(ForceEngine directEngine, ForceEngine treeEngine) {
+        this.directEngine = directEngine;
+        this.treeEngine = treeEngine;
+        this.measuredNumberOfBodies = -1;
+    }
+
+    @Override
+    public void calculateAccelerations(FlatOctree tree) {
+        int n = tree.getNumberOfBodies();
+        if (n <= MIN_TREE_BODIES) {
+            this.chosenEngine = this.directEngine;
+        } else if (n >= MAX_DIRECT_BODIES) {
+            this.chosenEngine = this.treeEngine;
+        } else if (this.chosenEngine == null || this.cyclesSinceMeasurement >= MEASUREMENT_INTERVAL
+                || Math.abs(n - this.measuredNumberOfBodies) * 4 > this.measuredNumberOfBodies) {
+            measure(tree, n);
+            return;
+        }
+        this.cyclesSinceMeasurement++;
+        this.chosenEngine.calculateAccelerations(tree);
+    }
+
+    @Override
+    public void reorderBodies(int[] order, int size) {
+        this.directEngine.reorderBodies(order, size);
+        this.treeEngine.reorderBodies(order, size);
+    }
+
+    /**
+     * Times both engines on the tree and chooses the faster one, the accelerations of the second engine are kept.
+     *
+     * @param tree Tree with all bodies
+     * @param n    Number of bodies
+     */
+    private void measure(FlatOctree tree, int n) {
+        long startTime = System.nanoTime();
+        this.directEngine.calculateAccelerations(tree);
+        this.directTime = System.nanoTime() - startTime;
+        startTime = System.nanoTime();
+        this.treeEngine.calculateAccelerations(tree);
+        this.treeTime = System.nanoTime() - startTime;
+
+        this.chosenEngine = this.directTime < this.treeTime ? this.directEngine : this.treeEngine;
+        this.measuredNumberOfBodies = n;
+        this.cyclesSinceMeasurement = 0;
+    }
+
+    /**
+     * Returns true if the direct summation was used in the last cycle.
+     *
+     * @return True if the direct summation is chosen
+     */
+    public boolean isDirectSummationChosen() {
+        return this.chosenEngine == this.directEngine;
+    }
+
+    /**
+     * Estimates the number of bodies at which both engines are equally fast from the last timing,
+     * with a time of the direct summation that grows with n^2 and a time of the tree that grows with n (the log n is ignored).
+     *
+     * @return Estimated number of bodies, -1 if nothing was timed
+     */
+    public int getEstimatedCrossover() {
+        if (this.measuredNumberOfBodies == -1) {
+            return -1;
+        }
+        return (int) (this.measuredNumberOfBodies * (double) this.treeTime / this.directTime);
+    }
+
+    /**
+     * Returns the time of the direct summation in the last timing.
+     *
+     * @return Time in ns
+     */
+    public long getDirectTime() {
+        return this.directTime;
+    }
+
+    /**
+     * Returns the time of the tree in the last timing.
+     *
+     * @return Time in ns
+     */
+    public long getTreeTime() {
+        return this.treeTime;
+    }
+}
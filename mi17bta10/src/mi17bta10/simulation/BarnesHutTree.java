@@ -0,0 +1,89 @@
+package mi17bta10.simulation;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Interface which all tree implementations of the barnes hut algorithm implement,
+ * so that the simulation can choose the implementation at runtime (see TreeType)
+ */
+public interface BarnesHutTree {
+
+    /**
+     * Adds a new body to the tree.
+     *
+     * @param body Celestial Body that shall be added
+     * @return True if body is successfully added
+     */
+    boolean addToOctree(CelestialBody body);
+
+    /**
+     * Calculates the force exerted on all bodies of this tree, moves them
+     * and adds them to the new tree (in this order, so the force calculation can be done in parallel).
+     *
+     * @param newTree New (empty) tree of the same type, used for updating positions of the celestial bodies
+     */
+    void calculateForcesOnAllBodies(BarnesHutTree newTree);
+
+    /**
+     * Sets the thread pool which is used for the force calculation (and passed on to the new trees).
+     *
+     * @param forkJoinPool Thread pool
+     */
+    void setForkJoinPool(ForkJoinPool forkJoinPool);
+
+    /**
+     * Returns a new empty tree of the same type, which contains the same space as this tree.
+     *
+     * @return New empty tree of the same type
+     */
+    BarnesHutTree createEmptyTree();
+
+    /**
+     * Gives a graphical representation of all celestial bodies in the tree (including the leaf cubes).
+     *
+     * @param viewConstant A parameter that specifies how big a celestial body shall be drawn
+     */
+    void displayOctree(double viewConstant);
+
+    /**
+     * Draws all celestial bodies of the tree (without the cubes).
+     *
+     * @param viewConstant A parameter that specifies how big a celestial body shall be drawn
+     */
+    void drawBodies(double viewConstant);
+
+    /**
+     * Returns the list of celestial bodies of this tree
+     *
+     * @return List of celestial bodies of this tree
+     */
+    List getListOfBodies();
+
+    /**
+     * Returns the number of celestial bodies in this tree
+     *
+     * @return Number of celestial bodies in this tree
+     */
+    int getNumberOfBodies();
+
+    /**
+     * Returns the total mass of all celestial bodies.
+     *
+     * @return Total mass of all celestial bodies
+     */
+    double getTotalMass();
+
+    /**
+     * Returns a vector that represents the center of mass of the celestial bodies.
+     *
+     * @return Position of the center of mass of the celestial bodies
+     */
+    Vector3 getCenterOfMass();
+
+    /**
+     * Returns the cube of the root (location and size of the tree).
+     *
+     * @return Cube of the root
+     */
+    Cube getCube();
+}
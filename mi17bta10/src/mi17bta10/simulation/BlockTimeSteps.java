@@ -0,0 +1,323 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Calc-move cycle with hierarchical block time steps: instead of one time step for all bodies, every body gets its own
+ * time step level, the time step of level l is the time step of the body in the store divided by 2^l.
+ * The level of a body is chosen from its acceleration: dt = accuracy * sqrt(lengthScale / |a|),
+ * so bodies on fast orbits (e.g. close to a black hole) get small steps and the slow bodies large steps.
+ * A cycle (step) moves all bodies by their time step in the store with up to 2^maxLevel substeps of the smallest time step:
+ * in every substep all bodies drift (so that the nodes are at the right positions), the tree is refitted (partial update,
+ * only the bodies that left their leaf are moved) and only the active bodies (whose time step ends in this substep)
+ * get new accelerations with the iterative walk. Substeps without active bodies are skipped, so a cycle in which
+ * all bodies have the level 0 costs the same as one cycle of the leapfrog.
+ * The velocities are integrated with the kick-drift-kick leapfrog of every level: an active body gets the closing half kick
+ * of its old time step and the opening half kick of its new time step. A body can only move to a larger time step
+ * at a substep where that time step begins, so that all bodies are synchronized again at the end of the cycle.
+ * The active bodies get the acceleration of the far field of the tree (as in FlatOctree.calculateForcesOnAllBodies),
+ * and the refitted trees calculate their quadrupole moments if the tree has them, so the walk uses them.
+ * The trees of the substeps are two tree objects that are refitted alternately, they use the arena of the tree of the cycle.
+ */
+public class BlockTimeSteps {
+
+    /**
+     * Default largest level: the smallest time step is 1/64 of the time step in the store
+     */
+    public static final int DEFAULT_MAX_LEVEL = 6;
+
+    /**
+     * Default accuracy (factor of the time step of a body)
+     */
+    public static final double DEFAULT_ACCURACY = 0.01;
+
+    /**
+     * Largest level, the number of substeps of a cycle is 2^maxLevel
+     */
+    private final int maxLevel;
+
+    /**
+     * Factor of the time step of a body
+     */
+    private final double accuracy;
+
+    /**
+     * Length scale of the time step of a body in m (e.g. the size of the simulated area)
+     */
+    private final double lengthScale;
+
+    /**
+     * Walk that calculates the accelerations of the active bodies
+     */
+    private final IterativeTreeWalk walk;
+
+    /**
+     * Trees of the substeps, refitted alternately from each other (created in the first cycle)
+     */
+    private final FlatOctree[] substepTrees = new FlatOctree[2];
+
+    /**
+     * Calculates the acceleration of the active body with the index in activeBodies and kicks it (created once, so that a substep does not allocate)
+     */
+    private final IntConsumer activeBodyStep = this::stepActiveBody;
+
+    /**
+     * Tree and number of the current substep, used by activeBodyStep
+     */
+    private FlatOctree substepTree;
+    private int substep;
+
+    /**
+     * Time step level of every body (index = id)
+     */
+    private int[] level;
+
+    /**
+     * Ids of the active bodies of a substep
+     */
+    private int[] activeBodies;
+
+    /**
+     * The bodies with an id smaller than this number had their first half kick
+     */
+    private int numberOfStartedBodies;
+
+    /**
+     * Number of accelerations that were calculated in the last cycle, and in the last cycle with the smallest time step for all bodies
+     */
+    private long numberOfForceCalculations, numberOfForceCalculationsWithoutLevels;
+
+    /**
+     * Number of substeps that were calculated in the last cycle (substeps without active bodies are skipped)
+     */
+    private int numberOfSubstepsOfLastCycle;
+
+    /**
+     * Constructor with the default levels and accuracy
+     *
+     * @param lengthScale Length scale of the time step of a body in m (e.g. the size of the simulated area)
+     */
+    public BlockTimeSteps(double lengthScale) {
+        this(DEFAULT_MAX_LEVEL, DEFAULT_ACCURACY, lengthScale);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxLevel    Largest level, the smallest time step is the time step in the store divided by 2^maxLevel
+     * @param accuracy    Factor of the time step of a body
+     * @param lengthScale Length scale of the time step of a body in m (e.g. the size of the simulated area)
+     */
+    public BlockTimeSteps(int maxLevel, double accuracy, double lengthScale) {
+        if (maxLevel < 0 || maxLevel > 30) {
+            throw new IllegalArgumentException("The largest level has to be between 0 and 30: " + maxLevel);
+        }
+        this.maxLevel = maxLevel;
+        this.accuracy = accuracy;
+        this.lengthScale = lengthScale;
+        this.walk = new IterativeTreeWalk();
+        this.level = new int[0];
+        this.activeBodies = new int[0];
+    }
+
+    /**
+     * Moves all bodies of the tree by the time step in the store (one cycle with 2^maxLevel substeps).
+     * The trees of the substeps are refitted from the last tree, so the tree must not be used anymore afterwards.
+     * The returned tree is one of the trees of the substeps, it is refitted again in the next cycle.
+     *
+     * @param tree Tree with all bodies, the accelerations do not have to be calculated
+     * @return Tree with the new positions of the bodies
+     */
+    public FlatOctree step(FlatOctree tree) {
+        BodyStore bodies = tree.getBodyStore();
+        int n = bodies.size();
+        if (this.level.length < n) {
+            this.level = Arrays.copyOf(this.level, Math.max(n, this.level.length * 2));
+            this.activeBodies = new int[this.level.length];
+        }
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ();
+        double[] vx = bodies.getVelocityX(), vy = bodies.getVelocityY(), vz = bodies.getVelocityZ();
+        double[] timeStep = bodies.getTimeStep();
+        int numberOfSubsteps = 1 << this.maxLevel;
+        this.numberOfForceCalculations = 0;
+        this.numberOfSubstepsOfLastCycle = 0;
+        this.numberOfForceCalculationsWithoutLevels = (long) n * numberOfSubsteps;
+
+        if (this.substepTrees[0] == null) {
+            for (int i = 0; i < this.substepTrees.length; i++) {
+                this.substepTrees[i] = (FlatOctree) tree.createEmptyTree();
+            }
+        }
+
+        //new bodies get their acceleration, level and first half kick
+        int started = Math.min(this.numberOfStartedBodies, n);
+        if (started < n) {
+            int from = started;
+            this.walk.prepare(tree);
+            tree.prepareFarField();
+            ParallelLoop.forEach(tree.getForkJoinPool(), from, n, id -> {
+                this.walk.calculateAcceleration(tree, id);
+                tree.addFarFieldAcceleration(id);
+                this.level[id] = chooseLevel(bodies, id, 0);
+                kick(bodies, id, timeStep[id] / (1 << this.level[id]) / 2);
+            });
+            this.numberOfForceCalculations += n - from;
+        }
+        this.numberOfStartedBodies = n;
+
+        FlatOctree current = tree;
+        int substep = 0;
+        while (substep < numberOfSubsteps) {
+            //the next substep at which the time step of a body ends, the substeps in between are skipped
+            int nextSubstep = numberOfSubsteps;
+            for (int id = 0; id < n; id++) {
+                int substepsOfLevel = getNumberOfSubsteps(this.level[id]);
+                nextSubstep = Math.min(nextSubstep, (substep / substepsOfLevel + 1) * substepsOfLevel);
+            }
+            //drift of all bodies to the next substep
+            for (int id = 0; id < n; id++) {
+                double dt = timeStep[id] * (nextSubstep - substep) / numberOfSubsteps;
+                x[id] += vx[id] * dt;
+                y[id] += vy[id] * dt;
+                z[id] += vz[id] * dt;
+            }
+            substep = nextSubstep;
+            FlatOctree newTree = this.substepTrees[this.numberOfSubstepsOfLastCycle % 2];
+            newTree.refitSubstep(current);
+            current = newTree;
+            //a rebuild removes the bodies outside of a fixed root cube (see removeBodies)
+            n = bodies.size();
+
+            int numberOfActiveBodies = 0;
+            for (int id = 0; id < n; id++) {
+                if (substep % getNumberOfSubsteps(this.level[id]) == 0) {
+                    this.activeBodies[numberOfActiveBodies++] = id;
+                }
+            }
+            this.walk.prepare(current);
+            current.prepareFarField();
+            this.substepTree = current;
+            this.substep = substep;
+            ParallelLoop.forEach(current.getForkJoinPool(), 0, numberOfActiveBodies, this.activeBodyStep);
+            this.numberOfForceCalculations += numberOfActiveBodies;
+            this.numberOfSubstepsOfLastCycle++;
+        }
+        this.substepTree = null;
+        //all bodies had their opening half kick of the next cycle already, the velocities are half a step ahead of the positions
+        return current;
+    }
+
+    /**
+     * Calculates the acceleration of an active body in the tree of the current substep, the body gets the closing half kick
+     * of its old time step, a new level and the opening half kick of its new time step.
+     *
+     * @param index Index of the body in activeBodies
+     */
+    private void stepActiveBody(int index) {
+        int id = this.activeBodies[index];
+        BodyStore bodies = this.substepTree.getBodyStore();
+        double timeStep = bodies.getTimeStep()[id];
+        //the acceleration at the end of the old time step is the one at the beginning of the new time step
+        this.walk.calculateAcceleration(this.substepTree, id);
+        this.substepTree.addFarFieldAcceleration(id);
+        kick(bodies, id, timeStep / (1 << this.level[id]) / 2);
+        this.level[id] = chooseLevel(bodies, id, this.substep);
+        kick(bodies, id, timeStep / (1 << this.level[id]) / 2);
+    }
+
+    /**
+     * Moves the levels of the kept bodies to their new ids, after bodies were removed from the store
+     * (see BodyStore.removeBodiesOutside, the body with the id keptIds[i] got the id i).
+     *
+     * @param keptIds Old id of every kept body
+     * @param size    Number of kept bodies
+     */
+    public void removeBodies(int[] keptIds, int size) {
+        this.numberOfStartedBodies = LeapfrogIntegrator.countStartedBodies(keptIds, size, this.numberOfStartedBodies);
+        //the id of a kept body gets smaller or stays the same, so the levels can be moved forward in place
+        for (int id = 0; id < this.numberOfStartedBodies; id++) {
+            this.level[id] = this.level[keptIds[id]];
+        }
+    }
+
+    /**
+     * Chooses the level of a body from its acceleration, a larger time step than the current one is only possible
+     * if it begins at the substep.
+     *
+     * @param bodies  Store with the bodies and their accelerations
+     * @param id      Id of the body
+     * @param substep Number of the substep in the cycle (0 for the beginning)
+     * @return Level of the body
+     */
+    private int chooseLevel(BodyStore bodies, int id, int substep) {
+        double ax = bodies.getAccelerationX()[id], ay = bodies.getAccelerationY()[id], az = bodies.getAccelerationZ()[id];
+        double acceleration = Math.sqrt(ax * ax + ay * ay + az * az);
+        int wantedLevel = 0;
+        if (acceleration > 0) {
+            double wantedTimeStep = this.accuracy * Math.sqrt(this.lengthScale / acceleration);
+            double timeStep = bodies.getTimeStep()[id];
+            while (wantedLevel < this.maxLevel && timeStep / (1 << wantedLevel) > wantedTimeStep) {
+                wantedLevel++;
+            }
+        }
+        int newLevel = wantedLevel;
+        while (substep % getNumberOfSubsteps(newLevel) != 0) {
+            newLevel++; //the larger time step does not begin at this substep
+        }
+        return newLevel;
+    }
+
+    /**
+     * Returns the number of substeps of a time step of the level.
+     *
+     * @param level Level of the time step
+     * @return Number of substeps
+     */
+    private int getNumberOfSubsteps(int level) {
+        return 1 << (this.maxLevel - level);
+    }
+
+    private static void kick(BodyStore bodies, int id, double dt) {
+        bodies.getVelocityX()[id] += bodies.getAccelerationX()[id] * dt;
+        bodies.getVelocityY()[id] += bodies.getAccelerationY()[id] * dt;
+        bodies.getVelocityZ()[id] += bodies.getAccelerationZ()[id] * dt;
+    }
+
+    /**
+     * Returns the time step level of a body, the time step of the body is its time step in the store divided by 2^level.
+     *
+     * @param id Id of the body
+     * @return Level of the body
+     */
+    public int getLevel(int id) {
+        return this.level[id];
+    }
+
+    /**
+     * Returns the number of accelerations that were calculated in the last cycle.
+     *
+     * @return Number of force calculations
+     */
+    public long getNumberOfForceCalculations() {
+        return this.numberOfForceCalculations;
+    }
+
+    /**
+     * Returns the number of substeps that were calculated in the last cycle.
+     *
+     * @return Number of substeps
+     */
+    public int getNumberOfSubstepsOfLastCycle() {
+        return this.numberOfSubstepsOfLastCycle;
+    }
+
+    /**
+     * Returns the number of accelerations that the last cycle would have needed with the smallest time step for all bodies.
+     *
+     * @return Number of force calculations
+     */
+    public long getNumberOfForceCalculationsWithoutLevels() {
+        return this.numberOfForceCalculationsWithoutLevels;
+    }
+}
@@ -0,0 +1,81 @@
+package mi17bta10.simulation;
+
+/**
+ * Opening criterion of Salmon and Warren: a node is accepted if the ratio of its distance (to the center of mass)
+ * and bmax is greater than theta, where bmax is the largest distance between the center of mass and a body of the node.
+ * Unlike the edge length, bmax grows if the center of mass is near the side of the node, so a close body opens the node,
+ * and it is small for nodes whose bodies are close together (they are accepted earlier).
+ * theta should be greater than 1, so that a node is never accepted by one of its own bodies.
+ * bmax is calculated in prepare for all nodes: directly from the bodies for a leaf, and as an upper bound from the children
+ * (distance of the center of mass of the child + bmax of the child) for an inner node.
+ */
+public class BmaxCriterion implements OpeningCriterion {
+
+    /**
+     * A node is accepted if the ratio of its distance and bmax is greater than theta
+     */
+    private final double theta;
+
+    /**
+     * Largest distance between the center of mass and a body for every node (index = node), kept for the next tree
+     */
+    private double[] bmax;
+
+    /**
+     * Constructor
+     *
+     * @param theta A node is accepted if the ratio of its distance and bmax is greater than theta
+     */
+    public BmaxCriterion(double theta) {
+        this.theta = theta;
+        this.bmax = new double[0];
+    }
+
+    @Override
+    public void prepare(FlatOctree tree) {
+        int numberOfNodes = tree.getNumberOfNodes();
+        if (this.bmax.length < numberOfNodes) {
+            this.bmax = new double[Math.max(numberOfNodes, this.bmax.length * 2)];
+        }
+        BodyStore bodies = tree.getBodyStore();
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ();
+        //children always have a higher index than their parent, so one pass from the last to the first node is enough
+        for (int node = numberOfNodes - 1; node >= 0; node--) {
+            double centerX = tree.getCenterOfMassX(node), centerY = tree.getCenterOfMassY(node), centerZ = tree.getCenterOfMassZ(node);
+            double largestDistance = 0;
+            int firstChild = tree.getFirstChild(node);
+            if (firstChild == FlatOctree.NONE) {
+                for (int body = tree.getBodyOfNode(node); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+                    double dx = x[body] - centerX, dy = y[body] - centerY, dz = z[body] - centerZ;
+                    largestDistance = Math.max(largestDistance, Math.sqrt(dx * dx + dy * dy + dz * dz));
+                }
+            } else {
+                for (int child = firstChild; child < firstChild + 8; child++) {
+                    if (tree.getTotalMass(child) == 0) {
+                        continue; //empty child
+                    }
+                    double dx = tree.getCenterOfMassX(child) - centerX;
+                    double dy = tree.getCenterOfMassY(child) - centerY;
+                    double dz = tree.getCenterOfMassZ(child) - centerZ;
+                    largestDistance = Math.max(largestDistance, Math.sqrt(dx * dx + dy * dy + dz * dz) + this.bmax[child]);
+                }
+            }
+            this.bmax[node] = largestDistance;
+        }
+    }
+
+    @Override
+    public boolean isFarEnough(FlatOctree tree, int node, int id, double distance) {
+        return distance > this.theta * this.bmax[node];
+    }
+
+    /**
+     * Returns bmax of a node (calculated in the last prepare).
+     *
+     * @param node Index of the node
+     * @return Largest distance between the center of mass and a body of the node
+     */
+    public double getBmax(int node) {
+        return this.bmax[node];
+    }
+}
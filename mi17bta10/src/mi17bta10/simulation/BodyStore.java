@@ -0,0 +1,492 @@
+package mi17bta10.simulation;
+
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Stores all celestial bodies of a simulation as columns (structure of arrays):
+ * every property has its own array, and the index of a body in these arrays is its id.
+ * The id is dense (0 to size - 1) and is used for all identity checks in the calculation.
+ * The arrays can be read directly (e.g. getPositionX()), they are replaced when the store grows,
+ * so they have to be fetched again after bodies were added.
+ * Name and color are only used for the output and are not needed by the calculation.
+ */
+public class BodyStore {
+
+    /**
+     * Initial number of bodies the arrays can hold
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Coordinates of the positions of the bodies
+     */
+    private double[] positionX, positionY, positionZ;
+
+    /**
+     * Coordinates of the velocities of the bodies
+     */
+    private double[] velocityX, velocityY, velocityZ;
+
+    /**
+     * Coordinates of the accelerations of the bodies, calculated by a force engine
+     */
+    private double[] accelerationX, accelerationY, accelerationZ;
+
+    /**
+     * Masses of the bodies
+     */
+    private double[] mass;
+
+    /**
+     * Radii of the bodies
+     */
+    private double[] radius;
+
+    /**
+     * How many seconds are calculated in a calc-move cycle for every body
+     */
+    private double[] timeStep;
+
+    /**
+     * Ids of the celestial bodies the bodies were created from (see CelestialBody.getId),
+     * for a body that was added with its values the id it got in this store (it is kept when the bodies are reordered or removed)
+     */
+    private int[] celestialBodyId;
+
+    /**
+     * Names of the bodies (only for the output)
+     */
+    private String[] name;
+
+    /**
+     * Colors of the bodies (only for the output)
+     */
+    private Color[] color;
+
+    /**
+     * Number of bodies in this store
+     */
+    private int size;
+
+    /**
+     * Number of bodies that were added to this store (with removed bodies), the celestial body id of the next body
+     */
+    private int numberOfAddedBodies;
+
+    /**
+     * Constructor, creates an empty store
+     */
+    public BodyStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructor, creates an empty store
+     *
+     * @param capacity Number of bodies the store can hold before it has to grow
+     */
+    public BodyStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.positionX = new double[capacity];
+        this.positionY = new double[capacity];
+        this.positionZ = new double[capacity];
+        this.velocityX = new double[capacity];
+        this.velocityY = new double[capacity];
+        this.velocityZ = new double[capacity];
+        this.accelerationX = new double[capacity];
+        this.accelerationY = new double[capacity];
+        this.accelerationZ = new double[capacity];
+        this.mass = new double[capacity];
+        this.radius = new double[capacity];
+        this.timeStep = new double[capacity];
+        this.celestialBodyId = new int[capacity];
+        this.name = new String[capacity];
+        this.color = new Color[capacity];
+    }
+
+    /**
+     * Creates a store with the specified celestial bodies, the body with index i gets the id i.
+     *
+     * @param bodies         Celestial bodies
+     * @param numberOfBodies Number of bodies in the array that shall be added
+     * @return Store with the bodies
+     */
+    public static BodyStore fromCelestialBodies(CelestialBody[] bodies, int numberOfBodies) {
+        BodyStore store = new BodyStore(numberOfBodies);
+        for (int i = 0; i < numberOfBodies; i++) {
+            store.add(bodies[i]);
+        }
+        return store;
+    }
+
+    /**
+     * Adds a celestial body (the values are copied, the celestial body is not changed by the simulation).
+     *
+     * @param body Celestial body that shall be added
+     * @return Id of the new body
+     */
+    public int add(CelestialBody body) {
+        Vector3 position = body.getPosition();
+        Vector3 velocity = body.getVelocity();
+        int id = add(body.getName(), body.getMass(), body.getRadius(),
+                position.getX(), position.getY(), position.getZ(),
+                velocity.getX(), velocity.getY(), velocity.getZ(),
+                body.getColor(), body.getSimulationSpeedInSecondsCalculated());
+        this.celestialBodyId[id] = body.getId();
+        return id;
+    }
+
+    /**
+     * Adds a body, it gets the next celestial body id of this store: the ids are counted up from 0,
+     * so they are the same as the ids of the bodies as long as no body was removed or reordered.
+     * The ids are only unique in one store, so the bodies of different stores must not be added to the same tree.
+     *
+     * @param name      Name of the body (can be null)
+     * @param mass      Mass of the body
+     * @param radius    Radius of the body
+     * @param x         x-coordinate of the position
+     * @param y         y-coordinate of the position
+     * @param z         z-coordinate of the position
+     * @param velocityX x-coordinate of the velocity
+     * @param velocityY y-coordinate of the velocity
+     * @param velocityZ z-coordinate of the velocity
+     * @param color     Color of the body
+     * @param timeStep  How many seconds are calculated in a calc-move cycle
+     * @return Id of the new body
+     */
+    public int add(String name, double mass, double radius, double x, double y, double z,
+                   double velocityX, double velocityY, double velocityZ, Color color, double timeStep) {
+        ensureCapacity(this.size + 1);
+        int id = this.size++;
+        this.positionX[id] = x;
+        this.positionY[id] = y;
+        this.positionZ[id] = z;
+        this.velocityX[id] = velocityX;
+        this.velocityY[id] = velocityY;
+        this.velocityZ[id] = velocityZ;
+        this.accelerationX[id] = 0;
+        this.accelerationY[id] = 0;
+        this.accelerationZ[id] = 0;
+        this.mass[id] = mass;
+        this.radius[id] = radius;
+        this.timeStep[id] = timeStep;
+        this.celestialBodyId[id] = this.numberOfAddedBodies++;
+        this.name[id] = name;
+        this.color[id] = color;
+        return id;
+    }
+
+    /**
+     * Removes the body that was added last.
+     */
+    public void removeLast() {
+        if (this.size > 0) {
+            this.size--;
+            this.numberOfAddedBodies--;
+            this.name[this.size] = null;
+            this.color[this.size] = null;
+        }
+    }
+
+    /**
+     * Removes all bodies outside of the cube, the other bodies keep their order
+     * (the ids of the bodies after a removed body get smaller).
+     *
+     * @param cube    Bodies outside of this cube are removed
+     * @param keptIds Array that gets the old id of every kept body (keptIds[new id] = old id), at least size() long
+     * @return Number of removed bodies
+     */
+    public int removeBodiesOutside(Cube cube, int[] keptIds) {
+        int newSize = 0;
+        for (int id = 0; id < this.size; id++) {
+            if (cube.isInsideCube(this.positionX[id], this.positionY[id], this.positionZ[id])) {
+                if (newSize != id) {
+                    copy(id, newSize);
+                }
+                keptIds[newSize] = id;
+                newSize++;
+            }
+        }
+        int removed = this.size - newSize;
+        Arrays.fill(this.name, newSize, this.size, null);
+        Arrays.fill(this.color, newSize, this.size, null);
+        this.size = newSize;
+        return removed;
+    }
+
+    /**
+     * Reorders the bodies of the store in place: the body with the id order[i] gets the id i (e.g. to store the bodies
+     * in the order of a space filling curve, so that bodies that are close in space are close in memory).
+     * The ids of all bodies change, trees that contain the bodies of this store are not valid anymore.
+     *
+     * @param order Permutation of the ids 0 to size - 1 (it is changed during the reordering, but restored at the end)
+     */
+    public void reorder(int[] order) {
+        //the slot after the last body keeps the first body of every cycle of the permutation
+        ensureCapacity(this.size + 1);
+        int temp = this.size;
+        for (int start = 0; start < this.size; start++) {
+            if (order[start] < 0) {
+                continue; //already moved in an earlier cycle
+            }
+            copy(start, temp);
+            int id = start;
+            while (true) {
+                int from = order[id];
+                order[id] = ~from;
+                if (from == start) {
+                    copy(temp, id);
+                    break;
+                }
+                copy(from, id);
+                id = from;
+            }
+        }
+        for (int id = 0; id < this.size; id++) {
+            order[id] = ~order[id];
+        }
+        this.name[temp] = null;
+        this.color[temp] = null;
+    }
+
+    private void copy(int from, int to) {
+        this.positionX[to] = this.positionX[from];
+        this.positionY[to] = this.positionY[from];
+        this.positionZ[to] = this.positionZ[from];
+        this.velocityX[to] = this.velocityX[from];
+        this.velocityY[to] = this.velocityY[from];
+        this.velocityZ[to] = this.velocityZ[from];
+        this.accelerationX[to] = this.accelerationX[from];
+        this.accelerationY[to] = this.accelerationY[from];
+        this.accelerationZ[to] = this.accelerationZ[from];
+        this.mass[to] = this.mass[from];
+        this.radius[to] = this.radius[from];
+        this.timeStep[to] = this.timeStep[from];
+        this.celestialBodyId[to] = this.celestialBodyId[from];
+        this.name[to] = this.name[from];
+        this.color[to] = this.color[from];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= this.mass.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, this.mass.length * 2);
+        this.positionX = Arrays.copyOf(this.positionX, newCapacity);
+        this.positionY = Arrays.copyOf(this.positionY, newCapacity);
+        this.positionZ = Arrays.copyOf(this.positionZ, newCapacity);
+        this.velocityX = Arrays.copyOf(this.velocityX, newCapacity);
+        this.velocityY = Arrays.copyOf(this.velocityY, newCapacity);
+        this.velocityZ = Arrays.copyOf(this.velocityZ, newCapacity);
+        this.accelerationX = Arrays.copyOf(this.accelerationX, newCapacity);
+        this.accelerationY = Arrays.copyOf(this.accelerationY, newCapacity);
+        this.accelerationZ = Arrays.copyOf(this.accelerationZ, newCapacity);
+        this.mass = Arrays.copyOf(this.mass, newCapacity);
+        this.radius = Arrays.copyOf(this.radius, newCapacity);
+        this.timeStep = Arrays.copyOf(this.timeStep, newCapacity);
+        this.celestialBodyId = Arrays.copyOf(this.celestialBodyId, newCapacity);
+        this.name = Arrays.copyOf(this.name, newCapacity);
+        this.color = Arrays.copyOf(this.color, newCapacity);
+    }
+
+    /**
+     * Moves a body with its acceleration (same as CelestialBody.move):
+     * the velocity is updated first, then the position with the new velocity.
+     *
+     * @param id Id of the body
+     */
+    public void move(int id) {
+        double dt = this.timeStep[id];
+        this.velocityX[id] += this.accelerationX[id] * dt;
+        this.velocityY[id] += this.accelerationY[id] * dt;
+        this.velocityZ[id] += this.accelerationZ[id] * dt;
+        this.positionX[id] += this.velocityX[id] * dt;
+        this.positionY[id] += this.velocityY[id] * dt;
+        this.positionZ[id] += this.velocityZ[id] * dt;
+    }
+
+    /**
+     * Draws a body to the current StdDraw canvas as a dot (same as CelestialBody.draw).
+     *
+     * @param id           Id of the body
+     * @param viewConstant A parameter that specifies how big a celestial body shall be drawn
+     */
+    public void draw(int id, double viewConstant) {
+        double newRadius = viewConstant / 300 * Math.log10(this.radius[id]);  // log10 because of large variation of radii.
+        StdDraw.setPenColor(this.color[id]);
+        StdDraw.filledCircle(this.positionX[id], this.positionY[id], newRadius);
+    }
+
+    /**
+     * Returns a new celestial body with the values of a body (changes of the celestial body are not stored).
+     * The celestial body has the same celestial body id as the body it was created from.
+     *
+     * @param id Id of the body
+     * @return Celestial body with the values of the body
+     */
+    public CelestialBody toCelestialBody(int id) {
+        return new CelestialBody(this.celestialBodyId[id], this.name[id], this.mass[id], this.radius[id],
+                new Vector3(this.positionX[id], this.positionY[id], this.positionZ[id]),
+                new Vector3(this.velocityX[id], this.velocityY[id], this.velocityZ[id]),
+                this.color[id], (int) this.timeStep[id]);
+    }
+
+    /**
+     * Returns the number of bodies in this store.
+     *
+     * @return Number of bodies
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns a vector that represents the position of a body (created on every call).
+     *
+     * @param id Id of the body
+     * @return Position of the body
+     */
+    public Vector3 getPosition(int id) {
+        return new Vector3(this.positionX[id], this.positionY[id], this.positionZ[id]);
+    }
+
+    /**
+     * Returns the mass of a body.
+     *
+     * @param id Id of the body
+     * @return Mass of the body
+     */
+    public double getMass(int id) {
+        return this.mass[id];
+    }
+
+    /**
+     * Returns the id of the celestial body a body was created from (see CelestialBody.getId).
+     *
+     * @param id Id of the body
+     * @return Id of the celestial body
+     */
+    public int getCelestialBodyId(int id) {
+        return this.celestialBodyId[id];
+    }
+
+    /**
+     * Returns the name of a body.
+     *
+     * @param id Id of the body
+     * @return Name of the body, null if it has no name
+     */
+    public String getName(int id) {
+        return this.name[id];
+    }
+
+    /**
+     * Returns the color of a body.
+     *
+     * @param id Id of the body
+     * @return Color of the body
+     */
+    public Color getColor(int id) {
+        return this.color[id];
+    }
+
+    /**
+     * Returns the x-coordinates of the positions of all bodies (index = id).
+     *
+     * @return x-coordinates of the positions
+     */
+    public double[] getPositionX() {
+        return this.positionX;
+    }
+
+    /**
+     * Returns the y-coordinates of the positions of all bodies (index = id).
+     *
+     * @return y-coordinates of the positions
+     */
+    public double[] getPositionY() {
+        return this.positionY;
+    }
+
+    /**
+     * Returns the z-coordinates of the positions of all bodies (index = id).
+     *
+     * @return z-coordinates of the positions
+     */
+    public double[] getPositionZ() {
+        return this.positionZ;
+    }
+
+    /**
+     * Returns the x-coordinates of the velocities of all bodies (index = id).
+     *
+     * @return x-coordinates of the velocities
+     */
+    public double[] getVelocityX() {
+        return this.velocityX;
+    }
+
+    /**
+     * Returns the y-coordinates of the velocities of all bodies (index = id).
+     *
+     * @return y-coordinates of the velocities
+     */
+    public double[] getVelocityY() {
+        return this.velocityY;
+    }
+
+    /**
+     * Returns the z-coordinates of the velocities of all bodies (index = id).
+     *
+     * @return z-coordinates of the velocities
+     */
+    public double[] getVelocityZ() {
+        return this.velocityZ;
+    }
+
+    /**
+     * Returns the x-coordinates of the accelerations of all bodies (index = id).
+     *
+     * @return x-coordinates of the accelerations
+     */
+    public double[] getAccelerationX() {
+        return this.accelerationX;
+    }
+
+    /**
+     * Returns the y-coordinates of the accelerations of all bodies (index = id).
+     *
+     * @return y-coordinates of the accelerations
+     */
+    public double[] getAccelerationY() {
+        return this.accelerationY;
+    }
+
+    /**
+     * Returns the z-coordinates of the accelerations of all bodies (index = id).
+     *
+     * @return z-coordinates of the accelerations
+     */
+    public double[] getAccelerationZ() {
+        return this.accelerationZ;
+    }
+
+    /**
+     * Returns the masses of all bodies (index = id).
+     *
+     * @return Masses
+     */
+    public double[] getMass() {
+        return this.mass;
+    }
+
+    /**
+     * Returns how many seconds are calculated in a calc-move cycle for all bodies (index = id).
+     *
+     * @return Time steps
+     */
+    public double[] getTimeStep() {
+        return this.timeStep;
+    }
+}
@@ -0,0 +1,171 @@
+package mi17bta10.simulation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Smallest axis aligned box that contains a set of bodies.
+ * It is calculated with a parallel min/max reduction over the positions of a body store,
+ * so that the root of a tree can be fitted to the bodies in every calc-move cycle.
+ */
+public class BoundingBox {
+
+    /**
+     * Number of bodies from which on the reduction is split up into tasks
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Smallest coordinates of the bodies
+     */
+    private double minX, minY, minZ;
+
+    /**
+     * Largest coordinates of the bodies
+     */
+    private double maxX, maxY, maxZ;
+
+    /**
+     * Number of bodies in the box
+     */
+    private int numberOfBodies;
+
+    /**
+     * Constructor for an empty box
+     */
+    public BoundingBox() {
+        this.minX = this.minY = this.minZ = Double.POSITIVE_INFINITY;
+        this.maxX = this.maxY = this.maxZ = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Calculates the bounding box of all bodies of the store that are inside of the limit (all bodies if limit is null).
+     *
+     * @param bodies Store with the bodies
+     * @param limit  Cube outside of which the bodies are ignored, null if no body shall be ignored
+     * @param pool   Thread pool that runs the reduction
+     * @return Bounding box of the bodies
+     */
+    public static BoundingBox of(BodyStore bodies, Cube limit, ForkJoinPool pool) {
+        if (bodies.size() <= CHUNK_SIZE || pool.getParallelism() == 1) {
+            return reduce(bodies, limit, 0, bodies.size());
+        }
+        return pool.invoke(new ReductionTask(bodies, limit, 0, bodies.size()));
+    }
+
+    private static BoundingBox reduce(BodyStore bodies, Cube limit, int from, int to) {
+        BoundingBox box = new BoundingBox();
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ();
+        for (int id = from; id < to; id++) {
+            if (limit == null || limit.isInsideCube(x[id], y[id], z[id])) {
+                box.include(x[id], y[id], z[id]);
+            }
+        }
+        return box;
+    }
+
+    /**
+     * Extends the box so that it contains the position.
+     *
+     * @param x x-coordinate of the position
+     * @param y y-coordinate of the position
+     * @param z z-coordinate of the position
+     */
+    public void include(double x, double y, double z) {
+        this.minX = Math.min(this.minX, x);
+        this.minY = Math.min(this.minY, y);
+        this.minZ = Math.min(this.minZ, z);
+        this.maxX = Math.max(this.maxX, x);
+        this.maxY = Math.max(this.maxY, y);
+        this.maxZ = Math.max(this.maxZ, z);
+        this.numberOfBodies++;
+    }
+
+    /**
+     * Extends the box so that it contains the other box.
+     *
+     * @param other Box that shall be contained
+     */
+    public void include(BoundingBox other) {
+        this.minX = Math.min(this.minX, other.minX);
+        this.minY = Math.min(this.minY, other.minY);
+        this.minZ = Math.min(this.minZ, other.minZ);
+        this.maxX = Math.max(this.maxX, other.maxX);
+        this.maxY = Math.max(this.maxY, other.maxY);
+        this.maxZ = Math.max(this.maxZ, other.maxZ);
+        this.numberOfBodies += other.numberOfBodies;
+    }
+
+    /**
+     * Returns true if the box contains no body.
+     *
+     * @return True if the box is empty
+     */
+    public boolean isEmpty() {
+        return this.numberOfBodies == 0;
+    }
+
+    /**
+     * Returns true if the whole box is inside of the cube.
+     *
+     * @param cube Cube that shall contain the box
+     * @return True if the box is inside of the cube
+     */
+    public boolean isInsideCube(Cube cube) {
+        return cube.isInsideCube(this.minX, this.minY, this.minZ) && cube.isInsideCube(this.maxX, this.maxY, this.maxZ);
+    }
+
+    /**
+     * Returns the smallest cube around the middle of the box that contains the box, enlarged by the margin.
+     * The edge length is at least 1 m (e.g. if the box contains only one body).
+     *
+     * @param margin Part of the edge length that is added to it (e.g. 0.05 for 5%), has to be larger than 0
+     * @return Cube that contains the box
+     */
+    public Cube toCube(double margin) {
+        double edgeLength = Math.max(1, Math.max(this.maxX - this.minX, Math.max(this.maxY - this.minY, this.maxZ - this.minZ)) * (1 + margin));
+        return new Cube(new Vector3((this.minX + this.maxX - edgeLength) / 2, (this.minY + this.maxY - edgeLength) / 2,
+                (this.minZ + this.maxZ - edgeLength) / 2), edgeLength);
+    }
+
+    /**
+     * Returns the number of bodies in the box.
+     *
+     * @return Number of bodies
+     */
+    public int getNumberOfBodies() {
+        return this.numberOfBodies;
+    }
+
+    /**
+     * Task of the parallel reduction, calculates the box of the bodies from 'from' to 'to' - 1
+     */
+    private static class ReductionTask extends RecursiveTask<BoundingBox> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BodyStore bodies;
+        private final Cube limit;
+        private final int from, to;
+
+        ReductionTask(BodyStore bodies, Cube limit, int from, int to) {
+            this.bodies = bodies;
+            this.limit = limit;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BoundingBox compute() {
+            if (this.to - this.from <= CHUNK_SIZE) {
+                return reduce(this.bodies, this.limit, this.from, this.to);
+            }
+            int middle = (this.from + this.to) >>> 1;
+            ReductionTask right = new ReductionTask(this.bodies, this.limit, middle, this.to);
+            right.fork();
+            BoundingBox box = new ReductionTask(this.bodies, this.limit, this.from, middle).compute();
+            box.include(right.join());
+            return box;
+        }
+    }
+}
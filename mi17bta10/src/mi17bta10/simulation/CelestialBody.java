@@ -1,6 +1,7 @@
 package mi17bta10.simulation;
 
 import java.awt.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class for celestial bodies
@@ -9,7 +10,19 @@ import java.awt.*;
 public class CelestialBody {
 
     /**
-     * Name of the celestial body
+     * Id of the next celestial body that is created with a public constructor (counted down from -1)
+     */
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(-1);
+
+    /**
+     * Id of the celestial body: a generated body has the id it got in the body store of its simulation,
+     * which is its index in the store (0, 1, 2, ..., see BodyStore.add). A body that is created with a public constructor
+     * gets a unique negative id instead, so that it can be added to the same tree as the bodies of a store.
+     */
+    private final int id;
+
+    /**
+     * Name of the celestial body (optional, only for the output)
      */
     private final String name;
 
@@ -51,7 +64,7 @@ public class CelestialBody {
     /**
      * The constructor - all object variables are set.
      *
-     * @param name            Name of celestial body
+     * @param name            Name of celestial body (can be null)
      * @param mass            Mass of celestial body
      * @param radius          Radius of celestial body
      * @param position        Position of celestial body
@@ -59,6 +72,7 @@ public class CelestialBody {
      * @param color           Color of celestial body
      */
     public CelestialBody(String name, double mass, double radius, Vector3 position, Vector3 currentMovement, Color color) {
+        this.id = NEXT_ID.getAndDecrement();
         this.name = name;
         this.mass = mass;
         this.radius = radius;
@@ -72,7 +86,7 @@ public class CelestialBody {
     /**
      * Constructor including calculationsPerSecond.
      *
-     * @param name                  Name of celestial body
+     * @param name                  Name of celestial body (can be null)
      * @param mass                  Mass of celestial body
      * @param radius                Radius of celestial body
      * @param position              Position of celestial body
@@ -81,6 +95,23 @@ public class CelestialBody {
      * @param calculationsPerSecond How many seconds are calculated in a calc-move cycle
      */
     public CelestialBody(String name, double mass, double radius, Vector3 position, Vector3 currentMovement, Color color, int calculationsPerSecond) {
+        this(NEXT_ID.getAndDecrement(), name, mass, radius, position, currentMovement, color, calculationsPerSecond);
+    }
+
+    /**
+     * Constructor for a new state of an existing celestial body, which keeps the id of the body.
+     *
+     * @param id                    Id of the existing celestial body
+     * @param name                  Name of celestial body (can be null)
+     * @param mass                  Mass of celestial body
+     * @param radius                Radius of celestial body
+     * @param position              Position of celestial body
+     * @param currentMovement       Velocity of celestial body
+     * @param color                 Color of celestial body
+     * @param calculationsPerSecond How many seconds are calculated in a calc-move cycle
+     */
+    CelestialBody(int id, String name, double mass, double radius, Vector3 position, Vector3 currentMovement, Color color, int calculationsPerSecond) {
+        this.id = id;
         this.name = name;
         this.mass = mass;
         this.radius = radius;
@@ -117,6 +148,24 @@ public class CelestialBody {
         return direction.times(force);
     }
 
+    /**
+     * Returns a vector representing the softened gravitational force exerted by a group of bodies on this celestial body
+     * (see Softening), the same as gravitationalForce(centerOfMass, totalMass) with Softening.NONE.
+     *
+     * @param centerOfMass Position of the center of mass of the group of bodies
+     * @param totalMass    Total mass of all bodies in the group
+     * @param softening    Softening of the force
+     * @return Gravitational force exerted by the group of bodies on this body
+     */
+    public Vector3 gravitationalForce(Vector3 centerOfMass, double totalMass, Softening softening) {
+        if (softening.getType() == SofteningType.NONE) {
+            return gravitationalForce(centerOfMass, totalMass);
+        }
+        Vector3 direction = centerOfMass.minus(this.position);
+        double rSquared = this.position.distanceToPow2(centerOfMass);
+        return direction.times(Constants.G * this.mass * totalMass * softening.factor(rSquared));
+    }
+
     /**
      * Moves this celestial body to a new position, according to the specified force vector 'force' exerted
      * on it, and updates the current movement accordingly.
@@ -137,6 +186,25 @@ public class CelestialBody {
         this.position = newPosition;
     }
 
+    /**
+     * Moves this celestial body with the specified acceleration (same as move(force), but without creating the force vector).
+     *
+     * @param accelerationX x-coordinate of the acceleration
+     * @param accelerationY y-coordinate of the acceleration
+     * @param accelerationZ z-coordinate of the acceleration
+     */
+    public void move(double accelerationX, double accelerationY, double accelerationZ) {
+        double dt = this.simulationSpeedInSecondsCalculated;
+        Vector3 deltaMovement = new Vector3(this.currentMovement.getX() + accelerationX * dt,
+                this.currentMovement.getY() + accelerationY * dt,
+                this.currentMovement.getZ() + accelerationZ * dt);
+
+        this.position = new Vector3(this.position.getX() + deltaMovement.getX() * dt,
+                this.position.getY() + deltaMovement.getY() * dt,
+                this.position.getZ() + deltaMovement.getZ() * dt);
+        this.currentMovement = deltaMovement;
+    }
+
     /**
      * Barnes hut algorithm for calculating all forces acting on this celestial body.
      * If the current node is an external node (and its body is not this body), calculate the force exerted
@@ -157,7 +225,7 @@ public class CelestialBody {
     public void calculateAllForcesOnThisBodyBeginningWithNode(Octree node) {
         //we found external node that contains a body
         if (node != null && node.getValue() != null) {
-            if (node.getValue().getName().equals(this.name)) {
+            if (node.getValue().getId() == this.id) {
                 return; //the body does not exert force on itself
 
             } else {
@@ -184,6 +252,48 @@ public class CelestialBody {
         }
     }
 
+    /**
+     * Barnes hut algorithm for calculating all forces acting on this celestial body, for the array based FlatOctree.
+     * Works the same way as calculateAllForcesOnThisBodyBeginningWithNode(Octree),
+     * but the nodes are addressed by their index in the tree.
+     * A leaf can hold more than one body: if it is not far enough (or contains this body),
+     * the forces of its bodies are added one by one.
+     *
+     * @param tree Array based octree containing the celestial body for which the total acting force shall be calculated
+     * @param node Index of the node in the tree where the calculation begins
+     */
+    public void calculateAllForcesOnThisBodyBeginningWithNode(FlatOctree tree, int node) {
+        double mass = tree.getTotalMass(node);
+        if (mass == 0) {
+            return; //empty node
+        }
+        Vector3 centerOfMass = new Vector3(tree.getCenterOfMassX(node), tree.getCenterOfMassY(node), tree.getCenterOfMassZ(node));
+        double ratio = centerOfMass.distanceTo(this.position) / tree.getEdgeLength(node);
+        int firstChild = tree.getFirstChild(node);
+
+        if (firstChild == FlatOctree.NONE
+                && (ratio <= Constants.theta || tree.isInsideNode(node, this.position.getX(), this.position.getY(), this.position.getZ()))) {
+            //we found external node that contains bodies
+            BodyStore bodies = tree.getBodyStore();
+            for (int body = tree.getBodyOfNode(node); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+                if (bodies.getCelestialBodyId(body) == this.id) {
+                    continue; //the body does not exert force on itself
+                }
+                Vector3 bodyPosition = bodies.getPosition(body);
+                if (bodyPosition.distanceToPow2(this.position) == 0) {
+                    continue; //two bodies at the same position
+                }
+                this.forceOnThisBody = this.forceOnThisBody.plus(this.gravitationalForce(bodyPosition, bodies.getMass(body), tree.getSoftening()));
+            }
+        } else if (ratio > Constants.theta) { //the group is far enough; threat this node as a single body
+            this.forceOnThisBody = this.forceOnThisBody.plus(this.gravitationalForce(centerOfMass, mass, tree.getSoftening()));
+        } else {
+            for (int i = 0; i < 8; i++) {
+                this.calculateAllForcesOnThisBodyBeginningWithNode(tree, firstChild + i);
+            }
+        }
+    }
+
     /**
      * Draws the celestial body to the current mi17bta10.simulation.StdDraw canvas as a dot using 'color' of this body.
      * The radius of the dot is in relation to the radius of the celestial body.
@@ -223,6 +333,24 @@ public class CelestialBody {
         return this.mass;
     }
 
+    /**
+     * Returns the radius of this celestial body.
+     *
+     * @return Radius of this celestial body
+     */
+    public double getRadius() {
+        return this.radius;
+    }
+
+    /**
+     * Returns how many seconds are calculated in a calc-move cycle.
+     *
+     * @return Seconds per calc-move cycle
+     */
+    public int getSimulationSpeedInSecondsCalculated() {
+        return this.simulationSpeedInSecondsCalculated;
+    }
+
     /**
      * Returns a vector that represents the force acting on this celestial body.
      *
@@ -241,10 +369,19 @@ public class CelestialBody {
         this.forceOnThisBody = v;
     }
 
+    /**
+     * Returns the id of this celestial body.
+     *
+     * @return Id of the celestial body
+     */
+    public int getId() {
+        return this.id;
+    }
+
     /**
      * Returns the name of this celestial body.
      *
-     * @return Name of the celestial body
+     * @return Name of the celestial body, null if it has no name
      */
     public String getName() {
         return this.name;
@@ -266,6 +403,7 @@ public class CelestialBody {
      */
     public CelestialBody clone() {
         return new CelestialBody(
+                this.id,
                 this.name,
                 this.mass,
                 this.radius,
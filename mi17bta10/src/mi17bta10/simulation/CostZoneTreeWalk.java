@@ -0,0 +1,236 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Force engine that runs the iterative walk in one zone (contiguous range of bodies) per thread, with zones of equal cost (costzones):
+ * the number of interactions of every body is recorded in the walk, and in the next calculation the bodies are ordered along the
+ * space filling curve of the tree (the leaves in the order of the tree, the children of a node are in morton order)
+ * and split up into ranges with the same sum of interactions. So the threads get the same amount of work, also if the walks
+ * of the bodies in the dense core of a cluster are much longer than the walks in the halo, and the bodies of a zone are close
+ * to each other, so their walks read the same nodes. Bodies without a recorded cost (first calculation) count as one interaction.
+ * Without costs, the bodies are split up into ranges of the same number of bodies in the order of the body store (equal chunks).
+ * The time and the cost of every zone are kept, to report the imbalance between the threads.
+ */
+public class CostZoneTreeWalk implements ForceEngine {
+
+    /**
+     * Walk that calculates the accelerations of the bodies
+     */
+    private final IterativeTreeWalk walk;
+
+    /**
+     * Number of zones, 0 for one zone per thread of the pool of the tree
+     */
+    private final int numberOfZones;
+
+    /**
+     * True for zones of equal cost along the space filling curve, false for equal chunks of the body store
+     */
+    private final boolean useCosts;
+
+    /**
+     * Number of interactions of every body in the last calculation (index = id)
+     */
+    private int[] cost;
+
+    /**
+     * Ids of the bodies in the order of the zones
+     */
+    private int[] order;
+
+    /**
+     * Index (in order) of the first body of every zone, the last entry is the number of bodies
+     */
+    private int[] zoneStart;
+
+    /**
+     * Time in ns and number of interactions of every zone in the last calculation
+     */
+    private long[] zoneTimes, zoneCosts;
+
+    /**
+     * Constructor with costzones, the theta of the simulation and one zone per thread
+     */
+    public CostZoneTreeWalk() {
+        this(new IterativeTreeWalk(), 0, true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param walk          Walk that calculates the accelerations of the bodies
+     * @param numberOfZones Number of zones, 0 for one zone per thread of the pool of the tree
+     * @param useCosts      True for zones of equal cost along the space filling curve, false for equal chunks of the body store
+     */
+    public CostZoneTreeWalk(IterativeTreeWalk walk, int numberOfZones, boolean useCosts) {
+        if (numberOfZones < 0) {
+            throw new IllegalArgumentException("The number of zones must not be negative: " + numberOfZones);
+        }
+        this.walk = walk;
+        this.numberOfZones = numberOfZones;
+        this.useCosts = useCosts;
+        this.cost = new int[0];
+        this.order = new int[0];
+        this.zoneStart = new int[1];
+        this.zoneTimes = new long[0];
+        this.zoneCosts = new long[0];
+    }
+
+    @Override
+    public void calculateAccelerations(FlatOctree tree) {
+        int n = tree.getNumberOfBodies();
+        int zones = this.numberOfZones > 0 ? this.numberOfZones : tree.getForkJoinPool().getParallelism();
+        if (this.cost.length < n) {
+            int oldLength = this.cost.length;
+            this.cost = Arrays.copyOf(this.cost, Math.max(n, oldLength * 2));
+            Arrays.fill(this.cost, oldLength, this.cost.length, 1);
+            this.order = new int[this.cost.length];
+        }
+        if (this.zoneTimes.length != zones) {
+            this.zoneStart = new int[zones + 1];
+            this.zoneTimes = new long[zones];
+            this.zoneCosts = new long[zones];
+        }
+
+        if (this.useCosts) {
+            tree.fillCurveOrder(this.order);
+            splitByCost(n, zones);
+        } else {
+            for (int i = 0; i < n; i++) {
+                this.order[i] = i;
+            }
+            for (int zone = 0; zone <= zones; zone++) {
+                this.zoneStart[zone] = (int) ((long) n * zone / zones);
+            }
+        }
+
+        this.walk.prepare(tree);
+        ParallelLoop.forEach(tree.getForkJoinPool(), 0, zones, 1, zone -> calculateZone(tree, zone));
+    }
+
+    @Override
+    public void reorderBodies(int[] order, int size) {
+        //bodies without a recorded cost count as one interaction
+        int[] reordered = new int[Math.max(size, this.cost.length)];
+        Arrays.fill(reordered, 1);
+        for (int id = 0; id < size; id++) {
+            if (order[id] < this.cost.length) {
+                reordered[id] = this.cost[order[id]];
+            }
+        }
+        this.cost = reordered;
+        this.order = new int[reordered.length];
+    }
+
+    /**
+     * Calculates the accelerations of the bodies of a zone and records their costs.
+     *
+     * @param tree Tree with all bodies
+     * @param zone Index of the zone
+     */
+    private void calculateZone(FlatOctree tree, int zone) {
+        long startTime = System.nanoTime();
+        long zoneCost = 0;
+        for (int i = this.zoneStart[zone]; i < this.zoneStart[zone + 1]; i++) {
+            int id = this.order[i];
+            int interactions = this.walk.calculateAcceleration(tree, id);
+            this.cost[id] = Math.max(1, interactions);
+            zoneCost += interactions;
+        }
+        this.zoneCosts[zone] = zoneCost;
+        this.zoneTimes[zone] = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Splits the ordered bodies into zones with the same sum of the costs.
+     *
+     * @param n     Number of bodies
+     * @param zones Number of zones
+     */
+    private void splitByCost(int n, int zones) {
+        long totalCost = 0;
+        for (int i = 0; i < n; i++) {
+            totalCost += this.cost[this.order[i]];
+        }
+        long sum = 0;
+        int zone = 1;
+        this.zoneStart[0] = 0;
+        for (int i = 0; i < n && zone < zones; i++) {
+            sum += this.cost[this.order[i]];
+            //the zone ends as soon as its part of the total cost is reached
+            while (zone < zones && sum * zones >= totalCost * zone) {
+                this.zoneStart[zone++] = i + 1;
+            }
+        }
+        while (zone <= zones) {
+            this.zoneStart[zone++] = n;
+        }
+    }
+
+    /**
+     * Returns the imbalance of the times of the zones (one zone per thread) in the last calculation:
+     * the time of the slowest zone divided by the average time, 1 if all threads needed the same time.
+     *
+     * @return Imbalance of the times
+     */
+    public double getTimeImbalance() {
+        return imbalance(this.zoneTimes);
+    }
+
+    /**
+     * Returns the imbalance of the numbers of interactions of the zones in the last calculation:
+     * the most interactions of a zone divided by the average number, 1 if all zones had the same number.
+     *
+     * @return Imbalance of the costs
+     */
+    public double getCostImbalance() {
+        return imbalance(this.zoneCosts);
+    }
+
+    private static double imbalance(long[] values) {
+        long max = 0, sum = 0;
+        for (long value : values) {
+            max = Math.max(max, value);
+            sum += value;
+        }
+        return sum == 0 ? 1 : (double) max * values.length / sum;
+    }
+
+    /**
+     * Returns the time of every zone in the last calculation.
+     *
+     * @return Times in ns
+     */
+    public long[] getZoneTimes() {
+        return this.zoneTimes.clone();
+    }
+
+    /**
+     * Returns the number of interactions of every zone in the last calculation.
+     *
+     * @return Numbers of interactions
+     */
+    public long[] getZoneCosts() {
+        return this.zoneCosts.clone();
+    }
+
+    /**
+     * Returns the number of interactions of a body in the last calculation (1 if the body was not calculated yet).
+     *
+     * @param id Id of the body
+     * @return Number of interactions
+     */
+    public int getCost(int id) {
+        return this.cost[id];
+    }
+
+    /**
+     * Returns the ids of the bodies in the order of the zones of the last calculation.
+     *
+     * @return Ids of the bodies
+     */
+    public int[] getOrder() {
+        return Arrays.copyOf(this.order, this.zoneStart[this.zoneStart.length - 1]);
+    }
+}
@@ -49,14 +49,26 @@ public class Cube {
      * @return True if the coordinates of the vector are inside cube
      */
     public boolean isInsideCube(Vector3 position) {
+        return isInsideCube(position.getX(), position.getY(), position.getZ());
+    }
+
+    /**
+     * Returns true if the coordinates are inside the cube, false otherwise.
+     *
+     * @param x x-coordinate that shall be checked
+     * @param y y-coordinate that shall be checked
+     * @param z z-coordinate that shall be checked
+     * @return True if the coordinates are inside cube
+     */
+    public boolean isInsideCube(double x, double y, double z) {
 
-        if (position.getX() < this.leftDownCorner.getX() || position.getX() >= this.upperRightCorner.getX()) {
+        if (x < this.leftDownCorner.getX() || x >= this.upperRightCorner.getX()) {
             return false;
         }
-        if (position.getY() < this.leftDownCorner.getY() || position.getY() >= this.upperRightCorner.getY()) {
+        if (y < this.leftDownCorner.getY() || y >= this.upperRightCorner.getY()) {
             return false;
         }
-        if (position.getZ() < this.leftDownCorner.getZ() || position.getZ() >= this.upperRightCorner.getZ()) {
+        if (z < this.leftDownCorner.getZ() || z >= this.upperRightCorner.getZ()) {
             return false;
         }
         return true;
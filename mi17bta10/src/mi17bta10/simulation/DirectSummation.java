@@ -0,0 +1,175 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Force engine that sums up all pairs of bodies directly (n^2 method, no tree walk), it is exact and faster than the tree
+ * for a small number of bodies (see AutomaticForceEngine).
+ * Every pair is calculated once and the force is added to both bodies (Newton's third law), so only half of the pairs are needed.
+ * The bodies are copied into compact arrays and split up into blocks of BLOCK_SIZE bodies that fit into the cache,
+ * the pairs are calculated block by block (tiles of the upper triangle of the pair matrix).
+ * With more than one thread the tiles are split up between the threads round robin, every thread sums up
+ * into its own acceleration arrays, which are added up at the end (a tile changes the bodies of two blocks).
+ * The bodies of the far field of the tree are left out of the pairs, they are added to the bodies in the nodes by the tree,
+ * and the bodies of the far field get the acceleration of the nodes with the iterative walk.
+ * The force is softened with the softening of the tree.
+ */
+public class DirectSummation implements ForceEngine {
+
+    /**
+     * Number of bodies in a block
+     */
+    public static final int BLOCK_SIZE = 256;
+
+    /**
+     * Ids and compact positions and masses of the bodies in the nodes, kept for the next calculation
+     */
+    private int[] ids;
+    private double[] x, y, z, mass;
+
+    /**
+     * Acceleration arrays of every thread (3 * n per thread: x, y, z), kept for the next calculation
+     */
+    private double[][] partialAccelerations;
+
+    /**
+     * Walk for the bodies of the far field
+     */
+    private final IterativeTreeWalk farFieldWalk;
+
+    /**
+     * Constructor
+     */
+    public DirectSummation() {
+        this.ids = new int[0];
+        this.x = new double[0];
+        this.y = new double[0];
+        this.z = new double[0];
+        this.mass = new double[0];
+        this.partialAccelerations = new double[0][];
+        this.farFieldWalk = new IterativeTreeWalk();
+    }
+
+    @Override
+    public void calculateAccelerations(FlatOctree tree) {
+        BodyStore bodies = tree.getBodyStore();
+        int n = copyBodies(tree);
+        int numberOfBlocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int numberOfTiles = numberOfBlocks * (numberOfBlocks + 1) / 2;
+        int numberOfThreads = Math.max(1, Math.min(tree.getForkJoinPool().getParallelism(), numberOfTiles));
+
+        if (this.partialAccelerations.length < numberOfThreads) {
+            this.partialAccelerations = Arrays.copyOf(this.partialAccelerations, numberOfThreads);
+        }
+        for (int thread = 0; thread < numberOfThreads; thread++) {
+            if (this.partialAccelerations[thread] == null || this.partialAccelerations[thread].length < 3 * n) {
+                this.partialAccelerations[thread] = new double[Math.max(3 * n, 3 * this.ids.length)];
+            }
+        }
+
+        double[][] partial = this.partialAccelerations;
+        Softening softening = tree.getSoftening();
+        int threads = numberOfThreads;
+        ParallelLoop.forEach(tree.getForkJoinPool(), 0, numberOfThreads, 1, thread -> {
+            double[] acceleration = partial[thread];
+            Arrays.fill(acceleration, 0, 3 * n, 0);
+            //the tiles (row <= column) are numbered row by row, every thread takes every threads-th tile
+            int tile = 0;
+            for (int row = 0; row < numberOfBlocks; row++) {
+                for (int column = row; column < numberOfBlocks; column++, tile++) {
+                    if (tile % threads == thread) {
+                        calculateTile(row, column, n, softening, acceleration);
+                    }
+                }
+            }
+        });
+
+        double[] ax = bodies.getAccelerationX(), ay = bodies.getAccelerationY(), az = bodies.getAccelerationZ();
+        int[] bodyIds = this.ids;
+        ParallelLoop.forEach(tree.getForkJoinPool(), 0, n, ParallelLoop.DEFAULT_CHUNK_SIZE * 16, i -> {
+            double sumX = 0, sumY = 0, sumZ = 0;
+            for (int thread = 0; thread < threads; thread++) {
+                sumX += partial[thread][i];
+                sumY += partial[thread][n + i];
+                sumZ += partial[thread][2 * n + i];
+            }
+            ax[bodyIds[i]] = Constants.G * sumX;
+            ay[bodyIds[i]] = Constants.G * sumY;
+            az[bodyIds[i]] = Constants.G * sumZ;
+        });
+
+        if (tree.getNumberOfFarBodies() > 0) {
+            this.farFieldWalk.prepare(tree);
+            ParallelLoop.forEach(tree.getForkJoinPool(), 0, bodies.size(), id -> {
+                if (tree.isFarBody(id)) {
+                    this.farFieldWalk.calculateAcceleration(tree, id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Copies the positions and masses of all bodies in the nodes (not in the far field) into the compact arrays.
+     *
+     * @param tree Tree with all bodies
+     * @return Number of copied bodies
+     */
+    private int copyBodies(FlatOctree tree) {
+        BodyStore bodies = tree.getBodyStore();
+        if (this.ids.length < bodies.size()) {
+            int capacity = Math.max(bodies.size(), this.ids.length * 2);
+            this.ids = new int[capacity];
+            this.x = new double[capacity];
+            this.y = new double[capacity];
+            this.z = new double[capacity];
+            this.mass = new double[capacity];
+        }
+        int n = 0;
+        for (int id = 0; id < bodies.size(); id++) {
+            if (!tree.isFarBody(id)) {
+                this.ids[n] = id;
+                this.x[n] = bodies.getPositionX()[id];
+                this.y[n] = bodies.getPositionY()[id];
+                this.z[n] = bodies.getPositionZ()[id];
+                this.mass[n] = bodies.getMass()[id];
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Calculates all pairs between the bodies of two blocks (the pairs inside of the block if both are the same)
+     * and adds the accelerations without G to both bodies.
+     *
+     * @param row          First block
+     * @param column       Second block (not smaller than the first block)
+     * @param n            Number of bodies
+     * @param softening    Softening of the force
+     * @param acceleration Acceleration arrays of the thread (x, y, z, n entries each)
+     */
+    private void calculateTile(int row, int column, int n, Softening softening, double[] acceleration) {
+        double[] x = this.x, y = this.y, z = this.z, mass = this.mass;
+        int rowEnd = Math.min(n, (row + 1) * BLOCK_SIZE);
+        int columnStart = column * BLOCK_SIZE, columnEnd = Math.min(n, columnStart + BLOCK_SIZE);
+        for (int i = row * BLOCK_SIZE; i < rowEnd; i++) {
+            double xi = x[i], yi = y[i], zi = z[i], massI = mass[i];
+            double ax = 0, ay = 0, az = 0;
+            for (int j = row == column ? i + 1 : columnStart; j < columnEnd; j++) {
+                double dx = x[j] - xi, dy = y[j] - yi, dz = z[j] - zi;
+                double distanceSquared = dx * dx + dy * dy + dz * dz;
+                double factor = softening.factor(distanceSquared);
+                double factorI = factor * mass[j], factorJ = factor * massI;
+                ax += dx * factorI;
+                ay += dy * factorI;
+                az += dz * factorI;
+                acceleration[j] -= dx * factorJ;
+                acceleration[n + j] -= dy * factorJ;
+                acceleration[2 * n + j] -= dz * factorJ;
+            }
+            acceleration[i] += ax;
+            acceleration[n + i] += ay;
+            acceleration[2 * n + i] += az;
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Force engine with the fast multipole method (FMM) on the nodes of the flat octree, the cost is O(n) instead of O(n log n).
+ * Instead of walking the tree for every body, pairs of nodes interact (dual tree walk, beginning with the root and itself):
+ * if two nodes are far enough from each other, each node gets a local expansion of the field of the other node (M2L),
+ * otherwise the larger node is opened; two leaves that are too close sum up their bodies directly.
+ * A node is a monopole (total mass at the center of mass). The local expansion of a node is
+ * the acceleration at its center of mass, its first and second derivative (tidal tensor and its derivative).
+ * Afterwards the expansions are passed down from the root to the leaves (L2L) and evaluated at the bodies of the leaves (L2P).
+ * Interactions are used for both nodes at once, so the engine runs in one thread.
+ * Bodies of the far field of the tree (not in the nodes) are calculated with the iterative walk.
+ * The softening of the tree is applied to the bodies that are summed up directly and to the acceleration of the local expansions
+ * (the same as the monopoles of the walk), the derivatives are not softened.
+ */
+public class FastMultipoleMethod implements ForceEngine {
+
+    /**
+     * Default theta: the diameter of the larger node is compared (instead of the edge length of one node)
+     * and every interaction is truncated at the second order at both nodes, so a larger theta than in the walk is needed.
+     * With 2 the error is about the same as with the iterative walk and Constants.theta on the generated clusters.
+     */
+    public static final double DEFAULT_THETA = 2;
+
+    /**
+     * Number of coefficients of a local expansion: acceleration (3), tidal tensor (6) and its derivative (10), all symmetric
+     */
+    private static final int LOCAL_SIZE = 19;
+
+    /**
+     * Index of the first component of the tidal tensor (xx, xy, xz, yy, yz, zz)
+     */
+    private static final int TIDAL = 3;
+
+    /**
+     * Index of the first component of the derivative of the tidal tensor (xxx, xxy, xxz, xyy, xyz, xzz, yyy, yyz, yzz, zzz)
+     */
+    private static final int DERIVATIVE = 9;
+
+    /**
+     * Two nodes are far enough from each other if the ratio of their distance and the diameter of the larger node is greater than theta
+     */
+    private final double theta;
+
+    /**
+     * Local expansions of all nodes (LOCAL_SIZE coefficients per node), kept for the next calculation
+     */
+    private double[] local;
+
+    /**
+     * Radius of every node: largest distance of a body of the node from its center of mass
+     */
+    private double[] radius;
+
+    /**
+     * Buffer for the result of an evaluation of a local expansion
+     */
+    private final double[] acceleration;
+
+    /**
+     * Walk for the bodies of the far field
+     */
+    private final IterativeTreeWalk farFieldWalk;
+
+    /**
+     * Counters of the last calculation
+     */
+    private long numberOfNodeInteractions, numberOfBodyInteractions;
+
+    /**
+     * Softening of the tree of the current calculation
+     */
+    private Softening softening;
+
+    /**
+     * Constructor with the default theta (DEFAULT_THETA)
+     */
+    public FastMultipoleMethod() {
+        this(DEFAULT_THETA);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param theta Two nodes are far enough from each other if the ratio of their distance and the diameter of the larger node is greater than theta
+     */
+    public FastMultipoleMethod(double theta) {
+        this.theta = theta;
+        this.local = new double[0];
+        this.radius = new double[0];
+        this.acceleration = new double[3];
+        this.farFieldWalk = new IterativeTreeWalk();
+    }
+
+    @Override
+    public void calculateAccelerations(FlatOctree tree) {
+        BodyStore bodies = tree.getBodyStore();
+        int numberOfNodes = tree.getNumberOfNodes();
+        if (this.local.length < numberOfNodes * LOCAL_SIZE) {
+            this.local = new double[Math.max(numberOfNodes * LOCAL_SIZE, this.local.length * 2)];
+        }
+        if (this.radius.length < numberOfNodes) {
+            this.radius = new double[Math.max(numberOfNodes, this.radius.length * 2)];
+        }
+        Arrays.fill(this.local, 0, numberOfNodes * LOCAL_SIZE, 0);
+        Arrays.fill(bodies.getAccelerationX(), 0, bodies.size(), 0);
+        Arrays.fill(bodies.getAccelerationY(), 0, bodies.size(), 0);
+        Arrays.fill(bodies.getAccelerationZ(), 0, bodies.size(), 0);
+        this.numberOfNodeInteractions = 0;
+        this.numberOfBodyInteractions = 0;
+        this.softening = tree.getSoftening();
+
+        calculateRadii(tree);
+        interactWithItself(tree, FlatOctree.ROOT);
+        passDown(tree);
+
+        if (tree.getNumberOfFarBodies() > 0) {
+            for (int id = 0; id < bodies.size(); id++) {
+                if (tree.isFarBody(id)) {
+                    this.farFieldWalk.calculateAcceleration(tree, id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the radius of every node, bottom-up: the bodies of a leaf are measured directly,
+     * a parent is around the spheres of its children. The cube of a node is not used as bound,
+     * because the center of mass can be in a corner of it.
+     * Children always have a higher index than their parent, so one pass from the last to the first node is enough.
+     *
+     * @param tree Tree with all bodies
+     */
+    private void calculateRadii(FlatOctree tree) {
+        BodyStore bodies = tree.getBodyStore();
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ();
+        for (int node = tree.getNumberOfNodes() - 1; node >= 0; node--) {
+            double centerX = tree.getCenterOfMassX(node), centerY = tree.getCenterOfMassY(node), centerZ = tree.getCenterOfMassZ(node);
+            double largest = 0;
+            int first = tree.getFirstChild(node);
+            if (first == FlatOctree.NONE) {
+                for (int body = tree.getBodyOfNode(node); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+                    double dx = x[body] - centerX, dy = y[body] - centerY, dz = z[body] - centerZ;
+                    largest = Math.max(largest, dx * dx + dy * dy + dz * dz);
+                }
+                largest = Math.sqrt(largest);
+            } else {
+                for (int child = first; child < first + 8; child++) {
+                    if (tree.getTotalMass(child) != 0) {
+                        double dx = tree.getCenterOfMassX(child) - centerX, dy = tree.getCenterOfMassY(child) - centerY;
+                        double dz = tree.getCenterOfMassZ(child) - centerZ;
+                        largest = Math.max(largest, Math.sqrt(dx * dx + dy * dy + dz * dz) + this.radius[child]);
+                    }
+                }
+            }
+            this.radius[node] = largest;
+        }
+    }
+
+    /**
+     * Lets all parts of a node interact with each other.
+     *
+     * @param tree Tree with all bodies
+     * @param node Node whose parts interact
+     */
+    private void interactWithItself(FlatOctree tree, int node) {
+        if (tree.getTotalMass(node) == 0) {
+            return;
+        }
+        int first = tree.getFirstChild(node);
+        if (first == FlatOctree.NONE) {
+            for (int body = tree.getBodyOfNode(node); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+                for (int other = tree.getNextBody(body); other != FlatOctree.NONE; other = tree.getNextBody(other)) {
+                    interactDirectly(tree.getBodyStore(), body, other);
+                }
+            }
+            return;
+        }
+        for (int child = first; child < first + 8; child++) {
+            interactWithItself(tree, child);
+            for (int other = child + 1; other < first + 8; other++) {
+                interact(tree, child, other);
+            }
+        }
+    }
+
+    /**
+     * Lets two different nodes (that do not contain each other) interact:
+     * the nodes get the local expansion of each other if they are far enough from each other,
+     * otherwise the larger node is opened (two leaves are summed up directly).
+     *
+     * @param tree  Tree with all bodies
+     * @param node1 First node
+     * @param node2 Second node
+     */
+    private void interact(FlatOctree tree, int node1, int node2) {
+        double mass1 = tree.getTotalMass(node1), mass2 = tree.getTotalMass(node2);
+        if (mass1 == 0 || mass2 == 0) {
+            return;
+        }
+        double dx = tree.getCenterOfMassX(node1) - tree.getCenterOfMassX(node2);
+        double dy = tree.getCenterOfMassY(node1) - tree.getCenterOfMassY(node2);
+        double dz = tree.getCenterOfMassZ(node1) - tree.getCenterOfMassZ(node2);
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        double radius1 = this.radius[node1], radius2 = this.radius[node2];
+        //the larger radius counts twice: a small heavy node (e.g. a black hole) must not be accepted by a large node that is close
+
+        if (distance > 2 * this.theta * Math.max(radius1, radius2)) {
+            addLocalExpansions(node1, mass1, node2, mass2, dx, dy, dz, distance);
+            if (tree.hasQuadrupoles()) {
+                addQuadrupoles(tree, node1, node2, dx, dy, dz, distance);
+            }
+            this.numberOfNodeInteractions++;
+            return;
+        }
+
+        int first1 = tree.getFirstChild(node1), first2 = tree.getFirstChild(node2);
+        if (first1 == FlatOctree.NONE && first2 == FlatOctree.NONE) {
+            BodyStore bodies = tree.getBodyStore();
+            for (int body = tree.getBodyOfNode(node1); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+                for (int other = tree.getBodyOfNode(node2); other != FlatOctree.NONE; other = tree.getNextBody(other)) {
+                    interactDirectly(bodies, body, other);
+                }
+            }
+        } else if (first2 == FlatOctree.NONE || (first1 != FlatOctree.NONE && radius1 >= radius2)) {
+            for (int child = first1; child < first1 + 8; child++) {
+                interact(tree, child, node2);
+            }
+        } else {
+            for (int child = first2; child < first2 + 8; child++) {
+                interact(tree, node1, child);
+            }
+        }
+    }
+
+    /**
+     * Adds the acceleration that two bodies exert on each other.
+     *
+     * @param bodies Body store
+     * @param body1  Id of the first body
+     * @param body2  Id of the second body
+     */
+    private void interactDirectly(BodyStore bodies, int body1, int body2) {
+        double dx = bodies.getPositionX()[body2] - bodies.getPositionX()[body1];
+        double dy = bodies.getPositionY()[body2] - bodies.getPositionY()[body1];
+        double dz = bodies.getPositionZ()[body2] - bodies.getPositionZ()[body1];
+        double distanceSquared = dx * dx + dy * dy + dz * dz;
+        if (distanceSquared == 0) {
+            return; //two bodies at the same position
+        }
+        double factor = Constants.G * this.softening.factor(distanceSquared);
+        double factor1 = factor * bodies.getMass()[body2], factor2 = factor * bodies.getMass()[body1];
+        bodies.getAccelerationX()[body1] += dx * factor1;
+        bodies.getAccelerationY()[body1] += dy * factor1;
+        bodies.getAccelerationZ()[body1] += dz * factor1;
+        bodies.getAccelerationX()[body2] -= dx * factor2;
+        bodies.getAccelerationY()[body2] -= dy * factor2;
+        bodies.getAccelerationZ()[body2] -= dz * factor2;
+        this.numberOfBodyInteractions++;
+    }
+
+    /**
+     * Adds the local expansion of the field of each node (as a monopole) at the center of mass of the other node (M2L).
+     * The derivatives of the field only depend on r, so they are calculated once for both nodes:
+     * a = -G * M * r / |r|^3, tidal tensor J = -G * M * (I / |r|^3 - 3 * r * r^T / |r|^5)
+     * and its derivative T_ijk = G * M * (3 * (d_ij * r_k + d_ik * r_j + d_jk * r_i) / |r|^5 - 15 * r_i * r_j * r_k / |r|^7),
+     * for the second node r is -r, so a and T change their sign.
+     *
+     * @param node1    First node
+     * @param mass1    Total mass of the first node
+     * @param node2    Second node
+     * @param mass2    Total mass of the second node
+     * @param x        x-coordinate of r (from the center of mass of the second node to the center of mass of the first node)
+     * @param y        y-coordinate of r
+     * @param z        z-coordinate of r
+     * @param distance Length of r
+     */
+    private void addLocalExpansions(int node1, double mass1, int node2, double mass2, double x, double y, double z, double distance) {
+        double distanceSquared = distance * distance;
+        double g1 = Constants.G / (distanceSquared * distance);
+        double g2 = 3 * g1 / distanceSquared;
+        double g3 = 5 * g2 / distanceSquared;
+        //the acceleration is softened like the monopoles of the walk
+        double softenedG1 = Constants.G * this.softening.factor(distanceSquared);
+
+        double[] l = this.local;
+        int i1 = node1 * LOCAL_SIZE, i2 = node2 * LOCAL_SIZE;
+
+        //acceleration (odd)
+        l[i1] -= mass2 * softenedG1 * x;
+        l[i1 + 1] -= mass2 * softenedG1 * y;
+        l[i1 + 2] -= mass2 * softenedG1 * z;
+        l[i2] += mass1 * softenedG1 * x;
+        l[i2 + 1] += mass1 * softenedG1 * y;
+        l[i2 + 2] += mass1 * softenedG1 * z;
+
+        //tidal tensor (even)
+        double jxx = g2 * x * x - g1, jxy = g2 * x * y, jxz = g2 * x * z;
+        double jyy = g2 * y * y - g1, jyz = g2 * y * z, jzz = g2 * z * z - g1;
+        int t1 = i1 + TIDAL, t2 = i2 + TIDAL;
+        l[t1] += mass2 * jxx;
+        l[t1 + 1] += mass2 * jxy;
+        l[t1 + 2] += mass2 * jxz;
+        l[t1 + 3] += mass2 * jyy;
+        l[t1 + 4] += mass2 * jyz;
+        l[t1 + 5] += mass2 * jzz;
+        l[t2] += mass1 * jxx;
+        l[t2 + 1] += mass1 * jxy;
+        l[t2 + 2] += mass1 * jxz;
+        l[t2 + 3] += mass1 * jyy;
+        l[t2 + 4] += mass1 * jyz;
+        l[t2 + 5] += mass1 * jzz;
+
+        //derivative of the tidal tensor (odd)
+        double txxx = 3 * g2 * x - g3 * x * x * x;
+        double txxy = g2 * y - g3 * x * x * y;
+        double txxz = g2 * z - g3 * x * x * z;
+        double txyy = g2 * x - g3 * x * y * y;
+        double txyz = -g3 * x * y * z;
+        double txzz = g2 * x - g3 * x * z * z;
+        double tyyy = 3 * g2 * y - g3 * y * y * y;
+        double tyyz = g2 * z - g3 * y * y * z;
+        double tyzz = g2 * y - g3 * y * z * z;
+        double tzzz = 3 * g2 * z - g3 * z * z * z;
+        int d1 = i1 + DERIVATIVE, d2 = i2 + DERIVATIVE;
+        l[d1] += mass2 * txxx;
+        l[d1 + 1] += mass2 * txxy;
+        l[d1 + 2] += mass2 * txxz;
+        l[d1 + 3] += mass2 * txyy;
+        l[d1 + 4] += mass2 * txyz;
+        l[d1 + 5] += mass2 * txzz;
+        l[d1 + 6] += mass2 * tyyy;
+        l[d1 + 7] += mass2 * tyyz;
+        l[d1 + 8] += mass2 * tyzz;
+        l[d1 + 9] += mass2 * tzzz;
+        l[d2] -= mass1 * txxx;
+        l[d2 + 1] -= mass1 * txxy;
+        l[d2 + 2] -= mass1 * txxz;
+        l[d2 + 3] -= mass1 * txyy;
+        l[d2 + 4] -= mass1 * txyz;
+        l[d2 + 5] -= mass1 * txzz;
+        l[d2 + 6] -= mass1 * tyyy;
+        l[d2 + 7] -= mass1 * tyyz;
+        l[d2 + 8] -= mass1 * tyzz;
+        l[d2 + 9] -= mass1 * tzzz;
+    }
+
+    /**
+     * Adds the acceleration of the quadrupole of each node at the center of mass of the other node:
+     * a = G * (Q * R / |R|^5 - 5/2 * (R^T * Q * R) * R / |R|^7), R from the center of mass of the quadrupole to the point.
+     * It removes the largest error of the monopoles, the derivatives of the quadrupoles are of the same order as the truncated terms.
+     *
+     * @param tree     Tree with the quadrupoles
+     * @param node1    First node
+     * @param node2    Second node
+     * @param x        x-coordinate of r (from the center of mass of the second node to the center of mass of the first node)
+     * @param y        y-coordinate of r
+     * @param z        z-coordinate of r
+     * @param distance Length of r
+     */
+    private void addQuadrupoles(FlatOctree tree, int node1, int node2, double x, double y, double z, double distance) {
+        double distanceSquared = distance * distance;
+        double quadrupoleFactor = Constants.G / (distanceSquared * distanceSquared * distance);
+        double radialFactor = 2.5 * quadrupoleFactor / distanceSquared;
+        double[] l = this.local;
+        int i1 = node1 * LOCAL_SIZE, i2 = node2 * LOCAL_SIZE;
+
+        //quadrupole of the second node at the first node (R = r)
+        double qx = tree.getQuadrupoleXX(node2) * x + tree.getQuadrupoleXY(node2) * y + tree.getQuadrupoleXZ(node2) * z;
+        double qy = tree.getQuadrupoleXY(node2) * x + tree.getQuadrupoleYY(node2) * y + tree.getQuadrupoleYZ(node2) * z;
+        double qz = tree.getQuadrupoleXZ(node2) * x + tree.getQuadrupoleYZ(node2) * y + tree.getQuadrupoleZZ(node2) * z;
+        double rqr = x * qx + y * qy + z * qz;
+        l[i1] += qx * quadrupoleFactor - x * rqr * radialFactor;
+        l[i1 + 1] += qy * quadrupoleFactor - y * rqr * radialFactor;
+        l[i1 + 2] += qz * quadrupoleFactor - z * rqr * radialFactor;
+
+        //quadrupole of the first node at the second node (R = -r, the acceleration is odd in R)
+        qx = tree.getQuadrupoleXX(node1) * x + tree.getQuadrupoleXY(node1) * y + tree.getQuadrupoleXZ(node1) * z;
+        qy = tree.getQuadrupoleXY(node1) * x + tree.getQuadrupoleYY(node1) * y + tree.getQuadrupoleYZ(node1) * z;
+        qz = tree.getQuadrupoleXZ(node1) * x + tree.getQuadrupoleYZ(node1) * y + tree.getQuadrupoleZZ(node1) * z;
+        rqr = x * qx + y * qy + z * qz;
+        l[i2] -= qx * quadrupoleFactor - x * rqr * radialFactor;
+        l[i2 + 1] -= qy * quadrupoleFactor - y * rqr * radialFactor;
+        l[i2 + 2] -= qz * quadrupoleFactor - z * rqr * radialFactor;
+    }
+
+    /**
+     * Passes the local expansions down from the root to the leaves, moved to the center of mass of the children (L2L),
+     * and adds the expansions of the leaves at the positions of their bodies (L2P).
+     * Children always have a higher index than their parent, so one pass from the first to the last node is enough.
+     *
+     * @param tree Tree with all bodies
+     */
+    private void passDown(FlatOctree tree) {
+        BodyStore bodies = tree.getBodyStore();
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ();
+        double[] ax = bodies.getAccelerationX(), ay = bodies.getAccelerationY(), az = bodies.getAccelerationZ();
+        double[] acceleration = this.acceleration;
+        for (int node = 0; node < tree.getNumberOfNodes(); node++) {
+            if (tree.getTotalMass(node) == 0) {
+                continue;
+            }
+            int first = tree.getFirstChild(node);
+            double centerX = tree.getCenterOfMassX(node), centerY = tree.getCenterOfMassY(node), centerZ = tree.getCenterOfMassZ(node);
+            if (first == FlatOctree.NONE) {
+                for (int body = tree.getBodyOfNode(node); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+                    evaluate(node, x[body] - centerX, y[body] - centerY, z[body] - centerZ, acceleration);
+                    ax[body] += acceleration[0];
+                    ay[body] += acceleration[1];
+                    az[body] += acceleration[2];
+                }
+                continue;
+            }
+            for (int child = first; child < first + 8; child++) {
+                if (tree.getTotalMass(child) != 0) {
+                    shift(node, child, tree.getCenterOfMassX(child) - centerX, tree.getCenterOfMassY(child) - centerY,
+                            tree.getCenterOfMassZ(child) - centerZ);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the acceleration of the local expansion of a node at an offset from its center of mass:
+     * a + J * d + 1/2 * T * d * d
+     *
+     * @param node   Node with the local expansion
+     * @param dx     x-coordinate of the offset
+     * @param dy     y-coordinate of the offset
+     * @param dz     z-coordinate of the offset
+     * @param result Array that gets the acceleration (x, y, z)
+     */
+    private void evaluate(int node, double dx, double dy, double dz, double[] result) {
+        double[] l = this.local;
+        int i = node * LOCAL_SIZE;
+        int t = i + DERIVATIVE;
+        double tx = l[t] * dx * dx + l[t + 3] * dy * dy + l[t + 5] * dz * dz + 2 * (l[t + 1] * dx * dy + l[t + 2] * dx * dz + l[t + 4] * dy * dz);
+        double ty = l[t + 1] * dx * dx + l[t + 6] * dy * dy + l[t + 8] * dz * dz + 2 * (l[t + 3] * dx * dy + l[t + 4] * dx * dz + l[t + 7] * dy * dz);
+        double tz = l[t + 2] * dx * dx + l[t + 7] * dy * dy + l[t + 9] * dz * dz + 2 * (l[t + 4] * dx * dy + l[t + 5] * dx * dz + l[t + 8] * dy * dz);
+        int j = i + TIDAL;
+        result[0] = l[i] + l[j] * dx + l[j + 1] * dy + l[j + 2] * dz + tx / 2;
+        result[1] = l[i + 1] + l[j + 1] * dx + l[j + 3] * dy + l[j + 4] * dz + ty / 2;
+        result[2] = l[i + 2] + l[j + 2] * dx + l[j + 4] * dy + l[j + 5] * dz + tz / 2;
+    }
+
+    /**
+     * Adds the local expansion of a node, moved by an offset, to the local expansion of its child (L2L):
+     * a' = a + J * d + 1/2 * T * d * d, J' = J + T * d, T' = T
+     *
+     * @param node  Node with the local expansion
+     * @param child Child of the node
+     * @param dx    x-coordinate of the offset (from the center of mass of the node to the center of mass of the child)
+     * @param dy    y-coordinate of the offset
+     * @param dz    z-coordinate of the offset
+     */
+    private void shift(int node, int child, double dx, double dy, double dz) {
+        double[] l = this.local;
+        int i = node * LOCAL_SIZE, c = child * LOCAL_SIZE;
+        int t = i + DERIVATIVE;
+        double[] acceleration = this.acceleration;
+        evaluate(node, dx, dy, dz, acceleration);
+        l[c] += acceleration[0];
+        l[c + 1] += acceleration[1];
+        l[c + 2] += acceleration[2];
+
+        int j = c + TIDAL;
+        l[j] += l[i + TIDAL] + l[t] * dx + l[t + 1] * dy + l[t + 2] * dz;
+        l[j + 1] += l[i + TIDAL + 1] + l[t + 1] * dx + l[t + 3] * dy + l[t + 4] * dz;
+        l[j + 2] += l[i + TIDAL + 2] + l[t + 2] * dx + l[t + 4] * dy + l[t + 5] * dz;
+        l[j + 3] += l[i + TIDAL + 3] + l[t + 3] * dx + l[t + 6] * dy + l[t + 7] * dz;
+        l[j + 4] += l[i + TIDAL + 4] + l[t + 4] * dx + l[t + 7] * dy + l[t + 8] * dz;
+        l[j + 5] += l[i + TIDAL + 5] + l[t + 5] * dx + l[t + 8] * dy + l[t + 9] * dz;
+
+        for (int k = 0; k < 10; k++) {
+            l[c + DERIVATIVE + k] += l[t + k];
+        }
+    }
+
+    /**
+     * Returns the number of node pairs that got the local expansion of each other in the last calculation.
+     *
+     * @return Number of node interactions
+     */
+    public long getNumberOfNodeInteractions() {
+        return this.numberOfNodeInteractions;
+    }
+
+    /**
+     * Returns the number of body pairs that were summed up directly in the last calculation.
+     *
+     * @return Number of body interactions
+     */
+    public long getNumberOfBodyInteractions() {
+        return this.numberOfBodyInteractions;
+    }
+}
@@ -0,0 +1,2256 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Array based octree for the barnes hut algorithm.
+ * Instead of one object per node (with its own cube, vectors, children array and list),
+ * all nodes are stored in flat primitive arrays and are addressed by their index.
+ * The root is always the node with index 0.
+ * The eight children of a node are stored next to each other, beginning at firstChild[node].
+ * A leaf holds up to leafCapacity bodies (a bucket), which are linked by nextBody.
+ * The bodies are kept in a BodyStore, which is passed on to the next tree in every calc-move cycle.
+ * The arrays of the nodes are kept in a NodeArena, which is reused by the tree after the next tree.
+ */
+public class FlatOctree implements BarnesHutTree {
+
+    /**
+     * Index of the root node
+     */
+    public static final int ROOT = 0;
+
+    /**
+     * Value for "no child" and "no body"
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Depth from which on a leaf is not split anymore, it holds more than leafCapacity bodies instead
+     * (the bodies are not merged as in Octree)
+     */
+    private static final int MAX_DEPTH = 10;
+
+    /**
+     * Default for the number of bodies a leaf can hold before it is split
+     */
+    public static final int DEFAULT_LEAF_CAPACITY = 8;
+
+    /**
+     * Maximum part of the bodies that may leave their leaf in a refit, otherwise the tree is built again
+     */
+    private static final double MAX_REFIT_MOVED_PART = 0.25;
+
+    /**
+     * Maximum growth of the number of nodes since the last build in a refit, otherwise the tree is built again
+     */
+    private static final double MAX_REFIT_NODE_GROWTH = 1.5;
+
+    /**
+     * Default for the number of bodies from which on a node is built in parallel
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2048;
+
+    /**
+     * Part of the edge length of the bounding box of the bodies that is added to the root cube when it is fitted to the bodies,
+     * so that the root does not have to be fitted again in the next cycles (refit)
+     */
+    private static final double ROOT_MARGIN = 0.05;
+
+    /**
+     * Cube defines the location and size of the root (fitted to the bodies in every build if autoBounds is set)
+     */
+    private Cube cube;
+
+    /**
+     * Arrays of the nodes and the links of the bodies in the leaves
+     */
+    private NodeArena nodes;
+
+    /**
+     * Arena of the tree of the last cycle, it is reused by the next tree that is created with createEmptyTree (null if none)
+     */
+    private NodeArena spareNodes;
+
+    /**
+     * All bodies in this tree, the body of a leaf is its id in the store
+     */
+    private BodyStore bodies;
+
+    /**
+     * Number of bodies in the nodes of this tree (all bodies of the store without the far field)
+     */
+    private int numberOfBodies;
+
+    /**
+     * Number of bodies in the far field, they are in the store but not in the nodes
+     */
+    private int numberOfFarBodies;
+
+    /**
+     * Specifies if the root cube is fitted to the bodies when the tree is built from a store (instead of removing the bodies outside)
+     */
+    private boolean autoBounds;
+
+    /**
+     * Specifies if the quadrupole moments of the nodes are calculated when the tree is built (passed on to the new trees)
+     */
+    private boolean quadrupoles;
+
+    /**
+     * True if the quadrupole moments of the nodes belong to the current nodes (they are not updated when a body is added)
+     */
+    private boolean areQuadrupolesCalculated;
+
+    /**
+     * Bodies outside of this cube belong to the far field (if autoBounds is set), null if there is no far field
+     */
+    private Cube farFieldLimit;
+
+    /**
+     * Nodes visited while adding a body, their mass is only updated if the body is added
+     */
+    private final int[] path;
+
+    /**
+     * Specifies how the next tree is built in calculateForcesOnAllBodies
+     */
+    private final TreeBuildMode buildMode;
+
+    /**
+     * Nodes with more bodies than this are split up into tasks when the tree is built in parallel
+     */
+    private int parallelThreshold;
+
+    /**
+     * Number of bodies a leaf can hold before it is split
+     */
+    private int leafCapacity;
+
+    /**
+     * Thread pool for the parallel build and the force calculation
+     */
+    private ForkJoinPool forkJoinPool;
+
+    /**
+     * Calculates the accelerations of the bodies in calculateForcesOnAllBodies
+     */
+    private ForceEngine forceEngine;
+
+    /**
+     * Moves the bodies in calculateForcesOnAllBodies
+     */
+    private Integrator integrator;
+
+    /**
+     * Block time steps that calculate the accelerations and move the bodies in calculateForcesOnAllBodies instead of
+     * the force engine and the integrator (null if all bodies have the same time step)
+     */
+    private BlockTimeSteps blockTimeSteps;
+
+    /**
+     * Softening of the force of close bodies, used by all force engines
+     */
+    private Softening softening;
+
+    /**
+     * Total mass and center of mass of the far field (calculated by prepareFarField)
+     */
+    private double farMass, farCenterX, farCenterY, farCenterZ;
+
+    /**
+     * Specifies if the allocated bytes are measured in calculateForcesOnAllBodies
+     */
+    private boolean measureAllocations;
+
+    /**
+     * Bytes allocated during the last force calculation and the last calc-move cycle (-1 if not measured)
+     */
+    private long allocatedBytesOfForces, allocatedBytesOfStep;
+
+    /**
+     * Number of nodes after the tree was built the last time (not refitted)
+     */
+    private int numberOfNodesAfterBuild;
+
+    /**
+     * Number of bodies that were moved to another leaf in the refit of this tree, -1 if the tree was built
+     */
+    private int numberOfMovedBodies;
+
+    /**
+     * Time of the build (or refit) of this tree in calculateForcesOnAllBodies in ns
+     */
+    private long buildTime;
+
+    /**
+     * Times of the force calculation and of the reordering of the bodies in the calc-move cycle that built this tree in ns
+     */
+    private long forceTime, reorderTime;
+
+    /**
+     * The bodies are reordered along the space filling curve every reorderInterval cycles, 0 for never (passed on to the new trees)
+     */
+    private int reorderInterval;
+
+    /**
+     * Number of calc-move cycles since the bodies were reordered the last time (passed on to the new trees)
+     */
+    private int cyclesSinceReorder;
+
+    /**
+     * Constructor, bodies are added one by one
+     *
+     * @param cube The space that the octree contains
+     */
+    public FlatOctree(Cube cube) {
+        this(cube, TreeBuildMode.INSERTION);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param cube      The space that the octree contains
+     * @param buildMode Specifies how the next tree is built in a calc-move cycle
+     */
+    public FlatOctree(Cube cube, TreeBuildMode buildMode) {
+        this(cube, buildMode, new NodeArena());
+    }
+
+    /**
+     * Constructor for a tree whose nodes are stored in the given arena, the arena is reset
+     *
+     * @param cube      The space that the octree contains
+     * @param buildMode Specifies how the next tree is built in a calc-move cycle
+     * @param nodes     Arena that keeps the nodes of the tree
+     */
+    private FlatOctree(Cube cube, TreeBuildMode buildMode, NodeArena nodes) {
+        this.cube = cube;
+        this.buildMode = buildMode;
+        this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        this.leafCapacity = DEFAULT_LEAF_CAPACITY;
+        this.forkJoinPool = ForkJoinPool.commonPool();
+        this.forceEngine = new IterativeTreeWalk();
+        this.integrator = new SymplecticEuler();
+        this.softening = Softening.NONE;
+        this.allocatedBytesOfForces = -1;
+        this.allocatedBytesOfStep = -1;
+        this.numberOfMovedBodies = -1;
+        this.autoBounds = true;
+        this.nodes = nodes;
+        this.bodies = new BodyStore();
+        this.path = new int[MAX_DEPTH + 2];
+
+        nodes.reset();
+        Vector3 center = cube.getCenter();
+        initNode(ROOT, center.getX(), center.getY(), center.getZ(), cube.getEdgeLength());
+        nodes.numberOfNodes = 1;
+    }
+
+    /**
+     * Adds a new body to the octree, the values of the body are copied into the body store of the tree.
+     * Returns true if body is successfully added to the tree and false otherwise.
+     *
+     * @param body Celestial Body that shall be added
+     * @return True if body is successfully added
+     */
+    @Override
+    public boolean addToOctree(CelestialBody body) {
+        if (!cube.isInsideCube(body.getPosition())) {
+            return false;
+        }
+        int id = this.bodies.add(body);
+        this.areQuadrupolesCalculated = false;
+        if (!addToSubtree(id, true)) {
+            this.bodies.removeLast();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds a body of the store that is inside of the cube of the root.
+     * A full leaf is split and its bodies are moved into the children, below MAX_DEPTH a leaf can hold more bodies.
+     *
+     * @param id         Id of the body in the store
+     * @param compareIds True if a body that was created from the same celestial body as a body in the same leaf
+     *                   shall not be added (as in Octree)
+     * @return True if body is successfully added
+     */
+    private boolean addToSubtree(int id, boolean compareIds) {
+        double x = this.bodies.getPositionX()[id];
+        double y = this.bodies.getPositionY()[id];
+        double z = this.bodies.getPositionZ()[id];
+        double mass = this.bodies.getMass(id);
+        this.nodes.ensureBodyCapacity(id + 1);
+
+        int node = ROOT;
+        int depth = 0;
+        while (true) {
+            if (this.nodes.firstChild[node] == NONE) {
+                if (compareIds && containsCelestialBody(node, this.bodies.getCelestialBodyId(id))) {
+                    return false;
+                }
+                if (this.nodes.numberOfBodiesInNode[node] < this.leafCapacity || depth > MAX_DEPTH) {
+                    addBodyToLeaf(node, id, x, y, z, mass);
+                    break;
+                }
+                splitLeaf(node);
+            }
+            this.path[depth] = node;
+            node = this.nodes.firstChild[node] + calcChildIndex(node, x, y, z);
+            depth++;
+        }
+
+        for (int i = 0; i < depth; i++) {
+            addMassToNode(this.path[i], x, y, z, mass);
+        }
+        this.numberOfBodies++;
+        return true;
+    }
+
+    private boolean containsCelestialBody(int leaf, int celestialBodyId) {
+        for (int body = this.nodes.bodyOfNode[leaf]; body != NONE; body = this.nodes.nextBody[body]) {
+            if (this.bodies.getCelestialBodyId(body) == celestialBodyId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the tree with all bodies at once (the tree has to be empty):
+     * the morton codes of all bodies are calculated and radix sorted,
+     * so the bodies of every node are next to each other in the sorted order.
+     * Then the tree is built from the root down: a node with more than leafCapacity bodies gets its children,
+     * and its bodies are split up by the 3 bits of their morton code for the level of the children.
+     * Masses and centers of mass are calculated afterwards in one pass from the leaves up to the root.
+     * All bodies of the store (except the far field) have to be inside of the cube.
+     *
+     * @param bodiesToAdd Store with the bodies, becomes the store of this tree
+     */
+    public void buildWithMortonCodes(BodyStore bodiesToAdd) {
+        this.bodies = bodiesToAdd;
+        int size = bodiesToAdd.size();
+        this.nodes.ensureBodyCapacity(size);
+        this.nodes.ensureBuildBufferCapacity(size);
+        double[] x = bodiesToAdd.getPositionX(), y = bodiesToAdd.getPositionY(), z = bodiesToAdd.getPositionZ();
+        //leaves below this depth are not split, so the lower levels of the keys are not needed
+        int levels = MAX_DEPTH + 1;
+        long[] keys = this.nodes.keys;
+        int[] order = this.nodes.order;
+        int numberOfKeys = 0;
+        for (int id = 0; id < size; id++) {
+            if (isFarBody(id)) {
+                continue;
+            }
+            keys[numberOfKeys] = MortonCode.calculateKey(x[id], y[id], z[id], this.cube, levels);
+            order[numberOfKeys++] = id;
+        }
+        MortonCode.radixSort(keys, order, numberOfKeys, levels, this.nodes.keyBuffer, this.nodes.orderBuffer, this.nodes.radixCount);
+
+        if (numberOfKeys > 0) {
+            buildNode(ROOT, 0, keys, order, 0, numberOfKeys);
+        }
+        calculateMassFromChildren();
+    }
+
+    /**
+     * Builds the part of the tree below a node from the sorted bodies.
+     *
+     * @param node  Empty leaf that gets the bodies
+     * @param depth Depth of the node
+     * @param keys  Sorted morton codes
+     * @param order Ids of the bodies in the sorted order
+     * @param from  First index (in keys) of the bodies of the node
+     * @param to    Last index + 1
+     */
+    private void buildNode(int node, int depth, long[] keys, int[] order, int from, int to) {
+        if (to - from <= this.leafCapacity || depth > MAX_DEPTH) {
+            //bodies are added in reverse, so that they are in the sorted order in the leaf
+            for (int i = to - 1; i >= from; i--) {
+                int id = order[i];
+                addBodyToLeaf(node, id, this.bodies.getPositionX()[id], this.bodies.getPositionY()[id],
+                        this.bodies.getPositionZ()[id], this.bodies.getMass(id));
+            }
+            this.numberOfBodies += to - from;
+            return;
+        }
+        int first = createChildren(node);
+        int start = from;
+        while (start < to) {
+            int child = MortonCode.childIndex(keys[start], depth + 1);
+            int end = start + 1;
+            while (end < to && MortonCode.childIndex(keys[end], depth + 1) == child) {
+                end++;
+            }
+            buildNode(first + child, depth + 1, keys, order, start, end);
+            start = end;
+        }
+    }
+
+    /**
+     * Calculates total mass and center of mass of all inner nodes from their children.
+     * Children always have a higher index than their parent, so one pass from the last to the first node is enough.
+     */
+    private void calculateMassFromChildren() {
+        for (int node = this.nodes.numberOfNodes - 1; node >= 0; node--) {
+            if (this.nodes.firstChild[node] != NONE) {
+                calculateMassOfNode(node);
+            }
+        }
+    }
+
+    /**
+     * Calculates total mass and center of mass of an inner node from its children.
+     *
+     * @param node Node with children
+     */
+    private void calculateMassOfNode(int node) {
+        int first = this.nodes.firstChild[node];
+        double mass = 0, x = 0, y = 0, z = 0;
+        for (int child = first; child < first + 8; child++) {
+            double childMass = this.nodes.totalMass[child];
+            if (childMass == 0) {
+                continue; //empty child (can happen after a refit)
+            }
+            mass += childMass;
+            x += this.nodes.centerOfMassX[child] * childMass;
+            y += this.nodes.centerOfMassY[child] * childMass;
+            z += this.nodes.centerOfMassZ[child] * childMass;
+        }
+        this.nodes.totalMass[node] = mass;
+        this.nodes.centerOfMassX[node] = mass == 0 ? 0 : x / mass;
+        this.nodes.centerOfMassY[node] = mass == 0 ? 0 : y / mass;
+        this.nodes.centerOfMassZ[node] = mass == 0 ? 0 : z / mass;
+    }
+
+    /**
+     * Builds the tree with all bodies at once (the tree has to be empty), according to the build mode of this tree.
+     * The store becomes the store of this tree. If autoBounds is set, the root cube is fitted to the bodies
+     * (bodies outside of the far field limit are kept in the far field), otherwise bodies outside of the cube are removed from the store.
+     *
+     * @param bodiesToAdd Store with the bodies that shall be added
+     */
+    public void build(BodyStore bodiesToAdd) {
+        if (this.autoBounds) {
+            fitRootToBodies(bodiesToAdd);
+        } else {
+            removeBodiesOutside(bodiesToAdd);
+        }
+        switch (this.buildMode) {
+            case MORTON:
+            case REFIT:
+                buildWithMortonCodes(bodiesToAdd);
+                break;
+            case PARALLEL:
+                buildInParallel(bodiesToAdd);
+                break;
+            case INSERTION:
+            default:
+                this.bodies = bodiesToAdd;
+                for (int id = 0; id < bodiesToAdd.size(); id++) {
+                    if (!isFarBody(id)) {
+                        addToSubtree(id, false);
+                    }
+                }
+                break;
+        }
+        this.numberOfNodesAfterBuild = this.nodes.numberOfNodes;
+        this.numberOfMovedBodies = -1;
+        if (this.quadrupoles) {
+            calculateQuadrupoles();
+        }
+    }
+
+    /**
+     * Removes the bodies outside of the root cube from the store, the integrator and the block time steps
+     * move the data they keep for the kept bodies to the new ids.
+     *
+     * @param bodiesToAdd Store with the bodies that shall be added
+     */
+    private void removeBodiesOutside(BodyStore bodiesToAdd) {
+        this.nodes.ensureBuildBufferCapacity(bodiesToAdd.size());
+        int[] keptIds = this.nodes.order;
+        if (bodiesToAdd.removeBodiesOutside(this.cube, keptIds) > 0) {
+            this.integrator.removeBodies(keptIds, bodiesToAdd.size());
+            if (this.blockTimeSteps != null) {
+                this.blockTimeSteps.removeBodies(keptIds, bodiesToAdd.size());
+            }
+        }
+    }
+
+    /**
+     * Sets the root cube to the bounding box of the bodies (parallel min/max reduction) and collects the far field:
+     * the bodies outside of the far field limit are not added to the nodes and do not enlarge the root.
+     * The tree has to be empty.
+     *
+     * @param bodiesToAdd Store with the bodies that shall be added
+     */
+    private void fitRootToBodies(BodyStore bodiesToAdd) {
+        collectFarBodies(bodiesToAdd);
+        BoundingBox boundingBox = BoundingBox.of(bodiesToAdd, this.farFieldLimit, this.forkJoinPool);
+        if (!boundingBox.isEmpty()) {
+            this.cube = boundingBox.toCube(ROOT_MARGIN);
+        }
+        this.nodes.numberOfNodes = 1;
+        initNode(ROOT, this.cube.getCenter().getX(), this.cube.getCenter().getY(), this.cube.getCenter().getZ(), this.cube.getEdgeLength());
+    }
+
+    /**
+     * Marks all bodies of the store outside of the far field limit as far field bodies.
+     *
+     * @param bodiesToAdd Store with the bodies
+     */
+    private void collectFarBodies(BodyStore bodiesToAdd) {
+        this.numberOfFarBodies = 0;
+        if (this.farFieldLimit == null) {
+            return;
+        }
+        int size = bodiesToAdd.size();
+        this.nodes.ensureFarBodyCapacity(size);
+        double[] x = bodiesToAdd.getPositionX(), y = bodiesToAdd.getPositionY(), z = bodiesToAdd.getPositionZ();
+        for (int id = 0; id < size; id++) {
+            boolean isFar = !this.farFieldLimit.isInsideCube(x[id], y[id], z[id]);
+            this.nodes.isFarBody[id] = isFar;
+            if (isFar) {
+                this.nodes.farBodies[this.numberOfFarBodies++] = id;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the body belongs to the far field (is not in the nodes).
+     *
+     * @param id Id of the body in the store
+     * @return True if the body is in the far field
+     */
+    public boolean isFarBody(int id) {
+        return this.numberOfFarBodies > 0 && this.nodes.isFarBody[id];
+    }
+
+    /**
+     * Returns true if the far field of the tree is not the same anymore:
+     * a far field body is inside of the far field limit, or another body left it.
+     *
+     * @return True if the far field has changed
+     */
+    private boolean hasFarFieldChanged() {
+        if (this.farFieldLimit == null) {
+            return false;
+        }
+        double[] x = this.bodies.getPositionX(), y = this.bodies.getPositionY(), z = this.bodies.getPositionZ();
+        int outside = 0;
+        for (int id = 0; id < this.bodies.size(); id++) {
+            if (!this.farFieldLimit.isInsideCube(x[id], y[id], z[id])) {
+                if (!isFarBody(id)) {
+                    return true;
+                }
+                outside++;
+            }
+        }
+        return outside != this.numberOfFarBodies;
+    }
+
+    /**
+     * Builds this (empty) tree by reusing the nodes of the tree of the last cycle, after the bodies were moved:
+     * the bodies that left the cube of their leaf are removed from the leaf and added again beginning at the root,
+     * then masses and centers of mass of all nodes are calculated again from the leaves up to the root.
+     * Empty nodes are kept. The tree is built again (with morton codes) if a body left the cube of the root or the far field changed,
+     * if too many bodies left their leaf or if the tree has too many nodes compared to the last build.
+     * The previous tree must not be used anymore afterwards, because its arena is now used by this tree.
+     *
+     * @param previousTree Tree of the last cycle with the same cube and body store
+     */
+    public void refit(FlatOctree previousTree) {
+        //the arena of this tree is not needed, it is kept for the next tree
+        this.spareNodes = this.nodes;
+        this.nodes = previousTree.nodes;
+        this.numberOfNodesAfterBuild = previousTree.numberOfNodesAfterBuild;
+        this.bodies = previousTree.bodies;
+        this.numberOfBodies = previousTree.numberOfBodies;
+        this.numberOfFarBodies = previousTree.numberOfFarBodies;
+
+        double[] x = this.bodies.getPositionX(), y = this.bodies.getPositionY(), z = this.bodies.getPositionZ();
+        if (this.autoBounds) {
+            if (hasFarFieldChanged() || !BoundingBox.of(this.bodies, this.farFieldLimit, this.forkJoinPool).isInsideCube(this.cube)) {
+                rebuild();
+                return;
+            }
+        } else {
+            for (int id = 0; id < this.bodies.size(); id++) {
+                if (!this.cube.isInsideCube(x[id], y[id], z[id])) {
+                    rebuild();
+                    return;
+                }
+            }
+        }
+
+        //remove the bodies that left their leaf
+        this.nodes.ensureMovedBodiesCapacity(this.numberOfBodies);
+        int[] movedBodies = this.nodes.movedBodies;
+        int numberOfMoved = 0;
+        for (int node = 0; node < this.nodes.numberOfNodes; node++) {
+            if (this.nodes.firstChild[node] != NONE) {
+                continue;
+            }
+            int previous = NONE;
+            for (int body = this.nodes.bodyOfNode[node]; body != NONE; body = this.nodes.nextBody[body]) {
+                if (isInsideNode(node, x[body], y[body], z[body])) {
+                    previous = body;
+                    continue;
+                }
+                if (previous == NONE) {
+                    this.nodes.bodyOfNode[node] = this.nodes.nextBody[body];
+                } else {
+                    this.nodes.nextBody[previous] = this.nodes.nextBody[body];
+                }
+                this.nodes.numberOfBodiesInNode[node]--;
+                movedBodies[numberOfMoved++] = body;
+            }
+        }
+        if (numberOfMoved > MAX_REFIT_MOVED_PART * this.numberOfBodies) {
+            rebuild();
+            return;
+        }
+
+        //add them again and calculate the masses of all nodes
+        this.numberOfBodies -= numberOfMoved;
+        for (int i = 0; i < numberOfMoved; i++) {
+            addToSubtree(movedBodies[i], false);
+        }
+        if (this.nodes.numberOfNodes > MAX_REFIT_NODE_GROWTH * this.numberOfNodesAfterBuild) {
+            rebuild();
+            return;
+        }
+        calculateMassOfLeaves();
+        calculateMassFromChildren();
+        this.numberOfMovedBodies = numberOfMoved;
+        if (this.quadrupoles) {
+            calculateQuadrupoles();
+        }
+    }
+
+    /**
+     * Removes all nodes and builds the tree again with all bodies of the body store.
+     */
+    private void rebuild() {
+        this.nodes.numberOfNodes = 1;
+        initNode(ROOT, this.nodes.centerX[ROOT], this.nodes.centerY[ROOT], this.nodes.centerZ[ROOT], this.nodes.edgeLength[ROOT]);
+        this.numberOfBodies = 0;
+        this.numberOfFarBodies = 0;
+        build(this.bodies);
+    }
+
+    /**
+     * Calculates the quadrupole tensors of all nodes around their center of mass (masses and centers of mass have to be calculated):
+     * Q = sum of m * (3 * s * s^T - |s|^2 * I), where s is the position of a body relative to the center of mass.
+     * The tensor of a leaf is summed up from its bodies, the tensor of an inner node from the tensors of its children,
+     * which are moved to the center of mass of the node (parallel axis theorem).
+     * Children always have a higher index than their parent, so one pass from the last to the first node is enough.
+     */
+    public void calculateQuadrupoles() {
+        NodeArena nodes = this.nodes;
+        nodes.ensureQuadrupoleCapacity(nodes.numberOfNodes);
+        double[] x = this.bodies.getPositionX(), y = this.bodies.getPositionY(), z = this.bodies.getPositionZ();
+        double[] bodyMass = this.bodies.getMass();
+        for (int node = nodes.numberOfNodes - 1; node >= 0; node--) {
+            double xx = 0, xy = 0, xz = 0, yy = 0, yz = 0, zz = 0;
+            int first = nodes.firstChild[node];
+            if (first == NONE) {
+                for (int body = nodes.bodyOfNode[node]; body != NONE; body = nodes.nextBody[body]) {
+                    double m = bodyMass[body];
+                    double sx = x[body] - nodes.centerOfMassX[node], sy = y[body] - nodes.centerOfMassY[node], sz = z[body] - nodes.centerOfMassZ[node];
+                    double s2 = sx * sx + sy * sy + sz * sz;
+                    xx += m * (3 * sx * sx - s2);
+                    xy += m * 3 * sx * sy;
+                    xz += m * 3 * sx * sz;
+                    yy += m * (3 * sy * sy - s2);
+                    yz += m * 3 * sy * sz;
+                    zz += m * (3 * sz * sz - s2);
+                }
+            } else {
+                for (int child = first; child < first + 8; child++) {
+                    double m = nodes.totalMass[child];
+                    if (m == 0) {
+                        continue;
+                    }
+                    double sx = nodes.centerOfMassX[child] - nodes.centerOfMassX[node];
+                    double sy = nodes.centerOfMassY[child] - nodes.centerOfMassY[node];
+                    double sz = nodes.centerOfMassZ[child] - nodes.centerOfMassZ[node];
+                    double s2 = sx * sx + sy * sy + sz * sz;
+                    xx += nodes.quadrupoleXX[child] + m * (3 * sx * sx - s2);
+                    xy += nodes.quadrupoleXY[child] + m * 3 * sx * sy;
+                    xz += nodes.quadrupoleXZ[child] + m * 3 * sx * sz;
+                    yy += nodes.quadrupoleYY[child] + m * (3 * sy * sy - s2);
+                    yz += nodes.quadrupoleYZ[child] + m * 3 * sy * sz;
+                    zz += nodes.quadrupoleZZ[child] + m * (3 * sz * sz - s2);
+                }
+            }
+            nodes.quadrupoleXX[node] = xx;
+            nodes.quadrupoleXY[node] = xy;
+            nodes.quadrupoleXZ[node] = xz;
+            nodes.quadrupoleYY[node] = yy;
+            nodes.quadrupoleYZ[node] = yz;
+            nodes.quadrupoleZZ[node] = zz;
+        }
+        this.areQuadrupolesCalculated = true;
+    }
+
+    /**
+     * Fills the compact float copy of the nodes for the mixed precision walk (masses and centers of mass have to be calculated):
+     * the center of mass is stored relative to the middle point of its node, so the rounding error of a float
+     * depends on the size of the node and not on the distance of the node to the origin, and the mass is stored as G * mass.
+     * If the quadrupole moments are used, the tensor is stored divided by mass * edge length^2 (of the order of 1, the tensor itself
+     * is too large for a float), so a node has FLOAT_QUADRUPOLE_NODE_SIZE instead of FLOAT_NODE_SIZE floats (see getFloatNodeSize).
+     */
+    public void calculateFloatNodes() {
+        NodeArena nodes = this.nodes;
+        boolean useQuadrupoles = hasQuadrupoles();
+        int nodeSize = useQuadrupoles ? NodeArena.FLOAT_QUADRUPOLE_NODE_SIZE : NodeArena.FLOAT_NODE_SIZE;
+        nodes.ensureFloatNodeCapacity(nodes.numberOfNodes, nodeSize);
+        float[] floatNodes = nodes.floatNodes;
+        for (int node = 0; node < nodes.numberOfNodes; node++) {
+            int index = node * nodeSize;
+            double mass = nodes.totalMass[node];
+            floatNodes[index] = mass == 0 ? 0 : (float) (nodes.centerOfMassX[node] - nodes.centerX[node]);
+            floatNodes[index + 1] = mass == 0 ? 0 : (float) (nodes.centerOfMassY[node] - nodes.centerY[node]);
+            floatNodes[index + 2] = mass == 0 ? 0 : (float) (nodes.centerOfMassZ[node] - nodes.centerZ[node]);
+            floatNodes[index + 3] = (float) (Constants.G * mass);
+            if (useQuadrupoles) {
+                double scale = mass == 0 ? 0 : 1 / (mass * nodes.edgeLength[node] * nodes.edgeLength[node]);
+                floatNodes[index + 4] = (float) (nodes.quadrupoleXX[node] * scale);
+                floatNodes[index + 5] = (float) (nodes.quadrupoleXY[node] * scale);
+                floatNodes[index + 6] = (float) (nodes.quadrupoleXZ[node] * scale);
+                floatNodes[index + 7] = (float) (nodes.quadrupoleYY[node] * scale);
+                floatNodes[index + 8] = (float) (nodes.quadrupoleYZ[node] * scale);
+                floatNodes[index + 9] = (float) (nodes.quadrupoleZZ[node] * scale);
+            }
+        }
+    }
+
+    /**
+     * Fills the depth first layout of the nodes for the stackless walk (masses and centers of mass have to be calculated):
+     * the non-empty nodes are copied in depth first order (a node is followed by its first non-empty child,
+     * the children of a node are in morton order), and every node gets the position of the next node after its subtree (skip).
+     * So a walk is one forward loop: it goes on with the next position to open a node, and jumps to the skip to accept it.
+     */
+    public void calculateDepthFirstLayout() {
+        NodeArena nodes = this.nodes;
+        nodes.ensureDepthFirstCapacity(nodes.numberOfNodes);
+        int[] subtreeSize = nodes.subtreeSize;
+        //the children of a node have greater indices than the node
+        for (int node = nodes.numberOfNodes - 1; node >= 0; node--) {
+            int size = 0;
+            if (nodes.totalMass[node] != 0) {
+                size = 1;
+                int firstChild = nodes.firstChild[node];
+                if (firstChild != NONE) {
+                    for (int child = firstChild; child < firstChild + 8; child++) {
+                        size += subtreeSize[child];
+                    }
+                }
+            }
+            subtreeSize[node] = size;
+        }
+
+        int position = 0;
+        int[] stack = nodes.curveStack;
+        int stackSize = 0;
+        if (nodes.numberOfNodes > 0 && subtreeSize[ROOT] > 0) {
+            stack[stackSize++] = ROOT;
+        }
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            int index = position * NodeArena.DEPTH_FIRST_NODE_SIZE;
+            nodes.depthFirstNodes[index] = nodes.centerOfMassX[node];
+            nodes.depthFirstNodes[index + 1] = nodes.centerOfMassY[node];
+            nodes.depthFirstNodes[index + 2] = nodes.centerOfMassZ[node];
+            nodes.depthFirstNodes[index + 3] = nodes.totalMass[node];
+            nodes.depthFirstNodes[index + 4] = nodes.edgeLength[node];
+            nodes.skip[position] = position + subtreeSize[node];
+            nodes.depthFirstIndex[position] = node;
+            int firstChild = nodes.firstChild[node];
+            nodes.depthFirstBody[position] = firstChild == NONE ? nodes.bodyOfNode[node] : NONE;
+            position++;
+            if (firstChild == NONE) {
+                continue;
+            }
+            if (stackSize + 8 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                nodes.curveStack = stack;
+            }
+            //pushed in reverse order, so that the first child gets the next position
+            for (int child = firstChild + 7; child >= firstChild; child--) {
+                if (subtreeSize[child] > 0) {
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+        nodes.numberOfDepthFirstNodes = position;
+    }
+
+    /**
+     * Calculates total mass and center of mass of all leaves from their bodies.
+     */
+    private void calculateMassOfLeaves() {
+        for (int node = 0; node < this.nodes.numberOfNodes; node++) {
+            if (this.nodes.firstChild[node] == NONE) {
+                calculateMassOfLeaf(node);
+            }
+        }
+    }
+
+    /**
+     * Calculates total mass and center of mass of a leaf from its bodies.
+     *
+     * @param leaf Node without children
+     */
+    private void calculateMassOfLeaf(int leaf) {
+        double[] x = this.bodies.getPositionX(), y = this.bodies.getPositionY(), z = this.bodies.getPositionZ();
+        double[] bodyMass = this.bodies.getMass();
+        double mass = 0, sumX = 0, sumY = 0, sumZ = 0;
+        for (int body = this.nodes.bodyOfNode[leaf]; body != NONE; body = this.nodes.nextBody[body]) {
+            mass += bodyMass[body];
+            sumX += x[body] * bodyMass[body];
+            sumY += y[body] * bodyMass[body];
+            sumZ += z[body] * bodyMass[body];
+        }
+        this.nodes.totalMass[leaf] = mass;
+        this.nodes.centerOfMassX[leaf] = mass == 0 ? 0 : sumX / mass;
+        this.nodes.centerOfMassY[leaf] = mass == 0 ? 0 : sumY / mass;
+        this.nodes.centerOfMassZ[leaf] = mass == 0 ? 0 : sumZ / mass;
+    }
+
+    /**
+     * Builds the tree with all bodies at once (the tree has to be empty), according to the build mode of this tree.
+     * The values of the bodies are copied into a new body store.
+     *
+     * @param bodiesToAdd    Bodies that shall be added
+     * @param numberOfBodies Number of bodies in the array that shall be added
+     */
+    public void build(CelestialBody[] bodiesToAdd, int numberOfBodies) {
+        build(BodyStore.fromCelestialBodies(bodiesToAdd, numberOfBodies));
+    }
+
+    /**
+     * Builds the tree with all bodies at once (the tree has to be empty) with the fork join pool of this tree, in two passes.
+     * First the ids of the bodies are sorted in the build buffer of the arena from the root down: the bodies of a node are
+     * split up by the child they belong to, until the node is a leaf (the same rule as if the bodies were added one by one).
+     * A node with more than parallelThreshold bodies gets a task for every child, and every task counts the nodes below its node.
+     * Then the arena is made big enough once, and the nodes below every task are written into their own slice of the arena
+     * (it begins after the slices of the children before), again with a task for every part.
+     * The result is the same tree as if the bodies were added one by one, only the nodes are numbered in depth first order.
+     * All bodies of the store (except the far field) have to be inside of the cube.
+     *
+     * @param bodiesToAdd Store with the bodies, becomes the store of this tree
+     */
+    public void buildInParallel(BodyStore bodiesToAdd) {
+        this.bodies = bodiesToAdd;
+        int size = bodiesToAdd.size();
+        this.nodes.ensureBodyCapacity(size);
+        this.nodes.ensureBuildBufferCapacity(size);
+        int[] order = this.nodes.order;
+        int numberOfIds = 0;
+        for (int id = 0; id < size; id++) {
+            if (!isFarBody(id)) {
+                order[numberOfIds++] = id;
+            }
+        }
+
+        SortTask sortedRoot = new SortTask(this, 0, numberOfIds,
+                this.nodes.centerX[ROOT], this.nodes.centerY[ROOT], this.nodes.centerZ[ROOT], this.nodes.edgeLength[ROOT], 0);
+        this.forkJoinPool.invoke(sortedRoot);
+
+        this.nodes.ensureCapacity(this.nodes.numberOfNodes + sortedRoot.numberOfNodesBelow);
+        this.forkJoinPool.invoke(new FillTask(sortedRoot, ROOT, this.nodes.numberOfNodes));
+        this.nodes.numberOfNodes += sortedRoot.numberOfNodesBelow;
+        this.numberOfBodies += numberOfIds;
+    }
+
+    /**
+     * First pass of the parallel build, sorts the ids of the bodies of one node and counts the nodes below it
+     */
+    private static class SortTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FlatOctree tree;
+        private final int from, to;
+        private final double centerX, centerY, centerZ, edgeLength;
+        private final int depth;
+
+        /**
+         * Number of nodes below the node of this task (without the node itself)
+         */
+        private int numberOfNodesBelow;
+
+        /**
+         * Tasks of the children (null for an empty child), null if the node was sorted without tasks
+         */
+        private SortTask[] children;
+
+        /**
+         * First index of every child for every depth (see sortBelow), if the node was sorted without tasks
+         */
+        private int[] childStarts;
+
+        /**
+         * Constructor
+         *
+         * @param tree       The tree that is built (for the settings, the bodies and the build buffers)
+         * @param from       First index (in the order of the arena) of the bodies of this node
+         * @param to         Last index + 1
+         * @param centerX    x-coordinate of the middle point of the node
+         * @param centerY    y-coordinate of the middle point of the node
+         * @param centerZ    z-coordinate of the middle point of the node
+         * @param edgeLength The length of a side of the node
+         * @param depth      Depth of the node
+         */
+        SortTask(FlatOctree tree, int from, int to, double centerX, double centerY, double centerZ, double edgeLength, int depth) {
+            this.tree = tree;
+            this.from = from;
+            this.to = to;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.centerZ = centerZ;
+            this.edgeLength = edgeLength;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= Math.max(this.tree.parallelThreshold, this.tree.leafCapacity) || this.depth > MAX_DEPTH) {
+                //only nodes up to MAX_DEPTH have children
+                this.childStarts = new int[9 * (MAX_DEPTH + 1)];
+                this.numberOfNodesBelow = this.tree.sortBelow(this.from, this.to, this.centerX, this.centerY, this.centerZ,
+                        this.edgeLength, this.depth, this.childStarts);
+                return;
+            }
+
+            //more than leafCapacity bodies, so the node has children
+            int[] start = new int[9];
+            this.tree.sortByChild(this.from, this.to, this.centerX, this.centerY, this.centerZ, start, 0);
+            this.children = new SortTask[8];
+            double childEdgeLength = this.edgeLength / 2;
+            double offset = childEdgeLength / 2;
+            for (int child = 0; child < 8; child++) {
+                if (start[child + 1] > start[child]) {
+                    this.children[child] = new SortTask(this.tree, start[child], start[child + 1],
+                            this.centerX + ((child & 1) != 0 ? offset : -offset),
+                            this.centerY + ((child & 2) != 0 ? offset : -offset),
+                            this.centerZ + ((child & 4) != 0 ? offset : -offset),
+                            childEdgeLength, this.depth + 1);
+                }
+            }
+            for (SortTask task : this.children) {
+                if (task != null) {
+                    task.fork();
+                }
+            }
+
+            this.numberOfNodesBelow = 8;
+            for (SortTask task : this.children) {
+                if (task != null) {
+                    task.join();
+                    this.numberOfNodesBelow += task.numberOfNodesBelow;
+                }
+            }
+        }
+    }
+
+    /**
+     * Second pass of the parallel build, writes the nodes below the node of a sort task into the arena
+     */
+    private static class FillTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SortTask sorted;
+        private final int node;
+        private final int next;
+
+        /**
+         * Constructor
+         *
+         * @param sorted Finished sort task of the node
+         * @param node   Node of the task, it already has its middle point and edge length
+         * @param next   Index of the first node of the slice of the arena for the nodes below the node
+         */
+        FillTask(SortTask sorted, int node, int next) {
+            this.sorted = sorted;
+            this.node = node;
+            this.next = next;
+        }
+
+        @Override
+        protected void compute() {
+            FlatOctree tree = this.sorted.tree;
+            if (this.sorted.children == null) {
+                tree.fillBelow(this.node, this.next, this.sorted.from, this.sorted.to, this.sorted.depth, this.sorted.childStarts);
+                return;
+            }
+
+            tree.initChildren(this.node, this.next);
+            FillTask[] tasks = new FillTask[8];
+            int position = this.next + 8;
+            for (int child = 0; child < 8; child++) {
+                SortTask sortedChild = this.sorted.children[child];
+                if (sortedChild != null) {
+                    tasks[child] = new FillTask(sortedChild, this.next + child, position);
+                    position += sortedChild.numberOfNodesBelow;
+                }
+            }
+            for (FillTask task : tasks) {
+                if (task != null) {
+                    task.fork();
+                }
+            }
+            for (FillTask task : tasks) {
+                if (task != null) {
+                    task.join();
+                }
+            }
+            tree.calculateMassOfNode(this.node);
+        }
+    }
+
+    /**
+     * Sorts the ids of the bodies of a node (in the order of the arena) from the node down,
+     * so that the bodies of every node below are next to each other, and counts the nodes below the node.
+     *
+     * @param from        First index of the bodies of the node
+     * @param to          Last index + 1
+     * @param centerX     x-coordinate of the middle point of the node
+     * @param centerY     y-coordinate of the middle point of the node
+     * @param centerZ     z-coordinate of the middle point of the node
+     * @param edgeLength  The length of a side of the node
+     * @param depth       Depth of the node
+     * @param childStarts Buffer with 9 entries for every depth (see sortByChild)
+     * @return Number of nodes below the node
+     */
+    private int sortBelow(int from, int to, double centerX, double centerY, double centerZ, double edgeLength, int depth, int[] childStarts) {
+        if (to - from <= this.leafCapacity || depth > MAX_DEPTH) {
+            return 0;
+        }
+        int start = depth * 9;
+        sortByChild(from, to, centerX, centerY, centerZ, childStarts, start);
+        double childEdgeLength = edgeLength / 2;
+        double offset = childEdgeLength / 2;
+        int numberOfNodesBelow = 8;
+        for (int child = 0; child < 8; child++) {
+            numberOfNodesBelow += sortBelow(childStarts[start + child], childStarts[start + child + 1],
+                    centerX + ((child & 1) != 0 ? offset : -offset),
+                    centerY + ((child & 2) != 0 ? offset : -offset),
+                    centerZ + ((child & 4) != 0 ? offset : -offset),
+                    childEdgeLength, depth + 1, childStarts);
+        }
+        return numberOfNodesBelow;
+    }
+
+    /**
+     * Writes the nodes below a node (sorted by sortBelow) into the arena: the children of a node get the next free indices
+     * and are followed by the nodes below them, child by child. Masses and centers of mass are calculated from the leaves up.
+     *
+     * @param node        Node that gets the bodies, it already has its middle point and edge length
+     * @param next        Index of the first node below the node
+     * @param from        First index (in the order of the arena) of the bodies of the node
+     * @param to          Last index + 1
+     * @param depth       Depth of the node
+     * @param childStarts Buffer with 9 entries for every depth (see countByChild)
+     * @return Index after the last node below the node
+     */
+    private int fillBelow(int node, int next, int from, int to, int depth, int[] childStarts) {
+        if (to - from <= this.leafCapacity || depth > MAX_DEPTH) {
+            //bodies are linked in reverse, so that they are in the sorted order in the leaf
+            int[] order = this.nodes.order;
+            for (int i = to - 1; i >= from; i--) {
+                this.nodes.nextBody[order[i]] = this.nodes.bodyOfNode[node];
+                this.nodes.bodyOfNode[node] = order[i];
+            }
+            this.nodes.numberOfBodiesInNode[node] = to - from;
+            calculateMassOfLeaf(node);
+            return next;
+        }
+        int first = next;
+        initChildren(node, first);
+        int start = depth * 9;
+        countByChild(from, to, this.nodes.centerX[node], this.nodes.centerY[node], this.nodes.centerZ[node], childStarts, start);
+        next += 8;
+        for (int child = 0; child < 8; child++) {
+            next = fillBelow(first + child, next, childStarts[start + child], childStarts[start + child + 1], depth + 1, childStarts);
+        }
+        calculateMassOfNode(node);
+        return next;
+    }
+
+    /**
+     * Counts the bodies of a node (in the order of the arena) for every child.
+     *
+     * @param from    First index of the bodies of the node
+     * @param to      Last index + 1
+     * @param centerX x-coordinate of the middle point of the node
+     * @param centerY y-coordinate of the middle point of the node
+     * @param centerZ z-coordinate of the middle point of the node
+     * @param starts  Gets the first index of the bodies of every child if they are sorted by the child, and to as 9th entry
+     * @param start   Index of the first entry in starts
+     */
+    private void countByChild(int from, int to, double centerX, double centerY, double centerZ, int[] starts, int start) {
+        int[] order = this.nodes.order;
+        double[] x = this.bodies.getPositionX(), y = this.bodies.getPositionY(), z = this.bodies.getPositionZ();
+        Arrays.fill(starts, start, start + 9, 0);
+        for (int i = from; i < to; i++) {
+            int id = order[i];
+            starts[start + childIndex(centerX, centerY, centerZ, x[id], y[id], z[id]) + 1]++;
+        }
+        starts[start] = from;
+        for (int child = 0; child < 8; child++) {
+            starts[start + child + 1] += starts[start + child];
+        }
+    }
+
+    /**
+     * Sorts the bodies of a node (in the order of the arena) by the child they belong to, with the order buffer of the arena.
+     *
+     * @param from    First index of the bodies of the node
+     * @param to      Last index + 1
+     * @param centerX x-coordinate of the middle point of the node
+     * @param centerY y-coordinate of the middle point of the node
+     * @param centerZ z-coordinate of the middle point of the node
+     * @param starts  Gets the first index of the bodies of every child, and to as 9th entry
+     * @param start   Index of the first entry in starts
+     */
+    private void sortByChild(int from, int to, double centerX, double centerY, double centerZ, int[] starts, int start) {
+        countByChild(from, to, centerX, centerY, centerZ, starts, start);
+        int[] order = this.nodes.order, buffer = this.nodes.orderBuffer;
+        double[] x = this.bodies.getPositionX(), y = this.bodies.getPositionY(), z = this.bodies.getPositionZ();
+        //the starts are moved on while the ids are copied, afterwards every entry is the start of the next child
+        for (int i = from; i < to; i++) {
+            int id = order[i];
+            buffer[starts[start + childIndex(centerX, centerY, centerZ, x[id], y[id], z[id])]++] = id;
+        }
+        for (int child = 8; child > 0; child--) {
+            starts[start + child] = starts[start + child - 1];
+        }
+        starts[start] = from;
+        System.arraycopy(buffer, from, order, from, to - from);
+    }
+
+    /**
+     * Moves the bodies of a leaf into the matching children, the node is no leaf afterwards.
+     * Mass and center of mass of the node stay the same.
+     *
+     * @param node Leaf that shall be split
+     */
+    private void splitLeaf(int node) {
+        int first = createChildren(node);
+        double[] x = this.bodies.getPositionX(), y = this.bodies.getPositionY(), z = this.bodies.getPositionZ();
+        int body = this.nodes.bodyOfNode[node];
+        while (body != NONE) {
+            int next = this.nodes.nextBody[body];
+            int child = first + calcChildIndex(node, x[body], y[body], z[body]);
+            addBodyToLeaf(child, body, x[body], y[body], z[body], this.bodies.getMass(body));
+            body = next;
+        }
+        this.nodes.bodyOfNode[node] = NONE;
+        this.nodes.numberOfBodiesInNode[node] = 0;
+    }
+
+    /**
+     * Adds a body to the bucket of a leaf and updates mass and center of mass of the leaf.
+     *
+     * @param leaf Leaf that gets the body
+     * @param id   Id of the body
+     * @param x    x-coordinate of the body
+     * @param y    y-coordinate of the body
+     * @param z    z-coordinate of the body
+     * @param mass Mass of the body
+     */
+    private void addBodyToLeaf(int leaf, int id, double x, double y, double z, double mass) {
+        this.nodes.nextBody[id] = this.nodes.bodyOfNode[leaf];
+        this.nodes.bodyOfNode[leaf] = id;
+        this.nodes.numberOfBodiesInNode[leaf]++;
+        addMassToNode(leaf, x, y, z, mass);
+    }
+
+    private void addMassToNode(int node, double x, double y, double z, double mass) {
+        double newMass = this.nodes.totalMass[node] + mass;
+        this.nodes.centerOfMassX[node] = (this.nodes.centerOfMassX[node] * this.nodes.totalMass[node] + x * mass) / newMass;
+        this.nodes.centerOfMassY[node] = (this.nodes.centerOfMassY[node] * this.nodes.totalMass[node] + y * mass) / newMass;
+        this.nodes.centerOfMassZ[node] = (this.nodes.centerOfMassZ[node] * this.nodes.totalMass[node] + z * mass) / newMass;
+        this.nodes.totalMass[node] = newMass;
+    }
+
+    /**
+     * Creates the eight (empty) children of a node.
+     *
+     * @param parent Node which gets the children
+     * @return Index of the first child
+     */
+    private int createChildren(int parent) {
+        this.nodes.ensureCapacity(this.nodes.numberOfNodes + 8);
+        int first = this.nodes.numberOfNodes;
+        initChildren(parent, first);
+        this.nodes.numberOfNodes += 8;
+        return first;
+    }
+
+    /**
+     * Initializes the eight (empty) children of a node at the specified index, the number of nodes is not changed.
+     *
+     * @param parent Node which gets the children
+     * @param first  Index of the first child
+     */
+    private void initChildren(int parent, int first) {
+        double childEdgeLength = this.nodes.edgeLength[parent] / 2;
+        double offset = childEdgeLength / 2;
+
+        //Same order as in Octree: bit 0 -> x, bit 1 -> y, bit 2 -> z
+        for (int i = 0; i < 8; i++) {
+            initNode(first + i,
+                    this.nodes.centerX[parent] + ((i & 1) != 0 ? offset : -offset),
+                    this.nodes.centerY[parent] + ((i & 2) != 0 ? offset : -offset),
+                    this.nodes.centerZ[parent] + ((i & 4) != 0 ? offset : -offset),
+                    childEdgeLength);
+        }
+        this.nodes.firstChild[parent] = first;
+    }
+
+    private void initNode(int node, double x, double y, double z, double nodeEdgeLength) {
+        this.nodes.firstChild[node] = NONE;
+        this.nodes.bodyOfNode[node] = NONE;
+        this.nodes.numberOfBodiesInNode[node] = 0;
+        this.nodes.centerX[node] = x;
+        this.nodes.centerY[node] = y;
+        this.nodes.centerZ[node] = z;
+        this.nodes.edgeLength[node] = nodeEdgeLength;
+        this.nodes.totalMass[node] = 0;
+        this.nodes.centerOfMassX[node] = 0;
+        this.nodes.centerOfMassY[node] = 0;
+        this.nodes.centerOfMassZ[node] = 0;
+    }
+
+    private int calcChildIndex(int node, double x, double y, double z) {
+        return childIndex(this.nodes.centerX[node], this.nodes.centerY[node], this.nodes.centerZ[node], x, y, z);
+    }
+
+    private static int childIndex(double centerX, double centerY, double centerZ, double x, double y, double z) {
+        int index = 0;
+        if (x >= centerX) {
+            index |= 1;
+        }
+        if (y >= centerY) {
+            index |= 2;
+        }
+        if (z >= centerZ) {
+            index |= 4;
+        }
+        return index;
+    }
+
+    /**
+     * Calculates force exerted on all objects in the tree according to Barnes-Hut Algorithm.
+     * This is done in three phases:
+     * 1. the accelerations of all bodies are calculated by the force engine (stored in the body store) - no body is moved yet,
+     * the far field is added as one monopole (and directly between the far field bodies)
+     * 2. all bodies are moved according to their acceleration (by the integrator)
+     * 3. the new tree is built with all bodies (according to the build mode of the new tree)
+     * Every reorderInterval cycles the bodies are reordered along the space filling curve of this tree before the new tree is built,
+     * the new tree is built again then (also if it is refitted otherwise), so that its nodes are created in the same order.
+     * With block time steps, the block time steps do the first two phases in their substeps and the new tree is refitted.
+     *
+     * @param root      Octree with celestial bodies for which the force will be calculated
+     * @param newOctree New octree, used for updating positions of the celestial bodies
+     */
+    public void calculateForcesOnAllBodies(FlatOctree root, FlatOctree newOctree) {
+        long allocatedBytesAtStart = this.measureAllocations ? AllocationCounter.getAllocatedBytes() : -1;
+        if (this.blockTimeSteps != null) {
+            //the block time steps calculate the accelerations and move the bodies in substeps with their own refitted trees
+            long forceStartTime = System.nanoTime();
+            FlatOctree lastSubstepTree = this.blockTimeSteps.step(root);
+            newOctree.forceTime = System.nanoTime() - forceStartTime;
+            long allocatedBytesAfterForces = this.measureAllocations ? AllocationCounter.getAllocatedBytes() : -1;
+            long buildStartTime = System.nanoTime();
+            newOctree.refit(lastSubstepTree);
+            newOctree.buildTime = System.nanoTime() - buildStartTime;
+            storeAllocatedBytes(newOctree, allocatedBytesAtStart, allocatedBytesAfterForces);
+            return;
+        }
+
+        //calculate the acceleration that all other bodies exert on every body
+        long forceStartTime = System.nanoTime();
+        if (root.quadrupoles && !root.areQuadrupolesCalculated) {
+            root.calculateQuadrupoles();
+        }
+        this.forceEngine.calculateAccelerations(root);
+        if (root.numberOfFarBodies > 0) {
+            root.addFarFieldAccelerations();
+        }
+        newOctree.forceTime = System.nanoTime() - forceStartTime;
+        long allocatedBytesAfterForces = this.measureAllocations ? AllocationCounter.getAllocatedBytes() : -1;
+
+        //move every body according to calculated acceleration
+        this.integrator.step(this.bodies);
+        //bodies that are close in space get close ids (and close nodes in the new tree)
+        long reorderStartTime = System.nanoTime();
+        boolean isReordered = this.reorderInterval > 0 && this.cyclesSinceReorder + 1 >= this.reorderInterval && reorderBodies();
+        newOctree.cyclesSinceReorder = isReordered ? 0 : this.cyclesSinceReorder + 1;
+        newOctree.reorderTime = isReordered ? System.nanoTime() - reorderStartTime : 0;
+        //update the positions of the bodies by building the new tree (with the same store)
+        boolean isRefitted = newOctree.buildMode == TreeBuildMode.REFIT && !isReordered;
+        long buildStartTime = System.nanoTime();
+        if (isRefitted) {
+            newOctree.refit(this);
+        } else {
+            newOctree.build(this.bodies);
+        }
+        newOctree.buildTime = System.nanoTime() - buildStartTime;
+        if (!isRefitted) {
+            //the nodes of this tree are not needed anymore, they are reused by the tree after the new tree
+            newOctree.spareNodes = this.nodes;
+        }
+        storeAllocatedBytes(newOctree, allocatedBytesAtStart, allocatedBytesAfterForces);
+    }
+
+    /**
+     * Reorders the bodies of the store along the space filling curve of this tree (see fillCurveOrder),
+     * the force engine and the integrator reorder their data of the bodies too. This tree is not valid anymore afterwards.
+     *
+     * @return True if the bodies were reordered, false if the store has bodies that are not in this tree
+     */
+    private boolean reorderBodies() {
+        int size = this.bodies.size();
+        if (size != getNumberOfBodies()) {
+            return false;
+        }
+        this.nodes.ensureBuildBufferCapacity(size);
+        int[] order = this.nodes.order;
+        fillCurveOrder(order);
+        this.bodies.reorder(order);
+        this.forceEngine.reorderBodies(order, size);
+        this.integrator.reorderBodies(order, size);
+        return true;
+    }
+
+    /**
+     * Writes the ids of the bodies in the order of the space filling curve of the tree into the array:
+     * the bodies of the leaves in depth first order (the children of a node are in morton order, see createChildren),
+     * followed by the bodies of the far field.
+     *
+     * @param order Array that gets the ids, at least getNumberOfBodies() long
+     */
+    public void fillCurveOrder(int[] order) {
+        int count = 0;
+        int[] stack = this.nodes.curveStack;
+        int stackSize = 0;
+        stack[stackSize++] = ROOT;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            int firstChild = this.nodes.firstChild[node];
+            if (firstChild == NONE) {
+                for (int body = this.nodes.bodyOfNode[node]; body != NONE; body = this.nodes.nextBody[body]) {
+                    order[count++] = body;
+                }
+                continue;
+            }
+            if (stackSize + 8 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            //pushed in reverse order, so that the first child is visited first
+            for (int child = firstChild + 7; child >= firstChild; child--) {
+                stack[stackSize++] = child;
+            }
+        }
+        this.nodes.curveStack = stack;
+        for (int i = 0; i < this.numberOfFarBodies; i++) {
+            order[count++] = this.nodes.farBodies[i];
+        }
+    }
+
+    /**
+     * Stores the bytes allocated in the calc-move cycle in this tree and the new tree (if they are measured).
+     *
+     * @param newOctree                 New octree of the cycle
+     * @param allocatedBytesAtStart     Allocated bytes at the start of the cycle
+     * @param allocatedBytesAfterForces Allocated bytes after the force calculation
+     */
+    private void storeAllocatedBytes(FlatOctree newOctree, long allocatedBytesAtStart, long allocatedBytesAfterForces) {
+        if (this.measureAllocations) {
+            this.allocatedBytesOfForces = allocatedBytesAfterForces - allocatedBytesAtStart;
+            this.allocatedBytesOfStep = AllocationCounter.getAllocatedBytes() - allocatedBytesAtStart;
+            newOctree.allocatedBytesOfForces = this.allocatedBytesOfForces;
+            newOctree.allocatedBytesOfStep = this.allocatedBytesOfStep;
+        }
+    }
+
+    /**
+     * Adds the acceleration of the far field to the accelerations of the force engine (which only contain the nodes):
+     * every body in the nodes gets the acceleration of the far field as one body (total mass at the center of mass),
+     * the far field bodies get the acceleration of all other far field bodies directly.
+     */
+    private void addFarFieldAccelerations() {
+        prepareFarField();
+        if (this.farMass == 0) {
+            return;
+        }
+        for (int id = 0; id < this.bodies.size(); id++) {
+            addFarFieldAcceleration(id);
+        }
+    }
+
+    /**
+     * Calculates the total mass and the center of mass of the far field, has to be called before addFarFieldAcceleration
+     * is used with the current positions.
+     */
+    void prepareFarField() {
+        double[] x = this.bodies.getPositionX(), y = this.bodies.getPositionY(), z = this.bodies.getPositionZ();
+        double[] mass = this.bodies.getMass();
+        int[] farBodies = this.nodes.farBodies;
+        double farMass = 0, farX = 0, farY = 0, farZ = 0;
+        for (int i = 0; i < this.numberOfFarBodies; i++) {
+            int id = farBodies[i];
+            farMass += mass[id];
+            farX += x[id] * mass[id];
+            farY += y[id] * mass[id];
+            farZ += z[id] * mass[id];
+        }
+        this.farMass = farMass;
+        this.farCenterX = farMass == 0 ? 0 : farX / farMass;
+        this.farCenterY = farMass == 0 ? 0 : farY / farMass;
+        this.farCenterZ = farMass == 0 ? 0 : farZ / farMass;
+    }
+
+    /**
+     * Adds the acceleration of the far field to the acceleration of one body (see addFarFieldAccelerations),
+     * the far field has to be prepared (prepareFarField). Bodies can be calculated in parallel.
+     *
+     * @param id Id of the body
+     */
+    void addFarFieldAcceleration(int id) {
+        if (this.farMass == 0) {
+            return;
+        }
+        double[] x = this.bodies.getPositionX(), y = this.bodies.getPositionY(), z = this.bodies.getPositionZ();
+        double[] ax = this.bodies.getAccelerationX(), ay = this.bodies.getAccelerationY(), az = this.bodies.getAccelerationZ();
+        Softening softening = this.softening;
+        if (!isFarBody(id)) {
+            addAcceleration(id, this.farCenterX - x[id], this.farCenterY - y[id], this.farCenterZ - z[id], this.farMass, softening, ax, ay, az);
+            return;
+        }
+        double[] mass = this.bodies.getMass();
+        int[] farBodies = this.nodes.farBodies;
+        for (int j = 0; j < this.numberOfFarBodies; j++) {
+            int other = farBodies[j];
+            if (other != id) {
+                addAcceleration(id, x[other] - x[id], y[other] - y[id], z[other] - z[id], mass[other], softening, ax, ay, az);
+            }
+        }
+    }
+
+    private static void addAcceleration(int id, double dx, double dy, double dz, double mass, Softening softening, double[] ax, double[] ay, double[] az) {
+        double distanceSquared = dx * dx + dy * dy + dz * dz;
+        if (distanceSquared == 0) {
+            return; //two bodies at the same position
+        }
+        double factor = Constants.G * mass * softening.factor(distanceSquared);
+        ax[id] += dx * factor;
+        ay[id] += dy * factor;
+        az[id] += dz * factor;
+    }
+
+    @Override
+    public void calculateForcesOnAllBodies(BarnesHutTree newTree) {
+        calculateForcesOnAllBodies(this, (FlatOctree) newTree);
+    }
+
+    /**
+     * Returns a new empty tree with the same settings. The nodes of the new tree are stored in the arena of the tree
+     * of the last cycle (if there is one), so that building the new tree does not allocate anything once the arrays are big enough.
+     * That tree (the tree before this tree) must not be used anymore afterwards.
+     *
+     * @return New empty tree of the same type
+     */
+    @Override
+    public BarnesHutTree createEmptyTree() {
+        NodeArena arena = this.spareNodes != null ? this.spareNodes : new NodeArena();
+        this.spareNodes = null;
+        FlatOctree tree = new FlatOctree(this.cube, this.buildMode, arena);
+        tree.copySettings(this);
+        return tree;
+    }
+
+    /**
+     * Copies the cube and the settings that are passed on to the new trees from the tree.
+     *
+     * @param tree Tree with the settings
+     */
+    private void copySettings(FlatOctree tree) {
+        this.cube = tree.cube;
+        this.parallelThreshold = tree.parallelThreshold;
+        this.leafCapacity = tree.leafCapacity;
+        this.forkJoinPool = tree.forkJoinPool;
+        this.forceEngine = tree.forceEngine;
+        this.integrator = tree.integrator;
+        this.blockTimeSteps = tree.blockTimeSteps;
+        this.softening = tree.softening;
+        this.measureAllocations = tree.measureAllocations;
+        this.autoBounds = tree.autoBounds;
+        this.quadrupoles = tree.quadrupoles;
+        this.farFieldLimit = tree.farFieldLimit;
+        this.reorderInterval = tree.reorderInterval;
+        this.cyclesSinceReorder = tree.cyclesSinceReorder;
+    }
+
+    /**
+     * Refits this tree from the tree of the last substep of the block time steps. This tree gets the settings of that tree first,
+     * so the block time steps can use the same tree objects in every substep instead of new trees of createEmptyTree.
+     * The arena of this tree is not kept as spare, the trees of all substeps use the nodes of the tree of the cycle.
+     *
+     * @param previousTree Tree of the last substep with the same body store
+     */
+    void refitSubstep(FlatOctree previousTree) {
+        copySettings(previousTree);
+        refit(previousTree);
+        this.spareNodes = null;
+    }
+
+    /**
+     * Sets the number of bodies from which on a node is split up into tasks when the tree is built in parallel.
+     *
+     * @param parallelThreshold Number of bodies (at least 1)
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+    }
+
+    /**
+     * Returns the number of bodies from which on a node is split up into tasks when the tree is built in parallel.
+     *
+     * @return Number of bodies
+     */
+    public int getParallelThreshold() {
+        return this.parallelThreshold;
+    }
+
+    /**
+     * Sets the number of bodies a leaf can hold before it is split (passed on to the new trees).
+     * Has to be set before bodies are added.
+     *
+     * @param leafCapacity Number of bodies (at least 1)
+     */
+    public void setLeafCapacity(int leafCapacity) {
+        this.leafCapacity = Math.max(1, leafCapacity);
+    }
+
+    /**
+     * Returns the number of bodies a leaf can hold before it is split.
+     *
+     * @return Number of bodies
+     */
+    public int getLeafCapacity() {
+        return this.leafCapacity;
+    }
+
+    /**
+     * Specifies if the root cube is fitted to the bodies in every build from a store (passed on to the new trees),
+     * otherwise the cube stays the same and bodies outside of it are removed. It is set by default.
+     *
+     * @param autoBounds True if the root cube shall be fitted to the bodies
+     */
+    public void setAutoBounds(boolean autoBounds) {
+        this.autoBounds = autoBounds;
+    }
+
+    /**
+     * Returns true if the root cube is fitted to the bodies in every build from a store.
+     *
+     * @return True if the root cube is fitted to the bodies
+     */
+    public boolean isAutoBounds() {
+        return this.autoBounds;
+    }
+
+    /**
+     * Sets the far field limit to the cube of this tree enlarged by the factor (around the same middle point, passed on to the new trees).
+     * Bodies outside of the limit are kept in the far field, so that far outliers do not make the root cube huge.
+     * Has only an effect if autoBounds is set.
+     *
+     * @param farFieldFactor Edge length of the limit relative to the edge length of the cube, 0 for no far field
+     */
+    public void setFarFieldFactor(double farFieldFactor) {
+        if (farFieldFactor <= 0) {
+            this.farFieldLimit = null;
+            return;
+        }
+        double length = this.cube.getEdgeLength() * farFieldFactor;
+        Vector3 center = this.cube.getCenter();
+        this.farFieldLimit = new Cube(center.plus(-length / 2, -length / 2, -length / 2), length);
+    }
+
+    /**
+     * Returns the cube outside of which the bodies belong to the far field.
+     *
+     * @return Far field limit, null if there is no far field
+     */
+    public Cube getFarFieldLimit() {
+        return this.farFieldLimit;
+    }
+
+    /**
+     * Specifies if the quadrupole moments of the nodes are calculated when the tree is built (passed on to the new trees),
+     * the iterative walk then adds them to the force of the accepted nodes.
+     *
+     * @param quadrupoles True if the quadrupole moments shall be calculated
+     */
+    public void setQuadrupoles(boolean quadrupoles) {
+        this.quadrupoles = quadrupoles;
+    }
+
+    /**
+     * Returns true if the quadrupole moments of the current nodes are calculated (and shall be used).
+     *
+     * @return True if the quadrupole moments can be used
+     */
+    public boolean hasQuadrupoles() {
+        return this.quadrupoles && this.areQuadrupolesCalculated;
+    }
+
+    /**
+     * Sets the thread pool for the parallel build and the force calculation.
+     *
+     * @param forkJoinPool Thread pool
+     */
+    @Override
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Returns the thread pool for the parallel build and the force calculation.
+     *
+     * @return Thread pool
+     */
+    public ForkJoinPool getForkJoinPool() {
+        return this.forkJoinPool;
+    }
+
+    /**
+     * Sets the force engine that calculates the accelerations of the bodies (passed on to the new trees).
+     *
+     * @param forceEngine Force engine
+     */
+    public void setForceEngine(ForceEngine forceEngine) {
+        this.forceEngine = forceEngine;
+    }
+
+    /**
+     * Returns the force engine that calculates the accelerations of the bodies.
+     *
+     * @return Force engine
+     */
+    public ForceEngine getForceEngine() {
+        return this.forceEngine;
+    }
+
+    /**
+     * Sets the integrator that moves the bodies (passed on to the new trees).
+     * An integrator can keep data of the bodies between the cycles, so it must not be used by another simulation.
+     *
+     * @param integrator Integrator
+     */
+    public void setIntegrator(Integrator integrator) {
+        this.integrator = integrator;
+    }
+
+    /**
+     * Returns the integrator that moves the bodies.
+     *
+     * @return Integrator
+     */
+    public Integrator getIntegrator() {
+        return this.integrator;
+    }
+
+    /**
+     * Sets the softening of the force of close bodies, which is used by all force engines (passed on to the new trees).
+     *
+     * @param softening Softening (Softening.NONE for the Newtonian force)
+     */
+    public void setSoftening(Softening softening) {
+        this.softening = softening;
+    }
+
+    /**
+     * Returns the softening of the force of close bodies.
+     *
+     * @return Softening
+     */
+    public Softening getSoftening() {
+        return this.softening;
+    }
+
+    /**
+     * Sets the block time steps that calculate the accelerations and move the bodies instead of the force engine
+     * and the integrator (passed on to the new trees), null for the same time step for all bodies.
+     * The block time steps keep data of the bodies between the cycles, so they must not be used by another simulation.
+     *
+     * @param blockTimeSteps Block time steps or null
+     */
+    public void setBlockTimeSteps(BlockTimeSteps blockTimeSteps) {
+        this.blockTimeSteps = blockTimeSteps;
+    }
+
+    /**
+     * Returns the block time steps that move the bodies.
+     *
+     * @return Block time steps, null if all bodies have the same time step
+     */
+    public BlockTimeSteps getBlockTimeSteps() {
+        return this.blockTimeSteps;
+    }
+
+    /**
+     * Sets how often the bodies are reordered along the space filling curve of the tree in calculateForcesOnAllBodies
+     * (passed on to the new trees): bodies that are close in space get close ids, so the walks of consecutive bodies
+     * read the same nodes and bodies, and the nodes of the new tree are created in the same order.
+     * The ids of the bodies change in a reordering. Without block time steps only.
+     *
+     * @param reorderInterval Number of cycles between two reorderings, 0 for never
+     */
+    public void setReorderInterval(int reorderInterval) {
+        if (reorderInterval < 0) {
+            throw new IllegalArgumentException("The reorder interval must not be negative: " + reorderInterval);
+        }
+        this.reorderInterval = reorderInterval;
+    }
+
+    /**
+     * Returns how often the bodies are reordered along the space filling curve of the tree.
+     *
+     * @return Number of cycles between two reorderings, 0 for never
+     */
+    public int getReorderInterval() {
+        return this.reorderInterval;
+    }
+
+    /**
+     * Specifies if the allocated bytes are measured in every calc-move cycle (passed on to the new trees).
+     *
+     * @param measureAllocations True if the allocated bytes shall be measured
+     */
+    public void setMeasureAllocations(boolean measureAllocations) {
+        this.measureAllocations = measureAllocations && AllocationCounter.isSupported();
+    }
+
+    /**
+     * Returns the bytes allocated by all threads during the force calculation of the last calc-move cycle,
+     * -1 if not measured.
+     *
+     * @return Allocated bytes of the force calculation
+     */
+    public long getAllocatedBytesOfForces() {
+        return this.allocatedBytesOfForces;
+    }
+
+    /**
+     * Returns the bytes allocated by all threads during the last calc-move cycle (force, move and build), -1 if not measured.
+     *
+     * @return Allocated bytes of the calc-move cycle
+     */
+    public long getAllocatedBytesOfStep() {
+        return this.allocatedBytesOfStep;
+    }
+
+    /**
+     * Returns the arena that keeps the nodes of this tree.
+     *
+     * @return Arena of the nodes
+     */
+    public NodeArena getNodeArena() {
+        return this.nodes;
+    }
+
+    /**
+     * Returns the compact float copy of the nodes (see calculateFloatNodes), getFloatNodeSize floats per node.
+     *
+     * @return Float node data
+     */
+    public float[] getFloatNodes() {
+        return this.nodes.floatNodes;
+    }
+
+    /**
+     * Returns the number of floats per node in the compact float copy of the nodes (see calculateFloatNodes),
+     * NodeArena.FLOAT_QUADRUPOLE_NODE_SIZE if it has the quadrupole moments, NodeArena.FLOAT_NODE_SIZE otherwise.
+     *
+     * @return Number of floats per node
+     */
+    public int getFloatNodeSize() {
+        return this.nodes.floatNodeSize;
+    }
+
+    /**
+     * Returns the depth first layout of the nodes (see calculateDepthFirstLayout), NodeArena.DEPTH_FIRST_NODE_SIZE doubles per node.
+     *
+     * @return Node data in depth first order
+     */
+    public double[] getDepthFirstNodes() {
+        return this.nodes.depthFirstNodes;
+    }
+
+    /**
+     * Returns the number of nodes in the depth first layout (the non-empty nodes).
+     *
+     * @return Number of nodes
+     */
+    public int getNumberOfDepthFirstNodes() {
+        return this.nodes.numberOfDepthFirstNodes;
+    }
+
+    /**
+     * Returns the position of the next node after the subtree of a node in the depth first layout.
+     *
+     * @param position Position of the node in the depth first layout
+     * @return Position of the next node, getNumberOfDepthFirstNodes() if the subtree is at the end
+     */
+    public int getSkip(int position) {
+        return this.nodes.skip[position];
+    }
+
+    /**
+     * Returns the first body of a leaf in the depth first layout (the next bodies are linked as in the nodes, see getNextBody).
+     *
+     * @param position Position of the node in the depth first layout
+     * @return Id of the first body, NONE for an inner node
+     */
+    public int getDepthFirstBody(int position) {
+        return this.nodes.depthFirstBody[position];
+    }
+
+    /**
+     * Returns the index of a node of the depth first layout in the nodes of the tree (e.g. for its quadrupole moments).
+     *
+     * @param position Position of the node in the depth first layout
+     * @return Index of the node
+     */
+    public int getDepthFirstIndex(int position) {
+        return this.nodes.depthFirstIndex[position];
+    }
+
+    /**
+     * Returns the number of bodies that were moved to another leaf when this tree was refitted.
+     *
+     * @return Number of moved bodies, -1 if the tree was built (not refitted)
+     */
+    public int getNumberOfMovedBodies() {
+        return this.numberOfMovedBodies;
+    }
+
+    /**
+     * Returns the time that the build (or refit) of this tree took in calculateForcesOnAllBodies.
+     *
+     * @return Time in ns, 0 if the tree was not built in a calc-move cycle
+     */
+    public long getBuildTime() {
+        return this.buildTime;
+    }
+
+    /**
+     * Returns the time that the force calculation took in the calc-move cycle that built this tree.
+     *
+     * @return Time in ns, 0 if the tree was not built in a calc-move cycle
+     */
+    public long getForceTime() {
+        return this.forceTime;
+    }
+
+    /**
+     * Returns the time that the reordering of the bodies took in the calc-move cycle that built this tree.
+     *
+     * @return Time in ns, 0 if the bodies were not reordered
+     */
+    public long getReorderTime() {
+        return this.reorderTime;
+    }
+
+    /**
+     * Gives a graphical representation of all celestial bodies in the octree.
+     *
+     * @param viewConstant A parameter that specifies how big a celestial body shall be drawn
+     */
+    @Override
+    public void displayOctree(double viewConstant) {
+        for (int node = 0; node < this.nodes.numberOfNodes; node++) {
+            if (this.nodes.bodyOfNode[node] != NONE) {
+                double leftDownX = this.nodes.centerX[node] - this.nodes.edgeLength[node] / 2;
+                double leftDownY = this.nodes.centerY[node] - this.nodes.edgeLength[node] / 2;
+                double length = this.nodes.edgeLength[node];
+                int id = this.nodes.bodyOfNode[node];
+                StdDraw.setPenColor(this.bodies.getColor(id));
+                StdDraw.line(leftDownX, leftDownY, leftDownX + length, leftDownY);
+                StdDraw.line(leftDownX, leftDownY, leftDownX, leftDownY + length);
+                StdDraw.line(leftDownX + length, leftDownY, leftDownX + length, leftDownY + length);
+                StdDraw.line(leftDownX, leftDownY + length, leftDownX + length, leftDownY + length);
+                for (int body = id; body != NONE; body = this.nodes.nextBody[body]) {
+                    this.bodies.draw(body, viewConstant);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void drawBodies(double viewConstant) {
+        for (int id = 0; id < this.bodies.size(); id++) {
+            this.bodies.draw(id, viewConstant);
+        }
+    }
+
+    /**
+     * Returns a list with all celestial bodies of this tree.
+     * The celestial bodies are created on every call from the body store, changes are not stored.
+     *
+     * @return List of celestial bodies of this tree
+     */
+    @Override
+    public List getListOfBodies() {
+        List list = new List();
+        for (int id = 0; id < this.bodies.size(); id++) {
+            list.addToList(this.bodies.toCelestialBody(id));
+        }
+        return list;
+    }
+
+    @Override
+    public int getNumberOfBodies() {
+        return this.numberOfBodies + this.numberOfFarBodies;
+    }
+
+    /**
+     * Returns the number of bodies in the far field (in the store but not in the nodes).
+     *
+     * @return Number of far field bodies
+     */
+    public int getNumberOfFarBodies() {
+        return this.numberOfFarBodies;
+    }
+
+    /**
+     * Returns the store with all bodies of this tree (the body of a leaf is its id in the store).
+     *
+     * @return Store with the bodies
+     */
+    public BodyStore getBodyStore() {
+        return this.bodies;
+    }
+
+    @Override
+    public double getTotalMass() {
+        return this.nodes.totalMass[ROOT];
+    }
+
+    @Override
+    public Vector3 getCenterOfMass() {
+        return new Vector3(this.nodes.centerOfMassX[ROOT], this.nodes.centerOfMassY[ROOT], this.nodes.centerOfMassZ[ROOT]);
+    }
+
+    @Override
+    public Cube getCube() {
+        return this.cube;
+    }
+
+    /**
+     * Returns the number of used nodes.
+     *
+     * @return Number of used nodes
+     */
+    public int getNumberOfNodes() {
+        return this.nodes.numberOfNodes;
+    }
+
+    /**
+     * Returns the index of the first of the eight children of a node.
+     *
+     * @param node Index of the node
+     * @return Index of the first child, NONE if the node is a leaf
+     */
+    public int getFirstChild(int node) {
+        return this.nodes.firstChild[node];
+    }
+
+    /**
+     * Returns the id of the first body of a leaf, the next bodies are returned by getNextBody.
+     *
+     * @param node Index of the node
+     * @return Id of the first body, NONE if the node is no leaf or an empty leaf
+     */
+    public int getBodyOfNode(int node) {
+        return this.nodes.bodyOfNode[node];
+    }
+
+    /**
+     * Returns the id of the next body in the same leaf.
+     *
+     * @param id Id of a body of the tree
+     * @return Id of the next body, NONE if it is the last body of the leaf
+     */
+    public int getNextBody(int id) {
+        return this.nodes.nextBody[id];
+    }
+
+    /**
+     * Returns the number of bodies in a leaf.
+     *
+     * @param node Index of the node
+     * @return Number of bodies, 0 if the node is no leaf
+     */
+    public int getNumberOfBodiesInNode(int node) {
+        return this.nodes.numberOfBodiesInNode[node];
+    }
+
+    /**
+     * Returns true if a position is inside the cube of a node.
+     *
+     * @param node Index of the node
+     * @param x    x-coordinate
+     * @param y    y-coordinate
+     * @param z    z-coordinate
+     * @return True if the position is inside the cube of the node
+     */
+    public boolean isInsideNode(int node, double x, double y, double z) {
+        double halfLength = this.nodes.edgeLength[node] / 2;
+        return x >= this.nodes.centerX[node] - halfLength && x < this.nodes.centerX[node] + halfLength
+                && y >= this.nodes.centerY[node] - halfLength && y < this.nodes.centerY[node] + halfLength
+                && z >= this.nodes.centerZ[node] - halfLength && z < this.nodes.centerZ[node] + halfLength;
+    }
+
+    /**
+     * Returns the length of a side of the cube of a node.
+     *
+     * @param node Index of the node
+     * @return Edge length of the node
+     */
+    public double getEdgeLength(int node) {
+        return this.nodes.edgeLength[node];
+    }
+
+    /**
+     * Returns the x-coordinate of the middle point of the cube of a node.
+     *
+     * @param node Index of the node
+     * @return x-coordinate of the middle point
+     */
+    public double getCenterX(int node) {
+        return this.nodes.centerX[node];
+    }
+
+    /**
+     * Returns the y-coordinate of the middle point of the cube of a node.
+     *
+     * @param node Index of the node
+     * @return y-coordinate of the middle point
+     */
+    public double getCenterY(int node) {
+        return this.nodes.centerY[node];
+    }
+
+    /**
+     * Returns the z-coordinate of the middle point of the cube of a node.
+     *
+     * @param node Index of the node
+     * @return z-coordinate of the middle point
+     */
+    public double getCenterZ(int node) {
+        return this.nodes.centerZ[node];
+    }
+
+    /**
+     * Returns the total mass of a node.
+     *
+     * @param node Index of the node
+     * @return Total mass of the node
+     */
+    public double getTotalMass(int node) {
+        return this.nodes.totalMass[node];
+    }
+
+    /**
+     * Returns the x-coordinate of the center of mass of a node.
+     *
+     * @param node Index of the node
+     * @return x-coordinate of the center of mass
+     */
+    public double getCenterOfMassX(int node) {
+        return this.nodes.centerOfMassX[node];
+    }
+
+    /**
+     * Returns the y-coordinate of the center of mass of a node.
+     *
+     * @param node Index of the node
+     * @return y-coordinate of the center of mass
+     */
+    public double getCenterOfMassY(int node) {
+        return this.nodes.centerOfMassY[node];
+    }
+
+    /**
+     * Returns the z-coordinate of the center of mass of a node.
+     *
+     * @param node Index of the node
+     * @return z-coordinate of the center of mass
+     */
+    public double getCenterOfMassZ(int node) {
+        return this.nodes.centerOfMassZ[node];
+    }
+
+    /**
+     * Returns the xx-component of the quadrupole tensor of a node (see calculateQuadrupoles).
+     *
+     * @param node Index of the node
+     * @return Component of the quadrupole tensor
+     */
+    public double getQuadrupoleXX(int node) {
+        return this.nodes.quadrupoleXX[node];
+    }
+
+    /**
+     * Returns the xy-component of the quadrupole tensor of a node (see calculateQuadrupoles).
+     *
+     * @param node Index of the node
+     * @return Component of the quadrupole tensor
+     */
+    public double getQuadrupoleXY(int node) {
+        return this.nodes.quadrupoleXY[node];
+    }
+
+    /**
+     * Returns the xz-component of the quadrupole tensor of a node (see calculateQuadrupoles).
+     *
+     * @param node Index of the node
+     * @return Component of the quadrupole tensor
+     */
+    public double getQuadrupoleXZ(int node) {
+        return this.nodes.quadrupoleXZ[node];
+    }
+
+    /**
+     * Returns the yy-component of the quadrupole tensor of a node (see calculateQuadrupoles).
+     *
+     * @param node Index of the node
+     * @return Component of the quadrupole tensor
+     */
+    public double getQuadrupoleYY(int node) {
+        return this.nodes.quadrupoleYY[node];
+    }
+
+    /**
+     * Returns the yz-component of the quadrupole tensor of a node (see calculateQuadrupoles).
+     *
+     * @param node Index of the node
+     * @return Component of the quadrupole tensor
+     */
+    public double getQuadrupoleYZ(int node) {
+        return this.nodes.quadrupoleYZ[node];
+    }
+
+    /**
+     * Returns the zz-component of the quadrupole tensor of a node (see calculateQuadrupoles).
+     *
+     * @param node Index of the node
+     * @return Component of the quadrupole tensor
+     */
+    public double getQuadrupoleZZ(int node) {
+        return this.nodes.quadrupoleZZ[node];
+    }
+
+    /**
+     * Adds the acceleration of the quadrupole tensor of an accepted node to an acceleration (see addQuadrupoleAcceleration with the tensor).
+     *
+     * @param node         Index of the node
+     * @param dx           x-coordinate of r (from the body to the center of mass of the node)
+     * @param dy           y-coordinate of r
+     * @param dz           z-coordinate of r
+     * @param distance     Length of r
+     * @param acceleration Acceleration (x, y, z) the quadrupole acceleration is added to
+     */
+    void addQuadrupoleAcceleration(int node, double dx, double dy, double dz, double distance, double[] acceleration) {
+        NodeArena nodes = this.nodes;
+        addQuadrupoleAcceleration(nodes.quadrupoleXX[node], nodes.quadrupoleXY[node], nodes.quadrupoleXZ[node],
+                nodes.quadrupoleYY[node], nodes.quadrupoleYZ[node], nodes.quadrupoleZZ[node], Constants.G, dx, dy, dz, distance, acceleration);
+    }
+
+    /**
+     * Adds the acceleration of a quadrupole tensor Q to an acceleration (the tensor is multiplied by a factor, G for the tensors of the nodes):
+     * a = factor * (Q * R / |R|^5 - 5/2 * (R^T * Q * R) * R / |R|^7), R = -r from the center of mass to the body.
+     *
+     * @param xx           xx-component of the tensor
+     * @param xy           xy-component of the tensor
+     * @param xz           xz-component of the tensor
+     * @param yy           yy-component of the tensor
+     * @param yz           yz-component of the tensor
+     * @param zz           zz-component of the tensor
+     * @param factor       Factor of the tensor, G * Q = factor * tensor
+     * @param dx           x-coordinate of r (from the body to the center of mass of the node)
+     * @param dy           y-coordinate of r
+     * @param dz           z-coordinate of r
+     * @param distance     Length of r
+     * @param acceleration Acceleration (x, y, z) the quadrupole acceleration is added to
+     */
+    static void addQuadrupoleAcceleration(double xx, double xy, double xz, double yy, double yz, double zz, double factor,
+                                          double dx, double dy, double dz, double distance, double[] acceleration) {
+        double qx = -(xx * dx + xy * dy + xz * dz);
+        double qy = -(xy * dx + yy * dy + yz * dz);
+        double qz = -(xz * dx + yz * dy + zz * dz);
+        double rqr = -(dx * qx + dy * qy + dz * qz);
+        double distanceSquared = distance * distance;
+        double distancePow5 = distanceSquared * distanceSquared * distance;
+        double quadrupoleFactor = factor / distancePow5;
+        double radialFactor = 2.5 * factor * rqr / (distancePow5 * distanceSquared);
+        acceleration[0] += qx * quadrupoleFactor + dx * radialFactor;
+        acceleration[1] += qy * quadrupoleFactor + dy * radialFactor;
+        acceleration[2] += qz * quadrupoleFactor + dz * radialFactor;
+    }
+
+    /**
+     * Adds the softened accelerations that the bodies of a leaf exert on a body to its acceleration (summed up directly),
+     * the body itself and bodies at the same position are left out.
+     *
+     * @param firstBody    First body of the leaf (see getBodyOfNode)
+     * @param id           Id of the body
+     * @param x            x-coordinate of the body
+     * @param y            y-coordinate of the body
+     * @param z            z-coordinate of the body
+     * @param acceleration Acceleration (x, y, z) the accelerations of the bodies are added to
+     * @return Number of bodies that were added
+     */
+    int addLeafAcceleration(int firstBody, int id, double x, double y, double z, double[] acceleration) {
+        double[] bodyX = this.bodies.getPositionX(), bodyY = this.bodies.getPositionY(), bodyZ = this.bodies.getPositionZ();
+        double[] bodyMass = this.bodies.getMass();
+        int[] nextBody = this.nodes.nextBody;
+        Softening softening = this.softening;
+        double ax = acceleration[0], ay = acceleration[1], az = acceleration[2];
+        int interactions = 0;
+        for (int body = firstBody; body != NONE; body = nextBody[body]) {
+            if (body == id) {
+                continue; //the body does not exert force on itself
+            }
+            double bx = bodyX[body] - x;
+            double by = bodyY[body] - y;
+            double bz = bodyZ[body] - z;
+            double distanceSquared = bx * bx + by * by + bz * bz;
+            if (distanceSquared == 0) {
+                continue; //two bodies at the same position
+            }
+            double factor = Constants.G * bodyMass[body] * softening.factor(distanceSquared);
+            ax += bx * factor;
+            ay += by * factor;
+            az += bz * factor;
+            interactions++;
+        }
+        acceleration[0] = ax;
+        acceleration[1] = ay;
+        acceleration[2] = az;
+        return interactions;
+    }
+}
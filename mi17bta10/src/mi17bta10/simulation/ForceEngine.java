@@ -0,0 +1,26 @@
+package mi17bta10.simulation;
+
+/**
+ * Interface which all force calculations (engines) of the FlatOctree implement,
+ * so that the engine can be chosen at runtime (see FlatOctree.setForceEngine)
+ */
+public interface ForceEngine {
+
+    /**
+     * Calculates the acceleration that all other bodies exert on every body of the tree.
+     * The accelerations are stored in the body store of the tree.
+     *
+     * @param tree Tree with all bodies
+     */
+    void calculateAccelerations(FlatOctree tree);
+
+    /**
+     * Reorders the data that the engine keeps for every body, after the bodies of the store were reordered
+     * (see BodyStore.reorder, the body with the id order[i] got the id i).
+     *
+     * @param order Permutation of the ids
+     * @param size  Number of bodies
+     */
+    default void reorderBodies(int[] order, int size) {
+    }
+}
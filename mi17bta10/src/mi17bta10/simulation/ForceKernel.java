@@ -0,0 +1,159 @@
+package mi17bta10.simulation;
+
+/**
+ * Inner loop of the force calculation: the acceleration of one position by a list of point masses
+ * (bodies or accepted nodes), which are stored in plain arrays of positions and masses.
+ * The loop is split up into LANES independent sums, so that the CPU can run several interactions at the same time
+ * (the sums of a single loop depend on each other), the rest of the list is summed up in a scalar loop.
+ * The loop is chosen once per call by the type of the softening: without softening and with the Plummer softening
+ * the factor is 1 / (r^2 + epsilon^2)^(3/2) (epsilon = 0 without softening) with a select of 0 for a point mass at the same position,
+ * so the loop has no call and no jump, only the spline kernel calls Softening.factor (as the scalar loop for the rest of the list).
+ * G is multiplied once at the end.
+ */
+public class ForceKernel {
+
+    /**
+     * Number of independent sums
+     */
+    public static final int LANES = 4;
+
+    private ForceKernel() {
+    }
+
+    /**
+     * Calculates the acceleration that the point masses exert on a position without softening,
+     * point masses at the same position are ignored.
+     *
+     * @param x          x-coordinate of the position
+     * @param y          y-coordinate of the position
+     * @param z          z-coordinate of the position
+     * @param sourceX    x-coordinates of the point masses
+     * @param sourceY    y-coordinates of the point masses
+     * @param sourceZ    z-coordinates of the point masses
+     * @param sourceMass Masses of the point masses
+     * @param count      Number of point masses (the arrays can be longer)
+     * @param result     Array that gets the acceleration (x, y, z)
+     */
+    public static void accumulate(double x, double y, double z, double[] sourceX, double[] sourceY, double[] sourceZ,
+                                  double[] sourceMass, int count, double[] result) {
+        accumulate(x, y, z, sourceX, sourceY, sourceZ, sourceMass, count, Softening.NONE, result);
+    }
+
+    /**
+     * Calculates the acceleration that the point masses exert on a position with softening,
+     * point masses at the same position are ignored (without softening).
+     *
+     * @param x          x-coordinate of the position
+     * @param y          y-coordinate of the position
+     * @param z          z-coordinate of the position
+     * @param sourceX    x-coordinates of the point masses
+     * @param sourceY    y-coordinates of the point masses
+     * @param sourceZ    z-coordinates of the point masses
+     * @param sourceMass Masses of the point masses
+     * @param count      Number of point masses (the arrays can be longer)
+     * @param softening  Softening of the force
+     * @param result     Array that gets the acceleration (x, y, z)
+     */
+    public static void accumulate(double x, double y, double z, double[] sourceX, double[] sourceY, double[] sourceZ,
+                                  double[] sourceMass, int count, Softening softening, double[] result) {
+        double ax0 = 0, ay0 = 0, az0 = 0, ax1 = 0, ay1 = 0, az1 = 0;
+        double ax2 = 0, ay2 = 0, az2 = 0, ax3 = 0, ay3 = 0, az3 = 0;
+        int i = 0;
+        if (softening.getType() != SofteningType.SPLINE) {
+            //epsilon^2 of the Plummer softening, 0 without softening (the same factor as Softening.factor)
+            double lengthSquared = softening.getLength() * softening.getLength();
+            for (; i + LANES <= count; i += LANES) {
+                double dx0 = sourceX[i] - x, dy0 = sourceY[i] - y, dz0 = sourceZ[i] - z;
+                double dx1 = sourceX[i + 1] - x, dy1 = sourceY[i + 1] - y, dz1 = sourceZ[i + 1] - z;
+                double dx2 = sourceX[i + 2] - x, dy2 = sourceY[i + 2] - y, dz2 = sourceZ[i + 2] - z;
+                double dx3 = sourceX[i + 3] - x, dy3 = sourceY[i + 3] - y, dz3 = sourceZ[i + 3] - z;
+                double r0 = dx0 * dx0 + dy0 * dy0 + dz0 * dz0 + lengthSquared;
+                double r1 = dx1 * dx1 + dy1 * dy1 + dz1 * dz1 + lengthSquared;
+                double r2 = dx2 * dx2 + dy2 * dy2 + dz2 * dz2 + lengthSquared;
+                double r3 = dx3 * dx3 + dy3 * dy3 + dz3 * dz3 + lengthSquared;
+                double f0 = sourceMass[i] * (r0 > 0 ? 1 / (r0 * Math.sqrt(r0)) : 0);
+                double f1 = sourceMass[i + 1] * (r1 > 0 ? 1 / (r1 * Math.sqrt(r1)) : 0);
+                double f2 = sourceMass[i + 2] * (r2 > 0 ? 1 / (r2 * Math.sqrt(r2)) : 0);
+                double f3 = sourceMass[i + 3] * (r3 > 0 ? 1 / (r3 * Math.sqrt(r3)) : 0);
+                ax0 += dx0 * f0;
+                ay0 += dy0 * f0;
+                az0 += dz0 * f0;
+                ax1 += dx1 * f1;
+                ay1 += dy1 * f1;
+                az1 += dz1 * f1;
+                ax2 += dx2 * f2;
+                ay2 += dy2 * f2;
+                az2 += dz2 * f2;
+                ax3 += dx3 * f3;
+                ay3 += dy3 * f3;
+                az3 += dz3 * f3;
+            }
+        } else {
+            for (; i + LANES <= count; i += LANES) {
+                double dx0 = sourceX[i] - x, dy0 = sourceY[i] - y, dz0 = sourceZ[i] - z;
+                double dx1 = sourceX[i + 1] - x, dy1 = sourceY[i + 1] - y, dz1 = sourceZ[i + 1] - z;
+                double dx2 = sourceX[i + 2] - x, dy2 = sourceY[i + 2] - y, dz2 = sourceZ[i + 2] - z;
+                double dx3 = sourceX[i + 3] - x, dy3 = sourceY[i + 3] - y, dz3 = sourceZ[i + 3] - z;
+                double f0 = sourceMass[i] * softening.factor(dx0 * dx0 + dy0 * dy0 + dz0 * dz0);
+                double f1 = sourceMass[i + 1] * softening.factor(dx1 * dx1 + dy1 * dy1 + dz1 * dz1);
+                double f2 = sourceMass[i + 2] * softening.factor(dx2 * dx2 + dy2 * dy2 + dz2 * dz2);
+                double f3 = sourceMass[i + 3] * softening.factor(dx3 * dx3 + dy3 * dy3 + dz3 * dz3);
+                ax0 += dx0 * f0;
+                ay0 += dy0 * f0;
+                az0 += dz0 * f0;
+                ax1 += dx1 * f1;
+                ay1 += dy1 * f1;
+                az1 += dz1 * f1;
+                ax2 += dx2 * f2;
+                ay2 += dy2 * f2;
+                az2 += dz2 * f2;
+                ax3 += dx3 * f3;
+                ay3 += dy3 * f3;
+                az3 += dz3 * f3;
+            }
+        }
+        for (; i < count; i++) {
+            double dx = sourceX[i] - x, dy = sourceY[i] - y, dz = sourceZ[i] - z;
+            double r = dx * dx + dy * dy + dz * dz;
+            double f = sourceMass[i] * softening.factor(r);
+            ax0 += dx * f;
+            ay0 += dy * f;
+            az0 += dz * f;
+        }
+        result[0] = Constants.G * ((ax0 + ax1) + (ax2 + ax3));
+        result[1] = Constants.G * ((ay0 + ay1) + (ay2 + ay3));
+        result[2] = Constants.G * ((az0 + az1) + (az2 + az3));
+    }
+
+    /**
+     * Same as accumulate, with one sum (reference for the tests and the speed comparison).
+     *
+     * @param x          x-coordinate of the position
+     * @param y          y-coordinate of the position
+     * @param z          z-coordinate of the position
+     * @param sourceX    x-coordinates of the point masses
+     * @param sourceY    y-coordinates of the point masses
+     * @param sourceZ    z-coordinates of the point masses
+     * @param sourceMass Masses of the point masses
+     * @param count      Number of point masses (the arrays can be longer)
+     * @param result     Array that gets the acceleration (x, y, z)
+     */
+    public static void accumulateScalar(double x, double y, double z, double[] sourceX, double[] sourceY, double[] sourceZ,
+                                        double[] sourceMass, int count, double[] result) {
+        double ax = 0, ay = 0, az = 0;
+        for (int i = 0; i < count; i++) {
+            double dx = sourceX[i] - x, dy = sourceY[i] - y, dz = sourceZ[i] - z;
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (distanceSquared == 0) {
+                continue; //the body itself or two bodies at the same position
+            }
+            double factor = Constants.G * sourceMass[i] / (distanceSquared * Math.sqrt(distanceSquared));
+            ax += dx * factor;
+            ay += dy * factor;
+            az += dz * factor;
+        }
+        result[0] = ax;
+        result[1] = ay;
+        result[2] = az;
+    }
+}
@@ -0,0 +1,33 @@
+package mi17bta10.simulation;
+
+/**
+ * Opening criterion of barnes hut: a node is accepted if the ratio of its distance (to the center of mass)
+ * and its edge length is greater than theta. The criterion does not need any data of the tree,
+ * but it can give large errors if the center of mass is near the side of a big node and the body is close to it.
+ */
+public class GeometricCriterion implements OpeningCriterion {
+
+    /**
+     * A node is accepted if the ratio of its distance and its edge length is greater than theta
+     */
+    private final double theta;
+
+    /**
+     * Constructor
+     *
+     * @param theta A node is accepted if the ratio of its distance and its edge length is greater than theta
+     */
+    public GeometricCriterion(double theta) {
+        this.theta = theta;
+    }
+
+    @Override
+    public void prepare(FlatOctree tree) {
+        //nothing to prepare
+    }
+
+    @Override
+    public boolean isFarEnough(FlatOctree tree, int node, int id, double distance) {
+        return distance / tree.getEdgeLength(node) > this.theta;
+    }
+}
@@ -0,0 +1,448 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Force engine with a barnes hut walk per group of bodies instead of per body: every leaf of the tree is a group
+ * (the size of the groups is set with the leaf capacity of the tree).
+ * The tree is walked once per group with the bounding box of its bodies, a node is only accepted
+ * if it is far enough from every point of the box (the smallest distance of the box to the center of mass is used),
+ * so every body of the group would have accepted it in its own walk too.
+ * The accepted nodes and the bodies of the leaves that are too close are stored in an interaction list,
+ * then all bodies of the group are summed up against the list with the force kernel, so the tree is walked once per leaf instead of once per body.
+ * The groups are run in parallel with one list per thread, bodies of the far field of the tree are walked one by one.
+ * If the tree has quadrupole moments, they are added to the force of the accepted nodes.
+ * The bodies and the accepted nodes are softened with the softening of the tree.
+ * <p>
+ * With a cache margin, the interaction list of every group is kept for the next calculations (e.g. for quasi-static systems,
+ * in which the bodies only move a small part of a leaf per cycle). The lists are built with a safety margin in the opening test
+ * (a node is only accepted if it would still be far enough margin * edge length of the leaf closer to the group),
+ * and a list is used again as long as the growth of the bounding box of the group plus the movement of the center of mass
+ * of every accepted node is smaller than that distance, and every leaf of the list that is summed up directly is still a leaf.
+ * Otherwise the tree is walked again for the group. The node indices have to stay the same, so the lists are only kept
+ * if the tree was refitted from the tree of the last calculation (TreeBuildMode.REFIT), a built tree clears all lists.
+ */
+public class GroupedTreeWalk implements ForceEngine {
+
+    /**
+     * Default safety margin of the cached lists (part of the edge length of the leaf of a group)
+     */
+    public static final double DEFAULT_CACHE_MARGIN = 0.1;
+
+    /**
+     * Stack and interaction list for every thread
+     */
+    private final ThreadLocal<InteractionList> lists = ThreadLocal.withInitial(InteractionList::new);
+
+    /**
+     * A node is accepted (not opened) if the ratio of its distance to the group and its edge length is greater than theta
+     */
+    private final double theta;
+
+    /**
+     * Safety margin of the cached lists as part of the edge length of the leaf of a group, 0 if the lists are not cached
+     */
+    private final double cacheMargin;
+
+    /**
+     * Walk for the bodies of the far field
+     */
+    private final IterativeTreeWalk farFieldWalk;
+
+    /**
+     * Indices of the leaves that contain bodies, kept for the next calculation
+     */
+    private int[] groups;
+
+    /**
+     * Cached interaction list of every group (index = index of the leaf), null if no list was built for the leaf yet
+     */
+    private CachedList[] cachedLists;
+
+    /**
+     * Cached lists of an older generation are not used anymore, it is increased if the node indices of the tree have changed
+     */
+    private int generation;
+
+    /**
+     * Tree, arena and body store of the last calculation, to find out if the node indices of the cached lists are still valid
+     */
+    private FlatOctree lastTree;
+    private NodeArena lastArena;
+    private BodyStore lastBodies;
+
+    /**
+     * Number of groups whose cached list was used and number of groups whose tree was walked in the last calculation
+     */
+    private final LongAdder numberOfReusedLists = new LongAdder(), numberOfWalkedLists = new LongAdder();
+
+    /**
+     * Constructor with the theta of the simulation (Constants.theta)
+     */
+    public GroupedTreeWalk() {
+        this(Constants.theta);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param theta A node is accepted if the ratio of its distance to the group and its edge length is greater than theta
+     */
+    public GroupedTreeWalk(double theta) {
+        this(theta, 0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param theta       A node is accepted if the ratio of its distance to the group and its edge length is greater than theta
+     * @param cacheMargin Safety margin of the cached interaction lists as part of the edge length of the leaf of a group, 0 to walk the tree every time
+     */
+    public GroupedTreeWalk(double theta, double cacheMargin) {
+        if (cacheMargin < 0) {
+            throw new IllegalArgumentException("The cache margin must not be negative: " + cacheMargin);
+        }
+        this.theta = theta;
+        this.cacheMargin = cacheMargin;
+        this.farFieldWalk = new IterativeTreeWalk(theta);
+        this.groups = new int[0];
+        this.cachedLists = new CachedList[0];
+    }
+
+    @Override
+    public void calculateAccelerations(FlatOctree tree) {
+        int numberOfGroups = 0;
+        for (int node = 0; node < tree.getNumberOfNodes(); node++) {
+            if (tree.getFirstChild(node) == FlatOctree.NONE && tree.getBodyOfNode(node) != FlatOctree.NONE) {
+                if (numberOfGroups == this.groups.length) {
+                    this.groups = Arrays.copyOf(this.groups, Math.max(64, this.groups.length * 2));
+                }
+                this.groups[numberOfGroups++] = node;
+            }
+        }
+        if (this.cacheMargin > 0) {
+            prepareCache(tree);
+        }
+        this.numberOfReusedLists.reset();
+        this.numberOfWalkedLists.reset();
+        int[] leaves = this.groups;
+        ParallelLoop.forEach(tree.getForkJoinPool(), 0, numberOfGroups, 1, i -> calculateGroup(tree, leaves[i]));
+
+        if (tree.getNumberOfFarBodies() > 0) {
+            ParallelLoop.forEach(tree.getForkJoinPool(), 0, tree.getBodyStore().size(), id -> {
+                if (tree.isFarBody(id)) {
+                    this.farFieldWalk.calculateAcceleration(tree, id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops all cached lists if the node indices of the tree are not the ones of the last calculation
+     * (the tree was built and not refitted from the tree of the last calculation), and makes the cache big enough for all nodes.
+     *
+     * @param tree Tree with all bodies
+     */
+    private void prepareCache(FlatOctree tree) {
+        boolean isRefitted = tree == this.lastTree || tree.getNumberOfMovedBodies() >= 0;
+        if (!isRefitted || tree.getNodeArena() != this.lastArena || tree.getBodyStore() != this.lastBodies) {
+            this.generation++;
+        }
+        this.lastTree = tree;
+        this.lastArena = tree.getNodeArena();
+        this.lastBodies = tree.getBodyStore();
+        if (this.cachedLists.length < tree.getNumberOfNodes()) {
+            this.cachedLists = Arrays.copyOf(this.cachedLists, Math.max(tree.getNumberOfNodes(), this.cachedLists.length * 2));
+        }
+    }
+
+    /**
+     * Calculates the accelerations of all bodies of a leaf with one interaction list.
+     *
+     * @param tree Tree with all bodies
+     * @param leaf Leaf with the bodies of the group
+     * @return Length of the interaction list (accepted nodes and bodies that are summed up directly, including the body itself)
+     */
+    public int calculateGroup(FlatOctree tree, int leaf) {
+        BodyStore bodies = tree.getBodyStore();
+        double[] bodyX = bodies.getPositionX(), bodyY = bodies.getPositionY(), bodyZ = bodies.getPositionZ();
+        InteractionList list = this.lists.get();
+
+        //bounding box of the group
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int body = tree.getBodyOfNode(leaf); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+            minX = Math.min(minX, bodyX[body]);
+            minY = Math.min(minY, bodyY[body]);
+            minZ = Math.min(minZ, bodyZ[body]);
+            maxX = Math.max(maxX, bodyX[body]);
+            maxY = Math.max(maxY, bodyY[body]);
+            maxZ = Math.max(maxZ, bodyZ[body]);
+        }
+        list.minX = minX;
+        list.minY = minY;
+        list.minZ = minZ;
+        list.maxX = maxX;
+        list.maxY = maxY;
+        list.maxZ = maxZ;
+
+        list.clear();
+        if (this.cacheMargin == 0) {
+            walk(tree, leaf, list, 0, null);
+        } else if (fillFromCache(tree, leaf, list)) {
+            this.numberOfReusedLists.increment();
+        } else {
+            CachedList cachedList = this.cachedLists[leaf];
+            if (cachedList == null) {
+                cachedList = new CachedList();
+                this.cachedLists[leaf] = cachedList;
+            }
+            cachedList.start(this.generation, list);
+            list.clear();
+            walk(tree, leaf, list, this.cacheMargin * tree.getEdgeLength(leaf), cachedList);
+            this.numberOfWalkedLists.increment();
+        }
+
+        //all bodies of the group against the list
+        double[] sourceX = list.sourceX, sourceY = list.sourceY, sourceZ = list.sourceZ, sourceMass = list.sourceMass;
+        int numberOfSources = list.numberOfSources;
+        int[] nodes = list.nodes;
+        double[] acceleration = list.acceleration;
+        Softening softening = tree.getSoftening();
+        for (int id = tree.getBodyOfNode(leaf); id != FlatOctree.NONE; id = tree.getNextBody(id)) {
+            double x = bodyX[id], y = bodyY[id], z = bodyZ[id];
+            ForceKernel.accumulate(x, y, z, sourceX, sourceY, sourceZ, sourceMass, numberOfSources, softening, acceleration);
+            for (int i = 0; i < list.numberOfNodes; i++) {
+                //quadrupoles of the accepted nodes (same as in the iterative walk)
+                int node = nodes[i];
+                double dx = tree.getCenterOfMassX(node) - x;
+                double dy = tree.getCenterOfMassY(node) - y;
+                double dz = tree.getCenterOfMassZ(node) - z;
+                tree.addQuadrupoleAcceleration(node, dx, dy, dz, Math.sqrt(dx * dx + dy * dy + dz * dz), acceleration);
+            }
+            bodies.getAccelerationX()[id] = acceleration[0];
+            bodies.getAccelerationY()[id] = acceleration[1];
+            bodies.getAccelerationZ()[id] = acceleration[2];
+        }
+        return list.numberOfSources;
+    }
+
+    /**
+     * Walks the tree with the bounding box of the group (stored in the list) and fills the interaction list.
+     *
+     * @param tree       Tree with all bodies
+     * @param leaf       Leaf with the bodies of the group
+     * @param list       Interaction list of the group, has to be empty
+     * @param margin     A node is only accepted if it would still be far enough this distance closer to the group (in m)
+     * @param cachedList Gets the accepted nodes and the leaves that are summed up directly, null if the list is not cached
+     */
+    private void walk(FlatOctree tree, int leaf, InteractionList list, double margin, CachedList cachedList) {
+        BodyStore bodies = tree.getBodyStore();
+        double[] bodyX = bodies.getPositionX(), bodyY = bodies.getPositionY(), bodyZ = bodies.getPositionZ();
+        double[] bodyMass = bodies.getMass();
+        boolean useQuadrupoles = tree.hasQuadrupoles();
+        double minX = list.minX, minY = list.minY, minZ = list.minZ, maxX = list.maxX, maxY = list.maxY, maxZ = list.maxZ;
+
+        int[] stack = list.stack;
+        int stackSize = 0;
+        stack[stackSize++] = FlatOctree.ROOT;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            if (tree.getTotalMass(node) == 0) {
+                continue; //empty node
+            }
+            double centerX = tree.getCenterOfMassX(node), centerY = tree.getCenterOfMassY(node), centerZ = tree.getCenterOfMassZ(node);
+            double dx = Math.max(0, Math.max(minX - centerX, centerX - maxX));
+            double dy = Math.max(0, Math.max(minY - centerY, centerY - maxY));
+            double dz = Math.max(0, Math.max(minZ - centerZ, centerZ - maxZ));
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            boolean isFarEnough = node != leaf && (distance - margin) / tree.getEdgeLength(node) > this.theta;
+            int firstChild = tree.getFirstChild(node);
+
+            if (isFarEnough) {
+                list.addSource(centerX, centerY, centerZ, tree.getTotalMass(node));
+                if (useQuadrupoles) {
+                    list.addNode(node);
+                }
+                if (cachedList != null) {
+                    cachedList.addNode(node, centerX, centerY, centerZ);
+                }
+            } else if (firstChild == FlatOctree.NONE) {
+                for (int body = tree.getBodyOfNode(node); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+                    list.addSource(bodyX[body], bodyY[body], bodyZ[body], bodyMass[body]);
+                }
+                if (cachedList != null) {
+                    cachedList.addLeaf(node);
+                }
+            } else {
+                if (stackSize + 8 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    list.stack = stack;
+                }
+                for (int child = firstChild + 7; child >= firstChild; child--) {
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the interaction list from the cached list of the group with the current centers of mass and bodies,
+     * if the cached list is still valid.
+     *
+     * @param tree Tree with all bodies
+     * @param leaf Leaf with the bodies of the group
+     * @param list Interaction list of the group with the current bounding box, has to be empty
+     * @return True if the cached list was used, false if the tree has to be walked
+     */
+    private boolean fillFromCache(FlatOctree tree, int leaf, InteractionList list) {
+        CachedList cachedList = this.cachedLists[leaf];
+        if (cachedList == null || cachedList.generation != this.generation) {
+            return false;
+        }
+        //how far the box has grown since the list was built
+        double growthX = Math.max(0, Math.max(cachedList.minX - list.minX, list.maxX - cachedList.maxX));
+        double growthY = Math.max(0, Math.max(cachedList.minY - list.minY, list.maxY - cachedList.maxY));
+        double growthZ = Math.max(0, Math.max(cachedList.minZ - list.minZ, list.maxZ - cachedList.maxZ));
+        double spare = this.cacheMargin * tree.getEdgeLength(leaf) - Math.sqrt(growthX * growthX + growthY * growthY + growthZ * growthZ);
+        if (spare <= 0) {
+            return false;
+        }
+        double spareSquared = spare * spare;
+
+        BodyStore bodies = tree.getBodyStore();
+        double[] bodyX = bodies.getPositionX(), bodyY = bodies.getPositionY(), bodyZ = bodies.getPositionZ();
+        double[] bodyMass = bodies.getMass();
+        boolean useQuadrupoles = tree.hasQuadrupoles();
+        int[] entries = cachedList.entries;
+        double[] centers = cachedList.centers;
+        for (int i = 0; i < cachedList.numberOfEntries; i++) {
+            int entry = entries[i];
+            if (entry < 0) {
+                int node = ~entry;
+                if (tree.getFirstChild(node) != FlatOctree.NONE) {
+                    return false; //the leaf was split, its bodies are in the children
+                }
+                for (int body = tree.getBodyOfNode(node); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+                    list.addSource(bodyX[body], bodyY[body], bodyZ[body], bodyMass[body]);
+                }
+            } else {
+                double centerX = tree.getCenterOfMassX(entry), centerY = tree.getCenterOfMassY(entry), centerZ = tree.getCenterOfMassZ(entry);
+                double dx = centerX - centers[3 * i], dy = centerY - centers[3 * i + 1], dz = centerZ - centers[3 * i + 2];
+                if (dx * dx + dy * dy + dz * dz >= spareSquared) {
+                    return false; //the center of mass has moved past the margin
+                }
+                list.addSource(centerX, centerY, centerZ, tree.getTotalMass(entry));
+                if (useQuadrupoles) {
+                    list.addNode(entry);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of groups whose cached interaction list was used in the last calculation.
+     *
+     * @return Number of groups
+     */
+    public long getNumberOfReusedLists() {
+        return this.numberOfReusedLists.sum();
+    }
+
+    /**
+     * Returns the number of groups for which the tree was walked in the last calculation with a cache margin.
+     *
+     * @return Number of groups
+     */
+    public long getNumberOfWalkedLists() {
+        return this.numberOfWalkedLists.sum();
+    }
+
+    /**
+     * Stack of the walk and interaction list of a group, one per thread.
+     * The positions and masses of the list are copied into own arrays (accepted nodes and bodies are both point masses),
+     * so that the loop over the list reads them one after another.
+     */
+    private static class InteractionList {
+
+        private int[] stack = new int[128];
+        private double[] sourceX = new double[128], sourceY = new double[128], sourceZ = new double[128], sourceMass = new double[128];
+        private int[] nodes = new int[128];
+        private final double[] acceleration = new double[3];
+        private int numberOfSources, numberOfNodes;
+        private double minX, minY, minZ, maxX, maxY, maxZ;
+
+        void clear() {
+            this.numberOfSources = 0;
+            this.numberOfNodes = 0;
+        }
+
+        void addSource(double x, double y, double z, double mass) {
+            if (this.numberOfSources == this.sourceX.length) {
+                int newLength = this.sourceX.length * 2;
+                this.sourceX = Arrays.copyOf(this.sourceX, newLength);
+                this.sourceY = Arrays.copyOf(this.sourceY, newLength);
+                this.sourceZ = Arrays.copyOf(this.sourceZ, newLength);
+                this.sourceMass = Arrays.copyOf(this.sourceMass, newLength);
+            }
+            this.sourceX[this.numberOfSources] = x;
+            this.sourceY[this.numberOfSources] = y;
+            this.sourceZ[this.numberOfSources] = z;
+            this.sourceMass[this.numberOfSources++] = mass;
+        }
+
+        void addNode(int node) {
+            if (this.numberOfNodes == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, this.nodes.length * 2);
+            }
+            this.nodes[this.numberOfNodes++] = node;
+        }
+    }
+
+    /**
+     * Interaction list of a group that is kept for the next calculations: the accepted nodes with their center of mass
+     * when the list was built, the leaves that are summed up directly (stored as ~leaf) and the bounding box of the group.
+     * The arrays are kept when the list is built again.
+     */
+    private static class CachedList {
+
+        private int[] entries = new int[32];
+        private double[] centers = new double[3 * 32];
+        private int numberOfEntries;
+        private int generation;
+        private double minX, minY, minZ, maxX, maxY, maxZ;
+
+        void start(int generation, InteractionList list) {
+            this.generation = generation;
+            this.numberOfEntries = 0;
+            this.minX = list.minX;
+            this.minY = list.minY;
+            this.minZ = list.minZ;
+            this.maxX = list.maxX;
+            this.maxY = list.maxY;
+            this.maxZ = list.maxZ;
+        }
+
+        void addNode(int node, double centerX, double centerY, double centerZ) {
+            ensureCapacity();
+            this.centers[3 * this.numberOfEntries] = centerX;
+            this.centers[3 * this.numberOfEntries + 1] = centerY;
+            this.centers[3 * this.numberOfEntries + 2] = centerZ;
+            this.entries[this.numberOfEntries++] = node;
+        }
+
+        void addLeaf(int leaf) {
+            ensureCapacity();
+            this.entries[this.numberOfEntries++] = ~leaf;
+        }
+
+        private void ensureCapacity() {
+            if (this.numberOfEntries == this.entries.length) {
+                this.entries = Arrays.copyOf(this.entries, this.entries.length * 2);
+                this.centers = Arrays.copyOf(this.centers, this.centers.length * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package mi17bta10.simulation;
+
+/**
+ * Interface which all integrators of the FlatOctree implement, they move all bodies of a body store by one time step
+ * (the time step of every body is stored in the body store), so that the integrator can be chosen at runtime (see FlatOctree.setIntegrator).
+ * The accelerations at the current positions are calculated by the force engine before every step.
+ */
+public interface Integrator {
+
+    /**
+     * Moves all bodies of the store by their time step with the accelerations at their current positions.
+     *
+     * @param bodies Store with the bodies
+     */
+    void step(BodyStore bodies);
+
+    /**
+     * Writes the velocities of all bodies at their current positions into the arrays (e.g. to calculate the energy).
+     * They can differ from the velocities in the store, e.g. the leapfrog keeps them half a step ahead of the positions.
+     * The accelerations at the current positions have to be calculated already.
+     *
+     * @param bodies     Store with the bodies
+     * @param velocityX  Array that gets the x-coordinates of the velocities
+     * @param velocityY  Array that gets the y-coordinates of the velocities
+     * @param velocityZ  Array that gets the z-coordinates of the velocities
+     */
+    void synchronizeVelocities(BodyStore bodies, double[] velocityX, double[] velocityY, double[] velocityZ);
+
+    /**
+     * Reorders the data that the integrator keeps for every body, after the bodies of the store were reordered
+     * (see BodyStore.reorder, the body with the id order[i] got the id i). It is called after a step, so all bodies are started.
+     *
+     * @param order Permutation of the ids
+     * @param size  Number of bodies
+     */
+    default void reorderBodies(int[] order, int size) {
+    }
+
+    /**
+     * Moves the data that the integrator keeps for every body to the new ids, after bodies were removed from the store
+     * (see BodyStore.removeBodiesOutside, the kept bodies keep their order, the body with the id keptIds[i] got the id i).
+     *
+     * @param keptIds Old id of every kept body
+     * @param size    Number of kept bodies
+     */
+    default void removeBodies(int[] keptIds, int size) {
+    }
+}
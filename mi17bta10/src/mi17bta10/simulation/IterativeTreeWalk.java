@@ -0,0 +1,169 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Force engine with an iterative barnes hut walk, which does not allocate any objects:
+ * the nodes that still have to be visited are kept on a stack of node indices (one stack per thread),
+ * and the acceleration is summed up in an array of the thread.
+ * The bodies of a leaf that is too close are summed up directly in one loop (see FlatOctree.addLeafAcceleration).
+ * The same nodes as in the recursive walk are accepted, in the same order (with the same theta).
+ * If the tree has quadrupole moments, they are added to the force of the accepted nodes.
+ * The bodies and the accepted nodes are softened with the softening of the tree.
+ * The opening criterion decides which nodes are accepted (geometric criterion with theta by default),
+ * the number of opened nodes is counted to compare the criteria.
+ */
+public class IterativeTreeWalk implements ForceEngine {
+
+    /**
+     * Stack of node indices for every thread
+     */
+    private final ThreadLocal<int[]> stacks = ThreadLocal.withInitial(() -> new int[128]);
+
+    /**
+     * Sum of the acceleration (x, y, z) for every thread
+     */
+    private final ThreadLocal<double[]> accelerations = ThreadLocal.withInitial(() -> new double[3]);
+
+    /**
+     * Decides if a node is accepted or opened
+     */
+    private final OpeningCriterion criterion;
+
+    /**
+     * Number of nodes that were opened (not accepted) since the last calculateAccelerations
+     */
+    private final LongAdder numberOfOpenedNodes = new LongAdder();
+
+    /**
+     * Constructor with the theta of the simulation (Constants.theta)
+     */
+    public IterativeTreeWalk() {
+        this(Constants.theta);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param theta A node is accepted if the ratio of its distance and its edge length is greater than theta
+     */
+    public IterativeTreeWalk(double theta) {
+        this(new GeometricCriterion(theta));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param criterion Decides if a node is accepted or opened
+     */
+    public IterativeTreeWalk(OpeningCriterion criterion) {
+        this.criterion = criterion;
+    }
+
+    @Override
+    public void calculateAccelerations(FlatOctree tree) {
+        this.numberOfOpenedNodes.reset();
+        prepare(tree);
+        ParallelLoop.forEach(tree.getForkJoinPool(), 0, tree.getNumberOfBodies(), id -> calculateAcceleration(tree, id));
+    }
+
+    /**
+     * Prepares the opening criterion for the tree, has to be called before calculateAcceleration is used with a new tree.
+     *
+     * @param tree Tree with all bodies
+     */
+    public void prepare(FlatOctree tree) {
+        this.criterion.prepare(tree);
+    }
+
+    /**
+     * Calculates the acceleration that all other bodies exert on one body, it is stored in the body store of the tree.
+     *
+     * @param tree Tree with all bodies
+     * @param id   Id of the body in the body store of the tree
+     * @return Number of interactions (accepted nodes and bodies that are summed up directly)
+     */
+    public int calculateAcceleration(FlatOctree tree, int id) {
+        BodyStore bodies = tree.getBodyStore();
+        double x = bodies.getPositionX()[id];
+        double y = bodies.getPositionY()[id];
+        double z = bodies.getPositionZ()[id];
+        double[] acceleration = this.accelerations.get();
+        acceleration[0] = 0;
+        acceleration[1] = 0;
+        acceleration[2] = 0;
+        int interactions = 0, openedNodes = 0;
+        boolean useQuadrupoles = tree.hasQuadrupoles();
+        Softening softening = tree.getSoftening();
+
+        int[] stack = this.stacks.get();
+        int stackSize = 0;
+        stack[stackSize++] = FlatOctree.ROOT;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            double mass = tree.getTotalMass(node);
+            if (mass == 0) {
+                continue; //empty node
+            }
+            double dx = tree.getCenterOfMassX(node) - x;
+            double dy = tree.getCenterOfMassY(node) - y;
+            double dz = tree.getCenterOfMassZ(node) - z;
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            boolean isFarEnough = this.criterion.isFarEnough(tree, node, id, distance);
+            int firstChild = tree.getFirstChild(node);
+            if (!isFarEnough) {
+                openedNodes++;
+            }
+
+            if (firstChild == FlatOctree.NONE && (!isFarEnough || tree.isInsideNode(node, x, y, z))) {
+                //leaf that is too close (or contains this body): sum up the bodies of the leaf directly
+                interactions += tree.addLeafAcceleration(tree.getBodyOfNode(node), id, x, y, z, acceleration);
+            } else if (isFarEnough) {
+                //the node is far enough, it is treated as a single body
+                double factor = Constants.G * mass * softening.factor(distance * distance);
+                acceleration[0] += dx * factor;
+                acceleration[1] += dy * factor;
+                acceleration[2] += dz * factor;
+                if (useQuadrupoles) {
+                    tree.addQuadrupoleAcceleration(node, dx, dy, dz, distance, acceleration);
+                }
+                interactions++;
+            } else {
+                if (stackSize + 8 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    this.stacks.set(stack);
+                }
+                //pushed in reverse order, so that the children are visited in the same order as in the recursive walk
+                for (int child = firstChild + 7; child >= firstChild; child--) {
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+
+        bodies.getAccelerationX()[id] = acceleration[0];
+        bodies.getAccelerationY()[id] = acceleration[1];
+        bodies.getAccelerationZ()[id] = acceleration[2];
+        this.numberOfOpenedNodes.add(openedNodes);
+        return interactions;
+    }
+
+    /**
+     * Returns the number of nodes that were opened (inner nodes whose children were visited and leaves whose bodies were summed up directly)
+     * in the last calculateAccelerations (and the calls of calculateAcceleration after it).
+     *
+     * @return Number of opened nodes
+     */
+    public long getNumberOfOpenedNodes() {
+        return this.numberOfOpenedNodes.sum();
+    }
+
+    /**
+     * Returns the opening criterion of the walk.
+     *
+     * @return Opening criterion
+     */
+    public OpeningCriterion getCriterion() {
+        return this.criterion;
+    }
+}
@@ -0,0 +1,72 @@
+package mi17bta10.simulation;
+
+/**
+ * Kick-drift-kick leapfrog integrator of second order: v(t + dt/2) = v(t) + a(t) * dt/2, x(t + dt) = x(t) + v(t + dt/2) * dt,
+ * v(t + dt) = v(t + dt/2) + a(t + dt) * dt/2.
+ * The last kick of a step and the first kick of the next step use the same acceleration, so they are done together
+ * with the acceleration of the next step (v += a * dt), only the first step of a body has a half kick.
+ * The velocities in the store are half a step ahead of the positions.
+ * Bodies that are added to the store (at the end) start with a half kick, bodies that are kept when other bodies are removed stay started.
+ */
+public class LeapfrogIntegrator implements Integrator {
+
+    /**
+     * The bodies with an id smaller than this number had their first half kick
+     */
+    private int numberOfStartedBodies;
+
+    @Override
+    public void step(BodyStore bodies) {
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ();
+        double[] vx = bodies.getVelocityX(), vy = bodies.getVelocityY(), vz = bodies.getVelocityZ();
+        double[] ax = bodies.getAccelerationX(), ay = bodies.getAccelerationY(), az = bodies.getAccelerationZ();
+        double[] timeStep = bodies.getTimeStep();
+        int started = Math.min(this.numberOfStartedBodies, bodies.size());
+        for (int id = 0; id < bodies.size(); id++) {
+            double dt = timeStep[id];
+            double kick = id < started ? dt : dt / 2;
+            vx[id] += ax[id] * kick;
+            vy[id] += ay[id] * kick;
+            vz[id] += az[id] * kick;
+            x[id] += vx[id] * dt;
+            y[id] += vy[id] * dt;
+            z[id] += vz[id] * dt;
+        }
+        this.numberOfStartedBodies = bodies.size();
+    }
+
+    @Override
+    public void removeBodies(int[] keptIds, int size) {
+        this.numberOfStartedBodies = countStartedBodies(keptIds, size, this.numberOfStartedBodies);
+    }
+
+    /**
+     * Returns the number of started bodies after bodies were removed, the kept bodies keep their order,
+     * so the started bodies are still the first ones.
+     *
+     * @param keptIds Old id of every kept body
+     * @param size    Number of kept bodies
+     * @param started Number of started bodies before the removal
+     * @return Number of started bodies after the removal
+     */
+    static int countStartedBodies(int[] keptIds, int size, int started) {
+        int newStarted = 0;
+        while (newStarted < size && keptIds[newStarted] < started) {
+            newStarted++;
+        }
+        return newStarted;
+    }
+
+    @Override
+    public void synchronizeVelocities(BodyStore bodies, double[] velocityX, double[] velocityY, double[] velocityZ) {
+        double[] timeStep = bodies.getTimeStep();
+        int started = Math.min(this.numberOfStartedBodies, bodies.size());
+        for (int id = 0; id < bodies.size(); id++) {
+            //v(t) = v(t - dt/2) + a(t) * dt/2
+            double kick = id < started ? timeStep[id] / 2 : 0;
+            velocityX[id] = bodies.getVelocityX()[id] + bodies.getAccelerationX()[id] * kick;
+            velocityY[id] = bodies.getVelocityY()[id] + bodies.getAccelerationY()[id] * kick;
+            velocityZ[id] = bodies.getVelocityZ()[id] + bodies.getAccelerationZ()[id] * kick;
+        }
+    }
+}
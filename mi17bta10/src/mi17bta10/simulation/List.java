@@ -39,12 +39,12 @@ public class List {
     }
 
     /**
-     * Prints the name and position of all celestial bodies in the list.
+     * Prints the id, name and position of all celestial bodies in the list.
      */
     public void printList() {
         ListNode current = head;
         while (current != null) {
-            System.out.println(current.getBody().getName() + " " + current.getBody().getPosition());
+            System.out.println(current.getBody().getId() + " " + current.getBody().getName() + " " + current.getBody().getPosition());
             current = current.getNext();
         }
     }
@@ -0,0 +1,168 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Force engine with the iterative barnes hut walk on a float copy of the nodes (see FlatOctree.calculateFloatNodes),
+ * e.g. for runs that are only visualized: a node is read as 4 floats (center of mass relative to the middle point of the node
+ * and G * mass) instead of the doubles of the center of mass, the mass and the edge length, which halves the memory that is read per node.
+ * With quadrupole moments a node has 6 more floats, the quadrupole tensor relative to mass * edge length^2 (see FlatOctree.calculateFloatNodes).
+ * The middle point and the edge length of a node are not read at all, they are calculated on the way down
+ * (the children of a node are in the same order as in createChildren) and kept in double on the stack.
+ * The positions of the bodies, the distances, the bodies of the leaves that are too close and the sum of the acceleration stay in double,
+ * so only the nodes that are accepted (the far field of a body) have the precision of a float.
+ * The same nodes as in the iterative walk are accepted (geometric criterion with theta), quadrupole moments and the softening of the tree are used.
+ */
+public class MixedPrecisionTreeWalk implements ForceEngine {
+
+    /**
+     * Number of doubles per stack entry: middle point (x, y, z) and edge length of the node
+     */
+    private static final int CELL_SIZE = 4;
+
+    /**
+     * Stack for every thread
+     */
+    private final ThreadLocal<Stack> stacks = ThreadLocal.withInitial(Stack::new);
+
+    /**
+     * A node is accepted if the ratio of its distance and its edge length is greater than theta
+     */
+    private final double theta;
+
+    /**
+     * Constructor with the theta of the simulation (Constants.theta)
+     */
+    public MixedPrecisionTreeWalk() {
+        this(Constants.theta);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param theta A node is accepted if the ratio of its distance and its edge length is greater than theta
+     */
+    public MixedPrecisionTreeWalk(double theta) {
+        this.theta = theta;
+    }
+
+    @Override
+    public void calculateAccelerations(FlatOctree tree) {
+        tree.calculateFloatNodes();
+        ParallelLoop.forEach(tree.getForkJoinPool(), 0, tree.getNumberOfBodies(), id -> calculateAcceleration(tree, id));
+    }
+
+    /**
+     * Calculates the acceleration that all other bodies exert on one body, it is stored in the body store of the tree.
+     * The float nodes of the tree have to be calculated.
+     *
+     * @param tree Tree with all bodies
+     * @param id   Id of the body in the body store of the tree
+     */
+    private void calculateAcceleration(FlatOctree tree, int id) {
+        BodyStore bodies = tree.getBodyStore();
+        double x = bodies.getPositionX()[id], y = bodies.getPositionY()[id], z = bodies.getPositionZ()[id];
+        Softening softening = tree.getSoftening();
+        float[] floatNodes = tree.getFloatNodes();
+        int floatNodeSize = tree.getFloatNodeSize();
+        boolean useQuadrupoles = floatNodeSize == NodeArena.FLOAT_QUADRUPOLE_NODE_SIZE;
+
+        Stack stack = this.stacks.get();
+        double[] acceleration = stack.acceleration;
+        acceleration[0] = 0;
+        acceleration[1] = 0;
+        acceleration[2] = 0;
+        int[] nodeStack = stack.nodes;
+        double[] cellStack = stack.cells;
+        int stackSize = 0;
+        nodeStack[0] = FlatOctree.ROOT;
+        cellStack[0] = tree.getCenterX(FlatOctree.ROOT);
+        cellStack[1] = tree.getCenterY(FlatOctree.ROOT);
+        cellStack[2] = tree.getCenterZ(FlatOctree.ROOT);
+        cellStack[3] = tree.getEdgeLength(FlatOctree.ROOT);
+        stackSize++;
+        while (stackSize > 0) {
+            stackSize--;
+            int node = nodeStack[stackSize];
+            int index = node * floatNodeSize;
+            float gravitationalMass = floatNodes[index + 3];
+            if (gravitationalMass == 0) {
+                continue; //empty node
+            }
+            int cell = stackSize * CELL_SIZE;
+            double centerX = cellStack[cell], centerY = cellStack[cell + 1], centerZ = cellStack[cell + 2], edgeLength = cellStack[cell + 3];
+            //body to the middle point in double, middle point to the center of mass in float
+            double dx = centerX - x + floatNodes[index];
+            double dy = centerY - y + floatNodes[index + 1];
+            double dz = centerZ - z + floatNodes[index + 2];
+            double distanceSquared = dx * dx + dy * dy + dz * dz;
+            double distance = Math.sqrt(distanceSquared);
+            boolean isFarEnough = distance / edgeLength > this.theta;
+            int firstChild = tree.getFirstChild(node);
+
+            if (firstChild == FlatOctree.NONE && (!isFarEnough || isInsideCell(centerX, centerY, centerZ, edgeLength, x, y, z))) {
+                //leaf that is too close (or contains this body): sum up the bodies of the leaf directly
+                tree.addLeafAcceleration(tree.getBodyOfNode(node), id, x, y, z, acceleration);
+            } else if (isFarEnough) {
+                //the node is far enough, it is treated as a single body
+                double factor = gravitationalMass * softening.factor(distanceSquared);
+                acceleration[0] += dx * factor;
+                acceleration[1] += dy * factor;
+                acceleration[2] += dz * factor;
+                if (useQuadrupoles) {
+                    //the float tensor is Q / (mass * edge length^2), so G * Q = tensor * G * mass * edge length^2
+                    FlatOctree.addQuadrupoleAcceleration(floatNodes[index + 4], floatNodes[index + 5], floatNodes[index + 6],
+                            floatNodes[index + 7], floatNodes[index + 8], floatNodes[index + 9], gravitationalMass * edgeLength * edgeLength,
+                            dx, dy, dz, distance, acceleration);
+                }
+            } else {
+                if ((stackSize + 8) * CELL_SIZE > cellStack.length) {
+                    stack.grow();
+                    nodeStack = stack.nodes;
+                    cellStack = stack.cells;
+                }
+                double childEdgeLength = edgeLength / 2;
+                double offset = childEdgeLength / 2;
+                //pushed in reverse order, so that the children are visited in the same order as in the recursive walk
+                //same order as in FlatOctree.createChildren: bit 0 -> x, bit 1 -> y, bit 2 -> z
+                for (int i = 7; i >= 0; i--) {
+                    nodeStack[stackSize] = firstChild + i;
+                    int childCell = stackSize * CELL_SIZE;
+                    cellStack[childCell] = centerX + ((i & 1) != 0 ? offset : -offset);
+                    cellStack[childCell + 1] = centerY + ((i & 2) != 0 ? offset : -offset);
+                    cellStack[childCell + 2] = centerZ + ((i & 4) != 0 ? offset : -offset);
+                    cellStack[childCell + 3] = childEdgeLength;
+                    stackSize++;
+                }
+            }
+        }
+
+        bodies.getAccelerationX()[id] = acceleration[0];
+        bodies.getAccelerationY()[id] = acceleration[1];
+        bodies.getAccelerationZ()[id] = acceleration[2];
+    }
+
+    private static boolean isInsideCell(double centerX, double centerY, double centerZ, double edgeLength, double x, double y, double z) {
+        double halfLength = edgeLength / 2;
+        return x >= centerX - halfLength && x < centerX + halfLength
+                && y >= centerY - halfLength && y < centerY + halfLength
+                && z >= centerZ - halfLength && z < centerZ + halfLength;
+    }
+
+    /**
+     * Stack of node indices with the middle point and edge length of every node, and the sum of the acceleration of the body
+     */
+    private static class Stack {
+
+        private int[] nodes = new int[128];
+
+        private double[] cells = new double[128 * CELL_SIZE];
+
+        private final double[] acceleration = new double[3];
+
+        private void grow() {
+            this.nodes = Arrays.copyOf(this.nodes, this.nodes.length * 2);
+            this.cells = Arrays.copyOf(this.cells, this.cells.length * 2);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Helper class for morton codes (Z-order).
+ * A morton code interleaves the bits of the x, y and z coordinate (21 bits each -> 63 bits),
+ * so that bodies which are next to each other in space are (mostly) next to each other in the sorted order.
+ * The 3 highest bits are the index of the child of the root, the next 3 bits the index of the child of that node, ...
+ * (bit 0 -> x, bit 1 -> y, bit 2 -> z, same as the children of the octree)
+ */
+public class MortonCode {
+
+    /**
+     * Number of bits per coordinate, also the maximum depth a morton code can describe
+     */
+    public static final int BITS_PER_COORDINATE = 21;
+
+    /**
+     * Number of bits which are sorted in one pass of the radix sort
+     */
+    private static final int RADIX_BITS = 11;
+
+    /**
+     * Number of counters the radix sort needs
+     */
+    public static final int RADIX_SIZE = 1 << RADIX_BITS;
+
+    private MortonCode() {
+    }
+
+    /**
+     * Calculates the morton code of a position inside of a cube.
+     * The bits are calculated with the same comparisons with the middle point of the nodes as in the octree
+     * (and not by scaling the coordinates), so that bodies on the border of a node end up in the same child.
+     * Positions outside of the cube are clamped to the border of the cube.
+     *
+     * @param x    x-coordinate
+     * @param y    y-coordinate
+     * @param z    z-coordinate
+     * @param cube The space that is described by the morton codes
+     * @return 63 bit morton code
+     */
+    public static long calculateKey(double x, double y, double z, Cube cube) {
+        return calculateKey(x, y, z, cube, BITS_PER_COORDINATE);
+    }
+
+    /**
+     * Calculates the morton code of a position inside of a cube, only for the first levels of the octree.
+     * The bits of the lower levels are 0 (the key is still a 63 bit morton code).
+     *
+     * @param x      x-coordinate
+     * @param y      y-coordinate
+     * @param z      z-coordinate
+     * @param cube   The space that is described by the morton codes
+     * @param levels Number of levels that are calculated (1 - BITS_PER_COORDINATE)
+     * @return 63 bit morton code
+     */
+    public static long calculateKey(double x, double y, double z, Cube cube, int levels) {
+        Vector3 center = cube.getCenter();
+        double edgeLength = cube.getEdgeLength();
+        int shift = BITS_PER_COORDINATE - levels;
+        return spreadBits(quantize(x, center.getX(), edgeLength, levels) << shift)
+                | spreadBits(quantize(y, center.getY(), edgeLength, levels) << shift) << 1
+                | spreadBits(quantize(z, center.getZ(), edgeLength, levels) << shift) << 2;
+    }
+
+    /**
+     * Calculates the bits of one coordinate, highest bit -> child of the root.
+     *
+     * @param value      Coordinate
+     * @param center     Coordinate of the middle point of the cube
+     * @param edgeLength The length of a side of the cube
+     * @param levels     Number of bits that are calculated
+     * @return Value with the specified number of bits
+     */
+    private static long quantize(double value, double center, double edgeLength, int levels) {
+        long bits = 0;
+        double offset = edgeLength / 4;
+        for (int level = 0; level < levels; level++) {
+            bits <<= 1;
+            if (value >= center) {
+                bits |= 1;
+                center += offset;
+            } else {
+                center -= offset;
+            }
+            offset /= 2;
+        }
+        return bits;
+    }
+
+    /**
+     * Moves the 21 lowest bits of the value to every third bit (bit i -> bit 3*i).
+     *
+     * @param value 21 bit value
+     * @return Spread value
+     */
+    private static long spreadBits(long value) {
+        long v = value & 0x1fffffL;
+        v = (v | v << 32) & 0x1f00000000ffffL;
+        v = (v | v << 16) & 0x1f0000ff0000ffL;
+        v = (v | v << 8) & 0x100f00f00f00f00fL;
+        v = (v | v << 4) & 0x10c30c30c30c30c3L;
+        v = (v | v << 2) & 0x1249249249249249L;
+        return v;
+    }
+
+    /**
+     * Returns the index of the child (0-7) that contains the key on the specified level.
+     *
+     * @param key   Morton code
+     * @param level Level of the child (1 -> child of the root)
+     * @return Index of the child
+     */
+    public static int childIndex(long key, int level) {
+        return (int) (key >>> (3 * (BITS_PER_COORDINATE - level))) & 7;
+    }
+
+    /**
+     * Returns on how many levels two keys are in the same node (below the root).
+     *
+     * @param key1 First morton code
+     * @param key2 Second morton code
+     * @return Number of equal levels (0 - BITS_PER_COORDINATE)
+     */
+    public static int commonLevels(long key1, long key2) {
+        long difference = key1 ^ key2;
+        if (difference == 0) {
+            return BITS_PER_COORDINATE;
+        }
+        //bit 63 is never used
+        return (Long.numberOfLeadingZeros(difference) - 1) / 3;
+    }
+
+    /**
+     * Sorts the keys (LSD radix sort) and moves the values the same way.
+     * The sort is stable: equal keys keep their order.
+     *
+     * @param keys   Morton codes, sorted after the call
+     * @param values Values that belong to the keys (e.g. index of the body), sorted after the call
+     * @param length Number of used entries of the arrays
+     */
+    public static void radixSort(long[] keys, int[] values, int length) {
+        radixSort(keys, values, length, BITS_PER_COORDINATE);
+    }
+
+    /**
+     * Sorts keys that were calculated for the first levels only (LSD radix sort), the lower bits are not sorted.
+     * The sort is stable: equal keys keep their order.
+     *
+     * @param keys   Morton codes, sorted after the call
+     * @param values Values that belong to the keys (e.g. index of the body), sorted after the call
+     * @param length Number of used entries of the arrays
+     * @param levels Number of levels the keys were calculated for
+     */
+    public static void radixSort(long[] keys, int[] values, int length, int levels) {
+        radixSort(keys, values, length, levels, new long[length], new int[length], new int[RADIX_SIZE]);
+    }
+
+    /**
+     * Sorts keys that were calculated for the first levels only (LSD radix sort) with the given buffers,
+     * so that nothing is allocated. The sort is stable: equal keys keep their order.
+     *
+     * @param keys        Morton codes, sorted after the call
+     * @param values      Values that belong to the keys (e.g. index of the body), sorted after the call
+     * @param length      Number of used entries of the arrays
+     * @param levels      Number of levels the keys were calculated for
+     * @param keyBuffer   Buffer with at least length entries
+     * @param valueBuffer Buffer with at least length entries
+     * @param count       Buffer with RADIX_SIZE entries
+     */
+    public static void radixSort(long[] keys, int[] values, int length, int levels, long[] keyBuffer, int[] valueBuffer, int[] count) {
+        long[] sourceKeys = keys, targetKeys = keyBuffer;
+        int[] sourceValues = values, targetValues = valueBuffer;
+
+        for (int shift = 3 * (BITS_PER_COORDINATE - levels); shift < 3 * BITS_PER_COORDINATE; shift += RADIX_BITS) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < length; i++) {
+                count[(int) (sourceKeys[i] >>> shift) & (count.length - 1)]++;
+            }
+            int sum = 0;
+            for (int i = 0; i < count.length; i++) {
+                int c = count[i];
+                count[i] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < length; i++) {
+                int position = count[(int) (sourceKeys[i] >>> shift) & (count.length - 1)]++;
+                targetKeys[position] = sourceKeys[i];
+                targetValues[position] = sourceValues[i];
+            }
+
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+            int[] swapValues = sourceValues;
+            sourceValues = targetValues;
+            targetValues = swapValues;
+        }
+
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, length);
+            System.arraycopy(sourceValues, 0, values, 0, length);
+        }
+    }
+}
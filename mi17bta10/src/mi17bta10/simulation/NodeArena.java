@@ -0,0 +1,331 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Memory of the nodes of a flat octree: all node arrays, the links of the bodies in the leaves
+ * and the buffers that are needed to build a tree (morton codes, radix sort, refit).
+ * The nodes are taken one after another with a cursor (numberOfNodes), a reset only sets the cursor back,
+ * so an arena can be used for a new tree without allocating anything once the arrays are big enough.
+ * Two arenas are swapped in every calc-move cycle (see FlatOctree.createEmptyTree):
+ * one holds the current tree, the other one is reset and gets the new tree.
+ * The arrays are accessed directly by FlatOctree.
+ */
+public class NodeArena {
+
+    /**
+     * Initial number of nodes the arrays can hold
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Index of the first of the eight children of a node, NONE if the node is a leaf
+     */
+    int[] firstChild;
+
+    /**
+     * Id of the first body of a leaf, NONE if the leaf is empty or the node is no leaf
+     */
+    int[] bodyOfNode;
+
+    /**
+     * Number of bodies in a leaf, 0 if the node is no leaf
+     */
+    int[] numberOfBodiesInNode;
+
+    /**
+     * Id of the next body in the same leaf for every body (index = id), NONE for the last body of a leaf
+     */
+    int[] nextBody;
+
+    /**
+     * Coordinates of the middle point of a node
+     */
+    double[] centerX, centerY, centerZ;
+
+    /**
+     * The length of a side of the cube of a node
+     */
+    double[] edgeLength;
+
+    /**
+     * The sum of the mass of a node and all children nodes
+     */
+    double[] totalMass;
+
+    /**
+     * Coordinates of the center of mass of a node
+     */
+    double[] centerOfMassX, centerOfMassY, centerOfMassZ;
+
+    /**
+     * Components of the (traceless) quadrupole tensor of a node around its center of mass, the tensor is symmetric
+     * (only allocated when the quadrupoles are calculated, see ensureQuadrupoleCapacity)
+     */
+    double[] quadrupoleXX, quadrupoleXY, quadrupoleXZ, quadrupoleYY, quadrupoleYZ, quadrupoleZZ;
+
+    /**
+     * Number of floats per node in floatNodes without quadrupole moments
+     */
+    public static final int FLOAT_NODE_SIZE = 4;
+
+    /**
+     * Number of floats per node in floatNodes with quadrupole moments
+     */
+    public static final int FLOAT_QUADRUPOLE_NODE_SIZE = 10;
+
+    /**
+     * Compact copy of the nodes for the mixed precision walk, floatNodeSize floats per node:
+     * center of mass relative to the middle point of the node (x, y, z) and G * total mass,
+     * with quadrupole moments followed by the quadrupole tensor (xx, xy, xz, yy, yz, zz) divided by mass * edge length^2.
+     * Only filled by FlatOctree.calculateFloatNodes
+     */
+    float[] floatNodes;
+
+    /**
+     * Number of floats per node in floatNodes (FLOAT_NODE_SIZE or FLOAT_QUADRUPOLE_NODE_SIZE)
+     */
+    int floatNodeSize;
+
+    /**
+     * Number of doubles per node in depthFirstNodes
+     */
+    public static final int DEPTH_FIRST_NODE_SIZE = 5;
+
+    /**
+     * Copy of the non-empty nodes in depth first order for the stackless walk, DEPTH_FIRST_NODE_SIZE doubles per node:
+     * center of mass (x, y, z), total mass and edge length. Only filled by FlatOctree.calculateDepthFirstLayout
+     */
+    double[] depthFirstNodes;
+
+    /**
+     * For every node of the depth first layout: position of the next node that is not in its subtree (skip),
+     * first body (NONE for inner nodes) and index of the node in this arena
+     */
+    int[] skip, depthFirstBody, depthFirstIndex;
+
+    /**
+     * Number of nodes in the depth first layout
+     */
+    int numberOfDepthFirstNodes;
+
+    /**
+     * Number of non-empty nodes in the subtree of every node (index = node), used to calculate the skips
+     */
+    int[] subtreeSize;
+
+    /**
+     * Number of used nodes (cursor), the next node that is created gets this index
+     */
+    int numberOfNodes;
+
+    /**
+     * Buffers of the morton code build (one entry per body)
+     */
+    long[] keys, keyBuffer;
+
+    /**
+     * Buffers of the morton code build (one entry per body)
+     */
+    int[] order, orderBuffer;
+
+    /**
+     * Counters of the radix sort
+     */
+    final int[] radixCount;
+
+    /**
+     * Ids of the bodies that left their leaf in a refit
+     */
+    int[] movedBodies;
+
+    /**
+     * Ids of the bodies of the far field (outside of the far field limit, not in the nodes)
+     */
+    int[] farBodies;
+
+    /**
+     * True for every body (index = id) that belongs to the far field
+     */
+    boolean[] isFarBody;
+
+    /**
+     * Stack of the depth first walk along the space filling curve of the tree (see FlatOctree.fillCurveOrder)
+     */
+    int[] curveStack;
+
+    /**
+     * Constructor
+     */
+    public NodeArena() {
+        this.firstChild = new int[INITIAL_CAPACITY];
+        this.bodyOfNode = new int[INITIAL_CAPACITY];
+        this.numberOfBodiesInNode = new int[INITIAL_CAPACITY];
+        this.nextBody = new int[INITIAL_CAPACITY];
+        this.centerX = new double[INITIAL_CAPACITY];
+        this.centerY = new double[INITIAL_CAPACITY];
+        this.centerZ = new double[INITIAL_CAPACITY];
+        this.edgeLength = new double[INITIAL_CAPACITY];
+        this.totalMass = new double[INITIAL_CAPACITY];
+        this.centerOfMassX = new double[INITIAL_CAPACITY];
+        this.centerOfMassY = new double[INITIAL_CAPACITY];
+        this.centerOfMassZ = new double[INITIAL_CAPACITY];
+        this.quadrupoleXX = new double[0];
+        this.quadrupoleXY = new double[0];
+        this.quadrupoleXZ = new double[0];
+        this.quadrupoleYY = new double[0];
+        this.quadrupoleYZ = new double[0];
+        this.quadrupoleZZ = new double[0];
+        this.floatNodes = new float[0];
+        this.depthFirstNodes = new double[0];
+        this.skip = new int[0];
+        this.depthFirstBody = new int[0];
+        this.depthFirstIndex = new int[0];
+        this.subtreeSize = new int[0];
+        this.keys = new long[0];
+        this.keyBuffer = new long[0];
+        this.order = new int[0];
+        this.orderBuffer = new int[0];
+        this.radixCount = new int[MortonCode.RADIX_SIZE];
+        this.movedBodies = new int[0];
+        this.farBodies = new int[0];
+        this.isFarBody = new boolean[0];
+        this.curveStack = new int[128];
+    }
+
+    /**
+     * Removes all nodes, the arrays are kept.
+     */
+    public void reset() {
+        this.numberOfNodes = 0;
+    }
+
+    /**
+     * Returns the number of nodes the arrays can hold without growing.
+     *
+     * @return Number of nodes
+     */
+    public int getCapacity() {
+        return this.firstChild.length;
+    }
+
+    /**
+     * Makes the node arrays big enough for the specified number of nodes (the size is doubled at least).
+     *
+     * @param capacity Number of nodes
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity <= this.firstChild.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, this.firstChild.length * 2);
+        this.firstChild = Arrays.copyOf(this.firstChild, newCapacity);
+        this.bodyOfNode = Arrays.copyOf(this.bodyOfNode, newCapacity);
+        this.numberOfBodiesInNode = Arrays.copyOf(this.numberOfBodiesInNode, newCapacity);
+        this.centerX = Arrays.copyOf(this.centerX, newCapacity);
+        this.centerY = Arrays.copyOf(this.centerY, newCapacity);
+        this.centerZ = Arrays.copyOf(this.centerZ, newCapacity);
+        this.edgeLength = Arrays.copyOf(this.edgeLength, newCapacity);
+        this.totalMass = Arrays.copyOf(this.totalMass, newCapacity);
+        this.centerOfMassX = Arrays.copyOf(this.centerOfMassX, newCapacity);
+        this.centerOfMassY = Arrays.copyOf(this.centerOfMassY, newCapacity);
+        this.centerOfMassZ = Arrays.copyOf(this.centerOfMassZ, newCapacity);
+    }
+
+    /**
+     * Makes the quadrupole tensors big enough for the specified number of nodes (the content is not kept),
+     * so that trees without quadrupoles do not allocate them.
+     *
+     * @param capacity Number of nodes
+     */
+    void ensureQuadrupoleCapacity(int capacity) {
+        if (capacity > this.quadrupoleXX.length) {
+            int newCapacity = Math.max(capacity, this.quadrupoleXX.length * 2);
+            this.quadrupoleXX = new double[newCapacity];
+            this.quadrupoleXY = new double[newCapacity];
+            this.quadrupoleXZ = new double[newCapacity];
+            this.quadrupoleYY = new double[newCapacity];
+            this.quadrupoleYZ = new double[newCapacity];
+            this.quadrupoleZZ = new double[newCapacity];
+        }
+    }
+
+    /**
+     * Makes the compact float copy big enough for the specified number of nodes (the content is not kept).
+     *
+     * @param capacity Number of nodes
+     * @param nodeSize Number of floats per node
+     */
+    void ensureFloatNodeCapacity(int capacity, int nodeSize) {
+        this.floatNodeSize = nodeSize;
+        if (capacity * nodeSize > this.floatNodes.length) {
+            this.floatNodes = new float[Math.max(capacity * nodeSize, this.floatNodes.length * 2)];
+        }
+    }
+
+    /**
+     * Makes the depth first layout big enough for the specified number of nodes (the content is not kept).
+     *
+     * @param capacity Number of nodes
+     */
+    void ensureDepthFirstCapacity(int capacity) {
+        if (capacity > this.skip.length) {
+            int newCapacity = Math.max(capacity, this.skip.length * 2);
+            this.depthFirstNodes = new double[newCapacity * DEPTH_FIRST_NODE_SIZE];
+            this.skip = new int[newCapacity];
+            this.depthFirstBody = new int[newCapacity];
+            this.depthFirstIndex = new int[newCapacity];
+            this.subtreeSize = new int[newCapacity];
+        }
+    }
+
+    /**
+     * Makes the links of the bodies big enough for the specified number of bodies.
+     *
+     * @param capacity Number of bodies
+     */
+    void ensureBodyCapacity(int capacity) {
+        if (capacity > this.nextBody.length) {
+            this.nextBody = Arrays.copyOf(this.nextBody, Math.max(capacity, this.nextBody.length * 2));
+        }
+    }
+
+    /**
+     * Makes the buffers of the morton code build big enough for the specified number of bodies (the content is not kept).
+     *
+     * @param capacity Number of bodies
+     */
+    void ensureBuildBufferCapacity(int capacity) {
+        if (capacity > this.keys.length) {
+            int newCapacity = Math.max(capacity, this.keys.length * 2);
+            this.keys = new long[newCapacity];
+            this.keyBuffer = new long[newCapacity];
+            this.order = new int[newCapacity];
+            this.orderBuffer = new int[newCapacity];
+        }
+    }
+
+    /**
+     * Makes the buffer of the moved bodies of a refit big enough for the specified number of bodies (the content is not kept).
+     *
+     * @param capacity Number of bodies
+     */
+    void ensureMovedBodiesCapacity(int capacity) {
+        if (capacity > this.movedBodies.length) {
+            this.movedBodies = new int[Math.max(capacity, this.movedBodies.length * 2)];
+        }
+    }
+
+    /**
+     * Makes the far field buffers big enough for the specified number of bodies (the content is not kept).
+     *
+     * @param capacity Number of bodies
+     */
+    void ensureFarBodyCapacity(int capacity) {
+        if (capacity > this.farBodies.length) {
+            int newCapacity = Math.max(capacity, this.farBodies.length * 2);
+            this.farBodies = new int[newCapacity];
+            this.isFarBody = new boolean[newCapacity];
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package mi17bta10.simulation;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * mi17bta10.simulation.Octree class - important for barnes hut algorithm
  */
-public class Octree {
+public class Octree implements BarnesHutTree {
 
     /**
      * mi17bta10.simulation.Cube defines the location and size of the octree-node
@@ -51,6 +53,16 @@ public class Octree {
      */
     private List listOfBodies;
 
+    /**
+     * Number of bodies in the list of bodies
+     */
+    private int numberOfBodies;
+
+    /**
+     * Thread pool for the force calculation
+     */
+    private ForkJoinPool forkJoinPool;
+
     /**
      * Constructor
      *
@@ -63,6 +75,7 @@ public class Octree {
         this.totalMass = 0;
         this.center = cube.getCenter();
         this.listOfBodies = new List();
+        this.forkJoinPool = ForkJoinPool.commonPool();
     }
 
     /**
@@ -72,6 +85,7 @@ public class Octree {
      * @param body Celestial Body that shall be added
      * @return True if body is successfully added and octree and list are changed
      */
+    @Override
     public boolean addToOctree(CelestialBody body) {
         this.depth = 0;
         if (!cube.isInsideCube(body.getPosition())) {
@@ -82,6 +96,7 @@ public class Octree {
             boolean addedToOctreeAsLeaf = addToOctreeAsLeaf(body, this.depth);
             if (addedToOctreeAsLeaf) {
                 this.listOfBodies.addToList(body);
+                this.numberOfBodies++;
             }
 
             return addedToOctreeAsLeaf;
@@ -90,6 +105,7 @@ public class Octree {
         boolean bodyAdded = addToOctree(body, this.depth);
         if (bodyAdded) {
             this.listOfBodies.addToList(body);
+            this.numberOfBodies++;
         }
         return bodyAdded;
     }
@@ -115,9 +131,9 @@ public class Octree {
 
 
         //Case when leaf is split up into eight leaves
-        if (this.value != null && !this.value.getName().equals(body.getName()) && this.isLeaf) {
+        if (this.value != null && this.value.getId() != body.getId() && this.isLeaf) {
             return addSplitLeafIntoChildren(body);
-        } else if (this.value != null && this.value.getName().equals(body.getName())) {
+        } else if (this.value != null && this.value.getId() == body.getId()) {
             return false;
         }
 
@@ -138,8 +154,8 @@ public class Octree {
             this.totalMass += this.children[index].getTotalMass();
             this.centerOfMass = this.centerOfMass.plus(children[index].getCenterOfMass().times(this.children[index].getTotalMass()));
         } else {
-            this.totalMass -= this.children[index].getTotalMass();
             this.centerOfMass = this.centerOfMass.times(this.totalMass).minus(this.children[index].getCenterOfMass().times(this.children[index].getTotalMass()));
+            this.totalMass -= this.children[index].getTotalMass();
 
             bodyAdded = this.children[index].addToOctree(body, depth + 1);
 
@@ -158,9 +174,9 @@ public class Octree {
         boolean bodyAdded = false;
 
         if (this.depth > 10) {
-            CelestialBody body2 = new CelestialBody(this.value.getName(), this.value.getMass() + body.getMass()
+            CelestialBody body2 = new CelestialBody(this.value.getId(), this.value.getName(), this.value.getMass() + body.getMass()
                     , this.value.getMass() + body.getMass(), this.value.getPosition(),
-                    this.value.getVelocity().plus(body.getVelocity()), this.value.getColor());
+                    this.value.getVelocity().plus(body.getVelocity()), this.value.getColor(), 1);
 
             this.totalMass += body.getMass();
             //Center of mass stays the same
@@ -284,25 +300,58 @@ public class Octree {
 
     /**
      * Calculates force exerted on all objects in the tree according to Barnes-Hut Algorithm.
+     * This is done in three phases:
+     * 1. the forces on all bodies are calculated in parallel (thread pool of this tree) - no body is moved yet
+     * 2. all bodies are moved according to their force
+     * 3. all bodies are added to the new tree
      *
      * @param root      Octree with celestial bodies for which the force will be calculated
      * @param newOctree New octree, used for updating positions of the celestial bodies
      */
     public void calculateForcesOnAllBodies(Octree root, Octree newOctree) {
+        CelestialBody[] bodies = new CelestialBody[this.numberOfBodies];
+        int index = 0;
         ListNode currentNode = this.listOfBodies.getHead();
-        CelestialBody currentBody;
-        //for all bodies
         while (currentNode != null) {
-            currentBody = currentNode.getBody();
-            currentBody.setForceOnThisBody(new Vector3(0, 0, 0));
-            //calculate the force that all other bodies exert on this body
-            currentBody.calculateAllForcesOnThisBodyBeginningWithNode(root);
-            //move this body according to calculated force
-            currentBody.move(currentBody.getForceOnThisBody());
-            //update the position of the current body by adding it to the new tree
-            newOctree.addToOctree(currentBody);
+            bodies[index++] = currentNode.getBody();
             currentNode = currentNode.getNext();
         }
+
+        //calculate the force that all other bodies exert on every body
+        ParallelLoop.forEach(this.forkJoinPool, 0, bodies.length, i -> {
+            bodies[i].setForceOnThisBody(new Vector3(0, 0, 0));
+            bodies[i].calculateAllForcesOnThisBodyBeginningWithNode(root);
+        });
+        //move every body according to calculated force
+        for (CelestialBody body : bodies) {
+            body.move(body.getForceOnThisBody());
+        }
+        //update the positions of the bodies by adding them to the new tree
+        for (CelestialBody body : bodies) {
+            newOctree.addToOctree(body);
+        }
+    }
+
+    @Override
+    public void calculateForcesOnAllBodies(BarnesHutTree newTree) {
+        calculateForcesOnAllBodies(this, (Octree) newTree);
+    }
+
+    @Override
+    public BarnesHutTree createEmptyTree() {
+        Octree tree = new Octree(this.cube);
+        tree.forkJoinPool = this.forkJoinPool;
+        return tree;
+    }
+
+    /**
+     * Sets the thread pool for the force calculation.
+     *
+     * @param forkJoinPool Thread pool
+     */
+    @Override
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
     }
 
     /**
@@ -310,6 +359,7 @@ public class Octree {
      *
      * @param viewConstant A parameter that specifies how big a celestial body shall be drawn
      */
+    @Override
     public void displayOctree(double viewConstant) {
         if (this.value != null) {
             double leftDownX = this.cube.getLeftDownCorner().getX();
@@ -343,6 +393,7 @@ public class Octree {
      *
      * @return Total mass of all celestial bodies
      */
+    @Override
     public double getTotalMass() {
         return this.totalMass;
     }
@@ -352,6 +403,7 @@ public class Octree {
      *
      * @return Position of the center of mass of the celestial bodies
      */
+    @Override
     public Vector3 getCenterOfMass() {
         return this.centerOfMass;
     }
@@ -379,16 +431,37 @@ public class Octree {
      *
      * @return Cube of this node (location and size of the node)
      */
+    @Override
     public Cube getCube() {
         return this.cube;
     }
 
+    /**
+     * Draws the celestial bodies of this node.
+     *
+     * @param viewConstant A parameter that specifies how big a celestial body shall be drawn
+     */
+    @Override
+    public void drawBodies(double viewConstant) {
+        ListNode currentNode = this.listOfBodies.getHead();
+        while (currentNode != null) {
+            currentNode.getBody().draw(viewConstant);
+            currentNode = currentNode.getNext();
+        }
+    }
+
     /**
      * Returns the list of celestial bodies of this node
      *
      * @return List of celestial bodies of this node
      */
+    @Override
     public List getListOfBodies() {
         return this.listOfBodies;
     }
+
+    @Override
+    public int getNumberOfBodies() {
+        return this.numberOfBodies;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package mi17bta10.simulation;
+
+/**
+ * Opening criterion of the iterative walk: decides if a node is far enough from a body to be used as a single body
+ * (accepted) or if it has to be opened (its children are visited, or the bodies of a leaf are summed up directly).
+ * The criteria are compared by the force error and the number of opened nodes (see IterativeTreeWalk.getNumberOfOpenedNodes).
+ */
+public interface OpeningCriterion {
+
+    /**
+     * Prepares the data that the criterion needs for the tree (e.g. data of the nodes),
+     * called once before the accelerations of the bodies are calculated with the tree.
+     *
+     * @param tree Tree with all bodies (masses and centers of mass are calculated)
+     */
+    void prepare(FlatOctree tree);
+
+    /**
+     * Returns true if the node is far enough from the body to be used as a single body.
+     *
+     * @param tree     Tree with all bodies
+     * @param node     Index of the node (not empty)
+     * @param id       Id of the body in the body store of the tree
+     * @param distance Distance between the body and the center of mass of the node
+     * @return True if the node is accepted, false if it has to be opened
+     */
+    boolean isFarEnough(FlatOctree tree, int node, int id, double distance);
+}
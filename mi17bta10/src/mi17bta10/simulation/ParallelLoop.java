@@ -0,0 +1,84 @@
+package mi17bta10.simulation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs a loop over indices (e.g. the bodies of a tree) in parallel with a fork join pool.
+ * The indices are split up into chunks, every chunk is run by one thread.
+ */
+public class ParallelLoop {
+
+    /**
+     * Default for the number of indices that are run by one task
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private ParallelLoop() {
+    }
+
+    /**
+     * Runs the action for all indices from 'from' to 'to' - 1 and returns when all are done.
+     * The action must only change data that belongs to its index.
+     *
+     * @param pool   Thread pool that runs the loop
+     * @param from   First index
+     * @param to     Last index + 1
+     * @param action Action that is run for every index
+     */
+    public static void forEach(ForkJoinPool pool, int from, int to, IntConsumer action) {
+        forEach(pool, from, to, DEFAULT_CHUNK_SIZE, action);
+    }
+
+    /**
+     * Runs the action for all indices from 'from' to 'to' - 1 and returns when all are done.
+     * The action must only change data that belongs to its index.
+     *
+     * @param pool      Thread pool that runs the loop
+     * @param from      First index
+     * @param to        Last index + 1
+     * @param chunkSize Number of indices that are run by one task
+     * @param action    Action that is run for every index
+     */
+    public static void forEach(ForkJoinPool pool, int from, int to, int chunkSize, IntConsumer action) {
+        if (to - from <= chunkSize || pool.getParallelism() == 1) {
+            for (int i = from; i < to; i++) {
+                action.accept(i);
+            }
+            return;
+        }
+        pool.invoke(new LoopTask(from, to, Math.max(1, chunkSize), action));
+    }
+
+    /**
+     * Task that splits its indices in half until a chunk is small enough
+     */
+    private static class LoopTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to, chunkSize;
+        private final IntConsumer action;
+
+        LoopTask(int from, int to, int chunkSize, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= this.chunkSize) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.action.accept(i);
+                }
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new LoopTask(this.from, middle, this.chunkSize, this.action),
+                    new LoopTask(middle, this.to, this.chunkSize, this.action));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package mi17bta10.simulation;
+
+/**
+ * Force engine that uses the recursive barnes hut walk of the celestial bodies
+ * (CelestialBody.calculateAllForcesOnThisBodyBeginningWithNode), the force is converted to an acceleration.
+ */
+public class RecursiveTreeWalk implements ForceEngine {
+
+    @Override
+    public void calculateAccelerations(FlatOctree tree) {
+        BodyStore bodies = tree.getBodyStore();
+        double[] accelerationX = bodies.getAccelerationX();
+        double[] accelerationY = bodies.getAccelerationY();
+        double[] accelerationZ = bodies.getAccelerationZ();
+        ParallelLoop.forEach(tree.getForkJoinPool(), 0, tree.getNumberOfBodies(), id -> {
+            CelestialBody body = bodies.toCelestialBody(id);
+            body.calculateAllForcesOnThisBodyBeginningWithNode(tree, FlatOctree.ROOT);
+            Vector3 force = body.getForceOnThisBody();
+            accelerationX[id] = force.getX() / body.getMass();
+            accelerationY[id] = force.getY() / body.getMass();
+            accelerationZ[id] = force.getZ() / body.getMass();
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package mi17bta10.simulation;
+
+/**
+ * Relative opening criterion (as in GADGET): a node is accepted if the estimated error of its force is small
+ * compared to the total acceleration of the body in the last step: G * M * l^2 / r^4 <= alpha * |a_old|
+ * (M mass, l edge length and r distance of the node). Bodies with a large acceleration accept bigger nodes,
+ * so the force error is about the same for all bodies (not the same error per node as with theta).
+ * A node is always opened if the body is inside of the cube of the node enlarged by 20 % (the mass of the node can
+ * be anywhere in the cube), and bodies without an acceleration of the last step (first step) use the geometric criterion.
+ * The accelerations of the last step are copied from the body store in prepare, so they have to be stored there
+ * (they are overwritten by the walk).
+ */
+public class RelativeCriterion implements OpeningCriterion {
+
+    /**
+     * Default alpha
+     */
+    public static final double DEFAULT_ALPHA = 0.005;
+
+    /**
+     * Factor of the acceleration of the last step that the estimated error of a node may have
+     */
+    private final double alpha;
+
+    /**
+     * Criterion for bodies without an acceleration of the last step
+     */
+    private final GeometricCriterion firstStepCriterion;
+
+    /**
+     * Acceleration of the last step for every body (index = id), kept for the next tree
+     */
+    private double[] lastAcceleration;
+
+    /**
+     * Constructor with the default alpha and the theta of the simulation for the first step
+     */
+    public RelativeCriterion() {
+        this(DEFAULT_ALPHA, Constants.theta);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param alpha Factor of the acceleration of the last step that the estimated error of a node may have
+     * @param theta theta of the geometric criterion for bodies without an acceleration of the last step
+     */
+    public RelativeCriterion(double alpha, double theta) {
+        this.alpha = alpha;
+        this.firstStepCriterion = new GeometricCriterion(theta);
+        this.lastAcceleration = new double[0];
+    }
+
+    @Override
+    public void prepare(FlatOctree tree) {
+        BodyStore bodies = tree.getBodyStore();
+        int n = bodies.size();
+        if (this.lastAcceleration.length < n) {
+            this.lastAcceleration = new double[Math.max(n, this.lastAcceleration.length * 2)];
+        }
+        double[] ax = bodies.getAccelerationX(), ay = bodies.getAccelerationY(), az = bodies.getAccelerationZ();
+        for (int id = 0; id < n; id++) {
+            this.lastAcceleration[id] = Math.sqrt(ax[id] * ax[id] + ay[id] * ay[id] + az[id] * az[id]);
+        }
+    }
+
+    @Override
+    public boolean isFarEnough(FlatOctree tree, int node, int id, double distance) {
+        double acceleration = this.lastAcceleration[id];
+        if (acceleration == 0) {
+            return this.firstStepCriterion.isFarEnough(tree, node, id, distance);
+        }
+        BodyStore bodies = tree.getBodyStore();
+        double edgeLength = tree.getEdgeLength(node), halfLength = 0.6 * edgeLength;
+        if (Math.abs(bodies.getPositionX()[id] - tree.getCenterX(node)) < halfLength
+                && Math.abs(bodies.getPositionY()[id] - tree.getCenterY(node)) < halfLength
+                && Math.abs(bodies.getPositionZ()[id] - tree.getCenterZ(node)) < halfLength) {
+            return false; //inside of the enlarged cube of the node
+        }
+        double distanceSquared = distance * distance;
+        return Constants.G * tree.getTotalMass(node) * edgeLength * edgeLength <= this.alpha * acceleration * distanceSquared * distanceSquared;
+    }
+}
@@ -3,21 +3,37 @@ package mi17bta10.simulation;
 import mi17bta10.generateSimulationData.GenerateSimulationData;
 import mi17bta10.generateSimulationData.SimulationType;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Specifies what kind of simulation type shall be simulated,
  * and contains the endless loop which is for the move-calc-cycle.
  */
 public class Simulation {
-    private static Octree root;
+    private static BarnesHutTree root;
 
+    /**
+     * Starts the simulation.
+     *
+     * @param args Optional: 1. the tree implementation (see TreeType), e.g. OCTREE - default is FLAT_OCTREE
+     *             2. the number of threads for the force calculation - default is the number of processors
+     */
     public static void main(String[] args) {
+        TreeType treeType = args.length > 0 ? TreeType.valueOf(args[0]) : TreeType.FLAT_OCTREE;
+        int numberOfThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
 
         GenerateSimulationData genData = new GenerateSimulationData(10000, SimulationType.COOL_STUFF);
         double genLength = genData.getEdgeLengthOfSimulatedArea();
         double viewConstant = genData.getViewConstant();
 
-        Cube cube = new Cube(new Vector3(-genLength / 2, -genLength / 2, -genLength / 2), genLength);
-        Octree tree = genData.generateAsTree();
+        BarnesHutTree tree = genData.generateAsTree(treeType);
+        tree.setForkJoinPool(new ForkJoinPool(numberOfThreads));
+        if (tree instanceof FlatOctree) {
+            //direct summation or tree walk, whichever is faster for the number of bodies
+            ((FlatOctree) tree).setForceEngine(new AutomaticForceEngine());
+            //second order, the energy stays stable with larger time steps than with the symplectic euler
+            ((FlatOctree) tree).setIntegrator(new LeapfrogIntegrator());
+        }
         System.out.println("-Generate data complete");
 
         root = tree;
@@ -34,7 +50,7 @@ public class Simulation {
         displayCelestialBodies(tree, false, viewConstant);
         StdDraw.show();
         System.out.println("-Init finished");
-        Octree newOctree;
+        BarnesHutTree newOctree;
         long calcTimeStart = 0, calcTimeEnd = 0, calcTimeDif = 0;
         while (true) {
             long startTime = System.nanoTime();
@@ -43,12 +59,17 @@ public class Simulation {
             displayCelestialBodies(tree, false, viewConstant);
             StdDraw.show();
             long endTime = System.nanoTime();
-            System.out.println("Print - Display time: " + (endTime - startTime) / 10e6 + ":: - Calc time: " + calcTimeDif / 10e6);
+            System.out.println("Print - Display time: " + (endTime - startTime) / 1e6 + "ms :: - Calc time: " + calcTimeDif / 1e6 + "ms");
 
             calcTimeStart = System.nanoTime();
-            newOctree = new Octree(cube);
-            tree.calculateForcesOnAllBodies(tree, newOctree);
+            int numberOfBodies = tree.getNumberOfBodies();
+            newOctree = tree.createEmptyTree();
+            tree.calculateForcesOnAllBodies(newOctree);
             tree = newOctree;
+            if (tree.getNumberOfBodies() < numberOfBodies) {
+                //the octree (and the flat octree without auto bounds) removes the bodies outside of its cube
+                System.out.println("-Warning: " + (numberOfBodies - tree.getNumberOfBodies()) + " bodies left the simulated area and were removed");
+            }
             calcTimeEnd = System.nanoTime();
             calcTimeDif = calcTimeEnd - calcTimeStart;
 
@@ -56,13 +77,13 @@ public class Simulation {
     }
 
     /**
-     * Prints names and positions of all celestial bodies in the tree.
+     * Prints ids, names and positions of all celestial bodies in the tree.
      *
-     * @param tree Octree with celestial bodies whose names and positions shall be printed
+     * @param tree Octree with celestial bodies whose ids, names and positions shall be printed
      */
     private static void print(Octree tree) {
         if (tree != null && tree.getValue() != null) {
-            System.out.println(tree.getValue().getName() + " " + tree.getValue().getPosition());
+            System.out.println(tree.getValue().getId() + " " + tree.getValue().getName() + " " + tree.getValue().getPosition());
         }
 
         for (int i = 0; i < tree.getChildren().length; i++) {
@@ -79,19 +100,12 @@ public class Simulation {
      * @param drawEdges    A parameter that specifies if edges should be drawn or not
      * @param viewConstant A parameter that specifies how big a celestial body shall be drawn
      */
-    private static void displayCelestialBodies(Octree root, boolean drawEdges, double viewConstant) {
+    private static void displayCelestialBodies(BarnesHutTree root, boolean drawEdges, double viewConstant) {
         if (drawEdges) {
             root.displayOctree(viewConstant);
 
         } else {
-            List listOfBodies = root.getListOfBodies();
-            ListNode currentNode = listOfBodies.getHead();
-            CelestialBody currentBody;
-            while (currentNode != null) {
-                currentBody = currentNode.getBody();
-                currentBody.draw(viewConstant);
-                currentNode = currentNode.getNext();
-            }
+            root.drawBodies(viewConstant);
         }
     }
 }
\ No newline at end of file
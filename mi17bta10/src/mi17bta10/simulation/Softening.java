@@ -0,0 +1,131 @@
+package mi17bta10.simulation;
+
+/**
+ * Softening of the gravitational force of two close bodies: the force of a close encounter stays finite,
+ * so the time step does not have to resolve it. Every kernel calculates the acceleration as
+ * a = G * m * r * factor(|r|^2), r from the body to the mass, factor(|r|^2) = 1 / |r|^3 without softening.
+ * Both types have the same potential -G * m / epsilon at r = 0, so they soften about the same distances
+ * with the same softening length epsilon.
+ * A softening is immutable and set in the flat octree (FlatOctree.setSoftening), the force engines take it from the tree.
+ * The quadrupole moments and the higher terms of the fast multipole method are not softened,
+ * they are only used for nodes that are far enough (the spline kernel is exact there if the nodes are farther away than h).
+ */
+public class Softening {
+
+    /**
+     * Newtonian force without softening
+     */
+    public static final Softening NONE = new Softening(SofteningType.NONE, 0);
+
+    /**
+     * Ratio of the radius of the spline kernel and epsilon
+     */
+    public static final double SPLINE_RADIUS_FACTOR = 2.8;
+
+    private final SofteningType type;
+
+    /**
+     * Softening length in m
+     */
+    private final double length;
+
+    /**
+     * epsilon^2 for the Plummer softening, h^2 and 1/h for the spline kernel
+     */
+    private final double lengthSquared, splineRadiusSquared, inverseSplineRadius;
+
+    /**
+     * Constructor
+     *
+     * @param type   How the force is softened
+     * @param length Softening length epsilon in m (ignored without softening)
+     */
+    public Softening(SofteningType type, double length) {
+        if (type != SofteningType.NONE && !(length > 0)) {
+            throw new IllegalArgumentException("The softening length has to be greater than 0: " + length);
+        }
+        this.type = type;
+        this.length = type == SofteningType.NONE ? 0 : length;
+        this.lengthSquared = type == SofteningType.PLUMMER ? length * length : 0;
+        double splineRadius = SPLINE_RADIUS_FACTOR * length;
+        this.splineRadiusSquared = type == SofteningType.SPLINE ? splineRadius * splineRadius : 0;
+        this.inverseSplineRadius = type == SofteningType.SPLINE ? 1 / splineRadius : 0;
+    }
+
+    /**
+     * Returns the factor of the acceleration: a = G * m * r * factor(|r|^2) (1 / |r|^3 without softening).
+     * The factor is 0 for two bodies at the same position without softening.
+     *
+     * @param distanceSquared Squared distance |r|^2 between the body and the mass
+     * @return Factor of the acceleration
+     */
+    public double factor(double distanceSquared) {
+        if (distanceSquared >= this.splineRadiusSquared) {
+            //no softening, Plummer softening, or spline kernel outside of h
+            double softenedSquared = distanceSquared + this.lengthSquared;
+            return softenedSquared > 0 ? 1 / (softenedSquared * Math.sqrt(softenedSquared)) : 0;
+        }
+        //spline kernel inside of h, u = r / h
+        double inverseRadius = this.inverseSplineRadius;
+        double inverseRadiusPow3 = inverseRadius * inverseRadius * inverseRadius;
+        double u = Math.sqrt(distanceSquared) * inverseRadius;
+        if (u < 0.5) {
+            return inverseRadiusPow3 * (32.0 / 3 + u * u * (32 * u - 38.4));
+        }
+        return inverseRadiusPow3 * (64.0 / 3 - 48 * u + 38.4 * u * u - 32.0 / 3 * u * u * u - 1.0 / 15 / (u * u * u));
+    }
+
+    /**
+     * Returns the factor of the potential: phi = -G * m * potentialFactor(|r|^2) (1 / |r| without softening),
+     * the force of factor is the gradient of this potential (needed for the energy of a softened system).
+     *
+     * @param distanceSquared Squared distance |r|^2 between the body and the mass (greater than 0 without softening)
+     * @return Factor of the potential
+     */
+    public double potentialFactor(double distanceSquared) {
+        if (distanceSquared >= this.splineRadiusSquared) {
+            return 1 / Math.sqrt(distanceSquared + this.lengthSquared);
+        }
+        //spline kernel inside of h, u = r / h, phi(0) = -G * m * 2.8 / h = -G * m / epsilon
+        double inverseRadius = this.inverseSplineRadius;
+        double u = Math.sqrt(distanceSquared) * inverseRadius;
+        if (u < 0.5) {
+            return inverseRadius * (2.8 - u * u * (16.0 / 3 + u * u * (6.4 * u - 9.6)));
+        }
+        return inverseRadius * (3.2 - 1.0 / 15 / u - u * u * (32.0 / 3 + u * (-16 + u * (9.6 - 32.0 / 15 * u))));
+    }
+
+    /**
+     * Returns how the force is softened.
+     *
+     * @return Type of the softening
+     */
+    public SofteningType getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the softening length epsilon.
+     *
+     * @return Softening length in m, 0 without softening
+     */
+    public double getLength() {
+        return this.length;
+    }
+
+    /**
+     * Returns the distance from which on the force is Newtonian (the radius h of the spline kernel).
+     *
+     * @return Distance in m, 0 without softening and infinity for the Plummer softening
+     */
+    public double getNewtonianDistance() {
+        switch (this.type) {
+            case PLUMMER:
+                return Double.POSITIVE_INFINITY;
+            case SPLINE:
+                return SPLINE_RADIUS_FACTOR * this.length;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package mi17bta10.simulation;
+
+/**
+ * Enum that specifies how the gravitational force of two close bodies is softened (see Softening).
+ */
+public enum SofteningType {
+    /**
+     * Newtonian force, it grows without limit for close bodies
+     */
+    NONE,
+    /**
+     * Plummer softening: the distance is replaced by sqrt(r^2 + epsilon^2), the force is changed at every distance
+     */
+    PLUMMER,
+    /**
+     * Spline kernel (as in GADGET): the mass is smeared out with a cubic spline of radius h = 2.8 * epsilon,
+     * the force is Newtonian from h on
+     */
+    SPLINE
+}
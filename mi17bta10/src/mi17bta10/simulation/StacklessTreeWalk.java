@@ -0,0 +1,99 @@
+package mi17bta10.simulation;
+
+/**
+ * Force engine with a stackless barnes hut walk on the depth first layout of the nodes (see FlatOctree.calculateDepthFirstLayout):
+ * the walk is one forward loop over the positions of the layout, an opened node is followed by its first child at the next position,
+ * an accepted node (or a leaf whose bodies are summed up directly) is left with a jump to its skip position.
+ * So no stack is needed, the empty nodes are not in the layout, and the node data is read in the order of the memory.
+ * The same nodes as in the iterative walk are accepted (geometric criterion with theta), in the same order,
+ * quadrupole moments and the softening of the tree are used.
+ */
+public class StacklessTreeWalk implements ForceEngine {
+
+    /**
+     * Sum of the acceleration (x, y, z) for every thread
+     */
+    private final ThreadLocal<double[]> accelerations = ThreadLocal.withInitial(() -> new double[3]);
+
+    /**
+     * A node is accepted if the ratio of its distance and its edge length is greater than theta
+     */
+    private final double theta;
+
+    /**
+     * Constructor with the theta of the simulation (Constants.theta)
+     */
+    public StacklessTreeWalk() {
+        this(Constants.theta);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param theta A node is accepted if the ratio of its distance and its edge length is greater than theta
+     */
+    public StacklessTreeWalk(double theta) {
+        this.theta = theta;
+    }
+
+    @Override
+    public void calculateAccelerations(FlatOctree tree) {
+        tree.calculateDepthFirstLayout();
+        ParallelLoop.forEach(tree.getForkJoinPool(), 0, tree.getNumberOfBodies(), id -> calculateAcceleration(tree, id));
+    }
+
+    /**
+     * Calculates the acceleration that all other bodies exert on one body, it is stored in the body store of the tree.
+     * The depth first layout of the tree has to be calculated.
+     *
+     * @param tree Tree with all bodies
+     * @param id   Id of the body in the body store of the tree
+     */
+    private void calculateAcceleration(FlatOctree tree, int id) {
+        BodyStore bodies = tree.getBodyStore();
+        double x = bodies.getPositionX()[id], y = bodies.getPositionY()[id], z = bodies.getPositionZ()[id];
+        double[] acceleration = this.accelerations.get();
+        acceleration[0] = 0;
+        acceleration[1] = 0;
+        acceleration[2] = 0;
+        boolean useQuadrupoles = tree.hasQuadrupoles();
+        Softening softening = tree.getSoftening();
+        double[] depthFirstNodes = tree.getDepthFirstNodes();
+
+        int numberOfNodes = tree.getNumberOfDepthFirstNodes();
+        int position = 0;
+        while (position < numberOfNodes) {
+            int index = position * NodeArena.DEPTH_FIRST_NODE_SIZE;
+            double dx = depthFirstNodes[index] - x;
+            double dy = depthFirstNodes[index + 1] - y;
+            double dz = depthFirstNodes[index + 2] - z;
+            double mass = depthFirstNodes[index + 3];
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            boolean isFarEnough = distance / depthFirstNodes[index + 4] > this.theta;
+            int firstBody = tree.getDepthFirstBody(position);
+
+            if (firstBody != FlatOctree.NONE && (!isFarEnough || tree.isInsideNode(tree.getDepthFirstIndex(position), x, y, z))) {
+                //leaf that is too close (or contains this body): sum up the bodies of the leaf directly
+                tree.addLeafAcceleration(firstBody, id, x, y, z, acceleration);
+                position = tree.getSkip(position);
+            } else if (isFarEnough) {
+                //the node is far enough, it is treated as a single body
+                double factor = Constants.G * mass * softening.factor(distance * distance);
+                acceleration[0] += dx * factor;
+                acceleration[1] += dy * factor;
+                acceleration[2] += dz * factor;
+                if (useQuadrupoles) {
+                    tree.addQuadrupoleAcceleration(tree.getDepthFirstIndex(position), dx, dy, dz, distance, acceleration);
+                }
+                position = tree.getSkip(position);
+            } else {
+                //open the node: its first non-empty child is at the next position
+                position++;
+            }
+        }
+
+        bodies.getAccelerationX()[id] = acceleration[0];
+        bodies.getAccelerationY()[id] = acceleration[1];
+        bodies.getAccelerationZ()[id] = acceleration[2];
+    }
+}
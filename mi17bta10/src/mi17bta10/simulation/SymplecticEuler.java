@@ -0,0 +1,22 @@
+package mi17bta10.simulation;
+
+/**
+ * Integrator of first order (same as CelestialBody.move): the velocity is updated with the acceleration first,
+ * then the position with the new velocity. The velocities in the store are the velocities of the bodies.
+ */
+public class SymplecticEuler implements Integrator {
+
+    @Override
+    public void step(BodyStore bodies) {
+        for (int id = 0; id < bodies.size(); id++) {
+            bodies.move(id);
+        }
+    }
+
+    @Override
+    public void synchronizeVelocities(BodyStore bodies, double[] velocityX, double[] velocityY, double[] velocityZ) {
+        System.arraycopy(bodies.getVelocityX(), 0, velocityX, 0, bodies.size());
+        System.arraycopy(bodies.getVelocityY(), 0, velocityY, 0, bodies.size());
+        System.arraycopy(bodies.getVelocityZ(), 0, velocityZ, 0, bodies.size());
+    }
+}
@@ -0,0 +1,24 @@
+package mi17bta10.simulation;
+
+/**
+ * Enum that specifies how the next FlatOctree is built in a calc-move cycle.
+ */
+public enum TreeBuildMode {
+    /**
+     * Every body is added on its own, beginning at the root (addToOctree)
+     */
+    INSERTION,
+    /**
+     * The bodies are sorted by their morton code and the tree is built in one pass over the sorted bodies
+     */
+    MORTON,
+    /**
+     * The bodies are split up by the children of the root (and below), the parts are built at the same time (fork join pool)
+     */
+    PARALLEL,
+    /**
+     * The tree of the last cycle is reused, only the bodies that left their leaf are added again
+     * (the tree is built with morton codes if it gets too unbalanced)
+     */
+    REFIT
+}
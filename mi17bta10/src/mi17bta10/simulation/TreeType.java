@@ -0,0 +1,34 @@
+package mi17bta10.simulation;
+
+/**
+ * Enum that specifies which tree implementation is used for the simulation.
+ */
+public enum TreeType {
+    OCTREE,
+    FLAT_OCTREE,
+    FLAT_OCTREE_MORTON,
+    FLAT_OCTREE_PARALLEL,
+    FLAT_OCTREE_REFIT;
+
+    /**
+     * Creates a new empty tree of this type.
+     *
+     * @param cube The space that the tree contains
+     * @return New empty tree of this type
+     */
+    public BarnesHutTree createTree(Cube cube) {
+        switch (this) {
+            case FLAT_OCTREE:
+                return new FlatOctree(cube);
+            case FLAT_OCTREE_MORTON:
+                return new FlatOctree(cube, TreeBuildMode.MORTON);
+            case FLAT_OCTREE_PARALLEL:
+                return new FlatOctree(cube, TreeBuildMode.PARALLEL);
+            case FLAT_OCTREE_REFIT:
+                return new FlatOctree(cube, TreeBuildMode.REFIT);
+            case OCTREE:
+            default:
+                return new Octree(cube);
+        }
+    }
+}
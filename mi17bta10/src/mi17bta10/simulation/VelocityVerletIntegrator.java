@@ -0,0 +1,111 @@
+package mi17bta10.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Velocity Verlet integrator of second order: x(t + dt) = x(t) + v(t) * dt + a(t) * dt^2/2,
+ * v(t + dt) = v(t) + (a(t) + a(t + dt)) * dt/2.
+ * The acceleration of the last step is kept in own arrays, the velocity update of a step is finished
+ * with the acceleration of the next step, so the velocities in the store belong to the positions before the last step.
+ * It moves the bodies on the same path as the leapfrog, but needs the accelerations of the last step.
+ * Bodies that are added to the store (at the end) start without a velocity update, if bodies are removed the accelerations
+ * of the kept bodies are moved to their new ids.
+ */
+public class VelocityVerletIntegrator implements Integrator {
+
+    /**
+     * Accelerations of the last step
+     */
+    private double[] lastAccelerationX, lastAccelerationY, lastAccelerationZ;
+
+    /**
+     * The bodies with an id smaller than this number have an acceleration of the last step
+     */
+    private int numberOfStartedBodies;
+
+    /**
+     * Constructor
+     */
+    public VelocityVerletIntegrator() {
+        this.lastAccelerationX = new double[0];
+        this.lastAccelerationY = new double[0];
+        this.lastAccelerationZ = new double[0];
+    }
+
+    @Override
+    public void step(BodyStore bodies) {
+        int n = bodies.size();
+        if (this.lastAccelerationX.length < n) {
+            int capacity = Math.max(n, this.lastAccelerationX.length * 2);
+            this.lastAccelerationX = Arrays.copyOf(this.lastAccelerationX, capacity);
+            this.lastAccelerationY = Arrays.copyOf(this.lastAccelerationY, capacity);
+            this.lastAccelerationZ = Arrays.copyOf(this.lastAccelerationZ, capacity);
+        }
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ();
+        double[] vx = bodies.getVelocityX(), vy = bodies.getVelocityY(), vz = bodies.getVelocityZ();
+        double[] ax = bodies.getAccelerationX(), ay = bodies.getAccelerationY(), az = bodies.getAccelerationZ();
+        double[] lastX = this.lastAccelerationX, lastY = this.lastAccelerationY, lastZ = this.lastAccelerationZ;
+        double[] timeStep = bodies.getTimeStep();
+        int started = Math.min(this.numberOfStartedBodies, n);
+        for (int id = 0; id < n; id++) {
+            double dt = timeStep[id];
+            if (id < started) {
+                //finish the velocity of the last step
+                vx[id] += (lastX[id] + ax[id]) * dt / 2;
+                vy[id] += (lastY[id] + ay[id]) * dt / 2;
+                vz[id] += (lastZ[id] + az[id]) * dt / 2;
+            }
+            x[id] += (vx[id] + ax[id] * dt / 2) * dt;
+            y[id] += (vy[id] + ay[id] * dt / 2) * dt;
+            z[id] += (vz[id] + az[id] * dt / 2) * dt;
+            lastX[id] = ax[id];
+            lastY[id] = ay[id];
+            lastZ[id] = az[id];
+        }
+        this.numberOfStartedBodies = n;
+    }
+
+    @Override
+    public void synchronizeVelocities(BodyStore bodies, double[] velocityX, double[] velocityY, double[] velocityZ) {
+        double[] timeStep = bodies.getTimeStep();
+        int started = Math.min(this.numberOfStartedBodies, bodies.size());
+        for (int id = 0; id < bodies.size(); id++) {
+            velocityX[id] = bodies.getVelocityX()[id];
+            velocityY[id] = bodies.getVelocityY()[id];
+            velocityZ[id] = bodies.getVelocityZ()[id];
+            if (id < started) {
+                //the velocity update of the last step is not finished yet
+                double dt = timeStep[id];
+                velocityX[id] += (this.lastAccelerationX[id] + bodies.getAccelerationX()[id]) * dt / 2;
+                velocityY[id] += (this.lastAccelerationY[id] + bodies.getAccelerationY()[id]) * dt / 2;
+                velocityZ[id] += (this.lastAccelerationZ[id] + bodies.getAccelerationZ()[id]) * dt / 2;
+            }
+        }
+    }
+
+    @Override
+    public void reorderBodies(int[] order, int size) {
+        this.lastAccelerationX = reorder(this.lastAccelerationX, order, size);
+        this.lastAccelerationY = reorder(this.lastAccelerationY, order, size);
+        this.lastAccelerationZ = reorder(this.lastAccelerationZ, order, size);
+    }
+
+    @Override
+    public void removeBodies(int[] keptIds, int size) {
+        this.numberOfStartedBodies = LeapfrogIntegrator.countStartedBodies(keptIds, size, this.numberOfStartedBodies);
+        //the id of a kept body gets smaller or stays the same, so the accelerations can be moved forward in place
+        for (int id = 0; id < this.numberOfStartedBodies; id++) {
+            this.lastAccelerationX[id] = this.lastAccelerationX[keptIds[id]];
+            this.lastAccelerationY[id] = this.lastAccelerationY[keptIds[id]];
+            this.lastAccelerationZ[id] = this.lastAccelerationZ[keptIds[id]];
+        }
+    }
+
+    private static double[] reorder(double[] values, int[] order, int size) {
+        double[] reordered = new double[values.length];
+        for (int id = 0; id < size; id++) {
+            reordered[id] = values[order[id]];
+        }
+        return reordered;
+    }
+}
@@ -12,13 +12,19 @@ public class AutomaticTests {
 
         CubeTest cubeTest = new CubeTest();
         OctreeTest octreeTestInstance = new OctreeTest();
+        FlatOctreeTest flatOctreeTest = new FlatOctreeTest();
+        IntegratorTest integratorTest = new IntegratorTest();
         SpeedTests speedTests = new SpeedTests();
 
         cubeTest.startTests();
         octreeTestInstance.startTests();
+        flatOctreeTest.startTests();
+        integratorTest.startTests();
 
         cubeTest.printResults();
         octreeTestInstance.printResults();
+        flatOctreeTest.printResults();
+        integratorTest.printResults();
 
         speedTests.startTests();
         speedTests.printResults();
@@ -0,0 +1,1186 @@
+package mi17bta10.tests;
+
+import mi17bta10.generateSimulationData.GenerateSimulationData;
+import mi17bta10.generateSimulationData.SimulationType;
+import mi17bta10.simulation.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test class for the array based octree, the results are compared to the Octree
+ */
+public class FlatOctreeTest implements TestInterface {
+
+    private boolean isMassCalculationEqual, isForceCalculationEqual, isMortonBuildEqual, isParallelBuildEqual;
+    private boolean isIterativeWalkEqual, areBucketsCorrect, areCloseBodiesKept, isRefitCorrect;
+    private boolean isArenaReused, areEscapingBodiesKept, isFarFieldCorrect, areQuadrupolesCorrect, isFastMultipoleMethodCorrect, isGroupedWalkCorrect, isForceKernelCorrect, isDirectSummationCorrect, areOpeningCriteriaCorrect, isSofteningConsistent, isMixedPrecisionExact, areInteractionListsCached, areCostZonesBalanced, isReorderingCorrect, isStacklessWalkEqual;
+    private double monopoleForceError, quadrupoleForceError, fastMultipoleForceError, treeWalkForceError, groupedWalkForceError;
+    private double bucketForceError, singleBodyLeafForceError;
+    private double averageForceDifference;
+    private double costZoneImbalance, equalChunkImbalance;
+    private double reorderedNeighborDistance, unorderedNeighborDistance;
+    private final SimulationType[] mixedPrecisionSimulationTypes = SimulationType.values();
+    private final double[] mixedPrecisionErrors = new double[mixedPrecisionSimulationTypes.length];
+    private final double[] mixedPrecisionQuadrupoleErrors = new double[mixedPrecisionSimulationTypes.length];
+    private int numberOfCelestialBodies;
+
+    private static final int NONE_FOUND = -1;
+
+    @Override
+    public void startTests() {
+        this.numberOfCelestialBodies = 1000;
+        this.isMassCalculationEqual = testMassCalculation(this.numberOfCelestialBodies);
+        this.isForceCalculationEqual = testForceCalculation(this.numberOfCelestialBodies);
+        this.isMortonBuildEqual = testBuildMode(TreeBuildMode.MORTON, this.numberOfCelestialBodies);
+        this.isParallelBuildEqual = testBuildMode(TreeBuildMode.PARALLEL, this.numberOfCelestialBodies);
+        this.isIterativeWalkEqual = testIterativeWalk(this.numberOfCelestialBodies);
+        this.areBucketsCorrect = testLeafCapacity(16, this.numberOfCelestialBodies);
+        this.areCloseBodiesKept = testCloseBodies();
+        this.isRefitCorrect = testRefit(this.numberOfCelestialBodies, 20);
+        this.isArenaReused = testArenaReuse(this.numberOfCelestialBodies, 10);
+        this.areEscapingBodiesKept = testAutoBounds(this.numberOfCelestialBodies, 0, 20);
+        this.isFarFieldCorrect = testAutoBounds(this.numberOfCelestialBodies, 0.5, 20);
+        this.areQuadrupolesCorrect = testQuadrupoles(this.numberOfCelestialBodies);
+        this.isFastMultipoleMethodCorrect = testFastMultipoleMethod(this.numberOfCelestialBodies);
+        this.isGroupedWalkCorrect = testGroupedWalk(this.numberOfCelestialBodies);
+        this.isForceKernelCorrect = testForceKernel(1003);
+        this.isDirectSummationCorrect = testDirectSummation(this.numberOfCelestialBodies);
+        this.areOpeningCriteriaCorrect = testOpeningCriteria(this.numberOfCelestialBodies);
+        this.isSofteningConsistent = testSoftening(this.numberOfCelestialBodies);
+        this.isMixedPrecisionExact = testMixedPrecision(this.numberOfCelestialBodies);
+        this.areInteractionListsCached = testInteractionListCache(this.numberOfCelestialBodies, 10);
+        this.areCostZonesBalanced = testCostZones(this.numberOfCelestialBodies, 8);
+        this.isReorderingCorrect = testReordering(this.numberOfCelestialBodies, 10, 3);
+        this.isStacklessWalkEqual = testStacklessWalk(this.numberOfCelestialBodies, 10);
+    }
+
+    @Override
+    public void printResults() {
+        System.out.println("-" + this.isMassCalculationEqual + ":: Is the mass calculation of the flat octree the same as in the octree?");
+        System.out.println("-" + this.isForceCalculationEqual + ":: Is the force calculation of the flat octree the same as in the octree?");
+        System.out.println("-" + this.isMortonBuildEqual + ":: Does the morton code build create the same tree as adding the bodies one by one?");
+        System.out.println("-" + this.isParallelBuildEqual + ":: Does the parallel build create the same tree as adding the bodies one by one?");
+        System.out.println("-" + this.isIterativeWalkEqual + ":: Does the iterative walk calculate the same accelerations as the recursive walk?");
+        System.out.println("-" + this.areBucketsCorrect + ":: Does a tree with 16 bodies per leaf contain all bodies and calculate forces about as exact as with 1 body per leaf?");
+        System.out.println("-" + this.areCloseBodiesKept + ":: Are bodies at the same position kept as separate bodies (not merged)?");
+        System.out.println("-" + this.isRefitCorrect + ":: Does a refitted tree contain every body in the cube of its leaf, with the correct total mass and center of mass?");
+        System.out.println("-" + this.isArenaReused + ":: Are the node arenas of the trees swapped every cycle, and are the trees the same as new built trees?");
+        System.out.println("-" + this.areEscapingBodiesKept + ":: Are bodies that leave the generated area kept (root fitted to the bodies), and are they lost with a fixed root?");
+        System.out.println("-" + this.isFarFieldCorrect + ":: Are bodies outside of the far field limit kept in the far field, with the same total mass?");
+        System.out.println("-" + this.areQuadrupolesCorrect + ":: Is the quadrupole tensor of the root correct, and are the forces with quadrupoles more exact?");
+        System.out.println("-" + this.monopoleForceError + ":: The average relative force error compared to the n^2 method with monopoles.");
+        System.out.println("-" + this.quadrupoleForceError + ":: The average relative force error compared to the n^2 method with quadrupoles.");
+        System.out.println("-" + this.isFastMultipoleMethodCorrect + ":: Does the fast multipole method calculate exact forces (more exact with a larger theta), also in a calc-move cycle?");
+        System.out.println("-" + this.fastMultipoleForceError + ":: The average relative force error compared to the n^2 method with the fast multipole method.");
+        System.out.println("-" + this.treeWalkForceError + ":: The average relative force error compared to the n^2 method with the iterative walk.");
+        System.out.println("-" + this.isGroupedWalkCorrect + ":: Does the grouped walk calculate forces at least as exact as the iterative walk, with fewer interaction lists?");
+        System.out.println("-" + this.groupedWalkForceError + ":: The average relative force error compared to the n^2 method with the grouped walk.");
+        System.out.println("-" + this.isForceKernelCorrect + ":: Does the force kernel calculate the same force as CelestialBody.gravitationalForce (with a body at the same position), and with softening the same force as Softening.factor?");
+        System.out.println("-" + this.isDirectSummationCorrect + ":: Does the direct summation calculate the n^2 forces with several threads, and is it chosen automatically for the solar system?");
+        System.out.println("-" + this.areOpeningCriteriaCorrect + ":: Do the opening criteria get more exact (and open more nodes) with a stricter parameter, is bmax correct and is the relative criterion geometric in the first step?");
+        System.out.println("-" + this.isSofteningConsistent + ":: Do the direct summation, the walks and the fast multipole method use the same softened force (Plummer and spline)?");
+        System.out.println("-" + this.isMixedPrecisionExact + ":: Does the walk on float nodes deviate from the walk on double nodes by less than 1e-5 for every generator (with and without quadrupoles)?");
+        for (int i = 0; i < this.mixedPrecisionSimulationTypes.length; i++) {
+            System.out.println("-" + this.mixedPrecisionErrors[i] + " / " + this.mixedPrecisionQuadrupoleErrors[i]
+                    + ":: The average relative force difference between the walk on float nodes and on double nodes for "
+                    + this.mixedPrecisionSimulationTypes[i] + ", without / with quadrupoles.");
+        }
+        System.out.println("-" + this.areInteractionListsCached + ":: Are the cached interaction lists of the grouped walk used again in a refitted tree (and not in a built tree), with forces about as exact as without cache?");
+        System.out.println("-" + this.areCostZonesBalanced + ":: Do the costzones calculate the same forces as the iterative walk, with all bodies and zones of equal cost (better than equal chunks)?");
+        System.out.println("-" + this.costZoneImbalance + " / " + this.equalChunkImbalance + ":: Imbalance of the interactions of 8 zones (most interactions / average) with costzones / with equal chunks.");
+        System.out.println("-" + this.isReorderingCorrect + ":: Do bodies that are reordered along the space filling curve move the same way as without reordering (every build mode, far field)?");
+        System.out.println("-" + this.reorderedNeighborDistance + " / " + this.unorderedNeighborDistance + ":: Median distance of bodies with consecutive ids relative to the cube, reordered / in generated order.");
+        System.out.println("-" + this.isStacklessWalkEqual + ":: Does the stackless walk on the depth first layout (with skips) calculate the same accelerations as the iterative walk (built, inserted and refitted trees)?");
+        System.out.println("-" + this.bucketForceError + ":: The average relative force error compared to the n^2 method with 16 bodies per leaf.");
+        System.out.println("-" + this.singleBodyLeafForceError + ":: The average relative force error compared to the n^2 method with 1 body per leaf.");
+        System.out.println("-" + this.averageForceDifference + ":: The average relative difference of the force between octree and flat octree for " + this.numberOfCelestialBodies + " bodies.");
+    }
+
+    /**
+     * Tests if total mass, center of mass and number of bodies are the same in both trees
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if they are the same, false otherwise
+     */
+    private boolean testMassCalculation(int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        CelestialBody[] bodies = genData.generateAsArray();
+
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+        Octree octree = new Octree(cube);
+        FlatOctree flatOctree = new FlatOctree(cube);
+        //one body per leaf, as in the octree
+        flatOctree.setLeafCapacity(1);
+
+        for (CelestialBody body : bodies) {
+            if (octree.addToOctree(body) != flatOctree.addToOctree(body)) {
+                return false;
+            }
+        }
+
+        double massDifference = Math.abs(octree.getTotalMass() - flatOctree.getTotalMass()) / octree.getTotalMass();
+        double centerOfMassDifference = octree.getCenterOfMass().distanceTo(flatOctree.getCenterOfMass()) / cubeLength;
+
+        return octree.getNumberOfBodies() == flatOctree.getNumberOfBodies()
+                && massDifference < 1e-9
+                && centerOfMassDifference < 1e-9;
+    }
+
+    /**
+     * Tests if the barnes hut walk over the flat octree calculates the same forces as the walk over the octree
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if the forces are the same, false otherwise
+     */
+    private boolean testForceCalculation(int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        CelestialBody[] bodies = genData.generateAsArray();
+
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+        Octree octree = new Octree(cube);
+        FlatOctree flatOctree = new FlatOctree(cube);
+        //one body per leaf, as in the octree
+        flatOctree.setLeafCapacity(1);
+        for (CelestialBody body : bodies) {
+            octree.addToOctree(body);
+            flatOctree.addToOctree(body);
+        }
+
+        double totalDifference = 0;
+        for (CelestialBody body : bodies) {
+            body.setForceOnThisBody(new Vector3(0, 0, 0));
+            body.calculateAllForcesOnThisBodyBeginningWithNode(octree);
+            Vector3 octreeForce = body.getForceOnThisBody();
+
+            body.setForceOnThisBody(new Vector3(0, 0, 0));
+            body.calculateAllForcesOnThisBodyBeginningWithNode(flatOctree, FlatOctree.ROOT);
+            Vector3 flatOctreeForce = body.getForceOnThisBody();
+
+            totalDifference += octreeForce.distanceTo(flatOctreeForce) / octreeForce.distanceToCenter();
+        }
+
+        this.averageForceDifference = totalDifference / bodies.length;
+        return this.averageForceDifference < 1e-6;
+    }
+
+    /**
+     * Tests if the tree built with the specified build mode is the same as the tree built by adding the bodies one by one
+     *
+     * @param buildMode               How the tree is built
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if the trees are the same, false otherwise
+     */
+    private boolean testBuildMode(TreeBuildMode buildMode, int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        CelestialBody[] bodies = genData.generateAsArray();
+
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+        FlatOctree insertedTree = new FlatOctree(cube);
+        for (CelestialBody body : bodies) {
+            insertedTree.addToOctree(body);
+        }
+        FlatOctree builtTree = new FlatOctree(cube, buildMode);
+        //the same cube as the inserted tree
+        builtTree.setAutoBounds(false);
+        //small threshold, so that the bodies are split up on more than one level
+        builtTree.setParallelThreshold(16);
+        builtTree.build(bodies, bodies.length);
+
+        if (insertedTree.getNumberOfNodes() != builtTree.getNumberOfNodes()
+                || insertedTree.getNumberOfBodies() != builtTree.getNumberOfBodies()
+                || Math.abs(insertedTree.getTotalMass() - builtTree.getTotalMass()) / insertedTree.getTotalMass() > 1e-9
+                || insertedTree.getCenterOfMass().distanceTo(builtTree.getCenterOfMass()) / cubeLength > 1e-9) {
+            return false;
+        }
+
+        for (CelestialBody body : bodies) {
+            body.setForceOnThisBody(new Vector3(0, 0, 0));
+            body.calculateAllForcesOnThisBodyBeginningWithNode(insertedTree, FlatOctree.ROOT);
+            Vector3 insertedForce = body.getForceOnThisBody();
+
+            body.setForceOnThisBody(new Vector3(0, 0, 0));
+            body.calculateAllForcesOnThisBodyBeginningWithNode(builtTree, FlatOctree.ROOT);
+            Vector3 builtForce = body.getForceOnThisBody();
+
+            if (insertedForce.distanceTo(builtForce) / insertedForce.distanceToCenter() > 1e-6) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests if the iterative walk calculates the same accelerations as the recursive walk
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if the accelerations are the same, false otherwise
+     */
+    private boolean testIterativeWalk(int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE);
+        int n = tree.getNumberOfBodies();
+        BodyStore bodies = tree.getBodyStore();
+
+        new RecursiveTreeWalk().calculateAccelerations(tree);
+        double[] recursiveX = bodies.getAccelerationX().clone();
+        double[] recursiveY = bodies.getAccelerationY().clone();
+        double[] recursiveZ = bodies.getAccelerationZ().clone();
+        new IterativeTreeWalk().calculateAccelerations(tree);
+        double[] iterativeX = bodies.getAccelerationX(), iterativeY = bodies.getAccelerationY(), iterativeZ = bodies.getAccelerationZ();
+
+        for (int i = 0; i < n; i++) {
+            Vector3 recursive = new Vector3(recursiveX[i], recursiveY[i], recursiveZ[i]);
+            Vector3 iterative = new Vector3(iterativeX[i], iterativeY[i], iterativeZ[i]);
+            if (recursive.distanceTo(iterative) / recursive.distanceToCenter() > 1e-9) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests if a tree with more than one body per leaf contains all bodies (with their total mass)
+     * and if its forces are about as exact as with one body per leaf (compared to the n^2 method).
+     * The errors of the approximated nodes partly cancel out, so the error can be a bit larger even though more bodies are summed up directly.
+     *
+     * @param leafCapacity            Number of bodies per leaf
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if it works, false otherwise
+     */
+    private boolean testLeafCapacity(int leafCapacity, int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        CelestialBody[] bodies = genData.generateAsArray();
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+
+        FlatOctree bucketTree = new FlatOctree(cube);
+        bucketTree.setLeafCapacity(leafCapacity);
+        FlatOctree singleBodyTree = new FlatOctree(cube);
+        singleBodyTree.setLeafCapacity(1);
+        double totalMass = 0;
+        for (CelestialBody body : bodies) {
+            bucketTree.addToOctree(body);
+            singleBodyTree.addToOctree(body);
+            totalMass += body.getMass();
+        }
+        if (bucketTree.getNumberOfBodies() != bodies.length
+                || Math.abs(bucketTree.getTotalMass() - totalMass) / totalMass > 1e-9
+                || bucketTree.getNumberOfNodes() >= singleBodyTree.getNumberOfNodes()) {
+            return false;
+        }
+
+        double bucketError = 0, singleBodyError = 0;
+        for (CelestialBody body : bodies) {
+            Vector3 exactForce = new Vector3(0, 0, 0);
+            for (CelestialBody other : bodies) {
+                if (other != body) {
+                    exactForce = exactForce.plus(body.gravitationalForce(other));
+                }
+            }
+
+            body.setForceOnThisBody(new Vector3(0, 0, 0));
+            body.calculateAllForcesOnThisBodyBeginningWithNode(bucketTree, FlatOctree.ROOT);
+            bucketError += body.getForceOnThisBody().distanceTo(exactForce) / exactForce.distanceToCenter();
+
+            body.setForceOnThisBody(new Vector3(0, 0, 0));
+            body.calculateAllForcesOnThisBodyBeginningWithNode(singleBodyTree, FlatOctree.ROOT);
+            singleBodyError += body.getForceOnThisBody().distanceTo(exactForce) / exactForce.distanceToCenter();
+        }
+        this.bucketForceError = bucketError / bodies.length;
+        this.singleBodyLeafForceError = singleBodyError / bodies.length;
+        return this.bucketForceError <= 1.1 * this.singleBodyLeafForceError;
+    }
+
+    /**
+     * Tests if bodies at the same position are kept as separate bodies with their own mass (the octree merges them)
+     *
+     * @return returns true if they are kept, false otherwise
+     */
+    private boolean testCloseBodies() {
+        Cube cube = new Cube(new Vector3(0, 0, 0), 1000);
+        FlatOctree tree = new FlatOctree(cube);
+        tree.setLeafCapacity(1);
+        CelestialBody body1 = new CelestialBody(null, 1, 1, new Vector3(250, 250, 250), new Vector3(0, 0, 0), StdDraw.BLUE);
+        CelestialBody body2 = new CelestialBody(null, 2, 1, new Vector3(250, 250, 250), new Vector3(0, 0, 0), StdDraw.BLUE);
+        CelestialBody body3 = new CelestialBody(null, 4, 1, new Vector3(750, 250, 250), new Vector3(0, 0, 0), StdDraw.BLUE);
+        if (!tree.addToOctree(body1) || !tree.addToOctree(body2) || !tree.addToOctree(body3)) {
+            return false;
+        }
+
+        int leafOfBody1 = NONE_FOUND;
+        for (int node = 0; node < tree.getNumberOfNodes(); node++) {
+            if (tree.getNumberOfBodiesInNode(node) == 2) {
+                leafOfBody1 = node;
+            }
+        }
+        //the force of body 3 on body 1 must not be changed by body 2
+        body1.setForceOnThisBody(new Vector3(0, 0, 0));
+        body1.calculateAllForcesOnThisBodyBeginningWithNode(tree, FlatOctree.ROOT);
+        Vector3 expectedForce = body1.gravitationalForce(body3);
+        return tree.getNumberOfBodies() == 3 && leafOfBody1 != NONE_FOUND
+                && Math.abs(tree.getTotalMass(leafOfBody1) - 3) < 1e-12
+                && body1.getForceOnThisBody().distanceTo(expectedForce) / expectedForce.distanceToCenter() < 1e-12;
+    }
+
+    /**
+     * Tests if a tree that is refitted every step (instead of built again) contains all bodies in the cube of their leaf
+     * and has the same total mass and center of mass as the bodies, and if bodies were moved to another leaf at all
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @param numberOfSteps           Number of calc-move cycles
+     * @return returns true if it works, false otherwise
+     */
+    private boolean testRefit(int numberOfCelestialBodies, int numberOfSteps) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 1);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_REFIT);
+        boolean wasRefittedWithMovedBodies = false;
+
+        for (int step = 0; step < numberOfSteps; step++) {
+            FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+            tree.calculateForcesOnAllBodies(newTree);
+            tree = newTree;
+            if (tree.getNumberOfMovedBodies() > 0) {
+                wasRefittedWithMovedBodies = true;
+            }
+
+            BodyStore bodies = tree.getBodyStore();
+            double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ();
+            double[] mass = bodies.getMass();
+            int bodiesInLeaves = 0;
+            for (int node = 0; node < tree.getNumberOfNodes(); node++) {
+                if (tree.getFirstChild(node) != FlatOctree.NONE) {
+                    continue;
+                }
+                for (int body = tree.getBodyOfNode(node); body != FlatOctree.NONE; body = tree.getNextBody(body)) {
+                    if (!tree.isInsideNode(node, x[body], y[body], z[body])) {
+                        return false;
+                    }
+                    bodiesInLeaves++;
+                }
+            }
+
+            double totalMass = 0, sumX = 0, sumY = 0, sumZ = 0;
+            for (int id = 0; id < bodies.size(); id++) {
+                totalMass += mass[id];
+                sumX += x[id] * mass[id];
+                sumY += y[id] * mass[id];
+                sumZ += z[id] * mass[id];
+            }
+            Vector3 centerOfMass = new Vector3(sumX / totalMass, sumY / totalMass, sumZ / totalMass);
+            if (bodiesInLeaves != bodies.size() || tree.getNumberOfBodies() != bodies.size()
+                    || Math.abs(tree.getTotalMass() - totalMass) / totalMass > 1e-9
+                    || tree.getCenterOfMass().distanceTo(centerOfMass) / cubeLength > 1e-9) {
+                return false;
+            }
+        }
+        return wasRefittedWithMovedBodies;
+    }
+
+    /**
+     * Tests if the trees of the calc-move cycles use only two node arenas (after the first cycle)
+     * and if the last tree is the same as a tree that is built with a new arena
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @param numberOfSteps           Number of calc-move cycles
+     * @return returns true if it works, false otherwise
+     */
+    private boolean testArenaReuse(int numberOfCelestialBodies, int numberOfSteps) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_MORTON);
+        NodeArena[] arenas = new NodeArena[numberOfSteps];
+
+        for (int step = 0; step < numberOfSteps; step++) {
+            FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+            tree.calculateForcesOnAllBodies(newTree);
+            tree = newTree;
+            arenas[step] = tree.getNodeArena();
+            if (step >= 2 && arenas[step] != arenas[step - 2]) {
+                return false;
+            }
+        }
+        if (arenas[numberOfSteps - 1] == arenas[numberOfSteps - 2]) {
+            return false;
+        }
+
+        FlatOctree newBuiltTree = new FlatOctree(tree.getCube(), TreeBuildMode.MORTON);
+        newBuiltTree.build(tree.getBodyStore());
+        return newBuiltTree.getNumberOfNodes() == tree.getNumberOfNodes()
+                && newBuiltTree.getNumberOfBodies() == tree.getNumberOfBodies()
+                && newBuiltTree.getTotalMass() == tree.getTotalMass()
+                && newBuiltTree.getCenterOfMass().distanceTo(tree.getCenterOfMass()) == 0;
+    }
+
+    /**
+     * Tests if no body is lost in calc-move cycles in which bodies leave the generated area, if the root is fitted to the bodies
+     * (and if bodies are lost with a fixed root). With a far field, the bodies outside of the limit have to be in the far field
+     * and the root cube must not be larger than the limit.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @param farFieldFactor          Size of the far field limit relative to the generated area, 0 for no far field
+     * @param numberOfSteps           Number of calc-move cycles
+     * @return returns true if it works, false otherwise
+     */
+    private boolean testAutoBounds(int numberOfCelestialBodies, double farFieldFactor, int numberOfSteps) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        BodyStore store = genData.generateAsBodyStore();
+        BodyStore fixedStore = genData.generateAsBodyStore();
+        letBodiesEscape(store, cubeLength, numberOfSteps);
+        letBodiesEscape(fixedStore, cubeLength, numberOfSteps);
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+        FlatOctree tree = new FlatOctree(cube, TreeBuildMode.MORTON);
+        FlatOctree fixedTree = new FlatOctree(cube, TreeBuildMode.MORTON);
+        fixedTree.setAutoBounds(false);
+        tree.setFarFieldFactor(farFieldFactor);
+        tree.build(store);
+        fixedTree.build(fixedStore);
+        int n = tree.getNumberOfBodies();
+        double totalMass = 0;
+        for (int id = 0; id < n; id++) {
+            totalMass += tree.getBodyStore().getMass()[id];
+        }
+
+        for (int step = 0; step < numberOfSteps; step++) {
+            FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+            tree.calculateForcesOnAllBodies(newTree);
+            tree = newTree;
+            FlatOctree newFixedTree = (FlatOctree) fixedTree.createEmptyTree();
+            fixedTree.calculateForcesOnAllBodies(newFixedTree);
+            fixedTree = newFixedTree;
+        }
+
+        BodyStore bodies = tree.getBodyStore();
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ();
+        double farMass = 0;
+        int outside = 0;
+        for (int id = 0; id < bodies.size(); id++) {
+            boolean isInsideRoot = tree.getCube().isInsideCube(x[id], y[id], z[id]);
+            if (farFieldFactor > 0 && !tree.getFarFieldLimit().isInsideCube(x[id], y[id], z[id])) {
+                farMass += bodies.getMass()[id];
+                outside++;
+            } else if (!isInsideRoot) {
+                return false;
+            }
+            if (Double.isNaN(bodies.getAccelerationX()[id])) {
+                return false;
+            }
+        }
+        //the far field bodies do not enlarge the root (only the margin can make it a bit larger than the limit)
+        boolean isFarFieldUsed = farFieldFactor == 0 || (outside > 0 && outside == tree.getNumberOfFarBodies()
+                && tree.getCube().getEdgeLength() <= 1.1 * tree.getFarFieldLimit().getEdgeLength());
+        return isFarFieldUsed && tree.getNumberOfBodies() == n && bodies.size() == n
+                && Math.abs(tree.getTotalMass() + farMass - totalMass) / totalMass < 1e-9
+                && fixedTree.getNumberOfBodies() < n;
+    }
+
+    /**
+     * Moves every 50th body (not the black hole) to the edge of the generated area, with a velocity
+     * that takes it three edge lengths away in the calc-move cycles, so that bodies leave the area in every run.
+     *
+     * @param bodies        Store with the bodies
+     * @param cubeLength    Edge length of the generated area
+     * @param numberOfSteps Number of calc-move cycles
+     */
+    private void letBodiesEscape(BodyStore bodies, double cubeLength, int numberOfSteps) {
+        for (int id = 1; id < bodies.size(); id += 50) {
+            bodies.getPositionX()[id] = 0.49 * cubeLength;
+            bodies.getVelocityX()[id] = 3 * cubeLength / (numberOfSteps * bodies.getTimeStep()[id]);
+        }
+    }
+
+    /**
+     * Tests if the quadrupole tensor of the root (calculated from the children) is the same as the tensor of all bodies,
+     * and if the forces of the iterative walk with quadrupoles are more exact than with monopoles only (compared to the n^2 method)
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if it works, false otherwise
+     */
+    private boolean testQuadrupoles(int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.MORTON);
+        tree.setQuadrupoles(true);
+        tree.build(genData.generateAsBodyStore());
+        BodyStore bodies = tree.getBodyStore();
+        int n = bodies.size();
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ(), mass = bodies.getMass();
+
+        //quadrupole tensor of all bodies around the center of mass of the root
+        Vector3 centerOfMass = tree.getCenterOfMass();
+        double xx = 0, xy = 0, zz = 0;
+        for (int id = 0; id < n; id++) {
+            double sx = x[id] - centerOfMass.getX(), sy = y[id] - centerOfMass.getY(), sz = z[id] - centerOfMass.getZ();
+            double s2 = sx * sx + sy * sy + sz * sz;
+            xx += mass[id] * (3 * sx * sx - s2);
+            xy += mass[id] * 3 * sx * sy;
+            zz += mass[id] * (3 * sz * sz - s2);
+        }
+        double scale = Math.abs(xx) + Math.abs(xy) + Math.abs(zz);
+        if (Math.abs(tree.getQuadrupoleXX(FlatOctree.ROOT) - xx) / scale > 1e-9
+                || Math.abs(tree.getQuadrupoleXY(FlatOctree.ROOT) - xy) / scale > 1e-9
+                || Math.abs(tree.getQuadrupoleZZ(FlatOctree.ROOT) - zz) / scale > 1e-9) {
+            return false;
+        }
+
+        IterativeTreeWalk walk = new IterativeTreeWalk();
+        tree.setQuadrupoles(false);
+        walk.calculateAccelerations(tree);
+        double[] monopoleX = bodies.getAccelerationX().clone(), monopoleY = bodies.getAccelerationY().clone(), monopoleZ = bodies.getAccelerationZ().clone();
+        tree.setQuadrupoles(true);
+        walk.calculateAccelerations(tree);
+
+        double[][] exact = calculateExactAccelerations(bodies);
+        double monopoleError = calculateForceError(exact, monopoleX, monopoleY, monopoleZ);
+        double quadrupoleError = calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+        this.monopoleForceError = monopoleError;
+        this.quadrupoleForceError = quadrupoleError;
+        return this.quadrupoleForceError < this.monopoleForceError;
+    }
+
+    /**
+     * Tests if the fast multipole method calculates the forces exact enough, if the error gets smaller with a larger theta
+     * and if it can be used in the calc-move cycle of the tree.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if the error is small and the bodies are kept in the calc-move cycle, false otherwise
+     */
+    private boolean testFastMultipoleMethod(int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.MORTON);
+        tree.build(genData.generateAsBodyStore());
+        BodyStore bodies = tree.getBodyStore();
+        double[][] exact = calculateExactAccelerations(bodies);
+
+        new IterativeTreeWalk().calculateAccelerations(tree);
+        this.treeWalkForceError = calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+        FastMultipoleMethod fastMultipoleMethod = new FastMultipoleMethod();
+        fastMultipoleMethod.calculateAccelerations(tree);
+        this.fastMultipoleForceError = calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+        if (this.fastMultipoleForceError > 1e-2 || fastMultipoleMethod.getNumberOfNodeInteractions() == 0) {
+            return false;
+        }
+        //the error has to get smaller with a larger theta
+        new FastMultipoleMethod(4 * FastMultipoleMethod.DEFAULT_THETA).calculateAccelerations(tree);
+        if (calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ()) > this.fastMultipoleForceError / 10) {
+            return false;
+        }
+
+        //calc-move cycle with the same step api
+        tree.setForceEngine(fastMultipoleMethod);
+        FlatOctree current = tree;
+        for (int step = 0; step < 5; step++) {
+            FlatOctree newTree = (FlatOctree) current.createEmptyTree();
+            current.calculateForcesOnAllBodies(newTree);
+            current = newTree;
+        }
+        return current.getNumberOfBodies() == bodies.size();
+    }
+
+    /**
+     * Tests if the grouped walk calculates the forces at least as exact as the iterative walk (the opening test is conservative)
+     * and if it walks the tree fewer times.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if the error is not larger than with the iterative walk, false otherwise
+     */
+    private boolean testGroupedWalk(int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.MORTON);
+        tree.setLeafCapacity(16);
+        tree.build(genData.generateAsBodyStore());
+        BodyStore bodies = tree.getBodyStore();
+        double[][] exact = calculateExactAccelerations(bodies);
+
+        new IterativeTreeWalk().calculateAccelerations(tree);
+        double walkError = calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+        new GroupedTreeWalk().calculateAccelerations(tree);
+        this.groupedWalkForceError = calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+
+        int numberOfGroups = 0;
+        for (int node = 0; node < tree.getNumberOfNodes(); node++) {
+            if (tree.getFirstChild(node) == FlatOctree.NONE && tree.getBodyOfNode(node) != FlatOctree.NONE) {
+                numberOfGroups++;
+            }
+        }
+        return this.groupedWalkForceError <= walkError && numberOfGroups < bodies.size();
+    }
+
+    /**
+     * Tests if both loops of the force kernel calculate the same force as CelestialBody.gravitationalForce,
+     * the number of point masses is no multiple of the lanes and one of them is at the position of the body.
+     * With the Plummer softening and the spline kernel the force has to be the same as the sum with Softening.factor.
+     *
+     * @param numberOfPointMasses With how many point masses the test is done
+     * @return returns true if the forces are the same, false otherwise
+     */
+    private boolean testForceKernel(int numberOfPointMasses) {
+        Random random = new Random(1);
+        CelestialBody body = new CelestialBody(null, 3 * Constants.MASS_OF_SUN, 1, new Vector3(0.1 * Constants.AU, 0.2 * Constants.AU, -0.3 * Constants.AU),
+                new Vector3(0, 0, 0), StdDraw.BLUE);
+        double[] x = new double[numberOfPointMasses], y = new double[numberOfPointMasses], z = new double[numberOfPointMasses];
+        double[] mass = new double[numberOfPointMasses];
+        Vector3 expectedForce = new Vector3(0, 0, 0);
+        for (int i = 0; i < numberOfPointMasses; i++) {
+            x[i] = (random.nextDouble() - 0.5) * Constants.AU;
+            y[i] = (random.nextDouble() - 0.5) * Constants.AU;
+            z[i] = (random.nextDouble() - 0.5) * Constants.AU;
+            mass[i] = random.nextDouble() * Constants.MASS_OF_SUN;
+            if (i == numberOfPointMasses / 2) {
+                x[i] = body.getPosition().getX();
+                y[i] = body.getPosition().getY();
+                z[i] = body.getPosition().getZ();
+                continue; //the force of a point mass at the same position is ignored
+            }
+            expectedForce = expectedForce.plus(body.gravitationalForce(new Vector3(x[i], y[i], z[i]), mass[i]));
+        }
+        double[] acceleration = new double[3], scalarAcceleration = new double[3];
+        Vector3 position = body.getPosition();
+        ForceKernel.accumulate(position.getX(), position.getY(), position.getZ(), x, y, z, mass, numberOfPointMasses, acceleration);
+        ForceKernel.accumulateScalar(position.getX(), position.getY(), position.getZ(), x, y, z, mass, numberOfPointMasses, scalarAcceleration);
+        Vector3 force = new Vector3(acceleration[0], acceleration[1], acceleration[2]).times(body.getMass());
+        Vector3 scalarForce = new Vector3(scalarAcceleration[0], scalarAcceleration[1], scalarAcceleration[2]).times(body.getMass());
+        if (force.distanceTo(expectedForce) / expectedForce.distanceToCenter() >= 1e-12
+                || scalarForce.distanceTo(expectedForce) / expectedForce.distanceToCenter() >= 1e-12) {
+            return false;
+        }
+
+        for (SofteningType type : new SofteningType[]{SofteningType.PLUMMER, SofteningType.SPLINE}) {
+            Softening softening = new Softening(type, 0.1 * Constants.AU);
+            Vector3 expectedAcceleration = new Vector3(0, 0, 0);
+            for (int i = 0; i < numberOfPointMasses; i++) {
+                Vector3 distance = new Vector3(x[i], y[i], z[i]).minus(position);
+                double distanceSquared = distance.getX() * distance.getX() + distance.getY() * distance.getY() + distance.getZ() * distance.getZ();
+                expectedAcceleration = expectedAcceleration.plus(distance.times(Constants.G * mass[i] * softening.factor(distanceSquared)));
+            }
+            ForceKernel.accumulate(position.getX(), position.getY(), position.getZ(), x, y, z, mass, numberOfPointMasses, softening, acceleration);
+            Vector3 softenedAcceleration = new Vector3(acceleration[0], acceleration[1], acceleration[2]);
+            if (softenedAcceleration.distanceTo(expectedAcceleration) / expectedAcceleration.distanceToCenter() >= 1e-12) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests if the direct summation calculates the same accelerations as the n^2 method (with 4 threads and a number of bodies
+     * that is no multiple of the block size) and if the automatic engine uses it for the few bodies of the solar system.
+     * With a far field every body (also the far bodies, whose old accelerations are overwritten) has to get about the exact acceleration.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if the accelerations are the same and the direct summation is chosen, false otherwise
+     */
+    private boolean testDirectSummation(int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.MORTON);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        tree.setForkJoinPool(pool);
+        tree.build(genData.generateAsBodyStore());
+        BodyStore bodies = tree.getBodyStore();
+        double[][] exact = calculateExactAccelerations(bodies);
+        new DirectSummation().calculateAccelerations(tree);
+        pool.shutdown();
+        if (bodies.size() % DirectSummation.BLOCK_SIZE == 0
+                || calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ()) > 1e-12) {
+            return false;
+        }
+
+        //every tenth body is moved out of the far field limit, the accelerations of the last step are still in the store
+        BodyStore farFieldBodies = genData.generateAsBodyStore();
+        for (int id = 0; id < farFieldBodies.size(); id += 10) {
+            farFieldBodies.getPositionX()[id] += 3 * cubeLength;
+        }
+        Arrays.fill(farFieldBodies.getAccelerationX(), 0, farFieldBodies.size(), 12345);
+        FlatOctree farFieldTree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.MORTON);
+        farFieldTree.setFarFieldFactor(2);
+        farFieldTree.setForceEngine(new DirectSummation());
+        farFieldTree.build(farFieldBodies);
+        double[][] farFieldExact = calculateExactAccelerations(farFieldBodies);
+        farFieldTree.calculateForcesOnAllBodies((FlatOctree) farFieldTree.createEmptyTree());
+        if (farFieldTree.getNumberOfFarBodies() == 0 || calculateForceError(farFieldExact,
+                farFieldBodies.getAccelerationX(), farFieldBodies.getAccelerationY(), farFieldBodies.getAccelerationZ()) > 1e-2) {
+            return false;
+        }
+
+        GenerateSimulationData solData = new GenerateSimulationData(0, SimulationType.SOL);
+        FlatOctree solTree = (FlatOctree) solData.generateAsTree(TreeType.FLAT_OCTREE);
+        AutomaticForceEngine automaticForceEngine = new AutomaticForceEngine();
+        solTree.setForceEngine(automaticForceEngine);
+        FlatOctree newTree = (FlatOctree) solTree.createEmptyTree();
+        solTree.calculateForcesOnAllBodies(newTree);
+        return automaticForceEngine.isDirectSummationChosen() && newTree.getNumberOfBodies() == solTree.getNumberOfBodies();
+    }
+
+    /**
+     * Tests the opening criteria of the iterative walk: every criterion has to calculate more exact forces and open more nodes
+     * with a stricter parameter, bmax of the root has to contain all bodies, and the relative criterion has to be the same
+     * as the geometric criterion if there are no accelerations of the last step.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if the criteria are correct, false otherwise
+     */
+    private boolean testOpeningCriteria(int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.MORTON);
+        tree.build(genData.generateAsBodyStore());
+        BodyStore bodies = tree.getBodyStore();
+        double[][] exact = calculateExactAccelerations(bodies);
+
+        //first step: the store has no accelerations yet
+        IterativeTreeWalk geometricWalk = new IterativeTreeWalk(new GeometricCriterion(Constants.theta));
+        geometricWalk.calculateAccelerations(tree);
+        double[] geometricX = bodies.getAccelerationX().clone();
+        Arrays.fill(bodies.getAccelerationX(), 0);
+        Arrays.fill(bodies.getAccelerationY(), 0);
+        Arrays.fill(bodies.getAccelerationZ(), 0);
+        IterativeTreeWalk relativeWalk = new IterativeTreeWalk(new RelativeCriterion());
+        relativeWalk.calculateAccelerations(tree);
+        if (!Arrays.equals(geometricX, bodies.getAccelerationX()) || relativeWalk.getNumberOfOpenedNodes() != geometricWalk.getNumberOfOpenedNodes()) {
+            return false;
+        }
+
+        BmaxCriterion bmax = new BmaxCriterion(1);
+        bmax.prepare(tree);
+        Vector3 centerOfMass = new Vector3(tree.getCenterOfMassX(FlatOctree.ROOT), tree.getCenterOfMassY(FlatOctree.ROOT), tree.getCenterOfMassZ(FlatOctree.ROOT));
+        for (int id = 0; id < bodies.size(); id++) {
+            if (bodies.getPosition(id).distanceTo(centerOfMass) > bmax.getBmax(FlatOctree.ROOT) * (1 + 1e-12)) {
+                return false;
+            }
+        }
+
+        OpeningCriterion[][] criteria = new OpeningCriterion[][]{
+                {new GeometricCriterion(1), new GeometricCriterion(2)},
+                {new BmaxCriterion(1), new BmaxCriterion(2)},
+                {new RelativeCriterion(RelativeCriterion.DEFAULT_ALPHA, Constants.theta), new RelativeCriterion(RelativeCriterion.DEFAULT_ALPHA / 10, Constants.theta)}};
+        for (OpeningCriterion[] pair : criteria) {
+            double[] errors = new double[2];
+            long[] openedNodes = new long[2];
+            for (int i = 0; i < 2; i++) {
+                //the relative criterion uses the accelerations of the last step (here the exact ones)
+                System.arraycopy(exact[0], 0, bodies.getAccelerationX(), 0, bodies.size());
+                System.arraycopy(exact[1], 0, bodies.getAccelerationY(), 0, bodies.size());
+                System.arraycopy(exact[2], 0, bodies.getAccelerationZ(), 0, bodies.size());
+                IterativeTreeWalk walk = new IterativeTreeWalk(pair[i]);
+                walk.calculateAccelerations(tree);
+                errors[i] = calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+                openedNodes[i] = walk.getNumberOfOpenedNodes();
+            }
+            if (errors[1] >= errors[0] || openedNodes[1] <= openedNodes[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests if all force engines use the softening of the tree: with Plummer and spline softening, the direct summation
+     * has to calculate the softened n^2 forces, and the walks and the fast multipole method have to be closer to the softened
+     * than to the Newtonian forces. The spline kernel has to be Newtonian from its radius on.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if the softening is used by all engines, false otherwise
+     */
+    private boolean testSoftening(int numberOfCelestialBodies) {
+        Softening spline = new Softening(SofteningType.SPLINE, 1);
+        double radius = spline.getNewtonianDistance();
+        if (spline.factor(radius * radius) != 1 / (radius * radius * radius) || !(spline.factor(0) > 0) || spline.factor(0) * 1e-12 > 1) {
+            return false;
+        }
+
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.MORTON);
+        tree.build(genData.generateAsBodyStore());
+        BodyStore bodies = tree.getBodyStore();
+        double[][] newtonian = calculateExactAccelerations(bodies);
+        for (SofteningType type : new SofteningType[]{SofteningType.PLUMMER, SofteningType.SPLINE}) {
+            Softening softening = new Softening(type, 0.01 * Constants.AU);
+            tree.setSoftening(softening);
+            double[][] exact = calculateExactAccelerations(bodies, softening);
+            new DirectSummation().calculateAccelerations(tree);
+            if (calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ()) > 1e-12) {
+                return false;
+            }
+            ForceEngine[] engines = new ForceEngine[]{new IterativeTreeWalk(), new GroupedTreeWalk(), new RecursiveTreeWalk(), new FastMultipoleMethod()};
+            for (ForceEngine engine : engines) {
+                engine.calculateAccelerations(tree);
+                double error = calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+                if (error > 1e-2 || error >= calculateForceError(newtonian, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests the mixed precision walk against the iterative walk with the same theta for every generator:
+     * both accept the same nodes, so the difference only comes from the float nodes. With quadrupoles the float nodes
+     * have to contain the quadrupole tensor.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @return returns true if the average relative difference is below 1e-5 for every generator, false otherwise
+     */
+    private boolean testMixedPrecision(int numberOfCelestialBodies) {
+        boolean isExact = true;
+        for (int i = 0; i < this.mixedPrecisionSimulationTypes.length; i++) {
+            GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, this.mixedPrecisionSimulationTypes[i]);
+            FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_MORTON);
+            BodyStore bodies = tree.getBodyStore();
+            new IterativeTreeWalk().calculateAccelerations(tree);
+            int n = bodies.size();
+            double[][] reference = new double[][]{Arrays.copyOf(bodies.getAccelerationX(), n), Arrays.copyOf(bodies.getAccelerationY(), n), Arrays.copyOf(bodies.getAccelerationZ(), n)};
+            new MixedPrecisionTreeWalk().calculateAccelerations(tree);
+            this.mixedPrecisionErrors[i] = calculateForceError(reference, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+            isExact &= this.mixedPrecisionErrors[i] < 1e-5 && tree.getFloatNodeSize() == NodeArena.FLOAT_NODE_SIZE;
+
+            tree.setQuadrupoles(true);
+            tree.calculateQuadrupoles();
+            new IterativeTreeWalk().calculateAccelerations(tree);
+            reference = new double[][]{Arrays.copyOf(bodies.getAccelerationX(), n), Arrays.copyOf(bodies.getAccelerationY(), n), Arrays.copyOf(bodies.getAccelerationZ(), n)};
+            new MixedPrecisionTreeWalk().calculateAccelerations(tree);
+            this.mixedPrecisionQuadrupoleErrors[i] = calculateForceError(reference, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+            isExact &= this.mixedPrecisionQuadrupoleErrors[i] < 1e-5 && tree.getFloatNodeSize() == NodeArena.FLOAT_QUADRUPOLE_NODE_SIZE;
+        }
+        return isExact;
+    }
+
+    /**
+     * Tests the grouped walk with cached interaction lists: in a tree that is refitted every cycle, lists have to be used again
+     * and the forces have to be about as exact as the forces of the grouped walk without cache. Calculating the same tree twice
+     * has to use all lists and give the same forces, and in trees that are built every cycle no list may be used again.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @param numberOfSteps           Number of calc-move cycles
+     * @return returns true if the lists are cached correctly, false otherwise
+     */
+    private boolean testInteractionListCache(int numberOfCelestialBodies, int numberOfSteps) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 1);
+        CelestialBody[] celestialBodies = genData.generateAsArray();
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+        for (TreeBuildMode buildMode : new TreeBuildMode[]{TreeBuildMode.REFIT, TreeBuildMode.MORTON}) {
+            GroupedTreeWalk cachedWalk = new GroupedTreeWalk(Constants.theta, GroupedTreeWalk.DEFAULT_CACHE_MARGIN);
+            FlatOctree tree = new FlatOctree(cube, buildMode);
+            tree.build(BodyStore.fromCelestialBodies(celestialBodies, celestialBodies.length));
+            tree.setForceEngine(cachedWalk);
+            long reusedLists = 0;
+            for (int step = 0; step < numberOfSteps; step++) {
+                FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+                tree.calculateForcesOnAllBodies(newTree);
+                tree = newTree;
+                reusedLists += cachedWalk.getNumberOfReusedLists();
+            }
+            if (buildMode == TreeBuildMode.MORTON) {
+                if (reusedLists != 0) {
+                    return false;
+                }
+                continue;
+            }
+
+            BodyStore bodies = tree.getBodyStore();
+            int n = bodies.size();
+            double[][] exact = calculateExactAccelerations(bodies);
+            new GroupedTreeWalk().calculateAccelerations(tree);
+            double uncachedError = calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+            cachedWalk.calculateAccelerations(tree);
+            double cachedError = calculateForceError(exact, bodies.getAccelerationX(), bodies.getAccelerationY(), bodies.getAccelerationZ());
+            if (reusedLists == 0 || cachedWalk.getNumberOfReusedLists() == 0 || cachedError > 1.5 * uncachedError) {
+                return false;
+            }
+            double[] ax = Arrays.copyOf(bodies.getAccelerationX(), n);
+            cachedWalk.calculateAccelerations(tree);
+            if (cachedWalk.getNumberOfWalkedLists() != 0 || !Arrays.equals(ax, Arrays.copyOf(bodies.getAccelerationX(), n))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests the costzones with distributed clusters (the bodies of a cluster are one after another in the store, so equal chunks
+     * of the store get clusters of different density): the forces have to be the same as with the iterative walk,
+     * the zones have to contain every body once, and with the costs of the first calculation the interactions of the zones
+     * have to differ by less than 5 % and less than with equal chunks. After a reordering of the bodies every body has to keep its cost.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @param numberOfZones           Number of zones
+     * @return returns true if the zones are balanced, false otherwise
+     */
+    private boolean testCostZones(int numberOfCelestialBodies, int numberOfZones) {
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.DISTRIBUTED_CLUSTERS);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_MORTON);
+        BodyStore bodies = tree.getBodyStore();
+        int n = bodies.size();
+        new IterativeTreeWalk().calculateAccelerations(tree);
+        double[] expectedX = Arrays.copyOf(bodies.getAccelerationX(), n);
+
+        CostZoneTreeWalk costZones = new CostZoneTreeWalk(new IterativeTreeWalk(), numberOfZones, true);
+        CostZoneTreeWalk equalChunks = new CostZoneTreeWalk(new IterativeTreeWalk(), numberOfZones, false);
+        for (int step = 0; step < 2; step++) {
+            costZones.calculateAccelerations(tree);
+        }
+        equalChunks.calculateAccelerations(tree);
+        this.costZoneImbalance = costZones.getCostImbalance();
+        this.equalChunkImbalance = equalChunks.getCostImbalance();
+
+        int[] order = costZones.getOrder();
+        Arrays.sort(order);
+        for (int i = 0; i < n; i++) {
+            if (order[i] != i) {
+                return false;
+            }
+        }
+        long totalCost = 0;
+        for (long zoneCost : costZones.getZoneCosts()) {
+            totalCost += zoneCost;
+        }
+        for (int id = 0; id < n; id++) {
+            totalCost -= costZones.getCost(id);
+        }
+        boolean isBalanced = totalCost == 0 && Arrays.equals(expectedX, Arrays.copyOf(bodies.getAccelerationX(), n))
+                && this.costZoneImbalance < 1.05 && this.costZoneImbalance < this.equalChunkImbalance;
+
+        int[] curveOrder = new int[n];
+        tree.fillCurveOrder(curveOrder);
+        int[] costs = new int[n];
+        for (int id = 0; id < n; id++) {
+            costs[id] = costZones.getCost(id);
+        }
+        bodies.reorder(curveOrder);
+        costZones.reorderBodies(curveOrder, n);
+        for (int id = 0; id < n; id++) {
+            if (costZones.getCost(id) != costs[curveOrder[id]]) {
+                return false;
+            }
+        }
+        return isBalanced;
+    }
+
+    /**
+     * Tests the reordering of the bodies along the space filling curve: the same bodies are simulated with and without reordering
+     * (direct summation, so that the refitted and the built trees calculate the same forces except for the far field, and velocity verlet,
+     * which keeps the accelerations of the bodies), every body (found by its celestial body id) has to be at the same position
+     * in both simulations, the refitted tree has to be built again in a reordering cycle, and bodies with consecutive ids have to be
+     * closer to each other than in the generated order.
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @param numberOfSteps           Number of calc-move cycles
+     * @param reorderInterval         Number of cycles between two reorderings
+     * @return returns true if it works, false otherwise
+     */
+    private boolean testReordering(int numberOfCelestialBodies, int numberOfSteps, int reorderInterval) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 1);
+        CelestialBody[] celestialBodies = genData.generateAsArray();
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+        TreeBuildMode[] buildModes = {TreeBuildMode.INSERTION, TreeBuildMode.MORTON, TreeBuildMode.REFIT, TreeBuildMode.REFIT};
+        double[] farFieldFactors = {0, 0, 0, 0.5};
+        for (int variant = 0; variant < buildModes.length; variant++) {
+            FlatOctree[] trees = new FlatOctree[2];
+            for (int i = 0; i < trees.length; i++) {
+                trees[i] = new FlatOctree(cube, buildModes[variant]);
+                trees[i].setFarFieldFactor(farFieldFactors[variant]);
+                trees[i].setForceEngine(new DirectSummation());
+                trees[i].setIntegrator(new VelocityVerletIntegrator());
+                BodyStore bodies = BodyStore.fromCelestialBodies(celestialBodies, celestialBodies.length);
+                if (farFieldFactors[variant] > 0) {
+                    //every 50th body is moved out of the far field limit
+                    for (int id = 1; id < bodies.size(); id += 50) {
+                        bodies.getPositionX()[id] += 3 * cubeLength;
+                    }
+                }
+                trees[i].build(bodies);
+            }
+            trees[1].setReorderInterval(reorderInterval);
+            this.unorderedNeighborDistance = calculateNeighborDistance(trees[0].getBodyStore()) / cubeLength;
+            for (int step = 1; step <= numberOfSteps; step++) {
+                for (int i = 0; i < trees.length; i++) {
+                    FlatOctree newTree = (FlatOctree) trees[i].createEmptyTree();
+                    trees[i].calculateForcesOnAllBodies(newTree);
+                    trees[i] = newTree;
+                }
+                boolean isReorderingCycle = step % reorderInterval == 0;
+                if (isReorderingCycle != trees[1].getReorderTime() > 0
+                        || isReorderingCycle && trees[1].getNumberOfMovedBodies() != -1) {
+                    return false;
+                }
+            }
+            if (farFieldFactors[variant] > 0 && trees[1].getNumberOfFarBodies() == 0) {
+                return false;
+            }
+
+            BodyStore unordered = trees[0].getBodyStore(), reordered = trees[1].getBodyStore();
+            Map<Integer, Integer> unorderedIds = new HashMap<>();
+            for (int id = 0; id < unordered.size(); id++) {
+                unorderedIds.put(unordered.getCelestialBodyId(id), id);
+            }
+            if (reordered.size() != unordered.size()) {
+                return false;
+            }
+            for (int id = 0; id < reordered.size(); id++) {
+                Integer unorderedId = unorderedIds.remove(reordered.getCelestialBodyId(id));
+                //the far field bodies get their forces from a tree walk, which accepts other nodes in a refitted than in a built tree
+                double tolerance = trees[1].isFarBody(id) ? 1e-6 * cubeLength : 1e-9 * cubeLength;
+                if (unorderedId == null || reordered.getPosition(id).distanceTo(unordered.getPosition(unorderedId)) > tolerance) {
+                    return false;
+                }
+            }
+            this.reorderedNeighborDistance = calculateNeighborDistance(reordered) / cubeLength;
+        }
+        return this.reorderedNeighborDistance < this.unorderedNeighborDistance / 2;
+    }
+
+    /**
+     * Tests the stackless walk: the depth first layout has to contain every non-empty node once, an inner node has to be followed
+     * by one of its children and every skip has to be after the node (the skip of the root at the end),
+     * and the accelerations have to be exactly the same as with the iterative walk (same nodes in the same order).
+     * Tested with a morton code build (quadrupoles, 16 bodies per leaf), with bodies added one by one and with a refitted tree
+     * (which has empty nodes).
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the test is done
+     * @param numberOfSteps           Number of calc-move cycles of the refitted tree
+     * @return returns true if it works, false otherwise
+     */
+    private boolean testStacklessWalk(int numberOfCelestialBodies, int numberOfSteps) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        CelestialBody[] celestialBodies = genData.generateAsArray();
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+        TreeBuildMode[] buildModes = {TreeBuildMode.MORTON, TreeBuildMode.INSERTION, TreeBuildMode.REFIT};
+        for (TreeBuildMode buildMode : buildModes) {
+            FlatOctree tree = new FlatOctree(cube, buildMode);
+            if (buildMode == TreeBuildMode.MORTON) {
+                tree.setQuadrupoles(true);
+                tree.setLeafCapacity(16);
+            }
+            tree.build(BodyStore.fromCelestialBodies(celestialBodies, celestialBodies.length));
+            if (buildMode == TreeBuildMode.REFIT) {
+                for (int step = 0; step < numberOfSteps; step++) {
+                    FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+                    tree.calculateForcesOnAllBodies(newTree);
+                    tree = newTree;
+                }
+            }
+            BodyStore bodies = tree.getBodyStore();
+            int n = bodies.size();
+            new IterativeTreeWalk().calculateAccelerations(tree);
+            double[] expectedX = Arrays.copyOf(bodies.getAccelerationX(), n);
+            double[] expectedY = Arrays.copyOf(bodies.getAccelerationY(), n);
+            double[] expectedZ = Arrays.copyOf(bodies.getAccelerationZ(), n);
+            new StacklessTreeWalk().calculateAccelerations(tree);
+            if (!Arrays.equals(expectedX, Arrays.copyOf(bodies.getAccelerationX(), n))
+                    || !Arrays.equals(expectedY, Arrays.copyOf(bodies.getAccelerationY(), n))
+                    || !Arrays.equals(expectedZ, Arrays.copyOf(bodies.getAccelerationZ(), n))) {
+                return false;
+            }
+
+            int numberOfNodes = tree.getNumberOfDepthFirstNodes();
+            boolean[] isInLayout = new boolean[tree.getNumberOfNodes()];
+            for (int position = 0; position < numberOfNodes; position++) {
+                int node = tree.getDepthFirstIndex(position);
+                int skip = tree.getSkip(position);
+                int firstChild = tree.getFirstChild(node);
+                if (isInLayout[node] || tree.getTotalMass(node) == 0 || skip <= position || skip > numberOfNodes
+                        || firstChild == FlatOctree.NONE && skip != position + 1
+                        || firstChild != FlatOctree.NONE && (position + 1 >= skip
+                        || tree.getDepthFirstIndex(position + 1) < firstChild || tree.getDepthFirstIndex(position + 1) >= firstChild + 8)) {
+                    return false;
+                }
+                isInLayout[node] = true;
+            }
+            for (int node = 0; node < tree.getNumberOfNodes(); node++) {
+                if (isInLayout[node] != (tree.getTotalMass(node) != 0)) {
+                    return false;
+                }
+            }
+            if (tree.getSkip(0) != numberOfNodes) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the median distance between the bodies with consecutive ids.
+     *
+     * @param bodies Store with the bodies
+     * @return Median distance in m
+     */
+    private double calculateNeighborDistance(BodyStore bodies) {
+        double[] distances = new double[bodies.size() - 1];
+        for (int id = 1; id < bodies.size(); id++) {
+            distances[id - 1] = bodies.getPosition(id).distanceTo(bodies.getPosition(id - 1));
+        }
+        Arrays.sort(distances);
+        return distances[distances.length / 2];
+    }
+
+    /**
+     * Calculates the accelerations of all bodies with the n^2 method.
+     *
+     * @param bodies Store with the bodies
+     * @return x, y and z components of the accelerations
+     */
+    private double[][] calculateExactAccelerations(BodyStore bodies) {
+        return calculateExactAccelerations(bodies, Softening.NONE);
+    }
+
+    /**
+     * Calculates the softened accelerations of all bodies with the n^2 method.
+     *
+     * @param bodies    Store with the bodies
+     * @param softening Softening of the force
+     * @return x, y and z components of the accelerations
+     */
+    private double[][] calculateExactAccelerations(BodyStore bodies, Softening softening) {
+        int n = bodies.size();
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ(), mass = bodies.getMass();
+        double[][] exact = new double[3][n];
+        for (int id = 0; id < n; id++) {
+            for (int other = 0; other < n; other++) {
+                double dx = x[other] - x[id], dy = y[other] - y[id], dz = z[other] - z[id];
+                double distanceSquared = dx * dx + dy * dy + dz * dz;
+                if (other != id && distanceSquared > 0) {
+                    double factor = Constants.G * mass[other] * softening.factor(distanceSquared);
+                    exact[0][id] += dx * factor;
+                    exact[1][id] += dy * factor;
+                    exact[2][id] += dz * factor;
+                }
+            }
+        }
+        return exact;
+    }
+
+    /**
+     * Calculates the average relative error of accelerations compared to the n^2 method.
+     *
+     * @param exact Accelerations of the n^2 method
+     * @param ax    x-components of the accelerations
+     * @param ay    y-components of the accelerations
+     * @param az    z-components of the accelerations
+     * @return Average relative error
+     */
+    private double calculateForceError(double[][] exact, double[] ax, double[] ay, double[] az) {
+        int n = exact[0].length;
+        double error = 0;
+        for (int id = 0; id < n; id++) {
+            Vector3 exactAcceleration = new Vector3(exact[0][id], exact[1][id], exact[2][id]);
+            error += new Vector3(ax[id], ay[id], az[id]).distanceTo(exactAcceleration) / exactAcceleration.distanceToCenter();
+        }
+        return error / n;
+    }
+}
@@ -0,0 +1,422 @@
+package mi17bta10.tests;
+
+import mi17bta10.generateSimulationData.GenerateSimulationData;
+import mi17bta10.generateSimulationData.SimulationType;
+import mi17bta10.simulation.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Test class for the integrators, the energy of the solar system is compared over one simulated year,
+ * and the block time steps are compared with the smallest time step for all bodies in a cluster.
+ * The energy of a cluster of equal stars is compared with and without softening.
+ */
+public class IntegratorTest implements TestInterface {
+
+    private boolean isLeapfrogMoreExact, isVelocityVerletSamePath, isIntegratorUsedInCycle;
+    private boolean areBlockTimeStepsFaster, areBlockTimeStepsExact, isFarFieldUsedInBlockTimeSteps, areRemovedBodiesHandled;
+    private long blockTimeStepsForceCalculations, smallestTimeStepForceCalculations, blockTimeStepsTime, smallestTimeStepTime;
+    private double blockTimeStepsDeviation, largestTimeStepDeviation;
+    private int[] bodiesPerLevel;
+    private boolean isSofteningMoreExact;
+    private final String[] softeningNames = new String[]{"no softening and 4 times smaller time step", "plummer softening", "spline softening"};
+    private final double[] softeningEnergyErrors = new double[softeningNames.length];
+    private final int[] timeStepsInHours = new int[]{3, 24};
+    private final double[][] energyErrors = new double[3][timeStepsInHours.length];
+    private final String[] integratorNames = new String[]{"symplectic euler", "leapfrog", "velocity verlet"};
+
+    @Override
+    public void startTests() {
+        double[][][] positions = new double[3][][];
+        for (int i = 0; i < this.timeStepsInHours.length; i++) {
+            for (int integrator = 0; integrator < 3; integrator++) {
+                BodyStore bodies = runSolarSystem(createIntegrator(integrator), this.timeStepsInHours[i], this.energyErrors[integrator], i);
+                if (i == this.timeStepsInHours.length - 1) {
+                    positions[integrator] = new double[][]{bodies.getPositionX().clone(), bodies.getPositionY().clone(), bodies.getPositionZ().clone()};
+                }
+            }
+        }
+        //the leapfrog with 24 h reaches the error of the symplectic euler with 3 h (8 times fewer force calculations)
+        this.isLeapfrogMoreExact = this.energyErrors[1][1] <= this.energyErrors[0][0];
+        this.isVelocityVerletSamePath = isSamePath(positions[1], positions[2]);
+        this.isIntegratorUsedInCycle = testIntegratorInCycle();
+        testBlockTimeSteps(1000, 3);
+        this.isFarFieldUsedInBlockTimeSteps = testBlockTimeStepsWithFarField(1000, 3);
+        this.areRemovedBodiesHandled = testRemovedBodies(300, 20);
+        testSoftening(200, 40);
+    }
+
+    @Override
+    public void printResults() {
+        System.out.println("-" + this.isLeapfrogMoreExact + ":: Does the leapfrog with 8 times fewer force calculations reach the energy error of the symplectic euler?");
+        System.out.println("-" + this.isVelocityVerletSamePath + ":: Does the velocity verlet move the bodies on the same path as the leapfrog?");
+        System.out.println("-" + this.isIntegratorUsedInCycle + ":: Is the integrator of the flat octree used in the calc-move cycle (and passed on to the new trees)?");
+        for (int integrator = 0; integrator < 3; integrator++) {
+            for (int i = 0; i < this.timeStepsInHours.length; i++) {
+                System.out.println("-" + this.energyErrors[integrator][i] + ":: The largest relative energy error of the solar system in one year with the "
+                        + this.integratorNames[integrator] + " and a time step of " + this.timeStepsInHours[i] + " h ("
+                        + (int) (365.25 * 24 / this.timeStepsInHours[i]) + " force calculations).");
+            }
+        }
+        System.out.println("-" + this.areBlockTimeStepsFaster + ":: Do the block time steps need less than a quarter of the force calculations of the smallest time step for all bodies?");
+        System.out.println("-" + this.areBlockTimeStepsExact + ":: Do the block time steps deviate from the smallest time step for all bodies by less than 1 % of the distance moved?");
+        System.out.println("-" + this.isFarFieldUsedInBlockTimeSteps + ":: Do the block time steps with one level move the bodies of a tree with a far field the same way as the leapfrog?");
+        System.out.println("-" + this.areRemovedBodiesHandled + ":: Do the leapfrog, the velocity verlet and the block time steps move the kept bodies the same way if bodies leave a fixed root cube?");
+        System.out.println("-" + Arrays.toString(this.bodiesPerLevel) + ":: Number of bodies of the cluster on every time step level (level l has the time step divided by 2^l).");
+        System.out.println("-" + this.blockTimeStepsForceCalculations + " / " + this.smallestTimeStepForceCalculations
+                + ":: Force calculations of the cluster with block time steps / with the smallest time step for all bodies.");
+        System.out.println("-" + this.blockTimeStepsTime / 1e6 + "ms / " + this.smallestTimeStepTime / 1e6
+                + "ms:: Time of the cluster with block time steps / with the smallest time step for all bodies.");
+        System.out.println("-" + this.blockTimeStepsDeviation + " / " + this.largestTimeStepDeviation
+                + ":: Mean deviation from the smallest time step for all bodies relative to the distance moved, with block time steps / with the largest time step for all bodies.");
+        System.out.println("-" + this.isSofteningMoreExact + ":: Is the energy error of a star cluster with softening smaller than without softening with a 4 times smaller time step?");
+        for (int i = 0; i < this.softeningNames.length; i++) {
+            System.out.println("-" + this.softeningEnergyErrors[i] + ":: The largest relative energy error of the star cluster in one crossing time with " + this.softeningNames[i] + ".");
+        }
+    }
+
+    private Integrator createIntegrator(int integrator) {
+        switch (integrator) {
+            case 1:
+                return new LeapfrogIntegrator();
+            case 2:
+                return new VelocityVerletIntegrator();
+            default:
+                return new SymplecticEuler();
+        }
+    }
+
+    /**
+     * Simulates the solar system for one year (direct summation) and stores the largest relative energy error.
+     *
+     * @param integrator        Integrator that moves the bodies
+     * @param timeStepInHours   Time step of the bodies
+     * @param energyErrors      Array that gets the error
+     * @param index             Index of the error in the array
+     * @return Bodies after one year
+     */
+    private BodyStore runSolarSystem(Integrator integrator, int timeStepInHours, double[] energyErrors, int index) {
+        GenerateSimulationData genData = new GenerateSimulationData(0, SimulationType.SOL, 70 * Constants.AU, timeStepInHours * 3600);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE);
+        BodyStore bodies = tree.getBodyStore();
+        DirectSummation directSummation = new DirectSummation();
+        int steps = (int) (365.25 * 24 / timeStepInHours);
+        double startEnergy = 0, largestError = 0;
+        for (int step = 0; step <= steps; step++) {
+            directSummation.calculateAccelerations(tree);
+            double energy = calculateEnergy(bodies, integrator);
+            if (step == 0) {
+                startEnergy = energy;
+            }
+            largestError = Math.max(largestError, Math.abs((energy - startEnergy) / startEnergy));
+            integrator.step(bodies);
+        }
+        energyErrors[index] = largestError;
+        return bodies;
+    }
+
+    /**
+     * Calculates the total energy (kinetic and potential) of all bodies, with the velocities at the current positions.
+     *
+     * @param bodies     Bodies with the accelerations at the current positions
+     * @param integrator Integrator that moved the bodies
+     * @return Energy in J
+     */
+    private double calculateEnergy(BodyStore bodies, Integrator integrator) {
+        return calculateEnergy(bodies, integrator, Softening.NONE);
+    }
+
+    /**
+     * Calculates the total energy (kinetic and softened potential) of all bodies, with the velocities at the current positions.
+     *
+     * @param bodies     Bodies with the accelerations at the current positions
+     * @param integrator Integrator that moved the bodies
+     * @param softening  Softening of the potential
+     * @return Energy in J
+     */
+    private double calculateEnergy(BodyStore bodies, Integrator integrator, Softening softening) {
+        int n = bodies.size();
+        double[] vx = new double[n], vy = new double[n], vz = new double[n];
+        integrator.synchronizeVelocities(bodies, vx, vy, vz);
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ(), mass = bodies.getMass();
+        double energy = 0;
+        for (int i = 0; i < n; i++) {
+            energy += 0.5 * mass[i] * (vx[i] * vx[i] + vy[i] * vy[i] + vz[i] * vz[i]);
+            for (int j = i + 1; j < n; j++) {
+                double dx = x[j] - x[i], dy = y[j] - y[i], dz = z[j] - z[i];
+                energy -= Constants.G * mass[i] * mass[j] * softening.potentialFactor(dx * dx + dy * dy + dz * dz);
+            }
+        }
+        return energy;
+    }
+
+    private boolean isSamePath(double[][] positions, double[][] otherPositions) {
+        for (int axis = 0; axis < 3; axis++) {
+            for (int id = 0; id < positions[axis].length; id++) {
+                if (Math.abs(positions[axis][id] - otherPositions[axis][id]) > 1e-6 * Constants.AU) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests if the calc-move cycle of the flat octree moves the bodies with its integrator:
+     * a few cycles with the leapfrog have to give the same positions as the leapfrog with the direct summation.
+     *
+     * @return returns true if the positions are the same, false otherwise
+     */
+    private boolean testIntegratorInCycle() {
+        GenerateSimulationData genData = new GenerateSimulationData(0, SimulationType.SOL, 70 * Constants.AU, 24 * 3600);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE);
+        tree.setForceEngine(new DirectSummation());
+        tree.setIntegrator(new LeapfrogIntegrator());
+        FlatOctree expectedTree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE);
+        Integrator expectedIntegrator = new LeapfrogIntegrator();
+        DirectSummation directSummation = new DirectSummation();
+        for (int step = 0; step < 10; step++) {
+            FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+            tree.calculateForcesOnAllBodies(newTree);
+            tree = newTree;
+            directSummation.calculateAccelerations(expectedTree);
+            expectedIntegrator.step(expectedTree.getBodyStore());
+        }
+        BodyStore bodies = tree.getBodyStore(), expectedBodies = expectedTree.getBodyStore();
+        return tree.getIntegrator() instanceof LeapfrogIntegrator && isSamePath(
+                new double[][]{bodies.getPositionX(), bodies.getPositionY(), bodies.getPositionZ()},
+                new double[][]{expectedBodies.getPositionX(), expectedBodies.getPositionY(), expectedBodies.getPositionZ()});
+    }
+
+    /**
+     * Simulates a cluster with block time steps, with the smallest time step for all bodies and with the largest time step
+     * for all bodies (in the calc-move cycle of the flat octree) and compares the force calculations, times and positions.
+     *
+     * @param numberOfCelestialBodies Number of bodies around the black hole
+     * @param numberOfSteps           Number of calc-move cycles
+     */
+    private void testBlockTimeSteps(int numberOfCelestialBodies, int numberOfSteps) {
+        double cubeLength = 2 * Constants.LIGHT_YEAR;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 1000000000);
+        CelestialBody[] celestialBodies = genData.generateAsArray();
+        BlockTimeSteps blockTimeSteps = new BlockTimeSteps(cubeLength);
+        //accuracy 0: every body gets the largest level, level 0: every body has the time step of the store
+        BlockTimeSteps smallestTimeStep = new BlockTimeSteps(BlockTimeSteps.DEFAULT_MAX_LEVEL, 0, cubeLength);
+        BlockTimeSteps largestTimeStep = new BlockTimeSteps(0, BlockTimeSteps.DEFAULT_ACCURACY, cubeLength);
+        BlockTimeSteps[] settings = new BlockTimeSteps[]{blockTimeSteps, smallestTimeStep, largestTimeStep};
+        long[] forceCalculations = new long[settings.length], times = new long[settings.length];
+        BodyStore[] stores = new BodyStore[settings.length];
+        for (int i = 0; i < settings.length; i++) {
+            Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+            FlatOctree tree = new FlatOctree(cube, TreeBuildMode.MORTON);
+            tree.build(BodyStore.fromCelestialBodies(celestialBodies, celestialBodies.length));
+            tree.setBlockTimeSteps(settings[i]);
+            long startTime = System.nanoTime();
+            for (int step = 0; step < numberOfSteps; step++) {
+                FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+                tree.calculateForcesOnAllBodies(newTree);
+                tree = newTree;
+                forceCalculations[i] += settings[i].getNumberOfForceCalculations();
+            }
+            times[i] = System.nanoTime() - startTime;
+            stores[i] = tree.getBodyStore();
+        }
+
+        this.bodiesPerLevel = new int[BlockTimeSteps.DEFAULT_MAX_LEVEL + 1];
+        for (int id = 0; id < stores[0].size(); id++) {
+            this.bodiesPerLevel[blockTimeSteps.getLevel(id)]++;
+        }
+        //the black hole (id 0) hardly moves, it is left out
+        double distanceMoved = 0, blockDeviation = 0, largestDeviation = 0;
+        for (int id = 1; id < celestialBodies.length; id++) {
+            Vector3 reference = stores[1].getPosition(id);
+            distanceMoved += reference.distanceTo(celestialBodies[id].getPosition());
+            blockDeviation += reference.distanceTo(stores[0].getPosition(id));
+            largestDeviation += reference.distanceTo(stores[2].getPosition(id));
+        }
+        this.blockTimeStepsForceCalculations = forceCalculations[0];
+        this.smallestTimeStepForceCalculations = forceCalculations[1];
+        this.blockTimeStepsTime = times[0];
+        this.smallestTimeStepTime = times[1];
+        this.blockTimeStepsDeviation = blockDeviation / distanceMoved;
+        this.largestTimeStepDeviation = largestDeviation / distanceMoved;
+        this.areBlockTimeStepsFaster = forceCalculations[0] * 4 < forceCalculations[1];
+        this.areBlockTimeStepsExact = this.blockTimeStepsDeviation < 0.01;
+    }
+
+    /**
+     * Simulates a cluster in a refitted tree with a far field, with block time steps that have only the level 0
+     * (kick-drift-kick with the time step of the store) and with the leapfrog: the far field has to be used in the substeps,
+     * so that the bodies move the same way.
+     *
+     * @param numberOfCelestialBodies Number of bodies around the black hole
+     * @param numberOfSteps           Number of calc-move cycles
+     * @return True if the positions are the same (up to rounding), false otherwise
+     */
+    private boolean testBlockTimeStepsWithFarField(int numberOfCelestialBodies, int numberOfSteps) {
+        double cubeLength = 2 * Constants.LIGHT_YEAR;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 1000000000);
+        CelestialBody[] celestialBodies = genData.generateAsArray();
+        BodyStore[] stores = new BodyStore[2];
+        for (int i = 0; i < stores.length; i++) {
+            Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+            FlatOctree tree = new FlatOctree(cube, TreeBuildMode.REFIT);
+            tree.setFarFieldFactor(0.5);
+            tree.build(BodyStore.fromCelestialBodies(celestialBodies, celestialBodies.length));
+            if (tree.getNumberOfFarBodies() == 0) {
+                return false;
+            }
+            if (i == 0) {
+                tree.setBlockTimeSteps(new BlockTimeSteps(0, BlockTimeSteps.DEFAULT_ACCURACY, cubeLength));
+            } else {
+                tree.setIntegrator(new LeapfrogIntegrator());
+            }
+            for (int step = 0; step < numberOfSteps; step++) {
+                FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+                tree.calculateForcesOnAllBodies(newTree);
+                tree = newTree;
+            }
+            stores[i] = tree.getBodyStore();
+        }
+        double distanceMoved = 0, deviation = 0;
+        for (int id = 1; id < celestialBodies.length; id++) {
+            Vector3 reference = stores[1].getPosition(id);
+            distanceMoved += reference.distanceTo(celestialBodies[id].getPosition());
+            deviation += reference.distanceTo(stores[0].getPosition(id));
+        }
+        return deviation / distanceMoved < 1e-12;
+    }
+
+    /**
+     * Simulates light bodies around a sun in a fixed root cube, every third body escapes from the cube and is removed,
+     * so the ids of the other bodies change. With the leapfrog, the velocity verlet and the block time steps
+     * the kept bodies have to move the same way as in a tree whose root is fitted to all bodies.
+     *
+     * @param numberOfCelestialBodies Number of bodies around the sun
+     * @param numberOfSteps           Number of calc-move cycles
+     * @return True if bodies were removed and the kept bodies have the same positions (up to rounding), false otherwise
+     */
+    private boolean testRemovedBodies(int numberOfCelestialBodies, int numberOfSteps) {
+        double cubeLength = 2 * Constants.AU;
+        for (int integrator = 0; integrator < 3; integrator++) {
+            BodyStore[] stores = new BodyStore[2];
+            for (int i = 0; i < stores.length; i++) {
+                Random random = new Random(1);
+                BodyStore bodies = new BodyStore();
+                bodies.add("0", 2e30, 7e8, 0, 0, 0, 0, 0, 0, null, 24 * 3600);
+                for (int body = 1; body <= numberOfCelestialBodies; body++) {
+                    double distance = (0.2 + 0.7 * random.nextDouble()) * Constants.AU;
+                    double angle = 2 * Math.PI * random.nextDouble();
+                    double x = distance * Math.cos(angle), y = distance * Math.sin(angle);
+                    double circularSpeed = Math.sqrt(Constants.G * 2e30 / distance);
+                    if (body % 3 == 0) {
+                        //radial velocity of 3 times the escape speed, the body leaves the cube
+                        double speed = 3 * Math.sqrt(2) * circularSpeed / distance;
+                        bodies.add(String.valueOf(body), 1, 1, x, y, 0, x * speed, y * speed, 0, null, 24 * 3600);
+                    } else {
+                        bodies.add(String.valueOf(body), 1, 1, x, y, 0, -y / distance * circularSpeed, x / distance * circularSpeed, 0, null, 24 * 3600);
+                    }
+                }
+                Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+                FlatOctree tree = new FlatOctree(cube, TreeBuildMode.MORTON);
+                tree.setAutoBounds(i == 1);
+                tree.build(bodies);
+                tree.setForceEngine(new DirectSummation());
+                if (integrator == 2) {
+                    tree.setBlockTimeSteps(new BlockTimeSteps(cubeLength));
+                } else {
+                    tree.setIntegrator(createIntegrator(integrator + 1));
+                }
+                for (int step = 0; step < numberOfSteps; step++) {
+                    FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+                    tree.calculateForcesOnAllBodies(newTree);
+                    tree = newTree;
+                }
+                stores[i] = tree.getBodyStore();
+            }
+            if (stores[0].size() == stores[1].size()) {
+                return false;
+            }
+            //the kept bodies are in the same order in both stores
+            int referenceId = 0;
+            for (int id = 0; id < stores[0].size(); id++) {
+                while (!stores[1].getName(referenceId).equals(stores[0].getName(id))) {
+                    referenceId++;
+                }
+                Vector3 reference = stores[1].getPosition(referenceId);
+                if (reference.distanceTo(stores[0].getPosition(id)) > 1e-9 * cubeLength) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Simulates a cluster of equal stars in equilibrium (gaussian positions, velocities with 2 * kinetic energy = -potential energy)
+     * for one crossing time with the leapfrog and the direct summation, without softening and a 4 times smaller time step,
+     * and with plummer and spline softening (softening length 5 % of the radius). Without softening the close encounters
+     * of the stars break the energy conservation even with the smaller time step.
+     *
+     * @param numberOfCelestialBodies Number of stars
+     * @param stepsPerCrossingTime    Number of time steps with softening in one crossing time
+     */
+    private void testSoftening(int numberOfCelestialBodies, int stepsPerCrossingTime) {
+        Random random = new Random(1);
+        int n = numberOfCelestialBodies;
+        double radius = 0.1 * Constants.LIGHT_YEAR, mass = Constants.MASS_OF_SUN;
+        double[][] position = new double[3][n], velocity = new double[3][n];
+        for (int id = 0; id < n; id++) {
+            for (int axis = 0; axis < 3; axis++) {
+                position[axis][id] = random.nextGaussian() * radius;
+                velocity[axis][id] = random.nextGaussian();
+            }
+        }
+        double kineticEnergy = 0, potentialEnergy = 0;
+        for (int i = 0; i < n; i++) {
+            kineticEnergy += 0.5 * mass * (velocity[0][i] * velocity[0][i] + velocity[1][i] * velocity[1][i] + velocity[2][i] * velocity[2][i]);
+            for (int j = i + 1; j < n; j++) {
+                double dx = position[0][j] - position[0][i], dy = position[1][j] - position[1][i], dz = position[2][j] - position[2][i];
+                potentialEnergy -= Constants.G * mass * mass / Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+        }
+        //virial equilibrium, the crossing time is the radius divided by the mean speed
+        double scale = Math.sqrt(-potentialEnergy / 2 / kineticEnergy);
+        for (int axis = 0; axis < 3; axis++) {
+            for (int id = 0; id < n; id++) {
+                velocity[axis][id] *= scale;
+            }
+        }
+        double crossingTime = radius / Math.sqrt(2 * kineticEnergy * scale * scale / mass / n);
+        double timeStep = crossingTime / stepsPerCrossingTime;
+
+        Softening[] softenings = new Softening[]{Softening.NONE, new Softening(SofteningType.PLUMMER, 0.05 * radius), new Softening(SofteningType.SPLINE, 0.05 * radius)};
+        double cubeLength = 100 * radius;
+        for (int i = 0; i < softenings.length; i++) {
+            double bodyTimeStep = i == 0 ? timeStep / 4 : timeStep;
+            BodyStore bodies = new BodyStore(n);
+            for (int id = 0; id < n; id++) {
+                bodies.add(null, mass, 1, position[0][id], position[1][id], position[2][id], velocity[0][id], velocity[1][id], velocity[2][id], null, bodyTimeStep);
+            }
+            FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.MORTON);
+            tree.build(bodies);
+            tree.setSoftening(softenings[i]);
+            DirectSummation directSummation = new DirectSummation();
+            Integrator integrator = new LeapfrogIntegrator();
+            int steps = (int) Math.round(crossingTime / bodyTimeStep);
+            double startEnergy = 0, largestError = 0;
+            for (int step = 0; step <= steps; step++) {
+                directSummation.calculateAccelerations(tree);
+                double energy = calculateEnergy(bodies, integrator, softenings[i]);
+                if (step == 0) {
+                    startEnergy = energy;
+                }
+                largestError = Math.max(largestError, Math.abs((energy - startEnergy) / startEnergy));
+                integrator.step(bodies);
+            }
+            this.softeningEnergyErrors[i] = largestError;
+        }
+        this.isSofteningMoreExact = this.softeningEnergyErrors[1] < this.softeningEnergyErrors[0] && this.softeningEnergyErrors[2] < this.softeningEnergyErrors[0];
+    }
+}
@@ -4,12 +4,15 @@ import mi17bta10.generateSimulationData.GenerateSimulationData;
 import mi17bta10.generateSimulationData.SimulationType;
 import mi17bta10.simulation.*;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Test class for testing the octree
  */
 public class OctreeTest implements TestInterface {
 
-    private boolean isAddCorrect, isMassCalculationCorrect, isForceCalculationValid;
+    private boolean isAddCorrect, isMassCalculationCorrect, isForceCalculationValid, isParallelForceCalculationEqual;
+    private boolean isIdentityCorrect;
     private double averageCalculationError;
     private int numberOfMeasurementsForce, numberOfCelestialBodiesForce;
 
@@ -19,12 +22,16 @@ public class OctreeTest implements TestInterface {
         this.numberOfCelestialBodiesForce = 1000;
         this.numberOfMeasurementsForce = 10;
         this.isForceCalculationValid = testForceCalculation(this.numberOfMeasurementsForce, this.numberOfCelestialBodiesForce);
+        this.isParallelForceCalculationEqual = testParallelForceCalculation(this.numberOfCelestialBodiesForce);
+        this.isIdentityCorrect = testIdentity();
     }
 
     public void printResults() {
         System.out.println("-" + this.isAddCorrect + ":: Does adding bodies to the tree work?");
         System.out.println("-" + this.isMassCalculationCorrect + ":: Is mass calculation correct?");
         System.out.println("-" + this.isForceCalculationValid + ":: Is force calculation correct?");
+        System.out.println("-" + this.isParallelForceCalculationEqual + ":: Is the parallel force calculation the same as with one thread?");
+        System.out.println("-" + this.isIdentityCorrect + ":: Are bodies with the same name added, is the same body only added once and are the ids of generated bodies their indices?");
         System.out.println("-" + this.averageCalculationError + ":: The average error between the barnes hut and n^2 method for " + this.numberOfCelestialBodiesForce + " bodies and " + this.numberOfMeasurementsForce + " measurements.");
     }
 
@@ -87,6 +94,40 @@ public class OctreeTest implements TestInterface {
         return right;
     }
 
+    /**
+     * Tests if bodies are identified by their id and not by their name:
+     * bodies with the same name are all added, the same body is not added a second time (octree and flat octree),
+     * and the ids of generated bodies are their indices in the generated array.
+     *
+     * @return returns true if it works, false otherwise
+     */
+    private boolean testIdentity() {
+        CelestialBody[] generatedBodies = new GenerateSimulationData(100, SimulationType.DISTRIBUTED_CLUSTERS).generateAsArray();
+        for (int i = 0; i < generatedBodies.length; i++) {
+            if (generatedBodies[i].getId() != i) {
+                return false;
+            }
+        }
+
+        Cube cube = new Cube(new Vector3(0, 0, 0), 1000);
+        BarnesHutTree[] trees = new BarnesHutTree[]{new Octree(cube), new FlatOctree(cube)};
+        for (BarnesHutTree tree : trees) {
+            CelestialBody body1 = new CelestialBody("same", 1, 1, new Vector3(250, 250, 250), new Vector3(0, 0, 0), StdDraw.BLUE);
+            CelestialBody body2 = new CelestialBody("same", 1, 1, new Vector3(750, 250, 250), new Vector3(0, 0, 0), StdDraw.BLUE);
+            CelestialBody body3 = new CelestialBody(null, 1, 1, new Vector3(250, 750, 250), new Vector3(0, 0, 0), StdDraw.BLUE);
+            if (body1.getId() == body2.getId() || body2.getId() == body3.getId()) {
+                return false;
+            }
+            if (!tree.addToOctree(body1) || !tree.addToOctree(body2) || !tree.addToOctree(body3) || tree.addToOctree(body1)) {
+                return false;
+            }
+            if (tree.getNumberOfBodies() != 3) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * tests if adding CelestialBodies to the octree works
      *
@@ -245,7 +286,7 @@ public class OctreeTest implements TestInterface {
                 CelestialBody treeBody = curNode.getBody();
                 CelestialBody arrayBody = null;
                 for (int arrayIndex = 0; arrayIndex < bodies.length; arrayIndex++) {
-                    if (treeBody.getName().equals(bodies[arrayIndex].getName())) {
+                    if (treeBody.getId() == bodies[arrayIndex].getId()) {
                         arrayBody = bodies[arrayIndex];
                     }
                 }
@@ -277,4 +318,44 @@ public class OctreeTest implements TestInterface {
         }
         return isCorrect;
     }
+
+    /**
+     * Tests if a calc-move cycle with four threads moves the bodies to exactly the same positions as with one thread
+     *
+     * @param numberOfCelestialBodies With how many celestial bodies the calculation is done
+     * @return Returns true if all positions are the same, false otherwise
+     */
+    private boolean testParallelForceCalculation(int numberOfCelestialBodies) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 100);
+        CelestialBody[] bodies = genData.generateAsArray();
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+
+        Octree serialTree = new Octree(cube);
+        Octree parallelTree = new Octree(cube);
+        CelestialBody[] serialBodies = new CelestialBody[bodies.length];
+        CelestialBody[] parallelBodies = new CelestialBody[bodies.length];
+        for (int i = 0; i < bodies.length; i++) {
+            serialBodies[i] = bodies[i].clone();
+            parallelBodies[i] = bodies[i].clone();
+            serialTree.addToOctree(serialBodies[i]);
+            parallelTree.addToOctree(parallelBodies[i]);
+        }
+
+        ForkJoinPool serialPool = new ForkJoinPool(1);
+        ForkJoinPool parallelPool = new ForkJoinPool(4);
+        serialTree.setForkJoinPool(serialPool);
+        parallelTree.setForkJoinPool(parallelPool);
+        serialTree.calculateForcesOnAllBodies(new Octree(cube));
+        parallelTree.calculateForcesOnAllBodies(new Octree(cube));
+        serialPool.shutdown();
+        parallelPool.shutdown();
+
+        for (int i = 0; i < bodies.length; i++) {
+            if (!serialBodies[i].getPosition().equals(parallelBodies[i].getPosition())) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
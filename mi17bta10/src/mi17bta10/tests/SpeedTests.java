@@ -5,15 +5,49 @@ import mi17bta10.generateSimulationData.SimulationType;
 import mi17bta10.simulation.*;
 
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class is for testing the octree and barnes hut algorithm on speed
  */
 public class SpeedTests implements TestInterface {
-    private long createTreesTime;
+    private long createTreesTime, createFlatTreesTime, createMortonTreesTime;
+    private long createFlatTreesSerialTime, createParallelTreesTime;
     private long calcForceTimeWithSmallSystem, calcForceTimeWithBigSystem, calcForceWithNPow2AlgorithmTime;
     private long distanceNormalTime;
     private long getDistanceWithoutPowTime;
+    private long octreeMemory, flatOctreeMemory;
+    private long celestialBodiesMemory, bodyStoreMemory;
+    private long octreeStepTime, flatOctreeStepTime;
+    private long stepTimeOneThread, stepTimeAllThreads;
+    private long recursiveWalkStepTime, iterativeWalkStepTime;
+    private final int[] leafCapacities = new int[]{1, 8, 32};
+    private final long[] leafCapacityBuildTimes = new long[leafCapacities.length];
+    private final long[] leafCapacityStepTimes = new long[leafCapacities.length];
+    private final long[] groupedWalkStepTimes = new long[leafCapacities.length];
+    private long recursiveWalkAllocatedBytes, iterativeWalkAllocatedBytes, iterativeStepAllocatedBytes;
+    private long rebuildTimeInStep, refitTimeInStep, refitMovedBodies, refitRebuilds;
+    private final double[] multipoleThetas = new double[]{0.6, 0.8, 1, 1.25, 1.5, 2};
+    private final int multipoleReference = 4;
+    private double[][] multipoleAccuracy;
+    private long forceKernelTime, scalarForceKernelTime;
+    private final int[] crossoverSizes = new int[]{100, 300, 1000, 3000, 10000};
+    private final long[][] crossoverTimes = new long[crossoverSizes.length][];
+    private final SimulationType[] fastMultipoleSimulationTypes = new SimulationType[]{SimulationType.CLUSTER, SimulationType.DISTRIBUTED_CLUSTERS};
+    private final double[][] fastMultipoleComparison = new double[fastMultipoleSimulationTypes.length][];
+    private final String[] openingCriterionNames = new String[]{"geometric 1", "geometric 1.5", "geometric 2", "geometric 3",
+            "bmax 1", "bmax 1.5", "bmax 2", "bmax 3", "relative 0.02", "relative 0.005", "relative 0.001", "relative 0.0002"};
+    private final double openingCriterionErrorBudget = 1e-3;
+    private final double[][][] openingCriterionComparison = new double[fastMultipoleSimulationTypes.length][][];
+    private final SimulationType[] mixedPrecisionSimulationTypes = SimulationType.values();
+    private final double[][] mixedPrecisionComparison = new double[mixedPrecisionSimulationTypes.length][];
+    private final int[] interactionListCacheTimeSteps = new int[]{0, 1};
+    private final double[][] interactionListCacheComparison = new double[interactionListCacheTimeSteps.length][];
+    private final int numberOfCostZones = 8;
+    private final double[][] costZoneComparison = new double[fastMultipoleSimulationTypes.length][];
+    private final int reorderInterval = 10;
+    private final double[][] reorderComparison = new double[fastMultipoleSimulationTypes.length][];
+    private final double[][] stacklessWalkComparison = new double[fastMultipoleSimulationTypes.length][];
 
 
     public long measureCreateTrees(int numberOfMeasurements) {
@@ -42,6 +76,44 @@ public class SpeedTests implements TestInterface {
         return sum / numberOfMeasurements;
     }
 
+    /**
+     * Measures the average time to build a flat octree.
+     *
+     * @param buildMode               How the tree is built
+     * @param numberOfCelestialBodies With how many celestial bodies the trees are built
+     * @param numberOfMeasurements    How many trees are built
+     * @return Average time to build a tree in ns
+     */
+    public long measureCreateFlatTrees(TreeBuildMode buildMode, int numberOfCelestialBodies, int numberOfMeasurements) {
+        return measureCreateFlatTrees(buildMode, FlatOctree.DEFAULT_LEAF_CAPACITY, numberOfCelestialBodies, numberOfMeasurements);
+    }
+
+    /**
+     * Measures the average time to build a flat octree with the given build mode and leaf capacity.
+     *
+     * @param buildMode               How the tree is built
+     * @param leafCapacity            Number of bodies a leaf can hold
+     * @param numberOfCelestialBodies Number of bodies in the tree
+     * @param numberOfMeasurements    How many trees are built
+     * @return Average time in ns
+     */
+    public long measureCreateFlatTrees(TreeBuildMode buildMode, int leafCapacity, int numberOfCelestialBodies, int numberOfMeasurements) {
+        double cubeLength = 10 * Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfCelestialBodies, SimulationType.CLUSTER, cubeLength, 1);
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+        long sum = 0;
+        for (int i = 0; i < numberOfMeasurements; i++) {
+            CelestialBody[] bodies = genData.generateAsArray();
+
+            long startTime = System.nanoTime();
+            FlatOctree tree = new FlatOctree(cube, buildMode);
+            tree.setLeafCapacity(leafCapacity);
+            tree.build(bodies, bodies.length);
+            sum += System.nanoTime() - startTime;
+        }
+        return sum / numberOfMeasurements;
+    }
+
     public long measureForceCalcTime(int numberOfMeasurements, double cubeLength) {
         GenerateSimulationData genData = new GenerateSimulationData(1000, SimulationType.CLUSTER, cubeLength, 1);
         long times[] = new long[numberOfMeasurements];
@@ -85,6 +157,597 @@ public class SpeedTests implements TestInterface {
         return sum / numberOfMeasurements;
     }
 
+    /**
+     * Measures how many bytes of heap a tree of the given type with 10000 bodies uses.
+     *
+     * @param treeType The tree implementation that shall be measured
+     * @return Used heap in bytes
+     */
+    public long measureTreeMemory(TreeType treeType) {
+        double cubeLength = 10 * Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(10000, SimulationType.CLUSTER, cubeLength, 1);
+        CelestialBody[] bodies = genData.generateAsArray();
+        Cube cube = new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength);
+
+        long before = usedMemory();
+        BarnesHutTree tree = treeType.createTree(cube);
+        for (CelestialBody body : bodies) {
+            tree.addToOctree(body);
+        }
+        long after = usedMemory();
+
+        //keeps the tree alive until the measurement is done
+        return tree.getNumberOfBodies() > 0 ? after - before : 0;
+    }
+
+    /**
+     * Measures the memory used by 10000 bodies, stored as celestial bodies or in a body store.
+     *
+     * @param asBodyStore True if the bodies shall be stored in a body store
+     * @return Used memory in bytes
+     */
+    public long measureBodyMemory(boolean asBodyStore) {
+        GenerateSimulationData genData = new GenerateSimulationData(10000, SimulationType.CLUSTER, 10 * Constants.AU, 1);
+        long before = usedMemory();
+        Object bodies = asBodyStore ? genData.generateAsBodyStore() : genData.generateAsArray();
+        long after = usedMemory();
+
+        //keeps the bodies alive until the measurement is done
+        return bodies != null ? after - before : 0;
+    }
+
+    private long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Measures the average time of a calc-move cycle (force calculation, moving and building the next tree)
+     * with 1000 bodies for the given tree type.
+     *
+     * @param treeType             The tree implementation that shall be measured
+     * @param numberOfMeasurements How many cycles are measured
+     * @return Average time of a cycle in ns
+     */
+    public long measureStepTime(TreeType treeType, int numberOfMeasurements) {
+        return measureStepTime(treeType, ForkJoinPool.commonPool(), numberOfMeasurements);
+    }
+
+    /**
+     * Measures the average time of a calc-move cycle with 1000 bodies for the given tree type and thread pool.
+     *
+     * @param treeType             The tree implementation that shall be measured
+     * @param forkJoinPool         Thread pool for the force calculation
+     * @param numberOfMeasurements How many cycles are measured
+     * @return Average time of a cycle in ns
+     */
+    public long measureStepTime(TreeType treeType, ForkJoinPool forkJoinPool, int numberOfMeasurements) {
+        double cubeLength = 10 * Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(1000, SimulationType.CLUSTER, cubeLength, 1);
+        BarnesHutTree tree = genData.generateAsTree(treeType);
+        tree.setForkJoinPool(forkJoinPool);
+        BarnesHutTree newTree;
+        long sum = 0;
+        for (int i = 0; i < numberOfMeasurements; i++) {
+            long startTime = System.nanoTime();
+
+            newTree = tree.createEmptyTree();
+            tree.calculateForcesOnAllBodies(newTree);
+            tree = newTree;
+
+            sum += System.nanoTime() - startTime;
+        }
+        return sum / numberOfMeasurements;
+    }
+
+    /**
+     * Measures the average time of a calc-move cycle with the flat octree (1000 bodies) and the given force engine.
+     *
+     * @param forceEngine          Force engine that calculates the accelerations
+     * @param numberOfMeasurements How many cycles are measured
+     * @return Average time of a cycle in ns
+     */
+    public long measureStepTime(ForceEngine forceEngine, int numberOfMeasurements) {
+        return measureStepTime(forceEngine, FlatOctree.DEFAULT_LEAF_CAPACITY, numberOfMeasurements);
+    }
+
+    /**
+     * Measures the average time of a calc-move cycle with the flat octree (1000 bodies), the given force engine and leaf capacity.
+     *
+     * @param forceEngine          Force engine that calculates the accelerations
+     * @param leafCapacity         Number of bodies a leaf can hold
+     * @param numberOfMeasurements How many cycles are measured
+     * @return Average time of a cycle in ns
+     */
+    public long measureStepTime(ForceEngine forceEngine, int leafCapacity, int numberOfMeasurements) {
+        double cubeLength = 10 * Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(1000, SimulationType.CLUSTER, cubeLength, 1);
+        FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength));
+        tree.setLeafCapacity(leafCapacity);
+        tree.build(genData.generateAsBodyStore());
+        tree.setForceEngine(forceEngine);
+        long sum = 0;
+        for (int i = 0; i < numberOfMeasurements; i++) {
+            long startTime = System.nanoTime();
+
+            FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+            tree.calculateForcesOnAllBodies(newTree);
+            tree = newTree;
+
+            sum += System.nanoTime() - startTime;
+        }
+        return sum / numberOfMeasurements;
+    }
+
+    /**
+     * Measures the average number of bytes allocated per calc-move cycle with the flat octree (1000 bodies)
+     * and the given force engine. The first cycles are not measured (warm up).
+     *
+     * @param forceEngine          Force engine that calculates the accelerations
+     * @param numberOfMeasurements How many cycles are measured
+     * @return Average allocated bytes of the force calculation and of the whole cycle, -1 if not supported
+     */
+    public long[] measureAllocatedBytes(ForceEngine forceEngine, int numberOfMeasurements) {
+        double cubeLength = 10 * Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(1000, SimulationType.CLUSTER, cubeLength, 1);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE);
+        tree.setForceEngine(forceEngine);
+        tree.setMeasureAllocations(true);
+        long sumForces = 0, sumStep = 0;
+        for (int i = -10; i < numberOfMeasurements; i++) {
+            FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+            tree.calculateForcesOnAllBodies(newTree);
+            if (i >= 0) {
+                sumForces += tree.getAllocatedBytesOfForces();
+                sumStep += tree.getAllocatedBytesOfStep();
+            }
+            tree = newTree;
+        }
+        if (!AllocationCounter.isSupported()) {
+            return new long[]{-1, -1};
+        }
+        return new long[]{sumForces / numberOfMeasurements, sumStep / numberOfMeasurements};
+    }
+
+    /**
+     * Measures how long building the new tree takes in a calc-move cycle with the flat octree (1000 bodies in a cube of 1 AU).
+     * For refitted trees also the average number of bodies that were moved to another leaf is measured.
+     *
+     * @param treeType             Type of the flat octree (build mode)
+     * @param numberOfMeasurements How many cycles are measured
+     * @return Average build time in ns, average number of moved bodies per refit and number of cycles in which the tree was built again
+     */
+    public long[] measureBuildTimeInStep(TreeType treeType, int numberOfMeasurements) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(1000, SimulationType.CLUSTER, cubeLength, 1);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(treeType);
+        long sumTime = 0, sumMoved = 0, refits = 0, rebuilds = 0;
+        for (int i = 0; i < numberOfMeasurements; i++) {
+            FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+            tree.calculateForcesOnAllBodies(newTree);
+            tree = newTree;
+            sumTime += tree.getBuildTime();
+            if (tree.getNumberOfMovedBodies() == -1) {
+                rebuilds++;
+            } else {
+                sumMoved += tree.getNumberOfMovedBodies();
+                refits++;
+            }
+        }
+        return new long[]{sumTime / numberOfMeasurements, refits == 0 ? 0 : sumMoved / refits, rebuilds};
+    }
+
+    /**
+     * Measures the average relative force error (compared to the n^2 method) and the average number of interactions per body
+     * of the iterative walk with 1000 bodies, with monopoles only and with quadrupoles, for every theta.
+     *
+     * @param thetas Values of theta that are measured
+     * @return For every theta: monopole error, monopole interactions, quadrupole error, quadrupole interactions
+     */
+    public double[][] measureMultipoleAccuracy(double[] thetas) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(1000, SimulationType.CLUSTER, cubeLength, 1);
+        FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.MORTON);
+        tree.setQuadrupoles(true);
+        tree.build(genData.generateAsBodyStore());
+        BodyStore bodies = tree.getBodyStore();
+        int n = bodies.size();
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ(), mass = bodies.getMass();
+
+        double[][] exact = new double[n][3];
+        for (int id = 0; id < n; id++) {
+            for (int other = 0; other < n; other++) {
+                double dx = x[other] - x[id], dy = y[other] - y[id], dz = z[other] - z[id];
+                double distanceSquared = dx * dx + dy * dy + dz * dz;
+                if (other != id && distanceSquared > 0) {
+                    double factor = Constants.G * mass[other] / (distanceSquared * Math.sqrt(distanceSquared));
+                    exact[id][0] += dx * factor;
+                    exact[id][1] += dy * factor;
+                    exact[id][2] += dz * factor;
+                }
+            }
+        }
+
+        double[][] result = new double[thetas.length][4];
+        for (int i = 0; i < thetas.length; i++) {
+            IterativeTreeWalk walk = new IterativeTreeWalk(thetas[i]);
+            for (int quadrupoles = 0; quadrupoles < 2; quadrupoles++) {
+                tree.setQuadrupoles(quadrupoles == 1);
+                double error = 0;
+                long interactions = 0;
+                for (int id = 0; id < n; id++) {
+                    interactions += walk.calculateAcceleration(tree, id);
+                    Vector3 exactAcceleration = new Vector3(exact[id][0], exact[id][1], exact[id][2]);
+                    Vector3 acceleration = new Vector3(bodies.getAccelerationX()[id], bodies.getAccelerationY()[id], bodies.getAccelerationZ()[id]);
+                    error += acceleration.distanceTo(exactAcceleration) / exactAcceleration.distanceToCenter();
+                }
+                result[i][2 * quadrupoles] = error / n;
+                result[i][2 * quadrupoles + 1] = (double) interactions / n;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compares the fast multipole method with the iterative walk: the average relative force error (compared to the n^2 method,
+     * for 1000 of the bodies) and the average time of a force calculation.
+     *
+     * @param simulationType       Generator of the bodies
+     * @param numberOfBodies       Number of bodies
+     * @param numberOfMeasurements How many force calculations are measured
+     * @return Error of the iterative walk, error of the fast multipole method, time of the iterative walk in ns, time of the fast multipole method in ns
+     */
+    public double[] measureFastMultipoleMethod(SimulationType simulationType, int numberOfBodies, int numberOfMeasurements) {
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfBodies, simulationType);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_MORTON);
+        BodyStore bodies = tree.getBodyStore();
+        int n = bodies.size();
+        double[] x = bodies.getPositionX(), y = bodies.getPositionY(), z = bodies.getPositionZ(), mass = bodies.getMass();
+        int sampleStep = Math.max(1, n / 1000);
+
+        ForceEngine[] engines = new ForceEngine[]{new IterativeTreeWalk(), new FastMultipoleMethod()};
+        double[] result = new double[4];
+        for (int e = 0; e < engines.length; e++) {
+            long startTime = System.nanoTime();
+            for (int i = 0; i < numberOfMeasurements; i++) {
+                engines[e].calculateAccelerations(tree);
+            }
+            result[2 + e] = (double) (System.nanoTime() - startTime) / numberOfMeasurements;
+
+            double error = 0;
+            int samples = 0;
+            for (int id = 0; id < n; id += sampleStep) {
+                double ax = 0, ay = 0, az = 0;
+                for (int other = 0; other < n; other++) {
+                    double dx = x[other] - x[id], dy = y[other] - y[id], dz = z[other] - z[id];
+                    double distanceSquared = dx * dx + dy * dy + dz * dz;
+                    if (other != id && distanceSquared > 0) {
+                        double factor = Constants.G * mass[other] / (distanceSquared * Math.sqrt(distanceSquared));
+                        ax += dx * factor;
+                        ay += dy * factor;
+                        az += dz * factor;
+                    }
+                }
+                Vector3 exactAcceleration = new Vector3(ax, ay, az);
+                Vector3 acceleration = new Vector3(bodies.getAccelerationX()[id], bodies.getAccelerationY()[id], bodies.getAccelerationZ()[id]);
+                error += acceleration.distanceTo(exactAcceleration) / exactAcceleration.distanceToCenter();
+                samples++;
+            }
+            result[e] = error / samples;
+        }
+        return result;
+    }
+
+    /**
+     * Creates the opening criteria of the comparison (same order as the names).
+     *
+     * @return Opening criteria
+     */
+    private OpeningCriterion[] createOpeningCriteria() {
+        return new OpeningCriterion[]{new GeometricCriterion(1), new GeometricCriterion(1.5), new GeometricCriterion(2), new GeometricCriterion(3),
+                new BmaxCriterion(1), new BmaxCriterion(1.5), new BmaxCriterion(2), new BmaxCriterion(3),
+                new RelativeCriterion(0.02, Constants.theta), new RelativeCriterion(0.005, Constants.theta),
+                new RelativeCriterion(0.001, Constants.theta), new RelativeCriterion(0.0002, Constants.theta)};
+    }
+
+    /**
+     * Compares the opening criteria of the iterative walk: the average relative force error (compared to the direct summation),
+     * the average number of opened nodes per body and the time of a force calculation.
+     * The accelerations of the last step (for the relative criterion) are the exact accelerations.
+     *
+     * @param simulationType Generator of the bodies
+     * @param numberOfBodies Number of bodies
+     * @param criteria       Opening criteria that are compared
+     * @return For every criterion: error, opened nodes per body, time in ns
+     */
+    public double[][] measureOpeningCriteria(SimulationType simulationType, int numberOfBodies, OpeningCriterion[] criteria) {
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfBodies, simulationType);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_MORTON);
+        BodyStore bodies = tree.getBodyStore();
+        int n = bodies.size();
+        new DirectSummation().calculateAccelerations(tree);
+        double[] exactX = bodies.getAccelerationX().clone(), exactY = bodies.getAccelerationY().clone(), exactZ = bodies.getAccelerationZ().clone();
+
+        double[][] result = new double[criteria.length][3];
+        for (int c = 0; c < criteria.length; c++) {
+            IterativeTreeWalk walk = new IterativeTreeWalk(criteria[c]);
+            System.arraycopy(exactX, 0, bodies.getAccelerationX(), 0, n);
+            System.arraycopy(exactY, 0, bodies.getAccelerationY(), 0, n);
+            System.arraycopy(exactZ, 0, bodies.getAccelerationZ(), 0, n);
+            long startTime = System.nanoTime();
+            walk.calculateAccelerations(tree);
+            result[c][2] = System.nanoTime() - startTime;
+            result[c][1] = (double) walk.getNumberOfOpenedNodes() / n;
+            double error = 0;
+            for (int id = 0; id < n; id++) {
+                Vector3 exactAcceleration = new Vector3(exactX[id], exactY[id], exactZ[id]);
+                Vector3 acceleration = new Vector3(bodies.getAccelerationX()[id], bodies.getAccelerationY()[id], bodies.getAccelerationZ()[id]);
+                error += acceleration.distanceTo(exactAcceleration) / exactAcceleration.distanceToCenter();
+            }
+            result[c][0] = error / n;
+        }
+        return result;
+    }
+
+    /**
+     * Compares the walk on float nodes with the iterative walk on double nodes (same theta): the average and the largest
+     * relative difference of the accelerations and the average time of a force calculation.
+     *
+     * @param simulationType       Generator of the bodies
+     * @param numberOfBodies       Number of bodies
+     * @param numberOfMeasurements How many force calculations are measured
+     * @return Average difference, largest difference, time of the iterative walk in ns, time of the mixed precision walk in ns
+     */
+    public double[] measureMixedPrecision(SimulationType simulationType, int numberOfBodies, int numberOfMeasurements) {
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfBodies, simulationType);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_MORTON);
+        BodyStore bodies = tree.getBodyStore();
+        int n = bodies.size();
+
+        ForceEngine[] engines = new ForceEngine[]{new IterativeTreeWalk(), new MixedPrecisionTreeWalk()};
+        double[][] accelerations = new double[engines.length][];
+        double[] result = new double[4];
+        for (int e = 0; e < engines.length; e++) {
+            long startTime = System.nanoTime();
+            for (int i = 0; i < numberOfMeasurements; i++) {
+                engines[e].calculateAccelerations(tree);
+            }
+            result[2 + e] = (double) (System.nanoTime() - startTime) / numberOfMeasurements;
+            accelerations[e] = new double[3 * n];
+            System.arraycopy(bodies.getAccelerationX(), 0, accelerations[e], 0, n);
+            System.arraycopy(bodies.getAccelerationY(), 0, accelerations[e], n, n);
+            System.arraycopy(bodies.getAccelerationZ(), 0, accelerations[e], 2 * n, n);
+        }
+        double sum = 0, largest = 0;
+        for (int id = 0; id < n; id++) {
+            Vector3 reference = new Vector3(accelerations[0][id], accelerations[0][n + id], accelerations[0][2 * n + id]);
+            Vector3 mixed = new Vector3(accelerations[1][id], accelerations[1][n + id], accelerations[1][2 * n + id]);
+            double difference = mixed.distanceTo(reference) / reference.distanceToCenter();
+            sum += difference;
+            largest = Math.max(largest, difference);
+        }
+        result[0] = sum / n;
+        result[1] = largest;
+        return result;
+    }
+
+    /**
+     * Compares the stackless walk on the depth first layout with the iterative walk (same theta, same accelerations):
+     * the average time of a force calculation (the stackless walk with the calculation of the layout) and of the layout alone.
+     *
+     * @param simulationType       Generator of the bodies
+     * @param numberOfBodies       Number of bodies
+     * @param numberOfMeasurements How many force calculations are measured (after one round that is not measured)
+     * @return Time of the iterative walk in ns, time of the stackless walk in ns, time of the depth first layout in ns
+     */
+    public double[] measureStacklessWalk(SimulationType simulationType, int numberOfBodies, int numberOfMeasurements) {
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfBodies, simulationType);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_MORTON);
+        ForceEngine[] engines = new ForceEngine[]{new IterativeTreeWalk(), new StacklessTreeWalk()};
+        double[] result = new double[3];
+        for (int warmUp = 0; warmUp < 2; warmUp++) {
+            for (int e = 0; e < engines.length; e++) {
+                long startTime = System.nanoTime();
+                for (int i = 0; i < numberOfMeasurements; i++) {
+                    engines[e].calculateAccelerations(tree);
+                }
+                result[e] = (double) (System.nanoTime() - startTime) / numberOfMeasurements;
+            }
+            long startTime = System.nanoTime();
+            for (int i = 0; i < numberOfMeasurements; i++) {
+                tree.calculateDepthFirstLayout();
+            }
+            result[2] = (double) (System.nanoTime() - startTime) / numberOfMeasurements;
+        }
+        return result;
+    }
+
+    /**
+     * Compares the grouped walk with and without cached interaction lists (default margin) in a refitted cluster:
+     * the time of the force calculations of all cycles and the part of the groups whose cached list was used.
+     *
+     * @param timeStep       Time step of the bodies in s (0 for bodies that do not move)
+     * @param numberOfBodies Number of bodies
+     * @param numberOfSteps  Number of calc-move cycles
+     * @return Time without cache in ns, time with cache in ns, part of the reused lists
+     */
+    public double[] measureInteractionListCache(int timeStep, int numberOfBodies, int numberOfSteps) {
+        double cubeLength = Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfBodies, SimulationType.CLUSTER, cubeLength, timeStep);
+        CelestialBody[] celestialBodies = genData.generateAsArray();
+        GroupedTreeWalk[] walks = new GroupedTreeWalk[]{new GroupedTreeWalk(), new GroupedTreeWalk(Constants.theta, GroupedTreeWalk.DEFAULT_CACHE_MARGIN)};
+        double[] result = new double[3];
+        long reusedLists = 0, walkedLists = 0;
+        //the first round warms up the jit
+        for (int round = 0; round < 2; round++) {
+            for (int w = 0; w < walks.length; w++) {
+                GroupedTreeWalk walk = walks[w];
+                FlatOctree tree = new FlatOctree(new Cube(new Vector3(-cubeLength / 2, -cubeLength / 2, -cubeLength / 2), cubeLength), TreeBuildMode.REFIT);
+                tree.build(BodyStore.fromCelestialBodies(celestialBodies, celestialBodies.length));
+                long[] time = new long[1];
+                tree.setForceEngine(forceTree -> {
+                    long startTime = System.nanoTime();
+                    walk.calculateAccelerations(forceTree);
+                    time[0] += System.nanoTime() - startTime;
+                });
+                for (int step = 0; step < numberOfSteps; step++) {
+                    FlatOctree newTree = (FlatOctree) tree.createEmptyTree();
+                    tree.calculateForcesOnAllBodies(newTree);
+                    tree = newTree;
+                    reusedLists += walk.getNumberOfReusedLists();
+                    walkedLists += walk.getNumberOfWalkedLists();
+                }
+                result[w] = time[0];
+            }
+        }
+        result[2] = (double) reusedLists / (reusedLists + walkedLists);
+        return result;
+    }
+
+    /**
+     * Compares the iterative walk in zones of equal cost along the space filling curve (costzones) with zones of the same
+     * number of bodies in the order of the store (equal chunks): the average time of a force calculation, the imbalance
+     * of the interactions and the average imbalance of the times of the zones (slowest zone / average zone, every zone is timed on its own).
+     *
+     * @param simulationType       Generator of the bodies
+     * @param numberOfBodies       Number of bodies
+     * @param numberOfZones        Number of zones (threads)
+     * @param numberOfMeasurements How many force calculations are measured
+     * @return For equal chunks and for costzones: time in ns, imbalance of the interactions, imbalance of the times
+     */
+    public double[] measureCostZones(SimulationType simulationType, int numberOfBodies, int numberOfZones, int numberOfMeasurements) {
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfBodies, simulationType);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_MORTON);
+        CostZoneTreeWalk[] walks = new CostZoneTreeWalk[]{new CostZoneTreeWalk(new IterativeTreeWalk(), numberOfZones, false),
+                new CostZoneTreeWalk(new IterativeTreeWalk(), numberOfZones, true)};
+        double[] result = new double[6];
+        for (int w = 0; w < walks.length; w++) {
+            //the first calculation records the costs
+            walks[w].calculateAccelerations(tree);
+            double timeImbalance = 0;
+            long startTime = System.nanoTime();
+            for (int i = 0; i < numberOfMeasurements; i++) {
+                walks[w].calculateAccelerations(tree);
+                timeImbalance += walks[w].getTimeImbalance();
+            }
+            result[3 * w] = (double) (System.nanoTime() - startTime) / numberOfMeasurements;
+            result[3 * w + 1] = walks[w].getCostImbalance();
+            result[3 * w + 2] = timeImbalance / numberOfMeasurements;
+        }
+        return result;
+    }
+
+    /**
+     * Compares calc-move cycles with the bodies in the generated order (random in space) and with the bodies reordered along
+     * the space filling curve every reorderInterval cycles (iterative walk, morton code build), with the times of the cycles:
+     * the average time of the force calculation, of the build and of the reordering. Both simulations start with the same bodies
+     * and their cycles are measured alternately.
+     *
+     * @param simulationType  Generator of the bodies
+     * @param numberOfBodies  Number of bodies
+     * @param reorderInterval Number of cycles between two reorderings
+     * @param numberOfSteps   How many cycles are measured (after one interval that is not measured)
+     * @return For the generated order and for the reordered bodies: force time in ns, build time in ns, reorder time in ns
+     */
+    public double[] measureReordering(SimulationType simulationType, int numberOfBodies, int reorderInterval, int numberOfSteps) {
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfBodies, simulationType);
+        CelestialBody[] celestialBodies = genData.generateAsArray();
+        double edgeLength = genData.getEdgeLengthOfSimulatedArea();
+        Cube cube = new Cube(new Vector3(-edgeLength / 2, -edgeLength / 2, -edgeLength / 2), edgeLength);
+        FlatOctree[] trees = new FlatOctree[2];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new FlatOctree(cube, TreeBuildMode.MORTON);
+            trees[i].setForceEngine(new IterativeTreeWalk());
+            trees[i].build(BodyStore.fromCelestialBodies(celestialBodies, celestialBodies.length));
+        }
+        trees[1].setReorderInterval(reorderInterval);
+        double[] result = new double[6];
+        //the first interval is not measured (warm up, the bodies are reordered once)
+        for (int step = -reorderInterval; step < numberOfSteps; step++) {
+            for (int i = 0; i < trees.length; i++) {
+                FlatOctree newTree = (FlatOctree) trees[i].createEmptyTree();
+                trees[i].calculateForcesOnAllBodies(newTree);
+                trees[i] = newTree;
+                if (step >= 0) {
+                    result[3 * i] += trees[i].getForceTime();
+                    result[3 * i + 1] += trees[i].getBuildTime();
+                    result[3 * i + 2] += trees[i].getReorderTime();
+                }
+            }
+        }
+        for (int i = 0; i < result.length; i++) {
+            result[i] /= numberOfSteps;
+        }
+        return result;
+    }
+
+    /**
+     * Measures the time of the force kernel with the independent sums and with one sum (1000 positions against 1000 point masses).
+     *
+     * @param numberOfMeasurements How many times all positions are calculated
+     * @return Average time of all positions in ns: with the independent sums, with one sum
+     */
+    public long[] measureForceKernel(int numberOfMeasurements) {
+        int n = 1000;
+        Random random = new Random(1);
+        double[] x = new double[n], y = new double[n], z = new double[n], mass = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = random.nextDouble() * Constants.AU;
+            y[i] = random.nextDouble() * Constants.AU;
+            z[i] = random.nextDouble() * Constants.AU;
+            mass[i] = random.nextDouble() * Constants.MASS_OF_SUN;
+        }
+        double[] acceleration = new double[3];
+        long[] times = new long[2];
+        for (int warmUp = 0; warmUp < 2; warmUp++) {
+            for (int kernel = 0; kernel < 2; kernel++) {
+                long startTime = System.nanoTime();
+                for (int i = 0; i < numberOfMeasurements; i++) {
+                    for (int id = 0; id < n; id++) {
+                        if (kernel == 0) {
+                            ForceKernel.accumulate(x[id], y[id], z[id], x, y, z, mass, n, acceleration);
+                        } else {
+                            ForceKernel.accumulateScalar(x[id], y[id], z[id], x, y, z, mass, n, acceleration);
+                        }
+                    }
+                }
+                times[kernel] = (System.nanoTime() - startTime) / numberOfMeasurements;
+            }
+        }
+        return times;
+    }
+
+    /**
+     * Measures the average time of a force calculation with the direct summation and with the iterative walk (all threads)
+     * and which engine the automatic engine chooses.
+     *
+     * @param numberOfBodies       Number of bodies (cluster)
+     * @param numberOfMeasurements How many force calculations are measured
+     * @return Time of the direct summation in ns, time of the iterative walk in ns, 1 if the automatic engine chose the direct summation
+     */
+    public long[] measureDirectSummation(int numberOfBodies, int numberOfMeasurements) {
+        double cubeLength = 10 * Constants.AU;
+        GenerateSimulationData genData = new GenerateSimulationData(numberOfBodies, SimulationType.CLUSTER, cubeLength, 1);
+        FlatOctree tree = (FlatOctree) genData.generateAsTree(TreeType.FLAT_OCTREE_MORTON);
+        ForceEngine[] engines = new ForceEngine[]{new DirectSummation(), new IterativeTreeWalk()};
+        long[] result = new long[3];
+        for (int e = 0; e < engines.length; e++) {
+            engines[e].calculateAccelerations(tree); //warm up
+            long startTime = System.nanoTime();
+            for (int i = 0; i < numberOfMeasurements; i++) {
+                engines[e].calculateAccelerations(tree);
+            }
+            result[e] = (System.nanoTime() - startTime) / numberOfMeasurements;
+        }
+        AutomaticForceEngine automaticForceEngine = new AutomaticForceEngine();
+        automaticForceEngine.calculateAccelerations(tree);
+        result[2] = automaticForceEngine.isDirectSummationChosen() ? 1 : 0;
+        return result;
+    }
+
     private void measureVector3DistanceCalc(int numberOfMeasurements) {
 
         long startTime, endTime, startTime2, endTime2;
@@ -127,15 +790,174 @@ public class SpeedTests implements TestInterface {
     public void startTests() {
         double smallLength = Constants.AU * 10;
         this.createTreesTime = measureCreateTrees(500);
+        this.createFlatTreesTime = measureCreateFlatTrees(TreeBuildMode.INSERTION, 10000, 500);
+        this.createMortonTreesTime = measureCreateFlatTrees(TreeBuildMode.MORTON, 10000, 500);
+        this.createFlatTreesSerialTime = measureCreateFlatTrees(TreeBuildMode.INSERTION, 100000, 20);
+        this.createParallelTreesTime = measureCreateFlatTrees(TreeBuildMode.PARALLEL, 100000, 20);
         this.calcForceTimeWithSmallSystem = measureForceCalcTimeWithDifferentTrees(10, smallLength);
         measureVector3DistanceCalc(10000);
+        this.octreeMemory = measureTreeMemory(TreeType.OCTREE);
+        this.flatOctreeMemory = measureTreeMemory(TreeType.FLAT_OCTREE);
+        this.celestialBodiesMemory = measureBodyMemory(false);
+        this.bodyStoreMemory = measureBodyMemory(true);
+        this.octreeStepTime = measureStepTime(TreeType.OCTREE, 100);
+        this.flatOctreeStepTime = measureStepTime(TreeType.FLAT_OCTREE, 100);
+        ForkJoinPool onePool = new ForkJoinPool(1);
+        this.stepTimeOneThread = measureStepTime(TreeType.FLAT_OCTREE, onePool, 100);
+        this.stepTimeAllThreads = measureStepTime(TreeType.FLAT_OCTREE, ForkJoinPool.commonPool(), 100);
+        onePool.shutdown();
+        this.recursiveWalkStepTime = measureStepTime(new RecursiveTreeWalk(), 100);
+        this.iterativeWalkStepTime = measureStepTime(new IterativeTreeWalk(), 100);
+        for (int i = 0; i < this.leafCapacities.length; i++) {
+            this.leafCapacityBuildTimes[i] = measureCreateFlatTrees(TreeBuildMode.INSERTION, this.leafCapacities[i], 10000, 200);
+            this.leafCapacityStepTimes[i] = measureStepTime(new IterativeTreeWalk(), this.leafCapacities[i], 100);
+            this.groupedWalkStepTimes[i] = measureStepTime(new GroupedTreeWalk(), this.leafCapacities[i], 100);
+        }
+        this.recursiveWalkAllocatedBytes = measureAllocatedBytes(new RecursiveTreeWalk(), 20)[0];
+        long[] iterativeAllocatedBytes = measureAllocatedBytes(new IterativeTreeWalk(), 20);
+        this.iterativeWalkAllocatedBytes = iterativeAllocatedBytes[0];
+        this.iterativeStepAllocatedBytes = iterativeAllocatedBytes[1];
+        this.rebuildTimeInStep = measureBuildTimeInStep(TreeType.FLAT_OCTREE_MORTON, 100)[0];
+        long[] refit = measureBuildTimeInStep(TreeType.FLAT_OCTREE_REFIT, 100);
+        this.refitTimeInStep = refit[0];
+        this.refitMovedBodies = refit[1];
+        this.refitRebuilds = refit[2];
+        this.multipoleAccuracy = measureMultipoleAccuracy(this.multipoleThetas);
+        long[] forceKernelTimes = measureForceKernel(20);
+        this.forceKernelTime = forceKernelTimes[0];
+        this.scalarForceKernelTime = forceKernelTimes[1];
+        for (int i = 0; i < this.crossoverSizes.length; i++) {
+            this.crossoverTimes[i] = measureDirectSummation(this.crossoverSizes[i], this.crossoverSizes[i] <= 1000 ? 20 : 3);
+        }
+        for (int i = 0; i < this.fastMultipoleSimulationTypes.length; i++) {
+            this.fastMultipoleComparison[i] = measureFastMultipoleMethod(this.fastMultipoleSimulationTypes[i], 20000, 5);
+            this.openingCriterionComparison[i] = measureOpeningCriteria(this.fastMultipoleSimulationTypes[i], 10000, createOpeningCriteria());
+            this.costZoneComparison[i] = measureCostZones(this.fastMultipoleSimulationTypes[i], 20000, this.numberOfCostZones, 5);
+            this.reorderComparison[i] = measureReordering(this.fastMultipoleSimulationTypes[i], 20000, this.reorderInterval, 20);
+            this.stacklessWalkComparison[i] = measureStacklessWalk(this.fastMultipoleSimulationTypes[i], 20000, 5);
+        }
+        for (int i = 0; i < this.mixedPrecisionSimulationTypes.length; i++) {
+            this.mixedPrecisionComparison[i] = measureMixedPrecision(this.mixedPrecisionSimulationTypes[i], 20000, 5);
+        }
+        for (int i = 0; i < this.interactionListCacheTimeSteps.length; i++) {
+            this.interactionListCacheComparison[i] = measureInteractionListCache(this.interactionListCacheTimeSteps[i], 5000, 30);
+        }
     }
 
     @Override
     public void printResults() {
-        System.out.println("The average time to create trees is in ms: " + this.createTreesTime / 10e6);
-        System.out.println("The average time to calc the force in a small system (10*AU-1000 bodies) is in ms: " + this.calcForceTimeWithSmallSystem / 10e6);
-        System.out.println("The sum time to calc distance to normal is: " + distanceNormalTime / 10e6);
-        System.out.println("The sum time to calc distance without sqrt is: " + getDistanceWithoutPowTime / 10e6);
+        System.out.println("The average time to create trees is in ms: " + this.createTreesTime / 1e6);
+        System.out.println("The average time to create flat trees (one by one) is in ms: " + this.createFlatTreesTime / 1e6);
+        System.out.println("The average time to create flat trees (morton codes) is in ms: " + this.createMortonTreesTime / 1e6);
+        System.out.println("The average time to create flat trees with 100000 bodies (one by one) is in ms: " + this.createFlatTreesSerialTime / 1e6);
+        System.out.println("The average time to create flat trees with 100000 bodies (parallel, threshold " + FlatOctree.DEFAULT_PARALLEL_THRESHOLD
+                + ") is in ms: " + this.createParallelTreesTime / 1e6 + " - speedup: " + (double) this.createFlatTreesSerialTime / this.createParallelTreesTime);
+        System.out.println("The average time to calc the force in a small system (10*AU-1000 bodies) is in ms: " + this.calcForceTimeWithSmallSystem / 1e6);
+        System.out.println("The sum time to calc distance to normal is: " + distanceNormalTime / 1e6);
+        System.out.println("The sum time to calc distance without sqrt is: " + getDistanceWithoutPowTime / 1e6);
+        System.out.println("The memory used by an octree with 10000 bodies is in kB: " + this.octreeMemory / 1024);
+        System.out.println("The memory used by a flat octree with 10000 bodies (including its body store) is in kB: " + this.flatOctreeMemory / 1024);
+        System.out.println("The memory used by 10000 celestial bodies is in kB: " + this.celestialBodiesMemory / 1024);
+        System.out.println("The memory used by a body store with 10000 bodies is in kB: " + this.bodyStoreMemory / 1024);
+        System.out.println("The average time of a calc-move cycle with the octree (1000 bodies) is in ms: " + this.octreeStepTime / 1e6);
+        System.out.println("The average time of a calc-move cycle with the flat octree (1000 bodies) is in ms: " + this.flatOctreeStepTime / 1e6);
+        System.out.println("The average time of a calc-move cycle with the flat octree and 1 thread is in ms: " + this.stepTimeOneThread / 1e6);
+        System.out.println("The average time of a calc-move cycle with the flat octree and " + ForkJoinPool.commonPool().getParallelism()
+                + " threads is in ms: " + this.stepTimeAllThreads / 1e6);
+        System.out.println("The average time of a calc-move cycle with the recursive walk (1000 bodies) is in ms: " + this.recursiveWalkStepTime / 1e6);
+        System.out.println("The average time of a calc-move cycle with the iterative walk (1000 bodies) is in ms: " + this.iterativeWalkStepTime / 1e6);
+        for (int i = 0; i < this.leafCapacities.length; i++) {
+            System.out.println("The average time to create flat trees with " + this.leafCapacities[i] + " bodies per leaf (10000 bodies) is in ms: "
+                    + this.leafCapacityBuildTimes[i] / 1e6);
+            System.out.println("The average time of a calc-move cycle with " + this.leafCapacities[i] + " bodies per leaf (1000 bodies) is in ms: "
+                    + this.leafCapacityStepTimes[i] / 1e6);
+            System.out.println("The average time of a calc-move cycle with the grouped walk and " + this.leafCapacities[i] + " bodies per leaf (1000 bodies) is in ms: "
+                    + this.groupedWalkStepTimes[i] / 1e6 + " - speedup: " + (double) this.leafCapacityStepTimes[i] / this.groupedWalkStepTimes[i]);
+        }
+        System.out.println("The bytes allocated per force calculation with the recursive walk (1000 bodies): " + this.recursiveWalkAllocatedBytes);
+        System.out.println("The bytes allocated per force calculation with the iterative walk (1000 bodies): " + this.iterativeWalkAllocatedBytes);
+        System.out.println("The bytes allocated per calc-move cycle with the iterative walk (1000 bodies): " + this.iterativeStepAllocatedBytes);
+        System.out.println("The average time to build the new tree in a calc-move cycle (morton codes, 1000 bodies) is in ms: " + this.rebuildTimeInStep / 1e6);
+        System.out.println("The average time to refit the tree in a calc-move cycle (1000 bodies) is in ms: " + this.refitTimeInStep / 1e6
+                + " - speedup: " + (double) this.rebuildTimeInStep / this.refitTimeInStep);
+        System.out.println("The average number of bodies moved to another leaf per refit (1000 bodies): " + this.refitMovedBodies
+                + " - cycles with a full rebuild: " + this.refitRebuilds + " of 100");
+        for (int i = 0; i < this.multipoleThetas.length; i++) {
+            double[] row = this.multipoleAccuracy[i];
+            System.out.println("Theta " + this.multipoleThetas[i] + " (1000 bodies) - monopoles: error " + row[0] + ", interactions per body " + row[1]
+                    + " - quadrupoles: error " + row[2] + ", interactions per body " + row[3]);
+        }
+        //interactions of the quadrupoles at the error of the monopoles with the reference theta (interpolated between two thetas)
+        double monopoleError = this.multipoleAccuracy[this.multipoleReference][0];
+        double monopoleInteractions = this.multipoleAccuracy[this.multipoleReference][1];
+        for (int i = 0; i + 1 < this.multipoleThetas.length; i++) {
+            double[] row = this.multipoleAccuracy[i], next = this.multipoleAccuracy[i + 1];
+            if (row[2] >= monopoleError && next[2] <= monopoleError) {
+                double t = (Math.log(row[2]) - Math.log(monopoleError)) / (Math.log(row[2]) - Math.log(next[2]));
+                double quadrupoleInteractions = row[3] + t * (next[3] - row[3]);
+                System.out.println("Interactions per body at the error of the monopoles with theta " + this.multipoleThetas[this.multipoleReference]
+                        + " (" + monopoleError + ") - monopoles: " + monopoleInteractions + ", quadrupoles: " + quadrupoleInteractions
+                        + " - saved: " + (1 - quadrupoleInteractions / monopoleInteractions) * 100 + "%");
+                break;
+            }
+        }
+        System.out.println("The average time of 1000 * 1000 interactions with the force kernel (" + ForceKernel.LANES + " sums) is in ms: "
+                + this.forceKernelTime / 1e6 + " - with one sum: " + this.scalarForceKernelTime / 1e6
+                + " - speedup: " + (double) this.scalarForceKernelTime / this.forceKernelTime);
+        for (int i = 0; i < this.crossoverSizes.length; i++) {
+            long[] row = this.crossoverTimes[i];
+            System.out.println("The average time of a force calculation with " + this.crossoverSizes[i] + " bodies is in ms - direct summation: "
+                    + row[0] / 1e6 + ", iterative walk: " + row[1] / 1e6 + " - automatically chosen: " + (row[2] == 1 ? "direct summation" : "iterative walk"));
+        }
+        for (int i = 0; i < this.fastMultipoleSimulationTypes.length; i++) {
+            double[] row = this.fastMultipoleComparison[i];
+            System.out.println(this.fastMultipoleSimulationTypes[i] + " (20000 bodies) - iterative walk: error " + row[0] + ", force calculation in ms "
+                    + row[2] / 1e6 + " - fast multipole method: error " + row[1] + ", force calculation in ms " + row[3] / 1e6
+                    + " - speedup: " + row[2] / row[3]);
+        }
+        for (int i = 0; i < this.fastMultipoleSimulationTypes.length; i++) {
+            //the criterion that opens the fewest nodes with an error below the budget
+            int cheapest = -1;
+            for (int c = 0; c < this.openingCriterionNames.length; c++) {
+                double[] row = this.openingCriterionComparison[i][c];
+                System.out.println(this.fastMultipoleSimulationTypes[i] + " (10000 bodies) - opening criterion " + this.openingCriterionNames[c] + ": error " + row[0]
+                        + ", opened nodes per body " + row[1] + ", force calculation in ms " + row[2] / 1e6);
+                if (row[0] <= this.openingCriterionErrorBudget && (cheapest == -1 || row[1] < this.openingCriterionComparison[i][cheapest][1])) {
+                    cheapest = c;
+                }
+            }
+            System.out.println(this.fastMultipoleSimulationTypes[i] + " (10000 bodies) - opening criterion with the fewest opened nodes and an error below "
+                    + this.openingCriterionErrorBudget + ": " + (cheapest == -1 ? "none" : this.openingCriterionNames[cheapest]));
+        }
+        for (int i = 0; i < this.mixedPrecisionSimulationTypes.length; i++) {
+            double[] row = this.mixedPrecisionComparison[i];
+            System.out.println(this.mixedPrecisionSimulationTypes[i] + " (20000 bodies) - float nodes compared to double nodes: average difference " + row[0]
+                    + ", largest difference " + row[1] + " - force calculation in ms with double nodes " + row[2] / 1e6
+                    + ", with float nodes " + row[3] / 1e6 + " - speedup: " + row[2] / row[3]);
+        }
+        for (int i = 0; i < this.fastMultipoleSimulationTypes.length; i++) {
+            double[] row = this.costZoneComparison[i];
+            System.out.println(this.fastMultipoleSimulationTypes[i] + " (20000 bodies, " + this.numberOfCostZones + " zones) - equal chunks: force calculation in ms "
+                    + row[0] / 1e6 + ", imbalance of the interactions " + row[1] + ", imbalance of the times " + row[2]
+                    + " - costzones: force calculation in ms " + row[3] / 1e6 + ", imbalance of the interactions " + row[4] + ", imbalance of the times " + row[5]);
+        }
+        for (int i = 0; i < this.fastMultipoleSimulationTypes.length; i++) {
+            double[] row = this.reorderComparison[i];
+            System.out.println(this.fastMultipoleSimulationTypes[i] + " (20000 bodies) - generated order: force calculation in ms " + row[0] / 1e6
+                    + ", build in ms " + row[1] / 1e6 + " - reordered every " + this.reorderInterval + " cycles: force calculation in ms " + row[3] / 1e6
+                    + ", build in ms " + row[4] / 1e6 + ", reordering in ms " + row[5] / 1e6 + " - speedup of the cycle: "
+                    + (row[0] + row[1]) / (row[3] + row[4] + row[5]));
+        }
+        for (int i = 0; i < this.fastMultipoleSimulationTypes.length; i++) {
+            double[] row = this.stacklessWalkComparison[i];
+            System.out.println(this.fastMultipoleSimulationTypes[i] + " (20000 bodies) - force calculation in ms with the iterative walk " + row[0] / 1e6
+                    + ", with the stackless walk " + row[1] / 1e6 + " (depth first layout " + row[2] / 1e6 + ") - speedup: " + row[0] / row[1]);
+        }
+        for (int i = 0; i < this.interactionListCacheTimeSteps.length; i++) {
+            double[] row = this.interactionListCacheComparison[i];
+            System.out.println("The time of the force calculations of 30 cycles with the grouped walk (5000 bodies, refitted, time step "
+                    + this.interactionListCacheTimeSteps[i] + " s) is in ms: " + row[0] / 1e6 + " - with cached interaction lists: " + row[1] / 1e6
+                    + " - speedup: " + row[0] / row[1] + " - reused lists: " + row[2] * 100 + "%");
+        }
     }
 }